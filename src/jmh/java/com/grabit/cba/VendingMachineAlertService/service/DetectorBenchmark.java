@@ -0,0 +1,62 @@
+package com.grabit.cba.VendingMachineAlertService.service;
+
+import com.grabit.cba.VendingMachineAlertService.database.model.projection.SalesSignal;
+import com.grabit.cba.VendingMachineAlertService.enums.TransactionTypes;
+import com.grabit.cba.VendingMachineAlertService.service.stream.TransactionWindow;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per machine detector cost: the timeout, consecutive void and sale-failed pattern checks over one machine's window.
+ * Each runs once per machine per monitor cycle, so a 2,000 machine fleet multiplies these numbers by 2,000.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DetectorBenchmark {
+
+    private static final String[] STATUSES = {"SALE_COMPLETED", "SALE_COMPLETED", "SALE_COMPLETED", "SALE_FAILED",
+            "VOID_COMPLETED", "VOID_FAILED"};
+
+    @Param({"20", "100"})
+    int windowSize;
+
+    private TransactionWindow window;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        LocalDateTime newest = LocalDateTime.of(2026, 1, 1, 12, 0);
+        List<SalesSignal> latestNewestFirst = new ArrayList<>(windowSize);
+        for (int i = 0; i < windowSize; i++) {
+            String description = random.nextInt(8) == 0 ? "Transaction Time out" : "Approved";
+            latestNewestFirst.add(new SalesSignal(100_000 - i, 1, newest.minusMinutes(i),
+                    STATUSES[random.nextInt(STATUSES.length)], description, 250));
+        }
+        window = TransactionWindow.of(latestNewestFirst);
+    }
+
+    @Benchmark
+    public TimeoutMonitorService.TimeoutAnalysisResult timeoutPattern() {
+        return TimeoutMonitorService.analyzeTimeoutPattern(window, windowSize);
+    }
+
+    @Benchmark
+    public ConsecutiveVoidCompleteMonitorService.VoidAnalysisResult voidPattern() {
+        return ConsecutiveVoidCompleteMonitorService.analyzeVoidPattern(window, windowSize);
+    }
+
+    @Benchmark
+    public AllMachineSaleFailedHealthMonitorService.FailurePattern saleFailedPattern() {
+        return AllMachineSaleFailedHealthMonitorService.analyzeFailurePattern(window, TransactionTypes.SALE_FAILED.mask(),
+                windowSize, windowSize / 2);
+    }
+}
@@ -0,0 +1,93 @@
+package com.grabit.cba.VendingMachineAlertService.service.rollup;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Baseline math for one machine: accumulating the hourly rollup rows of the lookback window and extracting the 4 x 24
+ * medians. {@code histogram} is what the nightly job runs; {@code sortedLists} is the previous per-day map and boxed
+ * sort, kept as the reference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BaselineMedianBenchmark {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2026, 1, 1);
+
+    @Param({"30", "90"})
+    int lookbackDays;
+
+    // One rollup row per (day, hour) with transactions: day offset, hour and the four counts
+    private int[][] rows;
+    private LocalDate[] days;
+    private final HourlyBaselineKernel kernel = new HourlyBaselineKernel();
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(7);
+        List<int[]> generated = new ArrayList<>();
+        for (int day = 0; day < lookbackDays; day++) {
+            for (int hour = 6; hour < 23; hour++) {
+                generated.add(new int[]{day, hour, random.nextInt(12), random.nextInt(3), random.nextInt(2), random.nextInt(2)});
+            }
+        }
+        rows = generated.toArray(new int[0][]);
+        days = new LocalDate[lookbackDays];
+        for (int day = 0; day < lookbackDays; day++) {
+            days[day] = FIRST_DAY.plusDays(day);
+        }
+    }
+
+    @Benchmark
+    public void histogram(Blackhole blackhole) {
+        kernel.reset();
+        for (int[] row : rows) {
+            kernel.add(days[row[0]], row[1], row[2], row[3], row[4], row[5]);
+        }
+        for (int hour = 0; hour < 24; hour++) {
+            for (int metric = 0; metric < HourlyBaselineKernel.METRICS; metric++) {
+                blackhole.consume(kernel.median(metric, hour));
+            }
+        }
+    }
+
+    @Benchmark
+    public void sortedLists(Blackhole blackhole) {
+        List<Map<LocalDate, long[]>> daily = new ArrayList<>(HourlyBaselineKernel.METRICS);
+        for (int metric = 0; metric < HourlyBaselineKernel.METRICS; metric++) {
+            daily.add(new HashMap<>());
+        }
+        for (int[] row : rows) {
+            LocalDate day = days[row[0]];
+            for (int metric = 0; metric < HourlyBaselineKernel.METRICS; metric++) {
+                daily.get(metric).computeIfAbsent(day, k -> new long[24])[row[1]] += row[2 + metric];
+            }
+        }
+        for (int hour = 0; hour < 24; hour++) {
+            for (Map<LocalDate, long[]> counts : daily) {
+                blackhole.consume(sortedMedian(counts, hour));
+            }
+        }
+    }
+
+    private static double sortedMedian(Map<LocalDate, long[]> dailyCounts, int hour) {
+        List<Long> values = new ArrayList<>();
+        for (long[] dailyHourCounts : dailyCounts.values()) {
+            values.add(dailyHourCounts[hour]);
+        }
+        if (values.isEmpty()) {
+            return 0.0;
+        }
+        Collections.sort(values);
+        int size = values.size();
+        return size % 2 == 0 ? (values.get(size / 2 - 1) + values.get(size / 2)) / 2.0 : values.get(size / 2);
+    }
+}
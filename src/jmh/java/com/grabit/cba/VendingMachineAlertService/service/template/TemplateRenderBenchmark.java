@@ -0,0 +1,101 @@
+package com.grabit.cba.VendingMachineAlertService.service.template;
+
+import org.openjdk.jmh.annotations.*;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering of every alert mail template through {@link AlertTemplateRenderer}, with the template engine set up the
+ * way Spring Boot configures it (classpath templates/*.html, cached).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateRenderBenchmark {
+
+    @Param({"Timeout", "Consecutive_void_complete", "Offline_vm", "Sale_failed", "Void_failed", "Hourly_baseline_drop"})
+    String template;
+
+    private AlertTemplateRenderer renderer;
+    private AlertMailModel model;
+
+    @Setup
+    public void setUp() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        resolver.setCacheable(true);
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        renderer = new AlertTemplateRenderer(engine);
+        renderer.warmUp();
+        model = models().get(template);
+    }
+
+    @Benchmark
+    public String render() {
+        return renderer.render(model);
+    }
+
+    private static Map<String, AlertMailModel> models() {
+        List<BaselineRow> rows = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            rows.add(new BaselineRow("VM-" + i, "Machine " + i, 12.5, i % 5, i % 3, i % 2, 0));
+        }
+        return Map.of(
+                "Timeout", new AlertMailModel.Timeout("VM-1", "Lobby", 20, 6, 4, "30.0%", 0, 2, "Merchant", "Colombo"),
+                "Consecutive_void_complete", new AlertMailModel.ConsecutiveVoidComplete("VM-1", "Lobby", 5, 0, 2,
+                        "Merchant", "Colombo"),
+                "Offline_vm", new AlertMailModel.OfflineMachine("VM-1", "Lobby", "2026-01-01 10:00", "2 hours",
+                        "Merchant", "1 Main Street"),
+                "Sale_failed", new AlertMailModel.SaleFailed("VM-1", "Lobby", 5, "2026-01-01 10:00",
+                        List.of("5 consecutive failed transactions", "7 failures within last 10 transactions"),
+                        "Merchant", "0", "2", "Colombo"),
+                "Void_failed", new AlertMailModel.VoidFailed(123, "2026-01-01 10:00", "250.00", "INV1", "B1", "T1",
+                        "M1", "A1", "****1234", 0, "VM-1", "Lobby", 0, 2, "Merchant", "Colombo"),
+                "Hourly_baseline_drop", new AlertMailModel.HourlyBaselineDrop("CBL", 10, "2026-01-01 10:00",
+                        "2026-01-01 11:00", "50%", rows, "2026-01-01 10:55:00"));
+    }
+
+    // Same JavaBean shape as the scheduler's email rows
+    public static class BaselineRow {
+        private final String serial;
+        private final String vmName;
+        private final double baselineCompleted;
+        private final long nowCompleted;
+        private final long nowFailed;
+        private final long nowVoidCompleted;
+        private final long nowVoidFailed;
+
+        BaselineRow(String serial, String vmName, double baselineCompleted, long nowCompleted, long nowFailed,
+                    long nowVoidCompleted, long nowVoidFailed) {
+            this.serial = serial;
+            this.vmName = vmName;
+            this.baselineCompleted = baselineCompleted;
+            this.nowCompleted = nowCompleted;
+            this.nowFailed = nowFailed;
+            this.nowVoidCompleted = nowVoidCompleted;
+            this.nowVoidFailed = nowVoidFailed;
+        }
+
+        public String getSerial() { return serial; }
+        public String getVmName() { return vmName; }
+        public double getBaselineCompleted() { return baselineCompleted; }
+        public long getNowCompleted() { return nowCompleted; }
+        public long getNowFailed() { return nowFailed; }
+        public long getNowVoidCompleted() { return nowVoidCompleted; }
+        public long getNowVoidFailed() { return nowVoidFailed; }
+    }
+}
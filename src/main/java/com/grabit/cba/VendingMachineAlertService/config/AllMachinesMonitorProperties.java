@@ -17,6 +17,14 @@ public class AllMachinesMonitorProperties {
     private ConsecutiveVoidComplete consecutiveVoidComplete = new ConsecutiveVoidComplete();
     private TimeoutMonitor timeout = new TimeoutMonitor();
     private HeartbeatMonitor heartbeat = new HeartbeatMonitor();
+    private TransactionStream stream = new TransactionStream();
+    private Evaluation evaluation = new Evaluation();
+    private Scheduling scheduling = new Scheduling();
+    private MailDispatch mail = new MailDispatch();
+    private AlertConfigCache alertConfig = new AlertConfigCache();
+    private Topology topology = new Topology();
+    private AlertState alertState = new AlertState();
+    private SalesRollup rollup = new SalesRollup();
 
     @Data
     public static class FailedSales {
@@ -34,6 +42,7 @@ public class AllMachinesMonitorProperties {
         private boolean baselineEnabled = false;
         private String baselineCron = "0 30 2 * * *";
         private int lookbackPeriodsMonths = 1;
+        private int writeChunkSize = 2000; // baseline rows per batched upsert transaction
     }
 
     @Data
@@ -41,7 +50,7 @@ public class AllMachinesMonitorProperties {
         private boolean hourlyBaselineAlertEnabled = false;
         private String hourlyBaselineAlertCron = "0 5 * * * *";
         private double baselineDropThresholdPercent = 0.30;
-        private int baselineConsecutiveHoursRequired = 2;
+        private int baselineConsecutiveHoursRequired = 2; // not evaluated: a drop in the current hour alerts on its own
         private int alertCooldownMinutes = 60;
     }
 
@@ -81,4 +90,62 @@ public class AllMachinesMonitorProperties {
         private int timeoutMonitoringAlertCooldownMinutes = 60; // cooldown between alerts
     }
 
+    @Data
+    public static class TransactionStream {
+        private int ingestBatchSize = 5000; // Sales rows read per ingestion query
+        private int maxBatchesPerCatchUp = 20; // remaining rows are picked up on the next tick
+        private int windowResyncMinutes = 30; // reload a machine window from the database after this age
+        private long commitGraceSeconds = 120; // ids newer than the newest one seen this long ago are read again, so rows committed late with a lower id are appended; 0 = never
+    }
+
+    @Data
+    public static class Evaluation {
+        private int poolSize = Math.max(2, Runtime.getRuntime().availableProcessors()); // threads evaluating machines in parallel
+        private int maxConcurrentDbTasks = 0; // 0 = derive from the connection pool size
+        private int cycleDeadlineSeconds = 240; // machines not evaluated by then are skipped until the next cycle
+        private int queueCapacity = 2000; // machine tasks waiting for a thread; when full the scheduler thread runs them itself
+    }
+
+    @Data
+    public static class Scheduling {
+        private int poolSize = 0; // 0 = one thread per registered scheduled job, so a long job never delays the others
+    }
+
+    @Data
+    public static class MailDispatch {
+        private int workers = 2; // concurrent SMTP sends
+        private int queueCapacity = 1000; // queued alert mails before new ones are rejected
+        private int maxAttempts = 4;
+        private long initialBackoffMillis = 2000;
+        private double backoffMultiplier = 2.0;
+        private int claimBatchSize = 50; // outbox rows claimed per poll
+        private int claimLeaseSeconds = 300; // a claimed mail is reclaimable after this if its sender died
+        private long pollIntervalMillis = 2000;
+        private int sentRetentionDays = 7; // sent outbox rows are purged after this
+        private int smtpPoolSize = 2; // authenticated SMTP connections kept open, normally equal to workers
+        private int smtpMaxIdleSeconds = 60; // idle connections are reopened after this, before the server drops them
+        private int smtpMaxMessagesPerConnection = 100; // reconnect after this many messages on one connection
+    }
+
+    @Data
+    public static class AlertConfigCache {
+        private long refreshIntervalMillis = 60000; // how often Alert_Type / Alert_Email_Configs are checked for changes
+    }
+
+    @Data
+    public static class Topology {
+        private long refreshIntervalMillis = 60000; // machine status (online/offline) changes show up after at most this
+    }
+
+    @Data
+    public static class AlertState {
+        private long syncIntervalMillis = 60000; // Alert_History rows written elsewhere (other instances, manual SQL) show up after at most this
+    }
+
+    @Data
+    public static class SalesRollup {
+        private long intervalMillis = 300000; // how often new Sales rows are added to Alert_Sales_Hourly_Rollup
+        private int chunkSize = 50000; // Sales ids rolled up per transaction
+        private long commitGraceSeconds = 120; // ids are rolled up once they were the newest id this long ago, so rows committed late with a lower id are counted; 0 = up to the newest id
+    }
 }
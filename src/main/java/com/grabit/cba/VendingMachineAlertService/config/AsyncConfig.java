@@ -1,16 +1,25 @@
 package com.grabit.cba.VendingMachineAlertService.config;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @EnableAsync
+@EnableScheduling
 public class AsyncConfig {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncConfig.class);
+
     @Bean(name = "taskExecutor")
     public Executor taskExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
@@ -21,5 +30,64 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
-}
 
+    @Bean(name = "monitorEvaluationExecutor")
+    public ThreadPoolTaskExecutor monitorEvaluationExecutor(AllMachinesMonitorProperties allMachinesMonitorProperties) {
+        int poolSize = Math.max(1, allMachinesMonitorProperties.getEvaluation().getPoolSize());
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(Math.max(1, allMachinesMonitorProperties.getEvaluation().getQueueCapacity()));
+        // A full queue makes the submitting scheduler thread evaluate the machine, throttling submission
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("MonitorEval-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    @Bean(name = "mailDispatchExecutor")
+    public ThreadPoolTaskExecutor mailDispatchExecutor(AllMachinesMonitorProperties allMachinesMonitorProperties) {
+        AllMachinesMonitorProperties.MailDispatch config = allMachinesMonitorProperties.getMail();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.max(1, config.getWorkers()));
+        executor.setMaxPoolSize(Math.max(1, config.getWorkers()));
+        executor.setQueueCapacity(Math.max(1, config.getQueueCapacity()));
+        executor.setThreadNamePrefix("MailDispatch-");
+        // Let queued alerts go out on a graceful shutdown
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    // Picked up by @Scheduled instead of Spring's default single-threaded scheduler
+    @Bean(name = "taskScheduler")
+    public ThreadPoolTaskScheduler taskScheduler(AllMachinesMonitorProperties allMachinesMonitorProperties) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(Math.max(1, allMachinesMonitorProperties.getScheduling().getPoolSize()));
+        scheduler.setThreadNamePrefix("Scheduler-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(false);
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    // Runs once every @Scheduled method is registered (jobs whose cron is "-" are not), before any is started
+    @Bean
+    public SchedulingConfigurer taskSchedulerSizing(ThreadPoolTaskScheduler taskScheduler,
+                                                    AllMachinesMonitorProperties allMachinesMonitorProperties) {
+        return registrar -> {
+            int configured = allMachinesMonitorProperties.getScheduling().getPoolSize();
+            int jobs = registrar.getCronTaskList().size() + registrar.getFixedRateTaskList().size()
+                    + registrar.getFixedDelayTaskList().size() + registrar.getTriggerTaskList().size();
+            int poolSize = configured > 0 ? configured : Math.max(1, jobs);
+            taskScheduler.setPoolSize(poolSize);
+            registrar.setTaskScheduler(taskScheduler);
+            if (poolSize < jobs) {
+                LOGGER.warn("Scheduler pool has {} threads for {} scheduled jobs; jobs may wait for each other", poolSize, jobs);
+            } else {
+                LOGGER.info("Scheduler pool sized to {} threads for {} scheduled jobs", poolSize, jobs);
+            }
+        };
+    }
+}
@@ -0,0 +1,34 @@
+package com.grabit.cba.VendingMachineAlertService.controller;
+
+import com.grabit.cba.VendingMachineAlertService.service.cache.AlertConfigCache;
+import com.grabit.cba.VendingMachineAlertService.util.StandardResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/alert-config")
+public class AlertConfigController {
+
+    private final AlertConfigCache alertConfigCache;
+
+    public AlertConfigController(AlertConfigCache alertConfigCache) {
+        this.alertConfigCache = alertConfigCache;
+    }
+
+    // Forces a reload of Alert_Type and Alert_Email_Configs, e.g. after editing them with plain SQL
+    @PostMapping("/cache/invalidate")
+    public ResponseEntity<StandardResponse> invalidateCache() {
+        alertConfigCache.invalidate();
+        return new ResponseEntity<>(
+                new StandardResponse(
+                        HttpStatus.OK.value(),
+                        "Alert configuration cache invalidated",
+                        null
+                ),
+                HttpStatus.OK
+        );
+    }
+}
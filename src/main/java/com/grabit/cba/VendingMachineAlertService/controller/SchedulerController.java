@@ -0,0 +1,32 @@
+package com.grabit.cba.VendingMachineAlertService.controller;
+
+import com.grabit.cba.VendingMachineAlertService.scheduler.ScheduledJobRunner;
+import com.grabit.cba.VendingMachineAlertService.util.StandardResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/scheduler")
+public class SchedulerController {
+
+    private final ScheduledJobRunner scheduledJobRunner;
+
+    public SchedulerController(ScheduledJobRunner scheduledJobRunner) {
+        this.scheduledJobRunner = scheduledJobRunner;
+    }
+
+    @GetMapping("/jobs")
+    public ResponseEntity<StandardResponse> getJobs() {
+        return new ResponseEntity<>(
+                new StandardResponse(
+                        HttpStatus.OK.value(),
+                        "Scheduled jobs retrieved successfully",
+                        scheduledJobRunner.getStatuses()
+                ),
+                HttpStatus.OK
+        );
+    }
+}
@@ -0,0 +1,95 @@
+package com.grabit.cba.VendingMachineAlertService.database.model;
+
+import com.grabit.cba.VendingMachineAlertService.enums.OutboxStatus;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "Alert_Outbox", uniqueConstraints =
+        @UniqueConstraint(name = AlertOutbox.ACTIVE_DEDUPE_KEY_CONSTRAINT, columnNames = "activeDedupeKey"))
+@Data
+public class AlertOutbox {
+
+    public static final String ACTIVE_DEDUPE_KEY_CONSTRAINT = "uk_alert_outbox_active_dedupe_key";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "idempotencyKey", nullable = false, unique = true, updatable = false)
+    private String idempotencyKey;
+
+    @Column(name = "dedupeKey")
+    private String dedupeKey;
+
+    // dedupeKey while the mail is PENDING or SENDING, null once it is SENT or FAILED; unique, so one mail per alert in flight
+    @Column(name = "activeDedupeKey")
+    private String activeDedupeKey;
+
+    @Column(name = "mailFrom")
+    private String mailFrom;
+
+    // recipients are stored comma separated, as in Alert_Email_Configs
+    @Column(name = "mailTo", nullable = false, columnDefinition = "text")
+    private String mailTo;
+
+    @Column(name = "mailCc", columnDefinition = "text")
+    private String mailCc;
+
+    @Column(name = "mailBcc", columnDefinition = "text")
+    private String mailBcc;
+
+    @Column(name = "subject", length = 998)
+    private String subject;
+
+    @Column(name = "body", columnDefinition = "mediumtext")
+    private String body;
+
+    @Column(name = "html", nullable = false)
+    private boolean html;
+
+    @Column(name = "logo", columnDefinition = "mediumtext")
+    private String logo;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 16)
+    private OutboxStatus status;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "nextAttemptAt", nullable = false, columnDefinition = "datetime(6)")
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "claimedBy")
+    private String claimedBy;
+
+    @Column(name = "claimedUntil", columnDefinition = "datetime(6)")
+    private LocalDateTime claimedUntil;
+
+    @Column(name = "lastError", length = 1000)
+    private String lastError;
+
+    @Column(name = "sentAt", columnDefinition = "datetime(6)")
+    private LocalDateTime sentAt;
+
+    @Column(name = "createdAt", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updatedAt")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        LocalDateTime now = LocalDateTime.now();
+        this.createdAt = now;
+        this.updatedAt = now;
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,41 @@
+package com.grabit.cba.VendingMachineAlertService.database.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * AlertHistory row to write once the owning outbox mail has been delivered
+ */
+@Entity
+@Table(name = "Alert_Outbox_History")
+@Data
+public class AlertOutboxHistory {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "outboxId", nullable = false)
+    private Long outboxId;
+
+    @Column(name = "vendingMachineId")
+    private Integer vendingMachineId;
+
+    @Column(name = "vendingMachineSerial")
+    private String vendingMachineSerial;
+
+    @Column(name = "transactionId")
+    private Integer transactionId;
+
+    @Column(name = "alertTypeId", nullable = false)
+    private Integer alertTypeId;
+
+    @Column(name = "partnerName")
+    private String partnerName;
+
+    // fixed send time to record; null records the delivery time
+    @Column(name = "lastSentAt", columnDefinition = "datetime(6)")
+    private LocalDateTime lastSentAt;
+}
@@ -0,0 +1,51 @@
+package com.grabit.cba.VendingMachineAlertService.database.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "Alert_Sales_Hourly_Rollup")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertSalesHourlyRollup {
+
+    @Embeddable
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Id implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "machineId")
+        private Integer machineId;
+
+        @Column(name = "saleDate")
+        private LocalDate saleDate;
+
+        @Column(name = "hourOfDay")
+        private Integer hourOfDay; // 0-23
+    }
+
+    @EmbeddedId
+    private Id id;
+
+    @Column(name = "salesCompleted")
+    private int salesCompleted;
+
+    @Column(name = "salesFailed")
+    private int salesFailed;
+
+    @Column(name = "voidCompleted")
+    private int voidCompleted;
+
+    @Column(name = "voidFailed")
+    private int voidFailed;
+
+    @Column(name = "updatedAt", columnDefinition = "datetime(6)")
+    private LocalDateTime updatedAt;
+}
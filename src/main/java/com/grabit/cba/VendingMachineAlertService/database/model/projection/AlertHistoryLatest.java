@@ -0,0 +1,14 @@
+package com.grabit.cba.VendingMachineAlertService.database.model.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Latest Alert_History send per machine and alert type, aggregated in the database. Built through JPQL constructor
+ * expressions.
+ */
+public record AlertHistoryLatest(Integer vendingMachineId,
+                                 String vendingMachineSerial,
+                                 Integer alertTypeId,
+                                 LocalDateTime lastSentAt,
+                                 Integer maxId) {
+}
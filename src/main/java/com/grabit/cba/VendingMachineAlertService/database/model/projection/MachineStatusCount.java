@@ -0,0 +1,10 @@
+package com.grabit.cba.VendingMachineAlertService.database.model.projection;
+
+/**
+ * Number of Sales rows of one machine and transaction status in a time window, aggregated in the database. Built
+ * through JPQL constructor expressions.
+ */
+public record MachineStatusCount(Integer vendingMachineId,
+                                 String transactionStatus,
+                                 Long count) {
+}
@@ -0,0 +1,15 @@
+package com.grabit.cba.VendingMachineAlertService.database.model.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only view of a Sales row carrying only the columns the monitors evaluate.
+ * Built through JPQL constructor expressions, so instances are never attached to the persistence context.
+ */
+public record SalesSignal(Integer id,
+                          Integer vendingMachineId,
+                          LocalDateTime dateTime,
+                          String transactionStatus,
+                          String tranStatusDescription,
+                          Integer amount) {
+}
@@ -0,0 +1,12 @@
+package com.grabit.cba.VendingMachineAlertService.database.model.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cheap fingerprint of a small configuration table: any insert, delete or entity update changes at least one of the
+ * components. Built through JPQL constructor expressions.
+ */
+public record TableVersion(Long rowCount,
+                           Integer maxId,
+                           LocalDateTime lastUpdatedAt) {
+}
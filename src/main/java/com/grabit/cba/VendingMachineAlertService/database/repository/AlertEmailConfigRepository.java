@@ -3,7 +3,9 @@ package com.grabit.cba.VendingMachineAlertService.database.repository;
 import com.grabit.cba.VendingMachineAlertService.database.model.AlertEmailConfig;
 import com.grabit.cba.VendingMachineAlertService.database.model.AlertType;
 import com.grabit.cba.VendingMachineAlertService.database.model.other.Partners;
+import com.grabit.cba.VendingMachineAlertService.database.model.projection.TableVersion;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -17,4 +19,8 @@ public interface AlertEmailConfigRepository extends JpaRepository<AlertEmailConf
     Optional<AlertEmailConfig> findFirstByAlertType(AlertType alertType);
 
     Optional<AlertEmailConfig> findFirstByAlertTypeAndPartners(AlertType alertType, Partners partners);
+
+    @Query("SELECT new com.grabit.cba.VendingMachineAlertService.database.model.projection.TableVersion(" +
+            "COUNT(c), MAX(c.id), MAX(c.updatedAt)) FROM AlertEmailConfig c")
+    TableVersion findTableVersion();
 }
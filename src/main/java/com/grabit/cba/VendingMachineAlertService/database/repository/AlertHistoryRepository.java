@@ -2,12 +2,14 @@ package com.grabit.cba.VendingMachineAlertService.database.repository;
 
 import com.grabit.cba.VendingMachineAlertService.database.model.AlertHistory;
 import com.grabit.cba.VendingMachineAlertService.database.model.AlertType;
+import com.grabit.cba.VendingMachineAlertService.database.model.projection.AlertHistoryLatest;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -65,4 +67,12 @@ public interface AlertHistoryRepository extends JpaRepository<AlertHistory, Inte
 
     @Query("SELECT ah FROM AlertHistory ah WHERE ah.vendingMachineSerial = :serial AND ah.alertType.id = :alertTypeId AND ah.transactionId IS NOT NULL ORDER BY ah.lastSentAt DESC, ah.id DESC")
     java.util.List<AlertHistory> findTransactionAlertsBySerialAndAlertType(@Param("serial") String vendingMachineSerial, @Param("alertTypeId") Integer alertTypeId);
+
+    // One row per (machine, alert type) with its latest send, restricted to history rows newer than :afterId
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.grabit.cba.VendingMachineAlertService.database.model.projection.AlertHistoryLatest(" +
+            "ah.vendingMachineId, ah.vendingMachineSerial, ah.alertType.id, MAX(ah.lastSentAt), MAX(ah.id)) " +
+            "FROM AlertHistory ah WHERE ah.id > :afterId AND ah.lastSentAt IS NOT NULL " +
+            "GROUP BY ah.vendingMachineId, ah.vendingMachineSerial, ah.alertType.id")
+    List<AlertHistoryLatest> findLatestSendsAfterId(@Param("afterId") Integer afterId);
 }
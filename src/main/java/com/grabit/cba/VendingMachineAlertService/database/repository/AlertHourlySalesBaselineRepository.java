@@ -3,9 +3,20 @@ package com.grabit.cba.VendingMachineAlertService.database.repository;
 import com.grabit.cba.VendingMachineAlertService.database.model.AlertHourlySalesBaseline;
 import com.grabit.cba.VendingMachineAlertService.database.model.AlertHourlySalesBaseline.Id;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface AlertHourlySalesBaselineRepository extends JpaRepository<AlertHourlySalesBaseline, Id> {
-}
 
+    // Primary key lookups (machineId, hourOfDay) for all machines of a partner at once
+    @Transactional(readOnly = true)
+    @Query("SELECT b FROM AlertHourlySalesBaseline b WHERE b.id.machineId IN :machineIds AND b.id.hourOfDay = :hourOfDay")
+    List<AlertHourlySalesBaseline> findByMachineIdsAndHourOfDay(@Param("machineIds") Collection<Integer> machineIds,
+                                                               @Param("hourOfDay") Integer hourOfDay);
+}
@@ -0,0 +1,13 @@
+package com.grabit.cba.VendingMachineAlertService.database.repository;
+
+import com.grabit.cba.VendingMachineAlertService.database.model.AlertOutboxHistory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AlertOutboxHistoryRepository extends JpaRepository<AlertOutboxHistory, Long> {
+
+    List<AlertOutboxHistory> findByOutboxId(Long outboxId);
+}
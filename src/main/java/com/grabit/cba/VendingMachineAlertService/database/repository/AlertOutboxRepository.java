@@ -0,0 +1,30 @@
+package com.grabit.cba.VendingMachineAlertService.database.repository;
+
+import com.grabit.cba.VendingMachineAlertService.database.model.AlertOutbox;
+import com.grabit.cba.VendingMachineAlertService.enums.OutboxStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AlertOutboxRepository extends JpaRepository<AlertOutbox, Long> {
+
+    // Due mails plus mails whose claim lease expired (the claiming instance died mid-send). SKIP LOCKED lets several
+    // instances claim disjoint batches concurrently; must run inside the claiming transaction.
+    @Query(value = "SELECT * FROM Alert_Outbox " +
+            "WHERE (status = 'PENDING' AND nextAttemptAt <= :now) " +
+            "OR (status = 'SENDING' AND claimedUntil < :now) " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<AlertOutbox> lockClaimable(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM AlertOutbox o WHERE o.status = :status AND o.updatedAt < :before")
+    int deleteByStatusAndUpdatedAtBefore(@Param("status") OutboxStatus status, @Param("before") LocalDateTime before);
+}
@@ -0,0 +1,71 @@
+package com.grabit.cba.VendingMachineAlertService.database.repository;
+
+import com.grabit.cba.VendingMachineAlertService.database.model.AlertSalesHourlyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AlertSalesHourlyRollupRepository extends JpaRepository<AlertSalesHourlyRollup, AlertSalesHourlyRollup.Id> {
+
+    @Transactional(readOnly = true)
+    @Query("SELECT r FROM AlertSalesHourlyRollup r WHERE r.id.machineId IN :machineIds " +
+            "AND r.id.saleDate BETWEEN :from AND :to ORDER BY r.id.machineId, r.id.saleDate, r.id.hourOfDay")
+    List<AlertSalesHourlyRollup> findByMachineIdsAndSaleDateBetween(@Param("machineIds") Collection<Integer> machineIds,
+                                                                   @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    // Creates the single state row on first use; no-op afterwards
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO Alert_Sales_Hourly_Rollup_State (id, lastSaleId, updatedAt) VALUES (1, 0, NOW(6))", nativeQuery = true)
+    int initState();
+
+    // Serialises roll-ups across instances; must run inside the roll-up transaction. One row of
+    // {lastSaleId, pendingSaleId, pendingSinceMillis}.
+    @Query(value = "SELECT lastSaleId, pendingSaleId, pendingSinceMillis FROM Alert_Sales_Hourly_Rollup_State " +
+            "WHERE id = 1 FOR UPDATE", nativeQuery = true)
+    List<Object[]> lockState();
+
+    @Modifying
+    @Query(value = "UPDATE Alert_Sales_Hourly_Rollup_State SET lastSaleId = :lastSaleId, updatedAt = NOW(6) WHERE id = 1", nativeQuery = true)
+    int saveLastSaleId(@Param("lastSaleId") Integer lastSaleId);
+
+    @Modifying
+    @Query(value = "UPDATE Alert_Sales_Hourly_Rollup_State SET pendingSaleId = :pendingSaleId, " +
+            "pendingSinceMillis = :sinceMillis, updatedAt = NOW(6) WHERE id = 1", nativeQuery = true)
+    int savePendingSaleId(@Param("pendingSaleId") Integer pendingSaleId, @Param("sinceMillis") Long sinceMillis);
+
+    // Add the Sales rows with afterId < id <= upToId to their (machine, date, hour) buckets. Every status creates its
+    // bucket, so a day with any transaction counts as a sampled day for the medians, as it did on the raw rows.
+    @Modifying
+    @Query(value = "INSERT INTO Alert_Sales_Hourly_Rollup " +
+            "(machineId, saleDate, hourOfDay, salesCompleted, salesFailed, voidCompleted, voidFailed, updatedAt) " +
+            "SELECT * FROM (" +
+            "SELECT s.vendingMachineId AS machineId, DATE(s.dateTime) AS saleDate, HOUR(s.dateTime) AS hourOfDay, " +
+            "SUM(UPPER(s.transactionStatus) = 'SALE_COMPLETED') AS salesCompleted, " +
+            "SUM(UPPER(s.transactionStatus) = 'SALE_FAILED') AS salesFailed, " +
+            "SUM(UPPER(s.transactionStatus) = 'VOID_COMPLETE') AS voidCompleted, " +
+            "SUM(UPPER(s.transactionStatus) = 'VOID_FAILED') AS voidFailed, " +
+            "NOW(6) AS updatedAt " +
+            "FROM Sales s WHERE s.id > :afterId AND s.id <= :upToId " +
+            "AND s.dateTime IS NOT NULL AND s.vendingMachineId IS NOT NULL " +
+            "GROUP BY s.vendingMachineId, DATE(s.dateTime), HOUR(s.dateTime)) AS r " +
+            "ON DUPLICATE KEY UPDATE " +
+            "salesCompleted = Alert_Sales_Hourly_Rollup.salesCompleted + r.salesCompleted, " +
+            "salesFailed = Alert_Sales_Hourly_Rollup.salesFailed + r.salesFailed, " +
+            "voidCompleted = Alert_Sales_Hourly_Rollup.voidCompleted + r.voidCompleted, " +
+            "voidFailed = Alert_Sales_Hourly_Rollup.voidFailed + r.voidFailed, " +
+            "updatedAt = r.updatedAt", nativeQuery = true)
+    int rollUpSales(@Param("afterId") Integer afterId, @Param("upToId") Integer upToId);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM AlertSalesHourlyRollup r WHERE r.id.saleDate < :before")
+    int deleteBySaleDateBefore(@Param("before") LocalDate before);
+}
@@ -1,7 +1,9 @@
 package com.grabit.cba.VendingMachineAlertService.database.repository;
 
 import com.grabit.cba.VendingMachineAlertService.database.model.AlertType;
+import com.grabit.cba.VendingMachineAlertService.database.model.projection.TableVersion;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -9,5 +11,8 @@ import java.util.Optional;
 @Repository
 public interface AlertTypeRepository extends JpaRepository<AlertType, Integer> {
     Optional<AlertType> findByCode(String code);
-}
 
+    @Query("SELECT new com.grabit.cba.VendingMachineAlertService.database.model.projection.TableVersion(" +
+            "COUNT(t), MAX(t.id), MAX(t.updatedAt)) FROM AlertType t")
+    TableVersion findTableVersion();
+}
@@ -1,16 +1,27 @@
 package com.grabit.cba.VendingMachineAlertService.database.repository;
 
 import com.grabit.cba.VendingMachineAlertService.database.model.other.Sales;
+import com.grabit.cba.VendingMachineAlertService.database.model.projection.MachineStatusCount;
+import com.grabit.cba.VendingMachineAlertService.database.model.projection.SalesSignal;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.*;
+import java.util.stream.Stream;
 
 public interface SalesRepository extends JpaRepository<Sales, Integer> {
 
+    // Upper bound for the IN list of a single window query; larger fleets are fetched in several chunks
+    int LATEST_WINDOW_CHUNK_SIZE = 500;
+
     @Query("SELECT s FROM Sales s JOIN s.vendingMachine vm WHERE vm.serialNo = :serialNo ORDER BY s.dateTime DESC")
     List<Sales> findLatestByMachineSerial(@Param("serialNo") String serialNo, Pageable pageable);
 
@@ -22,4 +33,92 @@ public interface SalesRepository extends JpaRepository<Sales, Integer> {
 
     @Query("SELECT s FROM Sales s JOIN s.vendingMachine vm WHERE vm.serialNo = :serialNo AND s.dateTime > :lastCheckedDatetime ORDER BY s.dateTime DESC")
     List<Sales> findLatestByMachineSerialAfterDatetime(@Param("serialNo") String serialNo, @Param("lastCheckedDatetime") LocalDateTime lastCheckedDatetime, Pageable pageable);
+
+    // Latest :limit transactions of every given machine in one round trip, as rows of {id, vendingMachineId, dateTime,
+    // transactionStatus, TranStatusDescription, amount}, newest first per machine. The LATERAL derived table lets MySQL
+    // walk the (vendingMachineId, dateTime, id) index backwards per machine and stop after :limit rows instead of
+    // ranking the whole transaction history of the fleet; only those rows are read from the clustered index.
+    @Query(value = "SELECT s.id, vm.id AS vendingMachineId, s.dateTime, s.transactionStatus, s.TranStatusDescription, s.amount " +
+            "FROM VendingMachines vm, " +
+            "LATERAL (SELECT x.id, x.dateTime, x.transactionStatus, x.TranStatusDescription, x.amount FROM Sales x " +
+            "WHERE x.vendingMachineId = vm.id ORDER BY x.dateTime DESC, x.id DESC LIMIT :limit) s " +
+            "WHERE vm.id IN (:machineIds) ORDER BY vm.id, s.dateTime DESC, s.id DESC", nativeQuery = true)
+    List<Object[]> findLatestSignalRowsByMachineIds(@Param("machineIds") Collection<Integer> machineIds, @Param("limit") int limit);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.grabit.cba.VendingMachineAlertService.database.model.projection.SalesSignal(" +
+            "s.id, s.vendingMachine.id, s.dateTime, s.transactionStatus, s.tranStatusDescription, s.amount) " +
+            "FROM Sales s JOIN s.vendingMachine vm WHERE vm.serialNo = :serialNo ORDER BY s.dateTime DESC, s.id DESC")
+    List<SalesSignal> findLatestSignalsByMachineSerial(@Param("serialNo") String serialNo, Pageable pageable);
+
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.grabit.cba.VendingMachineAlertService.database.model.projection.SalesSignal(" +
+            "s.id, s.vendingMachine.id, s.dateTime, s.transactionStatus, s.tranStatusDescription, s.amount) " +
+            "FROM Sales s JOIN s.vendingMachine vm WHERE vm.serialNo = :serialNo AND s.dateTime BETWEEN :start AND :end ORDER BY s.dateTime ASC")
+    List<SalesSignal> findSignalsByMachineSerialAndDateBetween(@Param("serialNo") String serialNo, @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // Per machine and status counts of [start, end) for a whole partner in one range scan of (vendingMachineId, dateTime, id)
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.grabit.cba.VendingMachineAlertService.database.model.projection.MachineStatusCount(" +
+            "s.vendingMachine.id, s.transactionStatus, COUNT(s.id)) " +
+            "FROM Sales s WHERE s.vendingMachine.id IN :machineIds AND s.dateTime >= :start AND s.dateTime < :end " +
+            "GROUP BY s.vendingMachine.id, s.transactionStatus")
+    List<MachineStatusCount> countByMachineIdsAndStatusBetween(@Param("machineIds") Collection<Integer> machineIds,
+                                                              @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // Streams one machine's transactions of [start, end) in index order. Integer.MIN_VALUE makes the MySQL driver read
+    // the rows one by one instead of buffering the result set; the caller must close the stream inside a transaction
+    // and must not use the connection for anything else until then.
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("SELECT new com.grabit.cba.VendingMachineAlertService.database.model.projection.SalesSignal(" +
+            "s.id, s.vendingMachine.id, s.dateTime, s.transactionStatus, s.tranStatusDescription, s.amount) " +
+            "FROM Sales s WHERE s.vendingMachine.id = :machineId AND s.dateTime >= :start AND s.dateTime < :end " +
+            "ORDER BY s.dateTime ASC, s.id ASC")
+    Stream<SalesSignal> streamSignalsByMachineIdAndDateBetween(@Param("machineId") Integer machineId,
+                                                               @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    @Query("SELECT MAX(s.id) FROM Sales s")
+    Integer findMaxId();
+
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.grabit.cba.VendingMachineAlertService.database.model.projection.SalesSignal(" +
+            "s.id, s.vendingMachine.id, s.dateTime, s.transactionStatus, s.tranStatusDescription, s.amount) " +
+            "FROM Sales s WHERE s.id > :afterId ORDER BY s.id ASC")
+    List<SalesSignal> findSignalsAfterId(@Param("afterId") Integer afterId, Pageable pageable);
+
+    /**
+     * Fetch the latest {@code limit} transactions (newest first) for each of the given machines as {@link SalesSignal}
+     * projections, one query per chunk of {@link #LATEST_WINDOW_CHUNK_SIZE} machines instead of one query per
+     * machine. Machines without any transaction are absent from the returned map.
+     */
+    @Transactional(readOnly = true)
+    default Map<Integer, List<SalesSignal>> findLatestSignalsByMachineIds(Collection<Integer> machineIds, int limit) {
+        Map<Integer, List<SalesSignal>> result = new HashMap<>();
+        if (machineIds == null || machineIds.isEmpty() || limit <= 0) {
+            return result;
+        }
+        List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(machineIds));
+        ids.removeIf(Objects::isNull);
+        for (int from = 0; from < ids.size(); from += LATEST_WINDOW_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + LATEST_WINDOW_CHUNK_SIZE, ids.size()));
+            for (Object[] row : findLatestSignalRowsByMachineIds(chunk, limit)) {
+                SalesSignal signal = new SalesSignal(toInteger(row[0]), toInteger(row[1]), toLocalDateTime(row[2]),
+                        (String) row[3], (String) row[4], toInteger(row[5]));
+                result.computeIfAbsent(signal.vendingMachineId(), k -> new ArrayList<>()).add(signal);
+            }
+        }
+        return result;
+    }
+
+    private static Integer toInteger(Object value) {
+        return value == null ? null : ((Number) value).intValue();
+    }
+
+    // Native scalar results come back as java.sql.Timestamp or LocalDateTime depending on the driver
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
 }
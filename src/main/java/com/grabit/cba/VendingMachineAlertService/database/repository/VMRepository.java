@@ -5,7 +5,9 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,9 +15,18 @@ import java.util.Optional;
 public interface VMRepository extends JpaRepository<VendingMachine,Integer> {
     Optional<VendingMachine> findBySerialNo(String serialNo);
 
+    List<VendingMachine> findBySerialNoIn(Collection<String> serialNos);
+
     @Query("SELECT vm FROM VendingMachine vm WHERE vm.merchantId IN :merchantIds AND (vm.isDeleted IS NULL OR vm.isDeleted = false) AND vm.status = 1")
     List<VendingMachine> findActiveByMerchantIds(@Param("merchantIds") List<Integer> merchantIds);
 
     @Query("SELECT vm FROM VendingMachine vm WHERE vm.merchantId IN :merchantIds AND (vm.isDeleted IS NULL OR vm.isDeleted = false) AND vm.status = 0")
     List<VendingMachine> findOfflineByMerchantIds(@Param("merchantIds") List<Integer> merchantIds);
+
+    // Whole fleet with its merchant and partner in one round trip: Object[]{VendingMachine, Merchants or null, Partners or null}
+    @Transactional(readOnly = true)
+    @Query("SELECT vm, m, p FROM VendingMachine vm " +
+            "LEFT JOIN Merchants m ON m.id = vm.merchantId " +
+            "LEFT JOIN Partners p ON p.id = m.partnerId")
+    List<Object[]> findFleetTopologyRows();
 }
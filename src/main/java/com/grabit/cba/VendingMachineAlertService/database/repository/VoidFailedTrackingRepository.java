@@ -4,10 +4,14 @@ import com.grabit.cba.VendingMachineAlertService.database.model.VoidFailedTracki
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface VoidFailedTrackingRepository extends JpaRepository<VoidFailedTracking, Integer> {
 
     Optional<VoidFailedTracking> findByVendingMachineSerial(String vendingMachineSerial);
+
+    List<VoidFailedTracking> findByVendingMachineSerialIn(Collection<String> vendingMachineSerials);
 }
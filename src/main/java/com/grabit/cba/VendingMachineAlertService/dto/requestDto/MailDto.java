@@ -13,5 +13,7 @@ public class MailDto {
     private String subject;
     private String body;
     private boolean isHtml;
+    // sent as the X-Alert-Idempotency-Key header so redelivered outbox mails can be recognised
+    private String idempotencyKey;
 
 }
@@ -0,0 +1,19 @@
+package com.grabit.cba.VendingMachineAlertService.dto.responseDto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class MachineSalesReportRow {
+
+    private Integer machineId;
+    private String serial;
+    private String name;
+    private long completed;
+    private long failed;
+    private long voidCompleted;
+    private long voidFailed;
+}
@@ -0,0 +1,24 @@
+package com.grabit.cba.VendingMachineAlertService.dto.responseDto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class PartnerSalesReport {
+
+    private String partnerName;
+    private LocalDateTime windowStart;
+    private LocalDateTime windowEnd;
+    private List<MachineSalesReportRow> vms = new ArrayList<>();
+    private long totalCompleted;
+    private long totalFailed;
+    private long totalVoidCompleted;
+    private long totalVoidFailed;
+}
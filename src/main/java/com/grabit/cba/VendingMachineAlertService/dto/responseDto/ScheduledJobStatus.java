@@ -0,0 +1,27 @@
+package com.grabit.cba.VendingMachineAlertService.dto.responseDto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class ScheduledJobStatus {
+
+    private String jobName;
+    private boolean running;
+    private long runs;
+    private long failures;
+    private long skippedOverlaps;
+    private long missedTriggers;
+    private LocalDateTime lastStartedAt;
+    private LocalDateTime lastFinishedAt;
+    private Long lastDurationMillis;
+    private Long maxDurationMillis;
+    private Long lastLagMillis;
+    private Long maxLagMillis;
+    private String lastError;
+}
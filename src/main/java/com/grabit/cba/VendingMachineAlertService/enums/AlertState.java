@@ -0,0 +1,8 @@
+package com.grabit.cba.VendingMachineAlertService.enums;
+
+public enum AlertState {
+    OK,
+    FIRING,
+    COOLDOWN,
+    RESOLVED
+}
@@ -0,0 +1,8 @@
+package com.grabit.cba.VendingMachineAlertService.enums;
+
+public enum OutboxStatus {
+    PENDING,
+    SENDING,
+    SENT,
+    FAILED
+}
@@ -5,6 +5,45 @@ public enum TransactionTypes {
     SALE_FAILED,
     VOID_COMPLETED,
     VOID_FAILED,
-    TIMEOUT
+    TIMEOUT;
 
+    /**
+     * Status code stored for transaction statuses that do not map to any known type
+     */
+    public static final byte UNKNOWN_CODE = -1;
+
+    private static final TransactionTypes[] VALUES = values();
+
+    /**
+     * Compact code of this type, used by the in-memory transaction windows instead of the status string
+     */
+    public byte code() {
+        return (byte) ordinal();
+    }
+
+    /**
+     * Bit of this type in a status mask built from several types
+     */
+    public int mask() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * Resolve a Sales transactionStatus (case-insensitive) to its code, or {@link #UNKNOWN_CODE}
+     */
+    public static byte codeOf(String status) {
+        if (status == null) {
+            return UNKNOWN_CODE;
+        }
+        for (TransactionTypes type : VALUES) {
+            if (type.name().equalsIgnoreCase(status)) {
+                return type.code();
+            }
+        }
+        return UNKNOWN_CODE;
+    }
+
+    public static int count() {
+        return VALUES.length;
+    }
 }
@@ -0,0 +1,32 @@
+package com.grabit.cba.VendingMachineAlertService.scheduler;
+
+import com.grabit.cba.VendingMachineAlertService.service.cache.AlertConfigCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class AlertConfigRefreshScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AlertConfigRefreshScheduler.class);
+
+    private static final String JOB_NAME = "alert-config-refresh";
+
+    private final AlertConfigCache alertConfigCache;
+    private final ScheduledJobRunner scheduledJobRunner;
+
+    public AlertConfigRefreshScheduler(AlertConfigCache alertConfigCache, ScheduledJobRunner scheduledJobRunner) {
+        this.alertConfigCache = alertConfigCache;
+        this.scheduledJobRunner = scheduledJobRunner;
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${monitor.alertConfig.refreshIntervalMillis:60000}")
+    public void refreshAlertConfig() {
+        scheduledJobRunner.run(JOB_NAME, () -> {
+            if (alertConfigCache.refreshIfChanged()) {
+                LOGGER.info("Alert configuration changed; cache reloaded");
+            }
+        });
+    }
+}
@@ -0,0 +1,55 @@
+package com.grabit.cba.VendingMachineAlertService.scheduler;
+
+import com.grabit.cba.VendingMachineAlertService.config.AllMachinesMonitorProperties;
+import com.grabit.cba.VendingMachineAlertService.database.repository.AlertOutboxRepository;
+import com.grabit.cba.VendingMachineAlertService.enums.OutboxStatus;
+import com.grabit.cba.VendingMachineAlertService.service.EmailDispatchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+@Component
+public class AlertOutboxDispatchScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AlertOutboxDispatchScheduler.class);
+
+    private static final String JOB_NAME = "alert-outbox-dispatch";
+    private static final String PURGE_JOB_NAME = "alert-outbox-purge";
+    private static final String PURGE_CRON = "${monitor.mail.purgeCron:0 15 3 * * *}";
+
+    @Value(PURGE_CRON)
+    private String purgeCron;
+
+    private final EmailDispatchService emailDispatchService;
+    private final AlertOutboxRepository alertOutboxRepository;
+    private final AllMachinesMonitorProperties allMachinesMonitorProperties;
+    private final ScheduledJobRunner scheduledJobRunner;
+
+    public AlertOutboxDispatchScheduler(EmailDispatchService emailDispatchService,
+                                        AlertOutboxRepository alertOutboxRepository,
+                                        AllMachinesMonitorProperties allMachinesMonitorProperties,
+                                        ScheduledJobRunner scheduledJobRunner) {
+        this.emailDispatchService = emailDispatchService;
+        this.alertOutboxRepository = alertOutboxRepository;
+        this.allMachinesMonitorProperties = allMachinesMonitorProperties;
+        this.scheduledJobRunner = scheduledJobRunner;
+    }
+
+    @Scheduled(fixedDelayString = "${monitor.mail.pollIntervalMillis:2000}")
+    public void dispatchOutbox() {
+        scheduledJobRunner.run(JOB_NAME, emailDispatchService::dispatchPending);
+    }
+
+    @Scheduled(cron = PURGE_CRON)
+    public void purgeSentMails() {
+        scheduledJobRunner.run(PURGE_JOB_NAME, purgeCron, () -> {
+            LocalDateTime before = LocalDateTime.now().minusDays(allMachinesMonitorProperties.getMail().getSentRetentionDays());
+            int deleted = alertOutboxRepository.deleteByStatusAndUpdatedAtBefore(OutboxStatus.SENT, before);
+            LOGGER.info("Purged {} sent outbox mails older than {}", deleted, before);
+        });
+    }
+}
@@ -0,0 +1,24 @@
+package com.grabit.cba.VendingMachineAlertService.scheduler;
+
+import com.grabit.cba.VendingMachineAlertService.service.state.AlertStateStore;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class AlertStateSyncScheduler {
+
+    private static final String JOB_NAME = "alert-state-sync";
+
+    private final AlertStateStore alertStateStore;
+    private final ScheduledJobRunner scheduledJobRunner;
+
+    public AlertStateSyncScheduler(AlertStateStore alertStateStore, ScheduledJobRunner scheduledJobRunner) {
+        this.alertStateStore = alertStateStore;
+        this.scheduledJobRunner = scheduledJobRunner;
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${monitor.alertState.syncIntervalMillis:60000}")
+    public void syncAlertState() {
+        scheduledJobRunner.run(JOB_NAME, alertStateStore::syncFromHistory);
+    }
+}
@@ -4,30 +4,40 @@ import com.grabit.cba.VendingMachineAlertService.config.AllMachinesMonitorProper
 import com.grabit.cba.VendingMachineAlertService.service.AllMachineSaleFailedHealthMonitorService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 @Component
-@EnableScheduling
 public class AllMachineFailedSalesMonitorScheduler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AllMachineFailedSalesMonitorScheduler.class);
 
+    private static final String JOB_NAME = "failed-sales-monitor";
+    private static final String CRON = "${monitor.failed-sales.cron:0 */5 * * * *}";
+
+    @Value(CRON)
+    private String cron;
+
     private final AllMachinesMonitorProperties allMachinesMonitorProperties;
     private final AllMachineSaleFailedHealthMonitorService allMachineSaleFailedHealthMonitorService;
+    private final ScheduledJobRunner scheduledJobRunner;
 
     public AllMachineFailedSalesMonitorScheduler(AllMachinesMonitorProperties allMachinesMonitorProperties,
-                                                 AllMachineSaleFailedHealthMonitorService allMachineSaleFailedHealthMonitorService) {
+                                                 AllMachineSaleFailedHealthMonitorService allMachineSaleFailedHealthMonitorService,
+                                                 ScheduledJobRunner scheduledJobRunner) {
         this.allMachinesMonitorProperties = allMachinesMonitorProperties;
         this.allMachineSaleFailedHealthMonitorService = allMachineSaleFailedHealthMonitorService;
+        this.scheduledJobRunner = scheduledJobRunner;
     }
 
-    @Scheduled(cron = "${monitor.failed-sales.cron:0 */5 * * * *}")
+    @Scheduled(cron = CRON)
     public void runCron() {
-        LOGGER.info("Failed sales Cron start: Machine health monitor");
-        allMachineSaleFailedHealthMonitorService.evaluateAllMachines();
-        LOGGER.info("Failed sales Cron end: Machine health monitor");
+        scheduledJobRunner.run(JOB_NAME, cron, () -> {
+            LOGGER.info("Failed sales Cron start: Machine health monitor");
+            allMachineSaleFailedHealthMonitorService.evaluateAllMachines();
+            LOGGER.info("Failed sales Cron end: Machine health monitor");
+        });
     }
 }
 
@@ -3,26 +3,36 @@ package com.grabit.cba.VendingMachineAlertService.scheduler;
 import com.grabit.cba.VendingMachineAlertService.service.ConsecutiveVoidCompleteMonitorService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 @Component
-@EnableScheduling
 public class ConsecutiveVoidCompleteAlertScheduler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ConsecutiveVoidCompleteAlertScheduler.class);
 
+    private static final String JOB_NAME = "consecutive-void-complete-monitor";
+    private static final String CRON = "${monitor.consecutive-void-complete.consecutiveVoidCompleteCron:0 */5 * * * *}";
+
+    @Value(CRON)
+    private String cron;
+
     private final ConsecutiveVoidCompleteMonitorService consecutiveVoidCompleteMonitorService;
+    private final ScheduledJobRunner scheduledJobRunner;
 
-    public ConsecutiveVoidCompleteAlertScheduler(ConsecutiveVoidCompleteMonitorService consecutiveVoidCompleteMonitorService) {
+    public ConsecutiveVoidCompleteAlertScheduler(ConsecutiveVoidCompleteMonitorService consecutiveVoidCompleteMonitorService,
+                                                 ScheduledJobRunner scheduledJobRunner) {
         this.consecutiveVoidCompleteMonitorService = consecutiveVoidCompleteMonitorService;
+        this.scheduledJobRunner = scheduledJobRunner;
     }
 
-    @Scheduled(cron = "${monitor.consecutive-void-complete.consecutiveVoidCompleteCron:0 */5 * * * *}")
+    @Scheduled(cron = CRON)
     public void checkingConsecutiveVoidCompleteTransactions() {
-        LOGGER.info("Consecutive void complete cron start: Consecutive Void Complete Monitor");
-        consecutiveVoidCompleteMonitorService.evaluateAllMachines();
-        LOGGER.info("Consecutive void complete cron end: Consecutive Void Complete Monitor");
+        scheduledJobRunner.run(JOB_NAME, cron, () -> {
+            LOGGER.info("Consecutive void complete cron start: Consecutive Void Complete Monitor");
+            consecutiveVoidCompleteMonitorService.evaluateAllMachines();
+            LOGGER.info("Consecutive void complete cron end: Consecutive Void Complete Monitor");
+        });
     }
 }
@@ -0,0 +1,24 @@
+package com.grabit.cba.VendingMachineAlertService.scheduler;
+
+import com.grabit.cba.VendingMachineAlertService.service.topology.FleetTopologyService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class FleetTopologyRefreshScheduler {
+
+    private static final String JOB_NAME = "fleet-topology-refresh";
+
+    private final FleetTopologyService fleetTopologyService;
+    private final ScheduledJobRunner scheduledJobRunner;
+
+    public FleetTopologyRefreshScheduler(FleetTopologyService fleetTopologyService, ScheduledJobRunner scheduledJobRunner) {
+        this.fleetTopologyService = fleetTopologyService;
+        this.scheduledJobRunner = scheduledJobRunner;
+    }
+
+    @Scheduled(initialDelay = 0, fixedDelayString = "${monitor.topology.refreshIntervalMillis:60000}")
+    public void refreshTopology() {
+        scheduledJobRunner.run(JOB_NAME, fleetTopologyService::refresh);
+    }
+}
@@ -3,22 +3,26 @@ package com.grabit.cba.VendingMachineAlertService.scheduler;
 import com.grabit.cba.VendingMachineAlertService.config.AllMachinesMonitorProperties;
 import com.grabit.cba.VendingMachineAlertService.database.model.AlertHourlySalesBaseline;
 import com.grabit.cba.VendingMachineAlertService.database.model.AlertType;
-import com.grabit.cba.VendingMachineAlertService.database.model.AlertHistory;
-import com.grabit.cba.VendingMachineAlertService.database.model.other.Sales;
 import com.grabit.cba.VendingMachineAlertService.database.model.other.VendingMachine;
+import com.grabit.cba.VendingMachineAlertService.database.model.projection.MachineStatusCount;
 import com.grabit.cba.VendingMachineAlertService.database.model.other.Partners;
 import com.grabit.cba.VendingMachineAlertService.database.repository.*;
 import com.grabit.cba.VendingMachineAlertService.dto.requestDto.MailDto;
-import com.grabit.cba.VendingMachineAlertService.service.EmailSender;
-import com.grabit.cba.VendingMachineAlertService.util.EmailServiceUtils;
+import com.grabit.cba.VendingMachineAlertService.service.EmailDispatchService;
+import com.grabit.cba.VendingMachineAlertService.service.EmailDispatchService.HistoryIntent;
+import com.grabit.cba.VendingMachineAlertService.service.metrics.MonitorMetrics;
+import com.grabit.cba.VendingMachineAlertService.service.template.AlertMailModel;
+import com.grabit.cba.VendingMachineAlertService.service.template.AlertTemplateRenderer;
+import com.grabit.cba.VendingMachineAlertService.service.cache.AlertConfigCache;
+import com.grabit.cba.VendingMachineAlertService.service.topology.FleetTopology;
+import com.grabit.cba.VendingMachineAlertService.service.topology.FleetTopologyService;
+import com.grabit.cba.VendingMachineAlertService.service.topology.VendingMachineResolver;
+import com.grabit.cba.VendingMachineAlertService.service.state.AlertStateStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -27,25 +31,37 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 @Component
-@EnableScheduling
 public class HourlyBaselineDropAlertScheduler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HourlyBaselineDropAlertScheduler.class);
 
+    private static final String JOB_NAME = "hourly-baseline-drop-alert";
+    private static final String CRON = "${monitor.hourly-baseline-alert.hourlyBaselineAlertCron:0 55 * * * *}";
+
+    @Value(CRON)
+    private String cron;
+
     @Value("${spring.mail.username}")
     private String senderMail;
 
+    // Indexes of the per machine status counts
+    private static final int COMPLETED = 0;
+    private static final int FAILED = 1;
+    private static final int VOID_COMPLETED = 2;
+    private static final int VOID_FAILED = 3;
+    private static final long[] NO_COUNTS = new long[4];
+
     private final AllMachinesMonitorProperties monitorProperties;
-    private final VMRepository vmRepository;
+    private final VendingMachineResolver vendingMachineResolver;
     private final SalesRepository salesRepository;
     private final AlertHourlySalesBaselineRepository baselineRepository;
-    private final AlertTypeRepository alertTypeRepository;
-    private final AlertHistoryRepository alertHistoryRepository;
-    private final AlertEmailConfigRepository alertEmailConfigRepository;
-    private final EmailSender emailSender;
-    private final TemplateEngine templateEngine;
-    private final PartnersRepository partnersRepository;
-    private final MerchantsRepository merchantsRepository;
+    private final AlertStateStore alertStateStore;
+    private final AlertConfigCache alertConfigCache;
+    private final EmailDispatchService emailDispatchService;
+    private final AlertTemplateRenderer alertTemplateRenderer;
+    private final FleetTopologyService fleetTopologyService;
+    private final ScheduledJobRunner scheduledJobRunner;
+    private final MonitorMetrics monitorMetrics;
 
     // DTO for email rows with JavaBean getters for Thymeleaf
     private static class EmailRow {
@@ -72,26 +88,31 @@ public class HourlyBaselineDropAlertScheduler {
         public void setNowVoidFailed(long nowVoidFailed) { this.nowVoidFailed = nowVoidFailed; }
     }
 
-    public HourlyBaselineDropAlertScheduler(AllMachinesMonitorProperties monitorProperties, VMRepository vmRepository,
+    public HourlyBaselineDropAlertScheduler(AllMachinesMonitorProperties monitorProperties, VendingMachineResolver vendingMachineResolver,
                                             SalesRepository salesRepository, AlertHourlySalesBaselineRepository baselineRepository,
-                                            AlertTypeRepository alertTypeRepository, AlertHistoryRepository alertHistoryRepository,
-                                            AlertEmailConfigRepository alertEmailConfigRepository, EmailSender emailSender,
-                                            TemplateEngine templateEngine, PartnersRepository partnersRepository, MerchantsRepository merchantsRepository) {
+                                            AlertStateStore alertStateStore,
+                                            AlertConfigCache alertConfigCache, EmailDispatchService emailDispatchService,
+                                            AlertTemplateRenderer alertTemplateRenderer, FleetTopologyService fleetTopologyService, ScheduledJobRunner scheduledJobRunner,
+                                            MonitorMetrics monitorMetrics) {
         this.monitorProperties = monitorProperties;
-        this.vmRepository = vmRepository;
+        this.vendingMachineResolver = vendingMachineResolver;
         this.salesRepository = salesRepository;
         this.baselineRepository = baselineRepository;
-        this.alertTypeRepository = alertTypeRepository;
-        this.alertHistoryRepository = alertHistoryRepository;
-        this.alertEmailConfigRepository = alertEmailConfigRepository;
-        this.emailSender = emailSender;
-        this.templateEngine = templateEngine;
-        this.partnersRepository = partnersRepository;
-        this.merchantsRepository = merchantsRepository;
+        this.alertStateStore = alertStateStore;
+        this.alertConfigCache = alertConfigCache;
+        this.emailDispatchService = emailDispatchService;
+        this.alertTemplateRenderer = alertTemplateRenderer;
+        this.fleetTopologyService = fleetTopologyService;
+        this.scheduledJobRunner = scheduledJobRunner;
+        this.monitorMetrics = monitorMetrics;
     }
 
-    @Scheduled(cron = "${monitor.hourly-baseline-alert.hourlyBaselineAlertCron:0 55 * * * *}")
+    @Scheduled(cron = CRON)
     public void evaluateHourlyDrops() {
+        scheduledJobRunner.run(JOB_NAME, cron, this::runHourlyDropEvaluation);
+    }
+
+    private void runHourlyDropEvaluation() {
         if (!monitorProperties.getHourlyBaselineAlert().isHourlyBaselineAlertEnabled()) {
             LOGGER.info("Hourly baseline drop alert disabled; skipping");
             return;
@@ -100,17 +121,13 @@ public class HourlyBaselineDropAlertScheduler {
         final int currentHour = now.getHour();
         final LocalDateTime windowStart = now.withMinute(0).withSecond(0).withNano(0);
         final LocalDateTime windowEnd = windowStart.plusHours(1);
-        final LocalDateTime endExclusive = windowEnd.minusNanos(1);
-        final LocalDateTime prevWindowStart = windowStart.minusHours(1);
-        final LocalDateTime prevWindowEndExclusive = windowStart.minusNanos(1);
-        final int prevHourOfDay = (currentHour + 23) % 24; // previous hour within 0-23
         final double threshold = monitorProperties.getHourlyBaselineAlert().getBaselineDropThresholdPercent();
-        final int requiredConsecutive = Math.max(1, monitorProperties.getHourlyBaselineAlert().getBaselineConsecutiveHoursRequired());
 
         LOGGER.info("Hourly baseline drop evaluation start for hour {} ({} - {})", currentHour, windowStart, windowEnd);
 
-        // Fetch all partners and process per-partner
-        List<Partners> partners = partnersRepository.findAll();
+        // Fetch all partners and process per-partner, from one fleet snapshot for the whole run
+        FleetTopology topology = fleetTopologyService.current();
+        List<Partners> partners = topology.partners();
         if (partners == null || partners.isEmpty()) {
             LOGGER.warn("No partners found; skipping hourly baseline drop evaluation");
             return;
@@ -118,7 +135,7 @@ public class HourlyBaselineDropAlertScheduler {
 
         // Cooldown and AlertType lookup once
         String alertCode = "HOURLY_SALES_BASELINE_DROP";
-        AlertType alertType = alertTypeRepository.findByCode(alertCode).orElse(null);
+        AlertType alertType = alertConfigCache.findAlertType(alertCode).orElse(null);
         if (alertType == null) {
             LOGGER.warn("AlertType '{}' not found; cannot send baseline drop alerts (DB-backed cooldown required)", alertCode);
             return;
@@ -133,20 +150,26 @@ public class HourlyBaselineDropAlertScheduler {
             }
 
             // Resolve merchants for this partner
-            List<Integer> merchantIds = merchantsRepository.findIdsByPartnerIds(Collections.singletonList(partnerId));
+            List<Integer> merchantIds = topology.merchantIds(partnerId);
             if (merchantIds == null || merchantIds.isEmpty()) {
                 LOGGER.info("Partner={} (id={}) has no merchants; skipping", partnerName, partnerId);
                 continue;
             }
 
             // Resolve active vending machines for merchants
-            List<VendingMachine> machines = vmRepository.findActiveByMerchantIds(merchantIds);
+            List<VendingMachine> machines = topology.activeMachines(partnerId);
             LOGGER.info("Partner={} (id={}) resolved merchantIds={} vmsFound={}", partnerName, partnerId, merchantIds, machines == null ? 0 : machines.size());
             if (machines == null || machines.isEmpty()) {
                 LOGGER.info("Partner={} has no active VMs; skipping", partnerName);
                 continue;
             }
 
+            // Current hour baselines and status counts of all machines of this partner, one query each
+            List<Integer> machineIds = machines.stream().map(VendingMachine::getId).filter(Objects::nonNull).toList();
+            Map<Integer, AlertHourlySalesBaseline> curBaselines = baselinesByMachine(machineIds, currentHour);
+            Map<Integer, long[]> curCounts = curBaselines.isEmpty() ? Map.of()
+                    : statusCountsByMachine(curBaselines.keySet(), windowStart, windowEnd);
+
             // Collect anomalies for this partner
             List<EmailRow> rows = new ArrayList<>();
 
@@ -155,10 +178,8 @@ public class HourlyBaselineDropAlertScheduler {
                 if (vmId == null) continue;
 
                 // Baseline for current hour
-                AlertHourlySalesBaseline.Id curId = new AlertHourlySalesBaseline.Id(vmId, currentHour);
-                Optional<AlertHourlySalesBaseline> curBaselineOpt = baselineRepository.findById(curId);
-                if (curBaselineOpt.isEmpty()) continue; // no baseline
-                AlertHourlySalesBaseline curBaseline = curBaselineOpt.get();
+                AlertHourlySalesBaseline curBaseline = curBaselines.get(vmId);
+                if (curBaseline == null) continue; // no baseline
 
                 // Baseline eligibility: medianSalesCompleted must be >= 1.0
                 // (Note: field is named avgSalesCompleted but contains median values)
@@ -166,45 +187,28 @@ public class HourlyBaselineDropAlertScheduler {
                 if (baselineCompleted == null || baselineCompleted < 1.0) continue;     // Median baseline too low to evaluate
 
                 // Current hour sales window counts
-                List<Sales> lastHour = salesRepository.findByMachineSerialAndDateBetween(vm.getSerialNo(), windowStart, endExclusive);
-                long nowCompleted = lastHour.stream().filter(s -> "SALE_COMPLETED".equalsIgnoreCase(String.valueOf(s.getTransactionStatus()))).count();
-                long nowFailed = lastHour.stream().filter(s -> "SALE_FAILED".equalsIgnoreCase(String.valueOf(s.getTransactionStatus()))).count();
-                long nowVoidCompleted = lastHour.stream().filter(s -> "VOID_COMPLETE".equalsIgnoreCase(String.valueOf(s.getTransactionStatus()))).count();
-                long nowVoidFailed = lastHour.stream().filter(s -> "VOID_FAILED".equalsIgnoreCase(String.valueOf(s.getTransactionStatus()))).count();
+                long[] counts = curCounts.getOrDefault(vmId, NO_COUNTS);
+                long nowCompleted = counts[COMPLETED];
+                long nowFailed = counts[FAILED];
+                long nowVoidCompleted = counts[VOID_COMPLETED];
+                long nowVoidFailed = counts[VOID_FAILED];
 
                 boolean currentDrop = nowCompleted < baselineCompleted * threshold;
                 if (!currentDrop) {
+                    alertStateStore.resolve(vm.getSerialNo(), alertType);
                     continue; // no anomaly in current hour
                 }
 
-//            boolean consecutiveSatisfied = requiredConsecutive <= 1; // (if 1, current drop is enough)
-                boolean consecutiveSatisfied = true;
-                if (!consecutiveSatisfied) {
-                    // Evaluate previous hour drop using its baseline and sales window
-                    AlertHourlySalesBaseline.Id prevId = new AlertHourlySalesBaseline.Id(vmId, prevHourOfDay);
-                    Optional<AlertHourlySalesBaseline> prevBaselineOpt = baselineRepository.findById(prevId);
-                    if (prevBaselineOpt.isPresent()) {
-                        AlertHourlySalesBaseline prevBaseline = prevBaselineOpt.get();
-                        Double prevBaselineCompleted = prevBaseline.getMedianSalesCompleted(); // actually median
-                        if (prevBaselineCompleted != null && prevBaselineCompleted >= 1.0) {
-                            List<Sales> prevHourSales = salesRepository.findByMachineSerialAndDateBetween(vm.getSerialNo(), prevWindowStart, prevWindowEndExclusive);
-                            long prevCompleted = prevHourSales.stream().filter(s -> "SALE_COMPLETED".equalsIgnoreCase(String.valueOf(s.getTransactionStatus()))).count();
-                            consecutiveSatisfied = prevCompleted < prevBaselineCompleted * threshold;
-                        }
-                    }
-                }
-
-                if (consecutiveSatisfied) {
-                    EmailRow r = new EmailRow();
-                    r.setSerial(vm.getSerialNo());
-                    r.setVmName(vm.getName());
+                // A drop in the current hour is enough; baselineConsecutiveHoursRequired is not evaluated
+                EmailRow r = new EmailRow();
+                r.setSerial(vm.getSerialNo());
+                r.setVmName(vm.getName());
 //                r.setBaselineCompleted(baselineCompleted);
-                    r.setNowCompleted(nowCompleted);
-                    r.setNowFailed(nowFailed);
-                    r.setNowVoidCompleted(nowVoidCompleted);
-                    r.setNowVoidFailed(nowVoidFailed);
-                    rows.add(r);
-                }
+                r.setNowCompleted(nowCompleted);
+                r.setNowFailed(nowFailed);
+                r.setNowVoidCompleted(nowVoidCompleted);
+                r.setNowVoidFailed(nowVoidFailed);
+                rows.add(r);
             }
 
             if (rows.isEmpty()) {
@@ -212,26 +216,22 @@ public class HourlyBaselineDropAlertScheduler {
                 continue;
             }
 
-            // Filter rows by cooldown per machine via AlertHistory
+            // Filter rows by cooldown per machine via the alert state
             List<EmailRow> rowsToAlert = new ArrayList<>();
             for (EmailRow r : rows) {
-                Optional<VendingMachine> vmOpt = vmRepository.findBySerialNo(r.getSerial());
-                Integer vmId = vmOpt.map(VendingMachine::getId).orElse(null);
-                Optional<AlertHistory> lastHist = Optional.empty();
-                if (vmId != null)
-                    lastHist = alertHistoryRepository.findLatestByVendingMachineAndAlertType(vmId, alertType);
-                if (lastHist.isEmpty())
-                    lastHist = alertHistoryRepository.findLatestByVendingMachineSerialAndAlertType(r.getSerial(), alertType);
+                monitorMetrics.alert(alertCode, MonitorMetrics.TRIGGERED);
+                LocalDateTime lastSent = alertStateStore.status(r.getSerial(), alertType).lastSentAt();
 
                 boolean withinCooldown = false;
-                if (lastHist.isPresent() && lastHist.get().getLastSentAt() != null) {
-                    long minutes = java.time.Duration.between(lastHist.get().getLastSentAt(), now).toMinutes();
+                if (lastSent != null) {
+                    long minutes = java.time.Duration.between(lastSent, now).toMinutes();
                     withinCooldown = minutes < monitorProperties.getHourlyBaselineAlert().getAlertCooldownMinutes();
                 }
                 if (!withinCooldown) {
                     rowsToAlert.add(r);
                 } else {
-                    LOGGER.info("Partner={} skipping alert for {} due to cooldown (last sent at {})", partnerName, r.getSerial(), lastHist.get().getLastSentAt());
+                    monitorMetrics.alert(alertCode, MonitorMetrics.SUPPRESSED);
+                    LOGGER.info("Partner={} skipping alert for {} due to cooldown (last sent at {})", partnerName, r.getSerial(), lastSent);
                 }
             }
 
@@ -242,20 +242,12 @@ public class HourlyBaselineDropAlertScheduler {
 
             // Build and send email summary for this partner
             try {
-                Context context = new Context();
-                Map<String, Object> vars = new HashMap<>();
-                vars.put("partner", partnerName);
-                vars.put("hourOfDay", currentHour);
-                vars.put("windowStart", windowStart.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")));
-                vars.put("windowEnd", windowEnd.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")));
-                vars.put("thresholdPercent", String.format(Locale.US, "%.0f%%", threshold * 100));
-                vars.put("consecutiveHours", requiredConsecutive);
-                vars.put("rows", rowsToAlert);
-                vars.put("count", rowsToAlert.size());
-                vars.put("now", now.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-                context.setVariables(vars);
-
-                String html = templateEngine.process("Hourly_baseline_drop", context);
+                AlertMailModel.HourlyBaselineDrop model = new AlertMailModel.HourlyBaselineDrop(partnerName, currentHour,
+                        windowStart.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")),
+                        windowEnd.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")),
+                        String.format(Locale.US, "%.0f%%", threshold * 100), rowsToAlert,
+                        now.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
+                String html = alertTemplateRenderer.render(model);
 
                 MailDto mail = new MailDto();
                 mail.setHtml(true);
@@ -264,10 +256,10 @@ public class HourlyBaselineDropAlertScheduler {
                 mail.setBody(html);
 
                 // Recipients: REQUIRE partner-specific AlertEmailConfig by alert type; do NOT fallback to global
-                alertEmailConfigRepository.findFirstByAlertTypeAndPartners(alertType, partner).ifPresent(cfg -> {
-                    String[] t = EmailServiceUtils.commaSeparatedStringToArray(cfg.getTo());
-                    String[] c = EmailServiceUtils.commaSeparatedStringToArray(cfg.getCc());
-                    String[] b = EmailServiceUtils.commaSeparatedStringToArray(cfg.getBcc());
+                alertConfigCache.findRecipients(alertType, partner).ifPresent(cfg -> {
+                    String[] t = cfg.to();
+                    String[] c = cfg.cc();
+                    String[] b = cfg.bcc();
                     if (t.length > 0) mail.setTo(t);
                     if (c.length > 0) mail.setCc(c);
                     if (b.length > 0) mail.setBcc(b);
@@ -278,33 +270,19 @@ public class HourlyBaselineDropAlertScheduler {
                     continue; // ❗ do not send, do not save history
                 }
 
-                boolean sent = false;
-                try {
-                    sent = emailSender.sendEmail(mail, null, null);
-                } catch (Exception ex) {
-                    LOGGER.error("Partner={} baseline drop email send failed: {}", partnerName, ex.getMessage(), ex);
-                    sent = false;
-                }
-                if (!sent) {
-                    LOGGER.warn("Partner={} baseline drop email not sent; skipping AlertHistory upsert", partnerName);
-                    continue;
-                }
-                String timestamp = now.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-                String recipients = (mail.getTo() != null && mail.getTo().length > 0) ? String.join(",", mail.getTo()) : "<none>";
-                LOGGER.info("Partner={} sent baseline drop alert email at {} to {} for {} machines", partnerName, timestamp, recipients, rowsToAlert.size());
-
-                // Create new AlertHistory record for each machine alerted
+                // One AlertHistory per machine alerted, written by the outbox once the email was confirmed sent
+                Map<String, VendingMachine> machinesBySerial = vendingMachineResolver.bySerials(rowsToAlert.stream().map(EmailRow::getSerial).toList());
+                List<HistoryIntent> history = new ArrayList<>(rowsToAlert.size());
                 for (EmailRow r : rowsToAlert) {
-                    Integer vmId = vmRepository.findBySerialNo(r.getSerial()).map(VendingMachine::getId).orElse(null);
-
-                    // Always create a new AlertHistory record for each email send
-                    AlertHistory h = new AlertHistory();
-                    h.setVendingMachineId(vmId);
-                    h.setVendingMachineSerial(r.getSerial());
-                    h.setLastSentAt(now);
-                    h.setAlertType(alertType);
-                    h.setPartnerName(partnerName);
-                    alertHistoryRepository.saveAndFlush(h);
+                    VendingMachine rowVm = machinesBySerial.get(r.getSerial());
+                    Integer vmId = rowVm == null ? null : rowVm.getId();
+                    history.add(new HistoryIntent(vmId, r.getSerial(), null, alertType, partnerName, now));
+                }
+                boolean queued = emailDispatchService.enqueue(alertCode + ":" + partnerName + ":" + currentHour, mail, null, history);
+                if (queued) {
+                    LOGGER.info("Partner={} queued baseline drop alert email to {} for {} machines", partnerName, String.join(",", mail.getTo()), rowsToAlert.size());
+                } else {
+                    LOGGER.warn("Partner={} baseline drop alert for hour {} is already queued", partnerName, currentHour);
                 }
             } catch (Exception ex) {
                 LOGGER.error("Partner={} failed to send baseline drop alert email: {}", partnerName, ex.getMessage(), ex);
@@ -313,4 +291,37 @@ public class HourlyBaselineDropAlertScheduler {
 
         LOGGER.info("Hourly baseline drop evaluation end");
     }
+
+    private Map<Integer, AlertHourlySalesBaseline> baselinesByMachine(Collection<Integer> machineIds, int hourOfDay) {
+        Map<Integer, AlertHourlySalesBaseline> result = new HashMap<>();
+        if (machineIds.isEmpty()) {
+            return result;
+        }
+        for (AlertHourlySalesBaseline baseline : baselineRepository.findByMachineIdsAndHourOfDay(machineIds, hourOfDay)) {
+            result.put(baseline.getId().getMachineId(), baseline);
+        }
+        return result;
+    }
+
+    // Counts of [start, end) per machine, indexed by COMPLETED, FAILED, VOID_COMPLETED and VOID_FAILED
+    private Map<Integer, long[]> statusCountsByMachine(Collection<Integer> machineIds, LocalDateTime start, LocalDateTime end) {
+        Map<Integer, long[]> result = new HashMap<>();
+        if (machineIds.isEmpty()) {
+            return result;
+        }
+        for (MachineStatusCount row : salesRepository.countByMachineIdsAndStatusBetween(machineIds, start, end)) {
+            int index = switch (String.valueOf(row.transactionStatus()).toUpperCase(Locale.ROOT)) {
+                case "SALE_COMPLETED" -> COMPLETED;
+                case "SALE_FAILED" -> FAILED;
+                case "VOID_COMPLETE" -> VOID_COMPLETED;
+                case "VOID_FAILED" -> VOID_FAILED;
+                default -> -1;
+            };
+            if (index >= 0) {
+                // Statuses differing only in case arrive as separate groups under a case-sensitive collation
+                result.computeIfAbsent(row.vendingMachineId(), k -> new long[4])[index] += row.count();
+            }
+        }
+        return result;
+    }
 }
@@ -2,24 +2,25 @@ package com.grabit.cba.VendingMachineAlertService.scheduler;
 
 import com.grabit.cba.VendingMachineAlertService.database.model.AlertHourlySalesBaseline;
 import com.grabit.cba.VendingMachineAlertService.database.model.AlertHourlySalesBaseline.Id;
+import com.grabit.cba.VendingMachineAlertService.database.model.AlertSalesHourlyRollup;
 import com.grabit.cba.VendingMachineAlertService.database.model.other.Partners;
 import com.grabit.cba.VendingMachineAlertService.database.model.other.VendingMachine;
-import com.grabit.cba.VendingMachineAlertService.database.model.other.Sales;
-import com.grabit.cba.VendingMachineAlertService.database.repository.AlertHourlySalesBaselineRepository;
-import com.grabit.cba.VendingMachineAlertService.database.repository.PartnersRepository;
-import com.grabit.cba.VendingMachineAlertService.database.repository.SalesRepository;
-import com.grabit.cba.VendingMachineAlertService.database.repository.VMRepository;
+import com.grabit.cba.VendingMachineAlertService.service.rollup.HourlyBaselineKernel;
+import com.grabit.cba.VendingMachineAlertService.service.rollup.HourlyBaselineWriter;
+import com.grabit.cba.VendingMachineAlertService.service.rollup.SalesHourlyRollupService;
+import com.grabit.cba.VendingMachineAlertService.service.topology.FleetTopology;
+import com.grabit.cba.VendingMachineAlertService.service.topology.FleetTopologyService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Duration;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
@@ -32,37 +33,51 @@ public class MedianBasedHourlySalesBaselineScheduler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MedianBasedHourlySalesBaselineScheduler.class);
 
+    private static final String JOB_NAME = "hourly-sales-baseline";
+    private static final String CRON = "${monitor.baseline.baselineCron:0 30 2 * * *}";
+
+    @Value(CRON)
+    private String cron;
+
+    @Value("${monitor.baseline.runOnStartup:true}")
+    private boolean runOnStartup;
+
     // Optional safety guard to prevent double execution on startup near cron time
     private static final Duration MIN_INTERVAL = Duration.ofHours(23);
     private LocalDateTime lastRunTime;
 
-    private final PartnersRepository partnersRepository;
-    private final com.grabit.cba.VendingMachineAlertService.database.repository.MerchantsRepository merchantsRepository;
-    private final VMRepository vmRepository;
-    private final SalesRepository salesRepository;
-    private final AlertHourlySalesBaselineRepository baselineRepository;
+    private final FleetTopologyService fleetTopologyService;
+    private final SalesHourlyRollupService salesHourlyRollupService;
+    private final HourlyBaselineWriter hourlyBaselineWriter;
+    private final ScheduledJobRunner scheduledJobRunner;
 
-
-    @Scheduled(cron = "${monitor.baseline.baselineCron:0 30 2 * * *}")
+    @Scheduled(cron = CRON)
     @Transactional
     public void computeBaseline() {
-        runBaselineJob("SCHEDULED_CRON");
+        scheduledJobRunner.run(JOB_NAME, cron, () -> runBaselineJob("SCHEDULED_CRON"));
     }
 
+    // The first run after a deploy backfills the hourly rollup from the whole Sales table, which can take minutes, so
+    // it runs on the async executor instead of holding up the ready event
+    @Async
     @EventListener(ApplicationReadyEvent.class)
     @Transactional
     public void runOnStartup() {
-        runBaselineJob("APPLICATION_STARTUP");
+        if (!runOnStartup) {
+            LOGGER.info("Baseline job on startup disabled (monitor.baseline.runOnStartup=false)");
+            return;
+        }
+        scheduledJobRunner.run(JOB_NAME, () -> runBaselineJob("APPLICATION_STARTUP"));
     }
 
-    public MedianBasedHourlySalesBaselineScheduler(PartnersRepository partnersRepository,
-                                                   com.grabit.cba.VendingMachineAlertService.database.repository.MerchantsRepository merchantsRepository,
-                                                   VMRepository vmRepository, SalesRepository salesRepository, AlertHourlySalesBaselineRepository baselineRepository) {
-        this.partnersRepository = partnersRepository;
-        this.merchantsRepository = merchantsRepository;
-        this.vmRepository = vmRepository;
-        this.salesRepository = salesRepository;
-        this.baselineRepository = baselineRepository;
+    public MedianBasedHourlySalesBaselineScheduler(FleetTopologyService fleetTopologyService,
+                                                   SalesHourlyRollupService salesHourlyRollupService,
+                                                   HourlyBaselineWriter hourlyBaselineWriter,
+                                                   ScheduledJobRunner scheduledJobRunner) {
+        this.fleetTopologyService = fleetTopologyService;
+        this.salesHourlyRollupService = salesHourlyRollupService;
+        this.hourlyBaselineWriter = hourlyBaselineWriter;
+        this.scheduledJobRunner = scheduledJobRunner;
     }
 
     private synchronized boolean canRunNow() {
@@ -80,8 +95,9 @@ public class MedianBasedHourlySalesBaselineScheduler {
 
         LOGGER.info("Hourly baseline job triggered by {} at {}", trigger, now);
 
-        // Fetch all partners (remove hardcoded filtering)
-        List<Partners> partners = partnersRepository.findAll();
+        // Fetch all partners from the shared fleet snapshot (remove hardcoded filtering)
+        FleetTopology topology = fleetTopologyService.current();
+        List<Partners> partners = topology.partners();
         if (partners.isEmpty()) {
             LOGGER.warn("No partners found in repository");
             return;
@@ -91,6 +107,12 @@ public class MedianBasedHourlySalesBaselineScheduler {
         LocalDateTime end = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
         LocalDateTime start = end.minusMonths(lookbackPeriodsMonths);
 
+        // Bring the hourly rollup up to date; the medians below read its buckets instead of the raw Sales rows
+        salesHourlyRollupService.catchUp();
+
+        // One histogram kernel for the whole run, reset per machine
+        HourlyBaselineKernel kernel = new HourlyBaselineKernel();
+
         // Iterate per partner and evaluate baseline per machine without changing baseline logic
         for (Partners partner : partners) {
             Integer partnerId = partner.getId();
@@ -102,14 +124,14 @@ public class MedianBasedHourlySalesBaselineScheduler {
             }
 
             // Fetch merchant IDs for this partner (batch by partner to avoid N+1 beyond partner granularity)
-            List<Integer> merchantIds = merchantsRepository.findIdsByPartnerIds(Collections.singletonList(partnerId));
+            List<Integer> merchantIds = topology.merchantIds(partnerId);
             if (merchantIds == null || merchantIds.isEmpty()) {
                 LOGGER.warn("No merchants found for partner {} (partnerId={})", partnerName, partnerId);
                 continue; // Skip partner
             }
 
             // Fetch active VMs for these merchants
-            List<VendingMachine> vms = vmRepository.findActiveByMerchantIds(merchantIds);
+            List<VendingMachine> vms = topology.activeMachines(partnerId);
             LOGGER.info("Partner={} (id={}) resolved merchantIds={} vmsFound={}", partnerName, partnerId, merchantIds, vms == null ? 0 : vms.size());
 
             if (vms == null || vms.isEmpty()) {
@@ -140,44 +162,32 @@ public class MedianBasedHourlySalesBaselineScheduler {
                 continue; // Skip partner
             }
 
-            // Process each VM individually: fetch all sales once per VM and build per-hour buckets
+            // Hourly buckets of all VMs of this partner in one query, at most days x 24 rows per VM
+            List<Integer> vmIds = vms.stream().map(VendingMachine::getId).filter(Objects::nonNull).toList();
+            Map<Integer, List<AlertSalesHourlyRollup>> rollupsByMachine =
+                    salesHourlyRollupService.rollupsByMachine(vmIds, start.toLocalDate(), end.toLocalDate());
+            // Baselines of the whole partner, written in batches once all its machines are computed
+            List<AlertHourlySalesBaseline> partnerBaselines = new ArrayList<>(vms.size() * 24);
+
             for (VendingMachine vm : vms) {
-                List<Sales> sales = salesRepository.findByMachineSerialAndDateBetween(vm.getSerialNo(), start, end);
-
-                // Build daily counters per hour (to calculate median instead of average)
-                Map<LocalDate, long[]> dailySuccessCounts = new HashMap<>();
-                Map<LocalDate, long[]> dailyFailedCounts = new HashMap<>();
-                Map<LocalDate, long[]> dailyVoidCompletedCounts = new HashMap<>();
-                Map<LocalDate, long[]> dailyVoidFailedCounts = new HashMap<>();
-
-                for (Sales s : sales) {
-                    if (s.getDateTime() == null) continue;
-                    LocalDate day = s.getDateTime().toLocalDate();
-                    int h = s.getDateTime().getHour();
-                    String status = s.getTransactionStatus() == null ? "" : s.getTransactionStatus().toUpperCase();
-
-                    // Initialize arrays if needed
-                    dailySuccessCounts.computeIfAbsent(day, k -> new long[24]);
-                    dailyFailedCounts.computeIfAbsent(day, k -> new long[24]);
-                    dailyVoidCompletedCounts.computeIfAbsent(day, k -> new long[24]);
-                    dailyVoidFailedCounts.computeIfAbsent(day, k -> new long[24]);
-
-                    switch (status) {
-                        case "SALE_COMPLETED": dailySuccessCounts.get(day)[h]++; break;
-                        case "SALE_FAILED": dailyFailedCounts.get(day)[h]++; break;
-                        case "VOID_COMPLETE": dailyVoidCompletedCounts.get(day)[h]++; break;
-                        case "VOID_FAILED": dailyVoidFailedCounts.get(day)[h]++; break;
-                        default: break;
-                    }
+                List<AlertSalesHourlyRollup> rollups = rollupsByMachine.getOrDefault(vm.getId(), List.of());
+
+                // Accumulate the hourly buckets into per-hour histograms (to calculate median instead of average)
+                kernel.reset();
+                for (AlertSalesHourlyRollup rollup : rollups) {
+                    // Same [start, end) window as the raw query on whole hours
+                    LocalDateTime bucketStart = rollup.getId().getSaleDate().atTime(rollup.getId().getHourOfDay(), 0);
+                    if (bucketStart.isBefore(start) || !bucketStart.isBefore(end)) continue;
+                    kernel.add(rollup);
                 }
 
                 // Save baseline per hour for this machine
                 for (int hour = 0; hour < 24; hour++) {
 
-                    double vmMedianSuccess = calculateMedian(dailySuccessCounts, hour);
-                    double vmMedianFailed = calculateMedian(dailyFailedCounts, hour);
-                    double vmMedianVoidCompleted = calculateMedian(dailyVoidCompletedCounts, hour);
-                    double vmMedianVoidFailed = calculateMedian(dailyVoidFailedCounts, hour);
+                    double vmMedianSuccess = kernel.median(HourlyBaselineKernel.SALES_COMPLETED, hour);
+                    double vmMedianFailed = kernel.median(HourlyBaselineKernel.SALES_FAILED, hour);
+                    double vmMedianVoidCompleted = kernel.median(HourlyBaselineKernel.VOID_COMPLETED, hour);
+                    double vmMedianVoidFailed = kernel.median(HourlyBaselineKernel.VOID_FAILED, hour);
 
                     Integer machineId = vm.getId();
                     if (machineId == null) {
@@ -192,46 +202,17 @@ public class MedianBasedHourlySalesBaselineScheduler {
                     baseline.setMedianVoidCompleted(vmMedianVoidCompleted);
                     baseline.setMedianVoidFailed(vmMedianVoidFailed);
                     baseline.setUpdatedAt(LocalDateTime.now());
-                    baselineRepository.save(baseline);
+                    partnerBaselines.add(baseline);
                 }
-                LOGGER.info("Partner={} saved baseline for machine {} (sales records={})", partnerName, vm.getId(), sales.size());
+                LOGGER.info("Partner={} computed baseline for machine {} (hourly buckets={})", partnerName, vm.getId(), rollups.size());
             }
+            int written = hourlyBaselineWriter.write(partnerBaselines);
+            LOGGER.info("Partner={} saved {} baseline rows for {} machines", partnerName, written, vms.size());
         }
 
-        LOGGER.info("Hourly baseline job end at {}", LocalDateTime.now());
-    }
-
-
-    /**
-     * Calculate median from daily counts for a specific hour.
-     * This is more robust against outliers than average.
-     *
-     * @param dailyCounts Map of date -> daily count array [24 hours]
-     * @param hour The hour of day (0-23) to calculate median for
-     * @return median value for the given hour across all days
-     */
-    private double calculateMedian(Map<LocalDate, long[]> dailyCounts, int hour) {
-        List<Long> values = new ArrayList<>();
-
-        // Extract all daily counts for this specific hour
-        for (long[] dailyHourCounts : dailyCounts.values()) {
-            values.add(dailyHourCounts[hour]);
-        }
+        // Buckets older than the lookback window are never read again
+        salesHourlyRollupService.purgeBefore(start.toLocalDate().minusDays(1));
 
-        if (values.isEmpty()) {
-            return 0.0;
-        }
-
-        // Sort values to find median
-        Collections.sort(values);
-        int size = values.size();
-
-        if (size % 2 == 0) {
-            // Even number of values: average of two middle values
-            return (values.get(size / 2 - 1) + values.get(size / 2)) / 2.0;
-        } else {
-            // Odd number of values: middle value
-            return values.get(size / 2);
-        }
+        LOGGER.info("Hourly baseline job end at {}", LocalDateTime.now());
     }
 }
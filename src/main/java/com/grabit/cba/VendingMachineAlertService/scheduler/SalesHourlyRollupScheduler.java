@@ -0,0 +1,24 @@
+package com.grabit.cba.VendingMachineAlertService.scheduler;
+
+import com.grabit.cba.VendingMachineAlertService.service.rollup.SalesHourlyRollupService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class SalesHourlyRollupScheduler {
+
+    private static final String JOB_NAME = "sales-hourly-rollup";
+
+    private final SalesHourlyRollupService salesHourlyRollupService;
+    private final ScheduledJobRunner scheduledJobRunner;
+
+    public SalesHourlyRollupScheduler(SalesHourlyRollupService salesHourlyRollupService, ScheduledJobRunner scheduledJobRunner) {
+        this.salesHourlyRollupService = salesHourlyRollupService;
+        this.scheduledJobRunner = scheduledJobRunner;
+    }
+
+    @Scheduled(fixedDelayString = "${monitor.rollup.intervalMillis:300000}")
+    public void rollUpSales() {
+        scheduledJobRunner.run(JOB_NAME, salesHourlyRollupService::catchUp);
+    }
+}
@@ -0,0 +1,171 @@
+package com.grabit.cba.VendingMachineAlertService.scheduler;
+
+import com.grabit.cba.VendingMachineAlertService.dto.responseDto.ScheduledJobStatus;
+import com.grabit.cba.VendingMachineAlertService.service.metrics.MonitorMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs the scheduled jobs with skip-if-still-running semantics and keeps per-job run statistics.
+ * <p>
+ * A trigger that fires while the previous run of the same job is still going is skipped and counted as an overlap.
+ * When the job's cron expression is known, the runner also records the lag between the expected fire time and the
+ * actual start, and counts fire times that passed without any trigger (e.g. while the scheduler pool was saturated).
+ * The same figures, plus the database work of each run, are published through {@link MonitorMetrics}.
+ */
+@Component
+public class ScheduledJobRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScheduledJobRunner.class);
+
+    private final Map<String, JobStats> jobs = new ConcurrentHashMap<>();
+    private final MonitorMetrics monitorMetrics;
+
+    public ScheduledJobRunner(MonitorMetrics monitorMetrics) {
+        this.monitorMetrics = monitorMetrics;
+    }
+
+    /**
+     * Run a job triggered outside of a cron schedule (e.g. on startup)
+     */
+    public boolean run(String jobName, Runnable job) {
+        return run(jobName, null, job);
+    }
+
+    /**
+     * Run a cron-triggered job unless its previous run is still in progress.
+     *
+     * @return false when the run was skipped
+     */
+    public boolean run(String jobName, String cron, Runnable job) {
+        JobStats stats = jobs.computeIfAbsent(jobName, name -> new JobStats(name, monitorMetrics));
+        LocalDateTime triggeredAt = LocalDateTime.now();
+        if (!stats.tryStart(triggeredAt, parseCron(jobName, cron))) {
+            monitorMetrics.jobSkipped(jobName);
+            LOGGER.warn("Skipping {} triggered at {}: previous run started at {} is still running", jobName, triggeredAt, stats.lastStartedAt);
+            return false;
+        }
+        MonitorMetrics.DbUsage dbBefore = monitorMetrics.dbUsage();
+        long startNanos = System.nanoTime();
+        Throwable error = null;
+        try {
+            job.run();
+        } catch (RuntimeException | Error ex) {
+            error = ex;
+            throw ex;
+        } finally {
+            long durationNanos = System.nanoTime() - startNanos;
+            long durationMillis = Duration.ofNanos(durationNanos).toMillis();
+            stats.finish(LocalDateTime.now(), durationMillis, error);
+            monitorMetrics.jobFinished(jobName, durationNanos, error != null, dbBefore);
+            if (error != null) {
+                LOGGER.error("Job {} failed after {} ms: {}", jobName, durationMillis, error.getMessage());
+            } else {
+                LOGGER.debug("Job {} finished in {} ms", jobName, durationMillis);
+            }
+        }
+        return true;
+    }
+
+    public List<ScheduledJobStatus> getStatuses() {
+        return jobs.values().stream()
+                .map(JobStats::snapshot)
+                .sorted(Comparator.comparing(ScheduledJobStatus::getJobName))
+                .toList();
+    }
+
+    private static CronExpression parseCron(String jobName, String cron) {
+        if (cron == null || cron.isBlank() || "-".equals(cron.trim())) {
+            return null;
+        }
+        try {
+            return CronExpression.parse(cron.trim());
+        } catch (IllegalArgumentException ex) {
+            LOGGER.warn("Cannot parse cron '{}' of job {}; lag and missed triggers will not be tracked", cron, jobName);
+            return null;
+        }
+    }
+
+    private static final class JobStats {
+
+        private final String jobName;
+        private final MonitorMetrics monitorMetrics;
+
+        private boolean running;
+        private long runs;
+        private long failures;
+        private long skippedOverlaps;
+        private long missedTriggers;
+        private LocalDateTime lastTriggeredAt;
+        private LocalDateTime lastStartedAt;
+        private LocalDateTime lastFinishedAt;
+        private Long lastDurationMillis;
+        private Long maxDurationMillis;
+        private Long lastLagMillis;
+        private Long maxLagMillis;
+        private String lastError;
+
+        private JobStats(String jobName, MonitorMetrics monitorMetrics) {
+            this.jobName = jobName;
+            this.monitorMetrics = monitorMetrics;
+        }
+
+        synchronized boolean tryStart(LocalDateTime triggeredAt, CronExpression cron) {
+            if (cron != null) {
+                recordTrigger(triggeredAt, cron);
+            }
+            if (running) {
+                skippedOverlaps++;
+                return false;
+            }
+            running = true;
+            lastStartedAt = triggeredAt;
+            return true;
+        }
+
+        // Lag against the fire time expected after the previous trigger, plus fire times that were never triggered
+        private void recordTrigger(LocalDateTime triggeredAt, CronExpression cron) {
+            if (lastTriggeredAt != null) {
+                LocalDateTime expected = cron.next(lastTriggeredAt);
+                if (expected != null && !triggeredAt.isBefore(expected)) {
+                    long lag = Duration.between(expected, triggeredAt).toMillis();
+                    lastLagMillis = lag;
+                    maxLagMillis = maxLagMillis == null ? lag : Math.max(maxLagMillis, lag);
+                    long missed = 0;
+                    for (LocalDateTime next = cron.next(expected); next != null && !next.isAfter(triggeredAt); next = cron.next(next)) {
+                        missed++;
+                    }
+                    missedTriggers += missed;
+                    monitorMetrics.jobTriggerLag(jobName, lag, missed);
+                }
+            }
+            lastTriggeredAt = triggeredAt;
+        }
+
+        synchronized void finish(LocalDateTime finishedAt, long durationMillis, Throwable error) {
+            running = false;
+            runs++;
+            lastFinishedAt = finishedAt;
+            lastDurationMillis = durationMillis;
+            maxDurationMillis = maxDurationMillis == null ? durationMillis : Math.max(maxDurationMillis, durationMillis);
+            if (error != null) {
+                failures++;
+                lastError = error.getMessage();
+            }
+        }
+
+        synchronized ScheduledJobStatus snapshot() {
+            return new ScheduledJobStatus(jobName, running, runs, failures, skippedOverlaps, missedTriggers, lastStartedAt,
+                    lastFinishedAt, lastDurationMillis, maxDurationMillis, lastLagMillis, maxLagMillis, lastError);
+        }
+    }
+}
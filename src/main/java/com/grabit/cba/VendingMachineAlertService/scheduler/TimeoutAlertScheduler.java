@@ -3,26 +3,36 @@ package com.grabit.cba.VendingMachineAlertService.scheduler;
 import com.grabit.cba.VendingMachineAlertService.service.TimeoutMonitorService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 @Component
-@EnableScheduling
 public class TimeoutAlertScheduler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TimeoutAlertScheduler.class);
 
+    private static final String JOB_NAME = "timeout-monitor";
+    private static final String CRON = "${monitor.timeout.timeoutMonitoringCron:0 */5 * * * *}";
+
+    @Value(CRON)
+    private String cron;
+
     private final TimeoutMonitorService timeoutMonitorService;
+    private final ScheduledJobRunner scheduledJobRunner;
 
-    public TimeoutAlertScheduler(TimeoutMonitorService timeoutMonitorService) {
+    public TimeoutAlertScheduler(TimeoutMonitorService timeoutMonitorService,
+                                 ScheduledJobRunner scheduledJobRunner) {
         this.timeoutMonitorService = timeoutMonitorService;
+        this.scheduledJobRunner = scheduledJobRunner;
     }
 
-    @Scheduled(cron = "${monitor.timeout.timeoutMonitoringCron:0 */5 * * * *}")
+    @Scheduled(cron = CRON)
     public void checkingTimeoutTransactions() {
-        LOGGER.info("Timeout cron start: Timeout Monitor");
-        timeoutMonitorService.evaluateAllMachines();
-        LOGGER.info("Timeout cron end: Timeout Monitor");
+        scheduledJobRunner.run(JOB_NAME, cron, () -> {
+            LOGGER.info("Timeout cron start: Timeout Monitor");
+            timeoutMonitorService.evaluateAllMachines();
+            LOGGER.info("Timeout cron end: Timeout Monitor");
+        });
     }
 }
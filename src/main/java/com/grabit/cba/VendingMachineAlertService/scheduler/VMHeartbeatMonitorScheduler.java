@@ -3,26 +3,36 @@ package com.grabit.cba.VendingMachineAlertService.scheduler;
 import com.grabit.cba.VendingMachineAlertService.service.HeartbeatMonitorService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 @Component
-@EnableScheduling
 public class VMHeartbeatMonitorScheduler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(VMHeartbeatMonitorScheduler.class);
 
+    private static final String JOB_NAME = "heartbeat-monitor";
+    private static final String CRON = "${monitor.heartbeat.heartbeatMonitoringCron:0 */10 * * * *}";
+
+    @Value(CRON)
+    private String cron;
+
     private final HeartbeatMonitorService heartbeatMonitorService;
+    private final ScheduledJobRunner scheduledJobRunner;
 
-    public VMHeartbeatMonitorScheduler(HeartbeatMonitorService heartbeatMonitorService) {
+    public VMHeartbeatMonitorScheduler(HeartbeatMonitorService heartbeatMonitorService,
+                                       ScheduledJobRunner scheduledJobRunner) {
         this.heartbeatMonitorService = heartbeatMonitorService;
+        this.scheduledJobRunner = scheduledJobRunner;
     }
 
-    @Scheduled(cron = "${monitor.heartbeat.heartbeatMonitoringCron:0 */10 * * * *}")
+    @Scheduled(cron = CRON)
     public void runHeartbeatMonitoring() {
-        LOGGER.info("Vending Machine Heartbeat monitoring cron start: Checking offline vending machines");
-        heartbeatMonitorService.evaluateAllMachines();
-        LOGGER.info("Vending Machine Heartbeat monitoring cron end: Offline vending machine check completed");
+        scheduledJobRunner.run(JOB_NAME, cron, () -> {
+            LOGGER.info("Vending Machine Heartbeat monitoring cron start: Checking offline vending machines");
+            heartbeatMonitorService.evaluateAllMachines();
+            LOGGER.info("Vending Machine Heartbeat monitoring cron end: Offline vending machine check completed");
+        });
     }
 }
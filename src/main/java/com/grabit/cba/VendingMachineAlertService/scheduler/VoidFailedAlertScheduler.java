@@ -3,26 +3,36 @@ package com.grabit.cba.VendingMachineAlertService.scheduler;
 import com.grabit.cba.VendingMachineAlertService.service.VoidFailedHealthMonitorService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 @Component
-@EnableScheduling
 public class VoidFailedAlertScheduler {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(VoidFailedAlertScheduler.class);
 
+    private static final String JOB_NAME = "void-failed-monitor";
+    private static final String CRON = "${monitor.void-failed.voidFailedCron:0 */5 * * * *}";
+
+    @Value(CRON)
+    private String cron;
+
     private final VoidFailedHealthMonitorService voidFailedHealthMonitorService;
+    private final ScheduledJobRunner scheduledJobRunner;
 
-    public VoidFailedAlertScheduler(VoidFailedHealthMonitorService voidFailedHealthMonitorService) {
+    public VoidFailedAlertScheduler(VoidFailedHealthMonitorService voidFailedHealthMonitorService,
+                                    ScheduledJobRunner scheduledJobRunner) {
         this.voidFailedHealthMonitorService = voidFailedHealthMonitorService;
+        this.scheduledJobRunner = scheduledJobRunner;
     }
 
-    @Scheduled(cron = "${monitor.void-failed.voidFailedCron:0 */5 * * * *}")
+    @Scheduled(cron = CRON)
     public void checkingVoidFailedTransactions() {
-        LOGGER.info("Void failed Cron start: Void Failed Health Monitor");
-        voidFailedHealthMonitorService.evaluateAllMachines();
-        LOGGER.info("Void failed Cron end: Void Failed Health Monitor");
+        scheduledJobRunner.run(JOB_NAME, cron, () -> {
+            LOGGER.info("Void failed Cron start: Void Failed Health Monitor");
+            voidFailedHealthMonitorService.evaluateAllMachines();
+            LOGGER.info("Void failed Cron end: Void Failed Health Monitor");
+        });
     }
 }
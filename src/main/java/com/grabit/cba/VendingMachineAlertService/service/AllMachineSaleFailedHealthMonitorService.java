@@ -1,16 +1,28 @@
 package com.grabit.cba.VendingMachineAlertService.service;
 
 import com.grabit.cba.VendingMachineAlertService.config.AllMachinesMonitorProperties;
-import com.grabit.cba.VendingMachineAlertService.database.model.AlertEmailConfig;
-import com.grabit.cba.VendingMachineAlertService.database.model.AlertHistory;
 import com.grabit.cba.VendingMachineAlertService.database.model.AlertType;
 import com.grabit.cba.VendingMachineAlertService.database.model.other.Sales;
 import com.grabit.cba.VendingMachineAlertService.database.model.other.VendingMachine;
+import com.grabit.cba.VendingMachineAlertService.database.model.other.Merchants;
 import com.grabit.cba.VendingMachineAlertService.database.model.other.Partners;
 import com.grabit.cba.VendingMachineAlertService.database.repository.*;
 import com.grabit.cba.VendingMachineAlertService.dto.requestDto.MailDto;
 import com.grabit.cba.VendingMachineAlertService.enums.TransactionTypes;
-import com.grabit.cba.VendingMachineAlertService.util.EmailServiceUtils;
+import com.grabit.cba.VendingMachineAlertService.service.evaluation.MonitorEvaluationEngine;
+import com.grabit.cba.VendingMachineAlertService.service.metrics.MonitorMetrics;
+import com.grabit.cba.VendingMachineAlertService.service.stream.TransactionDetector;
+import com.grabit.cba.VendingMachineAlertService.service.stream.TransactionStreamService;
+import com.grabit.cba.VendingMachineAlertService.service.stream.TransactionWindow;
+import com.grabit.cba.VendingMachineAlertService.service.EmailDispatchService.HistoryIntent;
+import com.grabit.cba.VendingMachineAlertService.service.template.AlertMailModel;
+import com.grabit.cba.VendingMachineAlertService.service.template.AlertTemplateRenderer;
+import com.grabit.cba.VendingMachineAlertService.service.cache.AlertConfigCache;
+import com.grabit.cba.VendingMachineAlertService.service.cache.AlertConfigCache.AlertRecipients;
+import com.grabit.cba.VendingMachineAlertService.service.topology.FleetTopology;
+import com.grabit.cba.VendingMachineAlertService.service.topology.FleetTopologyService;
+import com.grabit.cba.VendingMachineAlertService.service.topology.VendingMachineResolver;
+import com.grabit.cba.VendingMachineAlertService.service.state.AlertStateStore;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,8 +30,6 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Value;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -28,20 +38,21 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
-public class AllMachineSaleFailedHealthMonitorService {
+public class AllMachineSaleFailedHealthMonitorService implements TransactionDetector {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AllMachineSaleFailedHealthMonitorService.class);
 
     private final AllMachinesMonitorProperties allMachinesMonitorProperties;
     private final SalesRepository salesRepository;
-    private final VMRepository vmRepository;
-    private final EmailSender emailSender;
-    private final AlertHistoryRepository alertHistoryRepository;
-    private final AlertTypeRepository alertTypeRepository;
-    private final AlertEmailConfigRepository alertEmailConfigRepository;
-    private final TemplateEngine templateEngine;
-    private final com.grabit.cba.VendingMachineAlertService.database.repository.MerchantsRepository merchantsRepository;
-    private final com.grabit.cba.VendingMachineAlertService.database.repository.PartnersRepository partnersRepository;
+    private final VendingMachineResolver vendingMachineResolver;
+    private final EmailDispatchService emailDispatchService;
+    private final AlertStateStore alertStateStore;
+    private final AlertConfigCache alertConfigCache;
+    private final AlertTemplateRenderer alertTemplateRenderer;
+    private final FleetTopologyService fleetTopologyService;
+    private final TransactionStreamService transactionStreamService;
+    private final MonitorEvaluationEngine evaluationEngine;
+    private final MonitorMetrics monitorMetrics;
 
     @Value("${spring.mail.username}")
     private String senderMail;
@@ -50,22 +61,25 @@ public class AllMachineSaleFailedHealthMonitorService {
     private String grabitLogo;
 
     // Keep track of machines that are currently considered unhealthy to avoid duplicate alerts
-    private final Map<String, LocalDateTime> unhealthyMachinesLastFailure = new HashMap<>();
-
-    public AllMachineSaleFailedHealthMonitorService(AllMachinesMonitorProperties allMachinesMonitorProperties, SalesRepository salesRepository, VMRepository vmRepository, EmailSender emailSender,
-                                                    AlertHistoryRepository alertHistoryRepository, AlertTypeRepository alertTypeRepository, AlertEmailConfigRepository alertEmailConfigRepository,
-                                                    TemplateEngine templateEngine, com.grabit.cba.VendingMachineAlertService.database.repository.MerchantsRepository merchantsRepository,
-                                                    com.grabit.cba.VendingMachineAlertService.database.repository.PartnersRepository partnersRepository) {
+    private final Map<String, LocalDateTime> unhealthyMachinesLastFailure = Collections.synchronizedMap(new HashMap<>());
+
+    public AllMachineSaleFailedHealthMonitorService(AllMachinesMonitorProperties allMachinesMonitorProperties, SalesRepository salesRepository, VendingMachineResolver vendingMachineResolver, EmailDispatchService emailDispatchService,
+                                                    AlertStateStore alertStateStore, AlertConfigCache alertConfigCache,
+                                                    AlertTemplateRenderer alertTemplateRenderer, FleetTopologyService fleetTopologyService,
+                                                    TransactionStreamService transactionStreamService,
+                                                    MonitorEvaluationEngine evaluationEngine,
+                                                    MonitorMetrics monitorMetrics) {
         this.allMachinesMonitorProperties = allMachinesMonitorProperties;
         this.salesRepository = salesRepository;
-        this.vmRepository = vmRepository;
-        this.emailSender = emailSender;
-        this.alertHistoryRepository = alertHistoryRepository;
-        this.alertTypeRepository = alertTypeRepository;
-        this.alertEmailConfigRepository = alertEmailConfigRepository;
-        this.templateEngine = templateEngine;
-        this.merchantsRepository = merchantsRepository;
-        this.partnersRepository = partnersRepository;
+        this.vendingMachineResolver = vendingMachineResolver;
+        this.emailDispatchService = emailDispatchService;
+        this.alertStateStore = alertStateStore;
+        this.alertConfigCache = alertConfigCache;
+        this.alertTemplateRenderer = alertTemplateRenderer;
+        this.fleetTopologyService = fleetTopologyService;
+        this.transactionStreamService = transactionStreamService;
+        this.evaluationEngine = evaluationEngine;
+        this.monitorMetrics = monitorMetrics;
     }
 
     @PostConstruct
@@ -77,103 +91,92 @@ public class AllMachineSaleFailedHealthMonitorService {
                 allMachinesMonitorProperties.getFailedSales().getFailureThreshold());
     }
 
+    @Override
+    public int requiredWindowSize() {
+        return allMachinesMonitorProperties.getFailedSales().getWindowSize();
+    }
+
     public void evaluateAllMachines() {
         if (!allMachinesMonitorProperties.getFailedSales().isEnabled()) {
             LOGGER.info("Monitor disabled; skipping evaluation");
             return;
         }
         LOGGER.info("Monitor evaluation start for time {}", LocalDateTime.now());
-        // Evaluate by partner -> merchants -> active vending machines
-        List<Partners> partners = partnersRepository.findAll();
+        transactionStreamService.catchUp();
+        // Evaluate by partner -> merchants -> active vending machines, from one fleet snapshot for the whole cycle
+        FleetTopology topology = fleetTopologyService.current();
+        List<Partners> partners = topology.partners();
         if (partners == null || partners.isEmpty()) {
             LOGGER.warn("No partners found; skipping evaluation");
         } else {
+            List<Runnable> machineTasks = new ArrayList<>();
             for (Partners partner : partners) {
                 try {
                     Integer partnerId = partner.getId();
-                    List<Integer> merchantIds = merchantsRepository.findIdsByPartnerIds(Collections.singletonList(partnerId));
+                    List<Integer> merchantIds = topology.merchantIds(partnerId);
                     if (merchantIds == null || merchantIds.isEmpty()) {
                         LOGGER.debug("Skipping partner {} (id={}) due to no merchants", partner.getName(), partnerId);
                         continue;
                     }
-                    List<VendingMachine> activeMachines = vmRepository.findActiveByMerchantIds(merchantIds);
+                    List<VendingMachine> activeMachines = topology.activeMachines(partnerId);
                     if (activeMachines == null || activeMachines.isEmpty()) {
                         LOGGER.debug("Skipping partner {} (id={}) due to no active vending machines", partner.getName(), partnerId);
                         continue;
                     }
+                    // Transaction windows of every machine of this partner, served by the shared transaction stream
+                    Map<Integer, TransactionWindow> windowByMachine = transactionStreamService.windows(
+                            activeMachines.stream().map(VendingMachine::getId).collect(Collectors.toList()),
+                            allMachinesMonitorProperties.getFailedSales().getWindowSize());
                     // Evaluate same logic per machine
                     for (VendingMachine vm : activeMachines) {
                         String serial = vm.getSerialNo();
-                        try {
-                            evaluateMachine(serial);
-                        } catch (Exception e) {
-                            LOGGER.error("Error evaluating machine {} for partner {}: {}", serial, partner.getName(), e.getMessage(), e);
-                        }
+                        machineTasks.add(() -> {
+                            try {
+                                evaluateMachine(serial, windowByMachine.get(vm.getId()));
+                            } catch (Exception e) {
+                                LOGGER.error("Error evaluating machine {} for partner {}: {}", serial, partner.getName(), e.getMessage(), e);
+                            }
+                        });
                     }
                 } catch (Exception ex) {
                     LOGGER.error("Error while evaluating partner {}: {}", partner.getName(), ex.getMessage(), ex);
                 }
             }
+            evaluationEngine.runAll("Sale failed monitor", machineTasks);
         }
         LOGGER.info("Monitor evaluation end for time {}", LocalDateTime.now());
     }
 
     public void evaluateMachine(String serialNo) {
-        List<Sales> latest = salesRepository.findLatestByMachineSerial(serialNo, PageRequest.of(0, allMachinesMonitorProperties.getFailedSales().getWindowSize(), Sort.by(Sort.Direction.DESC, "dateTime", "id")));
-        if (latest.isEmpty()) {
+        evaluateMachine(serialNo, TransactionWindow.of(salesRepository.findLatestSignalsByMachineSerial(serialNo, PageRequest.of(0, allMachinesMonitorProperties.getFailedSales().getWindowSize(), Sort.by(Sort.Direction.DESC, "dateTime", "id")))));
+    }
+
+    /**
+     * Evaluate a machine against an already fetched window of its latest transactions (newest first)
+     */
+    public void evaluateMachine(String serialNo, TransactionWindow window) {
+        if (window == null || window.size() == 0) {
             LOGGER.debug("No transactions found for machine {}", serialNo);
             return;
         }
 
-        Set<String> failureStatuses;
+        // Failure statuses as a TransactionTypes mask; alert type codes that are not transaction statuses never match a row
+        int failureMask;
         try {
-            List<AlertType> alertTypes = alertTypeRepository.findAll();
-            if (alertTypes.isEmpty()) {
-                failureStatuses = new HashSet<>(Arrays.asList(
-                        TransactionTypes.SALE_FAILED.name()
-//                        "TIMEOUT",
-//                        "VOID_FAILED"
-                ));
-            } else {
-                failureStatuses = alertTypes.stream()
-                        .map(AlertType::getCode)
-                        .filter(Objects::nonNull)
-                        .map(String::toUpperCase)
-                        .collect(Collectors.toSet());
-            }
+            failureMask = alertConfigCache.alertTypes().isEmpty()
+                    ? TransactionTypes.SALE_FAILED.mask()
+                    : alertConfigCache.alertTypeStatusMask();
         } catch (Exception ex) {
             LOGGER.warn("Could not load failure statuses from AlertType table, using defaults: {}", ex.getMessage());
-            failureStatuses = new HashSet<>(Arrays.asList("SALE_FAILED"));
-        }
-
-        int consecutiveFailures = 0;
-        LocalDateTime lastFailureTime = null;
-        List<String> failureTypesSeen = new ArrayList<>();
-
-        // Consecutive failures check (as before)
-        for (Sales s : latest) {
-            String status = Optional.ofNullable(s.getTransactionStatus()).map(String::toUpperCase).orElse("");
-            if (failureStatuses.contains(status)) {
-                consecutiveFailures++;
-                lastFailureTime = s.getDateTime();
-                failureTypesSeen.add(status);
-            } else {
-                // success or other: break the chain
-                break;
-            }
+            failureMask = TransactionTypes.SALE_FAILED.mask();
         }
-
-        // Sliding window check: count failures within the configured slidingWindowSize
         int slidingWindowSize = allMachinesMonitorProperties.getFailedSales().getSlidingWindowSize();
         int slidingFailureThreshold = allMachinesMonitorProperties.getFailedSales().getSlidingFailureThreshold();
-        int failuresInWindow = 0;
-        List<Sales> slidingList = latest.size() <= slidingWindowSize ? latest : latest.subList(0, slidingWindowSize);
-        for (Sales s : slidingList) {
-            String status = Optional.ofNullable(s.getTransactionStatus()).map(String::toUpperCase).orElse("");
-            if (failureStatuses.contains(status)) {
-                failuresInWindow++;
-            }
-        }
+        FailurePattern pattern = analyzeFailurePattern(window, failureMask,
+                allMachinesMonitorProperties.getFailedSales().getWindowSize(), slidingWindowSize);
+        int consecutiveFailures = pattern.consecutiveFailures();
+        int failuresInWindow = pattern.failuresInWindow();
+        LocalDateTime lastFailureTime = consecutiveFailures > 0 ? window.dateTime(consecutiveFailures - 1) : null;
 
         boolean consecutiveTriggered = consecutiveFailures >= allMachinesMonitorProperties.getFailedSales().getFailureThreshold();
         boolean slidingTriggered = failuresInWindow >= slidingFailureThreshold;
@@ -187,17 +190,31 @@ public class AllMachineSaleFailedHealthMonitorService {
             if (slidingTriggered) {
                 detectedIssues.add(String.format("%d failures within last %d transactions", failuresInWindow, slidingWindowSize));
             }
-            handleUnhealthyWithIssues(serialNo, consecutiveFailures, lastFailureTime, failureTypesSeen, detectedIssues, failuresInWindow);
+            handleUnhealthyWithIssues(serialNo, consecutiveFailures, lastFailureTime, detectedIssues, failuresInWindow);
         } else {
             // recovery: if previously marked unhealthy, clear state
             if (unhealthyMachinesLastFailure.containsKey(serialNo)) {
                 LOGGER.info("Machine {} recovered (consecutiveFailures={}); clearing unhealthy state", serialNo, consecutiveFailures);
                 unhealthyMachinesLastFailure.remove(serialNo);
             }
+            alertStateStore.resolve(serialNo, alertConfigCache.findAlertType(TransactionTypes.SALE_FAILED.name()).orElse(null));
         }
     }
 
-    private void handleUnhealthyWithIssues(String serialNo, int consecutiveFailures, LocalDateTime lastFailureTime, List<String> failureTypesSeen,
+    // Static and package-private so the JMH benchmarks (src/jmh) measure exactly this code
+    static FailurePattern analyzeFailurePattern(TransactionWindow window, int failureMask, int windowSize, int slidingWindowSize) {
+        int depth = Math.min(window.size(), windowSize);
+        // Consecutive failures check (as before): run of failures starting at the newest transaction
+        int consecutiveFailures = window.leadingRunMatching(failureMask, depth);
+        // Sliding window check: count failures within the configured slidingWindowSize
+        int failuresInWindow = window.countMatching(failureMask, Math.min(depth, slidingWindowSize));
+        return new FailurePattern(consecutiveFailures, failuresInWindow);
+    }
+
+    record FailurePattern(int consecutiveFailures, int failuresInWindow) {
+    }
+
+    private void handleUnhealthyWithIssues(String serialNo, int consecutiveFailures, LocalDateTime lastFailureTime,
                                            List<String> detectedIssues, int failuresInWindow) {
         // reuse previous handleUnhealthy logic but combine the issues into the email body
         LocalDateTime alreadyNotifiedAt = unhealthyMachinesLastFailure.get(serialNo);
@@ -207,49 +224,34 @@ public class AllMachineSaleFailedHealthMonitorService {
         }
 
         final String alertCode = TransactionTypes.SALE_FAILED.name();
+        monitorMetrics.alert(alertCode, MonitorMetrics.TRIGGERED);
 
-        AlertType selectedAlertType = alertTypeRepository.findByCode(alertCode).orElse(null);
+        AlertType selectedAlertType = alertConfigCache.findAlertType(alertCode).orElse(null);
         if (selectedAlertType == null) {
             LOGGER.warn("AlertType '{}' not found; skipping alert for machine {}", alertCode, serialNo);
             return;
         }
 
-        // Resolve vmId and check AlertHistory cooldown as before
-        Integer vmId = vmRepository.findAll().stream()
-                .filter(vmObj -> serialNo.equals(vmObj.getSerialNo()))
-                .map(VendingMachine::getId)
-                .findFirst().orElse(null);
-
-        Optional<AlertHistory> last = Optional.empty();
-        Integer alertTypeId = selectedAlertType.getId();
-        if (vmId != null) {
-            last = alertHistoryRepository.findLatestByVendingMachineIdAndAlertTypeId(vmId, alertTypeId);
-            LOGGER.info("Checking AlertHistory by vmId={}, alertTypeId={}", vmId, alertTypeId);
-        }
-        if (last.isEmpty()) {
-            last = alertHistoryRepository.findLatestByVendingMachineSerialAndAlertTypeId(serialNo, alertTypeId);
-            LOGGER.info("Checking AlertHistory by vendingMachineSerial='{}', alertTypeId={}", serialNo, alertTypeId);
-        }
-//        if (last.isEmpty()) {
-//            last = alertHistoryRepository.findLatestByVendingMachineSerial(serialNo);
-//            LOGGER.info("Fallback: checking any AlertHistory by vendingMachineSerial='{}'", serialNo);
-//        }
-        if (last.isPresent()) {
-            java.time.LocalDateTime lastSent = last.get().getLastSentAt();
-            if (lastSent != null) {
-                if (lastFailureTime != null && !lastSent.isBefore(lastFailureTime)) {
-                    LOGGER.info("Suppressing alert because previous AlertHistory (id={}) was sent at {} which is >= lastFailureTimestamp {}", last.get().getId(), lastSent, lastFailureTime);
-                    unhealthyMachinesLastFailure.put(serialNo, lastFailureTime);
-                    return;
-                }
-                long cooldownMinutes = allMachinesMonitorProperties.getFailedSales().getAlertCooldownMinutes();
-                java.time.LocalDateTime now = java.time.LocalDateTime.now(ZoneId.systemDefault());
-                java.time.Duration elapsed = java.time.Duration.between(lastSent, now);
-                if (elapsed.toMinutes() < cooldownMinutes) {
-                    LOGGER.info("Suppressing duplicate alert for machine {} and alertType {} (sent {} minutes ago, cooldown {} minutes)", serialNo, alertCode, elapsed.toMinutes(), cooldownMinutes);
-                    unhealthyMachinesLastFailure.put(serialNo, lastFailureTime);
-                    return;
-                }
+        // Resolve vmId and check the alert cooldown against the last confirmed send
+        VendingMachine vm = vendingMachineResolver.bySerial(serialNo).orElse(null);
+        Integer vmId = vm == null ? null : vm.getId();
+
+        LocalDateTime lastSent = alertStateStore.status(serialNo, selectedAlertType).lastSentAt();
+        if (lastSent != null) {
+            if (lastFailureTime != null && !lastSent.isBefore(lastFailureTime)) {
+                LOGGER.info("Suppressing alert because the previous alert was sent at {} which is >= lastFailureTimestamp {}", lastSent, lastFailureTime);
+                unhealthyMachinesLastFailure.put(serialNo, lastFailureTime);
+                monitorMetrics.alert(alertCode, MonitorMetrics.SUPPRESSED);
+                return;
+            }
+            long cooldownMinutes = allMachinesMonitorProperties.getFailedSales().getAlertCooldownMinutes();
+            java.time.LocalDateTime now = java.time.LocalDateTime.now(ZoneId.systemDefault());
+            java.time.Duration elapsed = java.time.Duration.between(lastSent, now);
+            if (elapsed.toMinutes() < cooldownMinutes) {
+                LOGGER.info("Suppressing duplicate alert for machine {} and alertType {} (sent {} minutes ago, cooldown {} minutes)", serialNo, alertCode, elapsed.toMinutes(), cooldownMinutes);
+                unhealthyMachinesLastFailure.put(serialNo, lastFailureTime);
+                monitorMetrics.alert(alertCode, MonitorMetrics.SUPPRESSED);
+                return;
             }
         }
 
@@ -260,30 +262,16 @@ public class AllMachineSaleFailedHealthMonitorService {
         String[] bccAddrs = null;
 
         // Determine partner for the machine to select correct AlertEmailConfig
-        Partners machinePartner = null;
-        VendingMachine vmForPartner = vmRepository.findBySerialNo(serialNo).orElse(null);
-        if (vmForPartner != null && vmForPartner.getMerchantId() != null) {
-            try {
-                Optional<com.grabit.cba.VendingMachineAlertService.database.model.other.Merchants> merchantOpt = merchantsRepository.findById(vmForPartner.getMerchantId());
-                if (merchantOpt.isPresent() && merchantOpt.get().getPartnerId() != null) {
-                    Integer partnerId = merchantOpt.get().getPartnerId();
-                    try {
-                        machinePartner = partnersRepository.findById(partnerId).orElse(null);
-                    } catch (Exception ignore) { }
-                }
-            } catch (Exception ex) {
-                LOGGER.debug("Could not resolve partner for machine {}: {}", serialNo, ex.getMessage());
-            }
-        }
+        FleetTopology topology = fleetTopologyService.current();
+        Partners machinePartner = topology.partnerOf(vm);
 
-        java.util.Optional<AlertEmailConfig> optCfg;
-        optCfg = alertEmailConfigRepository.findFirstByAlertTypeAndPartners(selectedAlertType, machinePartner);
+        Optional<AlertRecipients> optCfg = alertConfigCache.findRecipients(selectedAlertType, machinePartner);
 
         if (optCfg.isPresent()) {
-            AlertEmailConfig cfg = optCfg.get();
-            toAddrs = EmailServiceUtils.commaSeparatedStringToArray(cfg.getTo());
-            ccAddrs = EmailServiceUtils.commaSeparatedStringToArray(cfg.getCc());
-            bccAddrs = EmailServiceUtils.commaSeparatedStringToArray(cfg.getBcc());
+            AlertRecipients cfg = optCfg.get();
+            toAddrs = cfg.to();
+            ccAddrs = cfg.cc();
+            bccAddrs = cfg.bcc();
         }
 
         mailDto.setTo(toAddrs);
@@ -293,43 +281,21 @@ public class AllMachineSaleFailedHealthMonitorService {
         mailDto.setFrom(senderMail);
         mailDto.setHtml(true);
 
-        // prepare template props and include detectedIssues
-        Map<String, Object> props = new HashMap<>();
-        props.put("vendingSerialNumber", serialNo);
-        props.put("failureCount", consecutiveFailures);
-        props.put("lastFailureTimestamp", lastFailureTime == null ? null : lastFailureTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
-        props.put("failureTypes", failureTypesSeen.stream().distinct().collect(Collectors.joining(", ")));
-        props.put("detectedIssues", detectedIssues);
-
-        // format lastFailureTime as a human-readable string with microsecond precision
+        // format lastFailureTime as a human-readable string
         DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
         String lastFailureTimeFormatted = lastFailureTime == null ? null : lastFailureTime.atZone(ZoneId.systemDefault()).format(dtf);
-        props.put("lastFailureTimeFormatted", lastFailureTimeFormatted);
 
-        // Attempt to resolve vending machine details to populate vmName, terminateCode, productLockCount, location
-        VendingMachine vm = null;
-        if (vmId != null) {
-            vm = vmRepository.findById(vmId).orElse(null);
-        }
-        if (vm == null) {
-            vm = vmRepository.findBySerialNo(serialNo).orElse(null);
-        }
+        // Vending machine details (resolved above) populate vmName, terminateCode, productLockCount, location
+        AlertMailModel.SaleFailed model;
         if (vm != null) {
-            props.put("vmName", vm.getName());
             // merchantName/address: prefer lookup from Merchants table via vm.getMerchantId(); fallback to latest sale.TranMerchantID
             String merchantName = null;
             String merchantAddress = null;
             try {
-                if (vm.getMerchantId() != null) {
-                    try {
-                        java.util.Optional<com.grabit.cba.VendingMachineAlertService.database.model.other.Merchants> optMerchant = merchantsRepository.findById(vm.getMerchantId());
-                        if (optMerchant.isPresent()) {
-                            merchantName = optMerchant.get().getName();
-                            merchantAddress = optMerchant.get().getAddress();
-                        }
-                    } catch (Exception ex) {
-                        // ignore and fallback to TranMerchantID
-                    }
+                Merchants merchant = topology.merchant(vm.getMerchantId());
+                if (merchant != null) {
+                    merchantName = merchant.getName();
+                    merchantAddress = merchant.getAddress();
                 }
                 if (merchantName == null) {
                     Sales latestSale = salesRepository.findLatestByMachineSerial(serialNo, PageRequest.of(0, 1)).stream().findFirst().orElse(null);
@@ -340,52 +306,32 @@ public class AllMachineSaleFailedHealthMonitorService {
             } catch (Exception ex) {
                 LOGGER.debug("Could not resolve merchant info for serial {}: {}", serialNo, ex.getMessage());
             }
-            props.put("merchantName", merchantName);
-            props.put("terminateCode", vm.getTerminateCode());
-            props.put("productLockCount", vm.getProductLockCount());
             // location: use merchant.address explicitly per request
-            props.put("location", merchantAddress);
             LOGGER.info("Using merchant address as location for machine {} -> '{}'", serialNo, merchantAddress);
+            model = new AlertMailModel.SaleFailed(serialNo, vm.getName(), consecutiveFailures, lastFailureTimeFormatted, detectedIssues,
+                    merchantName, Objects.toString(vm.getTerminateCode(), null), Objects.toString(vm.getProductLockCount(), null), merchantAddress);
         } else {
-            props.put("vmName", null);
-            props.put("merchantName", null);
-            props.put("terminateCode", null);
-            props.put("productLockCount", null);
-            props.put("location", null);
+            model = new AlertMailModel.SaleFailed(serialNo, null, consecutiveFailures, lastFailureTimeFormatted, detectedIssues,
+                    null, null, null, null);
         }
 
-        props.put("year", Calendar.getInstance().get(Calendar.YEAR));
-
         try {
-            Context context = new Context();
-            context.setVariables(props);
-            String htmlBody = templateEngine.process("Sale_failed", context);
-            mailDto.setBody(htmlBody);
-
-            boolean emailSent = emailSender.sendEmail(mailDto, null, null);
-            if (emailSent) {
-                String partnerNameLog = machinePartner != null ? machinePartner.getName() : "UNKNOWN";
-                String toLog = (toAddrs != null && toAddrs.length > 0) ? String.join(",", toAddrs) : "<none>";
-                LOGGER.info("Sale Failed Email has been sent at {} to partner {} email {}", java.time.LocalDateTime.now(java.time.ZoneId.systemDefault()), partnerNameLog, toLog);
-                LOGGER.info("Sale Failed Alert email sent for machine {} (consecutiveFailures={}, failuresInWindow={})", serialNo, consecutiveFailures, failuresInWindow);
-
-                // persist AlertHistory ONLY if email was sent successfully - always create new record
-                java.time.LocalDateTime sendTime = java.time.LocalDateTime.now(ZoneId.systemDefault());
-                AlertHistory history = new AlertHistory();
-                history.setVendingMachineId(vmId);
-                history.setVendingMachineSerial(serialNo);
-                if (history.getVendingMachineId() == null) {
-                    LOGGER.warn("Could not resolve vendingMachineId for serial {}; AlertHistory will store null", serialNo);
-                }
-                history.setLastSentAt(sendTime);
-                history.setAlertType(selectedAlertType);
-                history.setPartnerName(machinePartner != null ? machinePartner.getName() : null);
-                alertHistoryRepository.saveAndFlush(history);
-                LOGGER.info("Inserted new AlertHistory for machine {} at {} (history id={})", serialNo, history.getLastSentAt(), history.getId());
+            mailDto.setBody(alertTemplateRenderer.render(model));
 
+            String toLog = (toAddrs != null && toAddrs.length > 0) ? String.join(",", toAddrs) : "<none>";
+            String partnerName = machinePartner != null ? machinePartner.getName() : null;
+            if (vmId == null) {
+                LOGGER.warn("Could not resolve vendingMachineId for serial {}; AlertHistory will store null", serialNo);
+            }
+            // AlertHistory is written by the outbox once the email was confirmed sent
+            boolean queued = emailDispatchService.enqueue(TransactionTypes.SALE_FAILED.name() + ":" + serialNo, mailDto, null,
+                    List.of(HistoryIntent.of(vmId, serialNo, selectedAlertType, partnerName)));
+            if (queued) {
+                LOGGER.info("Sale Failed Alert queued for machine {} (consecutiveFailures={}, failuresInWindow={}) to partner {} email {}", serialNo,
+                        consecutiveFailures, failuresInWindow, partnerName != null ? partnerName : "UNKNOWN", toLog);
                 unhealthyMachinesLastFailure.put(serialNo, lastFailureTime);
             } else {
-                LOGGER.warn("Sale Failed Email send returned false for machine {}; skipping AlertHistory persist", serialNo);
+                LOGGER.debug("Sale Failed alert for machine {} is already queued", serialNo);
             }
         } catch (Exception e) {
             LOGGER.error("Failed to send Sale Failed alert email for machine {}: {}", serialNo, e.getMessage(), e);
@@ -1,27 +1,32 @@
 package com.grabit.cba.VendingMachineAlertService.service;
 
 import com.grabit.cba.VendingMachineAlertService.config.AllMachinesMonitorProperties;
-import com.grabit.cba.VendingMachineAlertService.database.model.AlertEmailConfig;
-import com.grabit.cba.VendingMachineAlertService.database.model.AlertHistory;
 import com.grabit.cba.VendingMachineAlertService.database.model.AlertType;
 import com.grabit.cba.VendingMachineAlertService.database.model.other.Merchants;
 import com.grabit.cba.VendingMachineAlertService.database.model.other.Partners;
-import com.grabit.cba.VendingMachineAlertService.database.model.other.Sales;
 import com.grabit.cba.VendingMachineAlertService.database.model.other.VendingMachine;
 import com.grabit.cba.VendingMachineAlertService.database.repository.*;
 import com.grabit.cba.VendingMachineAlertService.dto.requestDto.MailDto;
 import com.grabit.cba.VendingMachineAlertService.enums.TransactionTypes;
-import com.grabit.cba.VendingMachineAlertService.util.EmailServiceUtils;
+import com.grabit.cba.VendingMachineAlertService.service.evaluation.MonitorEvaluationEngine;
+import com.grabit.cba.VendingMachineAlertService.service.metrics.MonitorMetrics;
+import com.grabit.cba.VendingMachineAlertService.service.stream.TransactionDetector;
+import com.grabit.cba.VendingMachineAlertService.service.stream.TransactionStreamService;
+import com.grabit.cba.VendingMachineAlertService.service.stream.TransactionWindow;
+import com.grabit.cba.VendingMachineAlertService.service.EmailDispatchService.HistoryIntent;
+import com.grabit.cba.VendingMachineAlertService.service.template.AlertMailModel;
+import com.grabit.cba.VendingMachineAlertService.service.template.AlertTemplateRenderer;
+import com.grabit.cba.VendingMachineAlertService.service.cache.AlertConfigCache;
+import com.grabit.cba.VendingMachineAlertService.service.cache.AlertConfigCache.AlertRecipients;
+import com.grabit.cba.VendingMachineAlertService.service.topology.FleetTopology;
+import com.grabit.cba.VendingMachineAlertService.service.topology.FleetTopologyService;
+import com.grabit.cba.VendingMachineAlertService.service.state.AlertStateStore;
 import jakarta.annotation.PostConstruct;
 import lombok.Getter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
@@ -29,21 +34,20 @@ import java.time.ZoneId;
 import java.util.*;
 
 @Service
-public class ConsecutiveVoidCompleteMonitorService {
+public class ConsecutiveVoidCompleteMonitorService implements TransactionDetector {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ConsecutiveVoidCompleteMonitorService.class);
     private static final String CONSECUTIVE_VOID_ALERT_CODE = "VOID_COMPLETED";
 
     private final AllMachinesMonitorProperties allMachinesMonitorProperties;
-    private final SalesRepository salesRepository;
-    private final VMRepository vmRepository;
-    private final MerchantsRepository merchantsRepository;
-    private final PartnersRepository partnersRepository;
-    private final AlertTypeRepository alertTypeRepository;
-    private final AlertHistoryRepository alertHistoryRepository;
-    private final AlertEmailConfigRepository alertEmailConfigRepository;
-    private final EmailSender emailSender;
-    private final TemplateEngine templateEngine;
+    private final FleetTopologyService fleetTopologyService;
+    private final AlertStateStore alertStateStore;
+    private final AlertConfigCache alertConfigCache;
+    private final EmailDispatchService emailDispatchService;
+    private final AlertTemplateRenderer alertTemplateRenderer;
+    private final TransactionStreamService transactionStreamService;
+    private final MonitorEvaluationEngine evaluationEngine;
+    private final MonitorMetrics monitorMetrics;
 
     @Value("${spring.mail.username}")
     private String senderMail;
@@ -51,20 +55,21 @@ public class ConsecutiveVoidCompleteMonitorService {
     @Value("${grabit.logo:}")
     private String grabitLogo;
 
-    public ConsecutiveVoidCompleteMonitorService(AllMachinesMonitorProperties allMachinesMonitorProperties, SalesRepository salesRepository, VMRepository vmRepository,
-                                               MerchantsRepository merchantsRepository, PartnersRepository partnersRepository, AlertTypeRepository alertTypeRepository,
-                                               AlertHistoryRepository alertHistoryRepository,
-                                               AlertEmailConfigRepository alertEmailConfigRepository, EmailSender emailSender, TemplateEngine templateEngine) {
+    public ConsecutiveVoidCompleteMonitorService(AllMachinesMonitorProperties allMachinesMonitorProperties, FleetTopologyService fleetTopologyService,
+                                               AlertStateStore alertStateStore,
+                                               AlertConfigCache alertConfigCache, EmailDispatchService emailDispatchService, AlertTemplateRenderer alertTemplateRenderer,
+                                               TransactionStreamService transactionStreamService,
+                                               MonitorEvaluationEngine evaluationEngine,
+                                               MonitorMetrics monitorMetrics) {
         this.allMachinesMonitorProperties = allMachinesMonitorProperties;
-        this.salesRepository = salesRepository;
-        this.vmRepository = vmRepository;
-        this.merchantsRepository = merchantsRepository;
-        this.partnersRepository = partnersRepository;
-        this.alertTypeRepository = alertTypeRepository;
-        this.alertHistoryRepository = alertHistoryRepository;
-        this.alertEmailConfigRepository = alertEmailConfigRepository;
-        this.emailSender = emailSender;
-        this.templateEngine = templateEngine;
+        this.fleetTopologyService = fleetTopologyService;
+        this.alertStateStore = alertStateStore;
+        this.alertConfigCache = alertConfigCache;
+        this.emailDispatchService = emailDispatchService;
+        this.alertTemplateRenderer = alertTemplateRenderer;
+        this.transactionStreamService = transactionStreamService;
+        this.evaluationEngine = evaluationEngine;
+        this.monitorMetrics = monitorMetrics;
     }
 
     @PostConstruct
@@ -78,6 +83,11 @@ public class ConsecutiveVoidCompleteMonitorService {
                 allMachinesMonitorProperties.getConsecutiveVoidComplete().getConsecutiveVoidCompleteAlertCooldownMinutes());
     }
 
+    @Override
+    public int requiredWindowSize() {
+        return allMachinesMonitorProperties.getConsecutiveVoidComplete().getConsecutiveVoidCompleteTransactionWindowSize();
+    }
+
     public void evaluateAllMachines() {
         if (!allMachinesMonitorProperties.getConsecutiveVoidComplete().isConsecutiveVoidCompleteEnabled()) {
             LOGGER.info("Consecutive void complete monitor disabled; skipping evaluation");
@@ -85,64 +95,66 @@ public class ConsecutiveVoidCompleteMonitorService {
         }
 
         LOGGER.info("Consecutive void complete monitor evaluation start for time {}", LocalDateTime.now());
+        transactionStreamService.catchUp();
 
-        // Load all partners once and reuse
-        List<Partners> allPartners = partnersRepository.findAll();
+        // One fleet snapshot for the whole cycle
+        FleetTopology topology = fleetTopologyService.current();
+        List<Partners> allPartners = topology.partners();
         if (allPartners.isEmpty()) {
             LOGGER.warn("No partners found; skipping evaluation");
             return;
         }
 
-        // Cache partners for lookups
-        Map<Integer, Partners> partnersCache = new HashMap<>();
-        for (Partners partner : allPartners) {
-            partnersCache.put(partner.getId(), partner);
-        }
-
+        List<Runnable> machineTasks = new ArrayList<>();
         for (Partners partner : allPartners) {
             try {
                 Integer partnerId = partner.getId();
-                List<Integer> merchantIds = merchantsRepository.findIdsByPartnerIds(Collections.singletonList(partnerId));
+                List<Integer> merchantIds = topology.merchantIds(partnerId);
                 if (merchantIds == null || merchantIds.isEmpty()) {
                     LOGGER.debug("Skipping partner {} (id={}) due to no merchants", partner.getName(), partnerId);
                     continue;
                 }
 
-                List<VendingMachine> activeMachines = vmRepository.findActiveByMerchantIds(merchantIds);
+                List<VendingMachine> activeMachines = topology.activeMachines(partnerId);
                 if (activeMachines == null || activeMachines.isEmpty()) {
                     LOGGER.debug("Skipping partner {} (id={}) due to no active vending machines", partner.getName(), partnerId);
                     continue;
                 }
 
+                // Recent transactions of every machine of this partner, served by the shared transaction stream
+                Map<Integer, TransactionWindow> windowByMachine = transactionStreamService.windows(
+                        activeMachines.stream().map(VendingMachine::getId).toList(),
+                        allMachinesMonitorProperties.getConsecutiveVoidComplete().getConsecutiveVoidCompleteTransactionWindowSize());
+
                 // Check each vending machine for consecutive void complete transactions
                 for (VendingMachine vm : activeMachines) {
                     String serialNo = vm.getSerialNo();
-                    try {
-                        evaluateMachineVoidPattern(vm, partnersCache);
-                    } catch (Exception e) {
-                        LOGGER.error("Error evaluating machine {} void pattern for partner {}: {}", serialNo, partner.getName(), e.getMessage(), e);
-                    }
+                    machineTasks.add(() -> {
+                        try {
+                            evaluateMachineVoidPattern(vm, windowByMachine.get(vm.getId()), topology);
+                        } catch (Exception e) {
+                            LOGGER.error("Error evaluating machine {} void pattern for partner {}: {}", serialNo, partner.getName(), e.getMessage(), e);
+                        }
+                    });
                 }
             } catch (Exception ex) {
                 LOGGER.error("Error while evaluating partner {}: {}", partner.getName(), ex.getMessage(), ex);
             }
         }
 
+        evaluationEngine.runAll("Consecutive void complete monitor", machineTasks);
         LOGGER.info("Consecutive void complete monitor evaluation end for time {}", LocalDateTime.now());
     }
 
-    private void evaluateMachineVoidPattern(VendingMachine vm, Map<Integer, Partners> partnersCache) {
+    private void evaluateMachineVoidPattern(VendingMachine vm, TransactionWindow window, FleetTopology topology) {
         String serialNo = vm.getSerialNo();
-        int windowSize = allMachinesMonitorProperties.getConsecutiveVoidComplete().getConsecutiveVoidCompleteTransactionWindowSize();
-        // Get recent transactions for analysis
-        List<Sales> recentTransactions = salesRepository.findLatestByMachineSerial(serialNo, PageRequest.of(0, windowSize, Sort.by(Sort.Direction.DESC, "dateTime", "id")));
-        if (recentTransactions == null || recentTransactions.isEmpty()) {
+        if (window == null || window.size() == 0) {
             LOGGER.debug("No transactions found for machine {}; skipping void pattern evaluation", serialNo);
             return;
         }
 
         // Analyze transaction patterns
-        VoidAnalysisResult analysis = analyzeVoidPattern(recentTransactions);
+        VoidAnalysisResult analysis = analyzeVoidPattern(window, requiredWindowSize());
 
         boolean shouldAlert = false;
         String alertReason = null;
@@ -167,88 +179,61 @@ public class ConsecutiveVoidCompleteMonitorService {
 
         if (shouldAlert) {
             LOGGER.info("Machine {} triggers void complete alert: {}", serialNo, alertReason);
-            handleVoidCompleteAlert(vm, analysis, alertReason, partnersCache);
+            monitorMetrics.alert(CONSECUTIVE_VOID_ALERT_CODE, MonitorMetrics.TRIGGERED);
+            handleVoidCompleteAlert(vm, analysis, alertReason, topology);
         } else {
             LOGGER.debug("Machine {} void pattern within thresholds: {} consecutive, {}% void rate",
                 serialNo, analysis.getMaxConsecutiveVoids(), String.format("%.1f", analysis.getVoidPercentage()));
+            alertStateStore.resolve(serialNo, alertConfigCache.findAlertType(CONSECUTIVE_VOID_ALERT_CODE).orElse(null));
         }
     }
 
-    private VoidAnalysisResult analyzeVoidPattern(List<Sales> transactions) {
-        int totalTransactions = transactions.size();
-        int voidCount = 0;
-        int maxConsecutiveVoids = 0;
-        int currentConsecutiveVoids = 0;
-
-        for (Sales transaction : transactions) {
-            String status = Optional.ofNullable(transaction.getTransactionStatus()).map(String::toUpperCase).orElse("");
-
-            if (TransactionTypes.VOID_COMPLETED.name().equals(status)) {
-                voidCount++;
-                currentConsecutiveVoids++;
-                maxConsecutiveVoids = Math.max(maxConsecutiveVoids, currentConsecutiveVoids);
-            } else {
-                currentConsecutiveVoids = 0;
-            }
-        }
+    // Static and package-private so the JMH benchmarks (src/jmh) measure exactly this code
+    static VoidAnalysisResult analyzeVoidPattern(TransactionWindow window, int windowSize) {
+        int totalTransactions = Math.min(window.size(), windowSize);
+        byte voidCompleted = TransactionTypes.VOID_COMPLETED.code();
+        int voidCount = window.count(voidCompleted, totalTransactions);
+        int maxConsecutiveVoids = window.maxRun(voidCompleted, totalTransactions);
 
         double voidPercentage = totalTransactions > 0 ? (voidCount * 100.0 / totalTransactions) : 0.0;
 
         return new VoidAnalysisResult(totalTransactions, voidCount, maxConsecutiveVoids, voidPercentage);
     }
 
-    private void handleVoidCompleteAlert(VendingMachine vm, VoidAnalysisResult analysis, String alertReason, Map<Integer, Partners> partnersCache) {
+    private void handleVoidCompleteAlert(VendingMachine vm, VoidAnalysisResult analysis, String alertReason, FleetTopology topology) {
         String serialNo = vm.getSerialNo();
-        Integer vmId = vm.getId();
 
         // Get alert type
-        AlertType alertType = alertTypeRepository.findByCode(CONSECUTIVE_VOID_ALERT_CODE).orElse(null);
+        AlertType alertType = alertConfigCache.findAlertType(CONSECUTIVE_VOID_ALERT_CODE).orElse(null);
         if (alertType == null) {
             LOGGER.warn("AlertType '{}' not found; skipping alert for machine {}", CONSECUTIVE_VOID_ALERT_CODE, serialNo);
             return;
         }
 
-        // Check alert history cooldown
-        Optional<AlertHistory> lastAlert = alertHistoryRepository.findLatestByVendingMachineIdAndAlertTypeId(vmId, alertType.getId());
-        if (lastAlert.isEmpty()) {
-            lastAlert = alertHistoryRepository.findLatestByVendingMachineSerialAndAlertTypeId(serialNo, alertType.getId());
-        }
-
-        if (lastAlert.isPresent()) {
-            LocalDateTime lastSent = lastAlert.get().getLastSentAt();
-            if (lastSent != null) {
-                long cooldownMinutes = allMachinesMonitorProperties.getConsecutiveVoidComplete().getConsecutiveVoidCompleteAlertCooldownMinutes();
-                LocalDateTime now = LocalDateTime.now(ZoneId.systemDefault());
-                Duration elapsed = Duration.between(lastSent, now);
-                if (elapsed.toMinutes() < cooldownMinutes) {
-                    LOGGER.info("Suppressing duplicate void complete alert for machine {} (sent {} minutes ago, cooldown {} minutes)",
-                            serialNo, elapsed.toMinutes(), cooldownMinutes);
-                    return;
-                }
+        // Check alert cooldown against the last confirmed send
+        LocalDateTime lastSent = alertStateStore.status(serialNo, alertType).lastSentAt();
+        if (lastSent != null) {
+            long cooldownMinutes = allMachinesMonitorProperties.getConsecutiveVoidComplete().getConsecutiveVoidCompleteAlertCooldownMinutes();
+            LocalDateTime now = LocalDateTime.now(ZoneId.systemDefault());
+            Duration elapsed = Duration.between(lastSent, now);
+            if (elapsed.toMinutes() < cooldownMinutes) {
+                LOGGER.info("Suppressing duplicate void complete alert for machine {} (sent {} minutes ago, cooldown {} minutes)",
+                        serialNo, elapsed.toMinutes(), cooldownMinutes);
+                monitorMetrics.alert(CONSECUTIVE_VOID_ALERT_CODE, MonitorMetrics.SUPPRESSED);
+                return;
             }
         }
 
         // Send void complete alert
-        sendVoidCompleteAlert(vm, analysis, alertReason, alertType, partnersCache);
+        sendVoidCompleteAlert(vm, analysis, alertReason, alertType, topology);
     }
 
-    private void sendVoidCompleteAlert(VendingMachine vm, VoidAnalysisResult analysis, String alertReason, AlertType alertType, Map<Integer, Partners> partnersCache) {
+    private void sendVoidCompleteAlert(VendingMachine vm, VoidAnalysisResult analysis, String alertReason, AlertType alertType, FleetTopology topology) {
         String serialNo = vm.getSerialNo();
         Integer vmId = vm.getId();
 
         // Determine partner for email configuration
-        Partners machinePartner = null;
-        if (vm.getMerchantId() != null) {
-            try {
-                Optional<Merchants> merchantOpt = merchantsRepository.findById(vm.getMerchantId());
-                if (merchantOpt.isPresent() && merchantOpt.get().getPartnerId() != null) {
-                    Integer partnerId = merchantOpt.get().getPartnerId();
-                    machinePartner = partnersCache.get(partnerId);
-                }
-            } catch (Exception ex) {
-                LOGGER.debug("Could not resolve partner for machine {}: {}", serialNo, ex.getMessage());
-            }
-        }
+        Partners machinePartner = topology.partnerOf(vm);
 
         // Get email configuration
         MailDto mailDto = new MailDto();
@@ -256,12 +241,12 @@ public class ConsecutiveVoidCompleteMonitorService {
         String[] ccAddrs = null;
         String[] bccAddrs = null;
 
-        Optional<AlertEmailConfig> optCfg = alertEmailConfigRepository.findFirstByAlertTypeAndPartners(alertType, machinePartner);
+        Optional<AlertRecipients> optCfg = alertConfigCache.findRecipients(alertType, machinePartner);
         if (optCfg.isPresent()) {
-            AlertEmailConfig cfg = optCfg.get();
-            toAddrs = EmailServiceUtils.commaSeparatedStringToArray(cfg.getTo());
-            ccAddrs = EmailServiceUtils.commaSeparatedStringToArray(cfg.getCc());
-            bccAddrs = EmailServiceUtils.commaSeparatedStringToArray(cfg.getBcc());
+            AlertRecipients cfg = optCfg.get();
+            toAddrs = cfg.to();
+            ccAddrs = cfg.cc();
+            bccAddrs = cfg.bcc();
         }
 
         mailDto.setTo(toAddrs);
@@ -271,71 +256,35 @@ public class ConsecutiveVoidCompleteMonitorService {
         mailDto.setFrom(senderMail);
         mailDto.setHtml(true);
 
-        // Prepare template properties
-        Map<String, Object> props = new HashMap<>();
-        props.put("vendingSerialNumber", serialNo);
-        props.put("vmName", vm.getName());
-        props.put("alertReason", alertReason);
-        props.put("totalTransactions", analysis.getTotalTransactions());
-        props.put("voidCount", analysis.getVoidCount());
-        props.put("maxConsecutiveVoids", analysis.getMaxConsecutiveVoids());
-        props.put("consecutiveVoidCount", analysis.getMaxConsecutiveVoids()); // For template consistency
-        props.put("voidPercentage", String.format("%.1f", analysis.getVoidPercentage()));
-        props.put("thresholdConsecutive", allMachinesMonitorProperties.getConsecutiveVoidComplete().getConsecutiveVoidCompleteConsecutiveVoidThreshold());
-        props.put("thresholdPercentage", String.format("%.1f", allMachinesMonitorProperties.getConsecutiveVoidComplete().getConsecutiveVoidCompleteVoidPercentageThreshold()));
-
-        // Add VM specific fields
-        props.put("terminateCode", vm.getTerminateCode() != null ? vm.getTerminateCode() : 0);
-        props.put("productLockCount", vm.getProductLockCount() != null ? vm.getProductLockCount() : 0);
-
         // Get merchant information
         String merchantName = null;
         String merchantAddress = null;
-        if (vm.getMerchantId() != null) {
-            try {
-                Optional<Merchants> merchantOpt = merchantsRepository.findById(vm.getMerchantId());
-                if (merchantOpt.isPresent()) {
-                    merchantName = merchantOpt.get().getName();
-                    merchantAddress = merchantOpt.get().getAddress();
-                }
-            } catch (Exception ex) {
-                LOGGER.debug("Could not resolve merchant info for serial {}: {}", serialNo, ex.getMessage());
-            }
+        Merchants merchant = topology.merchant(vm.getMerchantId());
+        if (merchant != null) {
+            merchantName = merchant.getName();
+            merchantAddress = merchant.getAddress();
         }
-        props.put("merchantName", merchantName);
-        props.put("merchantAddress", merchantAddress);
-        props.put("location", merchantAddress);
-        props.put("year", Calendar.getInstance().get(Calendar.YEAR));
+
+        AlertMailModel.ConsecutiveVoidComplete model = new AlertMailModel.ConsecutiveVoidComplete(serialNo, vm.getName(),
+                analysis.getMaxConsecutiveVoids(), vm.getTerminateCode() != null ? vm.getTerminateCode() : 0,
+                vm.getProductLockCount() != null ? vm.getProductLockCount() : 0, merchantName, merchantAddress);
 
         try {
-            Context context = new Context();
-            context.setVariables(props);
-            String htmlBody = templateEngine.process("Consecutive_void_complete", context);
-            mailDto.setBody(htmlBody);
-
-            boolean emailSent = emailSender.sendEmail(mailDto, null, null);
-            if (emailSent) {
-                String partnerNameLog = machinePartner != null ? machinePartner.getName() : "UNKNOWN";
-                String toLog = (toAddrs != null && toAddrs.length > 0) ? String.join(",", toAddrs) : "<none>";
-                LOGGER.info("Consecutive void complete alert email sent at {} to partner {} email {}",
-                           LocalDateTime.now(ZoneId.systemDefault()), partnerNameLog, toLog);
-                LOGGER.info("Consecutive void complete alert sent for machine {} - {}", serialNo, alertReason);
-
-                // Persist AlertHistory ONLY if email was sent successfully - always create new record
-                LocalDateTime sendTime = LocalDateTime.now(ZoneId.systemDefault());
-                AlertHistory history = new AlertHistory();
-                history.setVendingMachineId(vmId);
-                history.setVendingMachineSerial(serialNo);
-                if (history.getVendingMachineId() == null) {
-                    LOGGER.warn("Could not resolve vendingMachineId for serial {}; AlertHistory will store null", serialNo);
-                }
-                history.setLastSentAt(sendTime);
-                history.setAlertType(alertType);
-                history.setPartnerName(machinePartner != null ? machinePartner.getName() : null);
-                alertHistoryRepository.saveAndFlush(history);
-                LOGGER.info("Inserted new AlertHistory for consecutive void complete machine {} at {} (history id={})", serialNo, history.getLastSentAt(), history.getId());
+            mailDto.setBody(alertTemplateRenderer.render(model));
+
+            String toLog = (toAddrs != null && toAddrs.length > 0) ? String.join(",", toAddrs) : "<none>";
+            String partnerName = machinePartner != null ? machinePartner.getName() : null;
+            if (vmId == null) {
+                LOGGER.warn("Could not resolve vendingMachineId for serial {}; AlertHistory will store null", serialNo);
+            }
+            // AlertHistory is written by the outbox once the email was confirmed sent
+            boolean queued = emailDispatchService.enqueue(CONSECUTIVE_VOID_ALERT_CODE + ":" + serialNo, mailDto, null,
+                    List.of(HistoryIntent.of(vmId, serialNo, alertType, partnerName)));
+            if (queued) {
+                LOGGER.info("Consecutive void complete alert queued for machine {} - {} to partner {} email {}", serialNo, alertReason,
+                        partnerName != null ? partnerName : "UNKNOWN", toLog);
             } else {
-                LOGGER.warn("Consecutive void complete alert email send failed for machine {}; skipping AlertHistory persist", serialNo);
+                LOGGER.debug("Consecutive void complete alert for machine {} is already queued", serialNo);
             }
         } catch (Exception e) {
             LOGGER.error("Error sending consecutive void complete alert for machine {}: {}", serialNo, e.getMessage(), e);
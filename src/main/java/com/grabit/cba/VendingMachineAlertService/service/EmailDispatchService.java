@@ -0,0 +1,43 @@
+package com.grabit.cba.VendingMachineAlertService.service;
+
+import com.grabit.cba.VendingMachineAlertService.database.model.AlertType;
+import com.grabit.cba.VendingMachineAlertService.dto.requestDto.MailDto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Alert mail outbox: monitors persist the mail together with the AlertHistory rows it should produce and carry on
+ * evaluating; delivery workers drain the outbox at-least-once and write the history once the send is confirmed.
+ */
+public interface EmailDispatchService {
+
+    /**
+     * Persist a mail and its history intent in one transaction.
+     *
+     * @param dedupeKey identifies the alert (e.g. alert code and machine serial); while a mail with the same key is
+     *                  pending or being sent, further mails for it are dropped. May be null to disable the check.
+     * @return false when the mail was not queued because the same alert is already in flight
+     */
+    boolean enqueue(String dedupeKey, MailDto mailDto, String logo, List<HistoryIntent> historyOnDelivery);
+
+    /**
+     * Claim a batch of due outbox mails and hand them to the delivery workers.
+     *
+     * @return number of mails claimed
+     */
+    int dispatchPending();
+
+    /**
+     * AlertHistory row to write once the mail is delivered.
+     *
+     * @param lastSentAt fixed send time to record, or null to record the delivery time
+     */
+    record HistoryIntent(Integer vendingMachineId, String vendingMachineSerial, Integer transactionId, AlertType alertType,
+                         String partnerName, LocalDateTime lastSentAt) {
+
+        public static HistoryIntent of(Integer vendingMachineId, String vendingMachineSerial, AlertType alertType, String partnerName) {
+            return new HistoryIntent(vendingMachineId, vendingMachineSerial, null, alertType, partnerName, null);
+        }
+    }
+}
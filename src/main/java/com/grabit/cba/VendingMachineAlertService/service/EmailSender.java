@@ -1,10 +1,17 @@
 package com.grabit.cba.VendingMachineAlertService.service;
 
 import com.grabit.cba.VendingMachineAlertService.dto.requestDto.MailDto;
+import com.grabit.cba.VendingMachineAlertService.service.export.ExportFile;
 
 public interface EmailSender {
 
     public boolean sendEmail(MailDto mailDto, String logo, String signData) throws Exception;
 
     public boolean sendEmailWithAttachment(MailDto mailDto, byte[] fileContent, String fileName, String logo) throws Exception;
+
+    /**
+     * Attach an export written to disk. The file is read while the message is written to the SMTP connection, never
+     * held in memory as a whole; the caller still owns (and closes) the export.
+     */
+    public boolean sendEmailWithAttachment(MailDto mailDto, ExportFile attachment, String logo) throws Exception;
 }
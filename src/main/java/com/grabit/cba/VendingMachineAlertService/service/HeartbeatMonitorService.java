@@ -1,25 +1,30 @@
 package com.grabit.cba.VendingMachineAlertService.service;
 
 import com.grabit.cba.VendingMachineAlertService.config.AllMachinesMonitorProperties;
-import com.grabit.cba.VendingMachineAlertService.database.model.AlertEmailConfig;
-import com.grabit.cba.VendingMachineAlertService.database.model.AlertHistory;
 import com.grabit.cba.VendingMachineAlertService.database.model.AlertType;
 import com.grabit.cba.VendingMachineAlertService.database.model.other.Merchants;
 import com.grabit.cba.VendingMachineAlertService.database.model.other.Partners;
-import com.grabit.cba.VendingMachineAlertService.database.model.other.Sales;
 import com.grabit.cba.VendingMachineAlertService.database.model.other.VendingMachine;
 import com.grabit.cba.VendingMachineAlertService.database.repository.*;
 import com.grabit.cba.VendingMachineAlertService.dto.requestDto.MailDto;
-import com.grabit.cba.VendingMachineAlertService.util.EmailServiceUtils;
+import com.grabit.cba.VendingMachineAlertService.service.evaluation.MonitorEvaluationEngine;
+import com.grabit.cba.VendingMachineAlertService.service.metrics.MonitorMetrics;
+import com.grabit.cba.VendingMachineAlertService.service.stream.TransactionDetector;
+import com.grabit.cba.VendingMachineAlertService.service.stream.TransactionStreamService;
+import com.grabit.cba.VendingMachineAlertService.service.stream.TransactionWindow;
+import com.grabit.cba.VendingMachineAlertService.service.EmailDispatchService.HistoryIntent;
+import com.grabit.cba.VendingMachineAlertService.service.template.AlertMailModel;
+import com.grabit.cba.VendingMachineAlertService.service.template.AlertTemplateRenderer;
+import com.grabit.cba.VendingMachineAlertService.service.cache.AlertConfigCache;
+import com.grabit.cba.VendingMachineAlertService.service.cache.AlertConfigCache.AlertRecipients;
+import com.grabit.cba.VendingMachineAlertService.service.topology.FleetTopology;
+import com.grabit.cba.VendingMachineAlertService.service.topology.FleetTopologyService;
+import com.grabit.cba.VendingMachineAlertService.service.state.AlertStateStore;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
@@ -28,46 +33,43 @@ import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 @Service
-public class HeartbeatMonitorService {
+public class HeartbeatMonitorService implements TransactionDetector {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(HeartbeatMonitorService.class);
     private static final String OFFLINE_ALERT_CODE = "OFFLINE_VM";
 
     private final AllMachinesMonitorProperties allMachinesMonitorProperties;
-    private final SalesRepository salesRepository;
-    private final VMRepository vmRepository;
-    private final MerchantsRepository merchantsRepository;
-    private final PartnersRepository partnersRepository;
-    private final AlertTypeRepository alertTypeRepository;
-    private final AlertHistoryRepository alertHistoryRepository;
-    private final AlertEmailConfigRepository alertEmailConfigRepository;
-    private final EmailSender emailSender;
-    private final TemplateEngine templateEngine;
+    private final FleetTopologyService fleetTopologyService;
+    private final AlertStateStore alertStateStore;
+    private final AlertConfigCache alertConfigCache;
+    private final EmailDispatchService emailDispatchService;
+    private final AlertTemplateRenderer alertTemplateRenderer;
+    private final TransactionStreamService transactionStreamService;
+    private final MonitorEvaluationEngine evaluationEngine;
+    private final MonitorMetrics monitorMetrics;
 
     @Value("${spring.mail.username}")
     private String senderMail;
 
 
     public HeartbeatMonitorService(AllMachinesMonitorProperties allMachinesMonitorProperties,
-                                   SalesRepository salesRepository,
-                                   VMRepository vmRepository,
-                                   MerchantsRepository merchantsRepository,
-                                   PartnersRepository partnersRepository,
-                                   AlertTypeRepository alertTypeRepository,
-                                   AlertHistoryRepository alertHistoryRepository,
-                                   AlertEmailConfigRepository alertEmailConfigRepository,
-                                   EmailSender emailSender,
-                                   TemplateEngine templateEngine) {
+                                   FleetTopologyService fleetTopologyService,
+                                   AlertStateStore alertStateStore,
+                                   AlertConfigCache alertConfigCache,
+                                   EmailDispatchService emailDispatchService,
+                                   AlertTemplateRenderer alertTemplateRenderer,
+                                   TransactionStreamService transactionStreamService,
+                                   MonitorEvaluationEngine evaluationEngine,
+                                   MonitorMetrics monitorMetrics) {
         this.allMachinesMonitorProperties = allMachinesMonitorProperties;
-        this.salesRepository = salesRepository;
-        this.vmRepository = vmRepository;
-        this.merchantsRepository = merchantsRepository;
-        this.partnersRepository = partnersRepository;
-        this.alertTypeRepository = alertTypeRepository;
-        this.alertHistoryRepository = alertHistoryRepository;
-        this.alertEmailConfigRepository = alertEmailConfigRepository;
-        this.emailSender = emailSender;
-        this.templateEngine = templateEngine;
+        this.fleetTopologyService = fleetTopologyService;
+        this.alertStateStore = alertStateStore;
+        this.alertConfigCache = alertConfigCache;
+        this.emailDispatchService = emailDispatchService;
+        this.alertTemplateRenderer = alertTemplateRenderer;
+        this.transactionStreamService = transactionStreamService;
+        this.evaluationEngine = evaluationEngine;
+        this.monitorMetrics = monitorMetrics;
     }
 
     @PostConstruct
@@ -79,6 +81,11 @@ public class HeartbeatMonitorService {
                 allMachinesMonitorProperties.getHeartbeat().getHeartbeatMonitoringAlertCooldownMinutes());
     }
 
+    @Override
+    public int requiredWindowSize() {
+        return 1;
+    }
+
     public void evaluateAllMachines() {
         if (!allMachinesMonitorProperties.getHeartbeat().isHeartbeatMonitoringEnabled()) {
             LOGGER.info("Vending Machine Heartbeat monitor disabled; skipping evaluation");
@@ -86,56 +93,66 @@ public class HeartbeatMonitorService {
         }
 
         LOGGER.info("Vending Machine Heartbeat monitor evaluation start for time {}", LocalDateTime.now());
+        transactionStreamService.catchUp();
 
         // Only monitors machines with status=0 (offline) for extended offline duration
-        // AlertHistory is used to persist notification state across service restarts
+        // Alert state (warmed from AlertHistory) persists notification state across service restarts
 
-        // Load all partners once and reuse
-        List<Partners> allPartners = partnersRepository.findAll();
+        // One fleet snapshot for the whole cycle
+        FleetTopology topology = fleetTopologyService.current();
+        List<Partners> allPartners = topology.partners();
         if (allPartners.isEmpty()) {
             LOGGER.warn("No partners found; skipping evaluation");
             return;
         }
 
-        // Cache partners for lookups
-        Map<Integer, Partners> partnersCache = new HashMap<>();
-        for (Partners partner : allPartners) {
-            partnersCache.put(partner.getId(), partner);
-        }
-
+        AlertType offlineAlertType = alertConfigCache.findAlertType(OFFLINE_ALERT_CODE).orElse(null);
+        List<Runnable> machineTasks = new ArrayList<>();
         for (Partners partner : allPartners) {
             try {
                 Integer partnerId = partner.getId();
-                List<Integer> merchantIds = merchantsRepository.findIdsByPartnerIds(Collections.singletonList(partnerId));
+                List<Integer> merchantIds = topology.merchantIds(partnerId);
                 if (merchantIds == null || merchantIds.isEmpty()) {
                     LOGGER.debug("Skipping partner {} (id={}) due to no merchants", partner.getName(), partnerId);
                     continue;
                 }
 
-                List<VendingMachine> offlineMachines = vmRepository.findOfflineByMerchantIds(merchantIds);
+                // Machines back online close their offline alert
+                for (VendingMachine vm : topology.activeMachines(partnerId)) {
+                    alertStateStore.resolve(vm.getSerialNo(), offlineAlertType);
+                }
+
+                List<VendingMachine> offlineMachines = topology.offlineMachines(partnerId);
                 if (offlineMachines == null || offlineMachines.isEmpty()) {
                     LOGGER.debug("Skipping partner {} (id={}) due to no offline vending machines", partner.getName(), partnerId);
                     continue;
                 }
 
+                // Latest transaction of every offline machine of this partner, served by the shared transaction stream
+                Map<Integer, TransactionWindow> windowByMachine = transactionStreamService.windows(
+                        offlineMachines.stream().map(VendingMachine::getId).toList(), 1);
+
                 // Check each offline vending machine's status duration
                 for (VendingMachine vm : offlineMachines) {
                     String serialNo = vm.getSerialNo();
-                    try {
-                        evaluateMachineHeartbeat(vm, partnersCache);
-                    } catch (Exception e) {
-                        LOGGER.error("Error evaluating machine {} heartbeat for partner {}: {}", serialNo, partner.getName(), e.getMessage(), e);
-                    }
+                    machineTasks.add(() -> {
+                        try {
+                            evaluateMachineHeartbeat(vm, windowByMachine.get(vm.getId()), topology);
+                        } catch (Exception e) {
+                            LOGGER.error("Error evaluating machine {} heartbeat for partner {}: {}", serialNo, partner.getName(), e.getMessage(), e);
+                        }
+                    });
                 }
             } catch (Exception ex) {
                 LOGGER.error("Error while evaluating partner {}: {}", partner.getName(), ex.getMessage(), ex);
             }
         }
 
+        evaluationEngine.runAll("Heartbeat monitor", machineTasks);
         LOGGER.info("Heartbeat monitor evaluation end for time {}", LocalDateTime.now());
     }
 
-    private void evaluateMachineHeartbeat(VendingMachine vm, Map<Integer, Partners> partnersCache) {
+    private void evaluateMachineHeartbeat(VendingMachine vm, TransactionWindow window, FleetTopology topology) {
         String serialNo = vm.getSerialNo();
         Integer machineStatus = vm.getStatus();
 
@@ -145,13 +162,10 @@ public class HeartbeatMonitorService {
             return;
         }
 
-        // Get latest transaction to determine how long the machine has been offline
-        List<Sales> latestTransactions = salesRepository.findLatestByMachineSerial(serialNo, PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "dateTime", "id")));
-
+        // Latest transaction determines how long the machine has been offline
         LocalDateTime lastActivity = null;
-        if (!latestTransactions.isEmpty()) {
-            Sales lastTransaction = latestTransactions.get(0);
-            lastActivity = lastTransaction.getDateTime();
+        if (window != null && window.size() > 0) {
+            lastActivity = window.dateTime(0);
         }
 
         LocalDateTime now = LocalDateTime.now();
@@ -173,7 +187,8 @@ public class HeartbeatMonitorService {
             LOGGER.info("Offline machine {} has been offline for {} minutes (threshold: {} minutes); triggering alert",
                        serialNo, minutesSinceActivity == Long.MAX_VALUE ? "unknown" : minutesSinceActivity,
                        allMachinesMonitorProperties.getHeartbeat().getHeartbeatMonitoringOfflineMachineThresholdMinutes());
-            handleOfflineMachine(vm, lastActivity, minutesSinceActivity, partnersCache);
+            monitorMetrics.alert(OFFLINE_ALERT_CODE, MonitorMetrics.TRIGGERED);
+            handleOfflineMachine(vm, lastActivity, minutesSinceActivity, topology);
         } else {
             LOGGER.debug("Offline machine {} has been offline for {} minutes (below threshold: {} minutes); no alert needed",
                         serialNo, minutesSinceActivity,
@@ -181,64 +196,47 @@ public class HeartbeatMonitorService {
         }
     }
 
-    private void handleOfflineMachine(VendingMachine vm, LocalDateTime lastActivityTime, long minutesSinceActivity, Map<Integer, Partners> partnersCache) {
+    private void handleOfflineMachine(VendingMachine vm, LocalDateTime lastActivityTime, long minutesSinceActivity, FleetTopology topology) {
         String serialNo = vm.getSerialNo();
-        Integer vmId = vm.getId();
 
         // Get alert type for offline machines
-        AlertType alertType = alertTypeRepository.findByCode(OFFLINE_ALERT_CODE).orElse(null);
+        AlertType alertType = alertConfigCache.findAlertType(OFFLINE_ALERT_CODE).orElse(null);
         if (alertType == null) {
             LOGGER.warn("AlertType '{}' not found; skipping alert for machine {}", OFFLINE_ALERT_CODE, serialNo);
             return;
         }
 
-        // Check alert history cooldown
-        Optional<AlertHistory> lastAlert = alertHistoryRepository.findLatestByVendingMachineIdAndAlertTypeId(vmId, alertType.getId());
-        if (lastAlert.isEmpty()) {
-            lastAlert = alertHistoryRepository.findLatestByVendingMachineSerialAndAlertTypeId(serialNo, alertType.getId());
-        }
-
-        if (lastAlert.isPresent()) {
-            LocalDateTime lastSent = lastAlert.get().getLastSentAt();
-            if (lastSent != null) {
-                if (lastActivityTime != null && !lastSent.isBefore(lastActivityTime)) {
-                    LOGGER.info("Suppressing alert because previous AlertHistory (id={}) was sent at {} which is >= lastActivityTime {}",
-                            lastAlert.get().getId(), lastSent, lastActivityTime);
-                    return;
-                }
+        // Check alert cooldown against the last confirmed send
+        LocalDateTime lastSent = alertStateStore.status(serialNo, alertType).lastSentAt();
+        if (lastSent != null) {
+            if (lastActivityTime != null && !lastSent.isBefore(lastActivityTime)) {
+                LOGGER.info("Suppressing alert because the previous alert was sent at {} which is >= lastActivityTime {}",
+                        lastSent, lastActivityTime);
+                monitorMetrics.alert(OFFLINE_ALERT_CODE, MonitorMetrics.SUPPRESSED);
+                return;
+            }
 
-                long cooldownMinutes = allMachinesMonitorProperties.getHeartbeat().getHeartbeatMonitoringAlertCooldownMinutes();
-                LocalDateTime now = LocalDateTime.now(ZoneId.systemDefault());
-                Duration elapsed = Duration.between(lastSent, now);
-                if (elapsed.toMinutes() < cooldownMinutes) {
-                    LOGGER.info("Suppressing duplicate alert for offline machine {} (sent {} minutes ago, cooldown {} minutes)",
-                            serialNo, elapsed.toMinutes(), cooldownMinutes);
-                    return;
-                }
+            long cooldownMinutes = allMachinesMonitorProperties.getHeartbeat().getHeartbeatMonitoringAlertCooldownMinutes();
+            LocalDateTime now = LocalDateTime.now(ZoneId.systemDefault());
+            Duration elapsed = Duration.between(lastSent, now);
+            if (elapsed.toMinutes() < cooldownMinutes) {
+                LOGGER.info("Suppressing duplicate alert for offline machine {} (sent {} minutes ago, cooldown {} minutes)",
+                        serialNo, elapsed.toMinutes(), cooldownMinutes);
+                monitorMetrics.alert(OFFLINE_ALERT_CODE, MonitorMetrics.SUPPRESSED);
+                return;
             }
         }
 
         // Send offline machine alert
-        sendOfflineMachineAlert(vm, lastActivityTime, minutesSinceActivity, alertType, partnersCache);
+        sendOfflineMachineAlert(vm, lastActivityTime, minutesSinceActivity, alertType, topology);
     }
 
-    private void sendOfflineMachineAlert(VendingMachine vm, LocalDateTime lastActivityTime, long minutesSinceActivity, AlertType alertType, Map<Integer, Partners> partnersCache) {
+    private void sendOfflineMachineAlert(VendingMachine vm, LocalDateTime lastActivityTime, long minutesSinceActivity, AlertType alertType, FleetTopology topology) {
         String serialNo = vm.getSerialNo();
         Integer vmId = vm.getId();
 
         // Determine partner for email configuration
-        Partners machinePartner = null;
-        if (vm.getMerchantId() != null) {
-            try {
-                Optional<Merchants> merchantOpt = merchantsRepository.findById(vm.getMerchantId());
-                if (merchantOpt.isPresent() && merchantOpt.get().getPartnerId() != null) {
-                    Integer partnerId = merchantOpt.get().getPartnerId();
-                    machinePartner = partnersCache.get(partnerId);
-                }
-            } catch (Exception ex) {
-                LOGGER.debug("Could not resolve partner for machine {}: {}", serialNo, ex.getMessage());
-            }
-        }
+        Partners machinePartner = topology.partnerOf(vm);
 
         // Get email configuration
         MailDto mailDto = new MailDto();
@@ -246,12 +244,12 @@ public class HeartbeatMonitorService {
         String[] ccAddrs = null;
         String[] bccAddrs = null;
 
-        Optional<AlertEmailConfig> optCfg = alertEmailConfigRepository.findFirstByAlertTypeAndPartners(alertType, machinePartner);
+        Optional<AlertRecipients> optCfg = alertConfigCache.findRecipients(alertType, machinePartner);
         if (optCfg.isPresent()) {
-            AlertEmailConfig cfg = optCfg.get();
-            toAddrs = EmailServiceUtils.commaSeparatedStringToArray(cfg.getTo());
-            ccAddrs = EmailServiceUtils.commaSeparatedStringToArray(cfg.getCc());
-            bccAddrs = EmailServiceUtils.commaSeparatedStringToArray(cfg.getBcc());
+            AlertRecipients cfg = optCfg.get();
+            toAddrs = cfg.to();
+            ccAddrs = cfg.cc();
+            bccAddrs = cfg.bcc();
         }
 
         mailDto.setTo(toAddrs);
@@ -261,18 +259,9 @@ public class HeartbeatMonitorService {
         mailDto.setFrom(senderMail);
         mailDto.setHtml(true);
 
-        // Prepare template properties for offline machine
-        Map<String, Object> props = new HashMap<>();
-        props.put("vendingSerialNumber", serialNo);
-        props.put("vmName", vm.getName());
-        props.put("machineStatus", vm.getStatus());
-        props.put("machineStatusDescription", "Offline");
-        props.put("alertReason", "Extended Offline Status");
-
         // Format last activity time
         DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
         String lastActivityFormatted = lastActivityTime != null ? lastActivityTime.atZone(ZoneId.systemDefault()).format(dtf) : "No transactions found";
-        props.put("offlineSince", lastActivityFormatted);
 
         // Format duration since last activity (how long offline)
         String offlineDuration;
@@ -287,57 +276,35 @@ public class HeartbeatMonitorService {
                 offlineDuration = String.format("%d minutes", remainingMinutes);
             }
         }
-        props.put("offlineDuration", offlineDuration);
 
         // Get merchant information
         String merchantName = null;
         String merchantAddress = null;
-        if (vm.getMerchantId() != null) {
-            try {
-                Optional<Merchants> merchantOpt = merchantsRepository.findById(vm.getMerchantId());
-                if (merchantOpt.isPresent()) {
-                    merchantName = merchantOpt.get().getName();
-                    merchantAddress = merchantOpt.get().getAddress();
-                }
-            } catch (Exception ex) {
-                LOGGER.debug("Could not resolve merchant info for serial {}: {}", serialNo, ex.getMessage());
-            }
+        Merchants merchant = topology.merchant(vm.getMerchantId());
+        if (merchant != null) {
+            merchantName = merchant.getName();
+            merchantAddress = merchant.getAddress();
         }
-        props.put("merchantName", merchantName);
-        props.put("merchantAddress", merchantAddress);
-        props.put("location", merchantAddress);
 
-        props.put("year", Calendar.getInstance().get(Calendar.YEAR));
+        AlertMailModel.OfflineMachine model = new AlertMailModel.OfflineMachine(serialNo, vm.getName(), lastActivityFormatted,
+                offlineDuration, merchantName, merchantAddress);
 
         try {
-            Context context = new Context();
-            context.setVariables(props);
-            String htmlBody = templateEngine.process("Offline_vm", context);
-            mailDto.setBody(htmlBody);
-
-            boolean emailSent = emailSender.sendEmail(mailDto, null, null);
-            if (emailSent) {
-                String partnerNameLog = machinePartner != null ? machinePartner.getName() : "UNKNOWN";
-                String toLog = (toAddrs != null && toAddrs.length > 0) ? String.join(",", toAddrs) : "<none>";
-                LOGGER.info("Offline Machine Alert email sent at {} to partner {} email {}", LocalDateTime.now(ZoneId.systemDefault()), partnerNameLog, toLog);
-                LOGGER.info("Offline Machine Alert sent for machine {} (offline for {} minutes)",
-                           serialNo, minutesSinceActivity == Long.MAX_VALUE ? "unknown" : minutesSinceActivity);
-
-                // Persist AlertHistory ONLY if email was sent successfully - always create new record
-                LocalDateTime sendTime = LocalDateTime.now(ZoneId.systemDefault());
-                AlertHistory history = new AlertHistory();
-                history.setVendingMachineId(vmId);
-                history.setVendingMachineSerial(serialNo);
-                if (history.getVendingMachineId() == null) {
-                    LOGGER.warn("Could not resolve vendingMachineId for serial {}; AlertHistory will store null", serialNo);
-                }
-                history.setLastSentAt(sendTime);
-                history.setAlertType(alertType);
-                history.setPartnerName(machinePartner != null ? machinePartner.getName() : null);
-                alertHistoryRepository.saveAndFlush(history);
-                LOGGER.info("Inserted new AlertHistory for offline machine {} at {} (history id={})", serialNo, history.getLastSentAt(), history.getId());
+            mailDto.setBody(alertTemplateRenderer.render(model));
+
+            String toLog = (toAddrs != null && toAddrs.length > 0) ? String.join(",", toAddrs) : "<none>";
+            String partnerName = machinePartner != null ? machinePartner.getName() : null;
+            if (vmId == null) {
+                LOGGER.warn("Could not resolve vendingMachineId for serial {}; AlertHistory will store null", serialNo);
+            }
+            // AlertHistory is written by the outbox once the email was confirmed sent
+            boolean queued = emailDispatchService.enqueue(OFFLINE_ALERT_CODE + ":" + serialNo, mailDto, null,
+                    List.of(HistoryIntent.of(vmId, serialNo, alertType, partnerName)));
+            if (queued) {
+                LOGGER.info("Offline Machine Alert queued for machine {} (offline for {} minutes) to partner {} email {}", serialNo,
+                        minutesSinceActivity == Long.MAX_VALUE ? "unknown" : minutesSinceActivity, partnerName != null ? partnerName : "UNKNOWN", toLog);
             } else {
-                LOGGER.warn("Offline Machine Alert email send failed for machine {}; skipping AlertHistory persist", serialNo);
+                LOGGER.debug("Offline machine alert for machine {} is already queued", serialNo);
             }
         } catch (Exception e) {
             LOGGER.error("Error sending offline machine alert for machine {}: {}", serialNo, e.getMessage(), e);
@@ -1,7 +1,11 @@
 package com.grabit.cba.VendingMachineAlertService.service;
 
+import com.grabit.cba.VendingMachineAlertService.dto.responseDto.MachineSalesReportRow;
+import com.grabit.cba.VendingMachineAlertService.dto.responseDto.PartnerSalesReport;
+
 import java.time.LocalDateTime;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public interface SalesReportService {
     /**
@@ -9,5 +13,19 @@ public interface SalesReportService {
      * Returns a map that can be passed to the email template.
      */
     Map<String, Object> generateReportForPartner(String partnerName, LocalDateTime windowStart, LocalDateTime windowEnd);
-}
 
+    /**
+     * Per machine transaction counts of the partner's non-deleted machines for {@code [windowStart, windowEnd)}, with
+     * totals. Empty (no rows) when no partner has the given name.
+     */
+    PartnerSalesReport buildReportForPartner(String partnerName, LocalDateTime windowStart, LocalDateTime windowEnd);
+
+    /**
+     * Same rows as {@link #buildReportForPartner}, handed to {@code sink} in machine id order while the counts are
+     * fetched chunk by chunk, so very large partners are never held in memory.
+     *
+     * @return number of rows passed to the sink
+     */
+    int streamReportForPartner(String partnerName, LocalDateTime windowStart, LocalDateTime windowEnd,
+                               Consumer<MachineSalesReportRow> sink);
+}
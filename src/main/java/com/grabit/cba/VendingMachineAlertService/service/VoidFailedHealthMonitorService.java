@@ -4,43 +4,56 @@ import com.grabit.cba.VendingMachineAlertService.config.AllMachinesMonitorProper
 import com.grabit.cba.VendingMachineAlertService.database.model.*;
 import com.grabit.cba.VendingMachineAlertService.database.model.other.Sales;
 import com.grabit.cba.VendingMachineAlertService.database.model.other.VendingMachine;
+import com.grabit.cba.VendingMachineAlertService.database.model.other.Merchants;
 import com.grabit.cba.VendingMachineAlertService.database.model.other.Partners;
 import com.grabit.cba.VendingMachineAlertService.database.repository.*;
 import com.grabit.cba.VendingMachineAlertService.dto.requestDto.MailDto;
 import com.grabit.cba.VendingMachineAlertService.enums.TransactionTypes;
-import com.grabit.cba.VendingMachineAlertService.util.EmailServiceUtils;
+import com.grabit.cba.VendingMachineAlertService.service.evaluation.MonitorEvaluationEngine;
+import com.grabit.cba.VendingMachineAlertService.service.metrics.MonitorMetrics;
+import com.grabit.cba.VendingMachineAlertService.service.state.VoidFailedTrackingWriter;
+import com.grabit.cba.VendingMachineAlertService.service.stream.TransactionDetector;
+import com.grabit.cba.VendingMachineAlertService.service.stream.TransactionStreamService;
+import com.grabit.cba.VendingMachineAlertService.service.stream.TransactionWindow;
+import com.grabit.cba.VendingMachineAlertService.service.EmailDispatchService.HistoryIntent;
+import com.grabit.cba.VendingMachineAlertService.service.template.AlertMailModel;
+import com.grabit.cba.VendingMachineAlertService.service.template.AlertTemplateRenderer;
+import com.grabit.cba.VendingMachineAlertService.service.cache.AlertConfigCache;
+import com.grabit.cba.VendingMachineAlertService.service.cache.AlertConfigCache.AlertRecipients;
+import com.grabit.cba.VendingMachineAlertService.service.topology.FleetTopology;
+import com.grabit.cba.VendingMachineAlertService.service.topology.FleetTopologyService;
+import com.grabit.cba.VendingMachineAlertService.service.topology.VendingMachineResolver;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Value;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.stream.Collectors;
 
 @Service
-public class VoidFailedHealthMonitorService {
+public class VoidFailedHealthMonitorService implements TransactionDetector {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(VoidFailedHealthMonitorService.class);
 
     private final AllMachinesMonitorProperties allMachinesMonitorProperties;
     private final SalesRepository salesRepository;
-    private final VMRepository vmRepository;
-    private final EmailSender emailSender;
+    private final VendingMachineResolver vendingMachineResolver;
+    private final EmailDispatchService emailDispatchService;
     private final AlertHistoryRepository alertHistoryRepository;
-    private final AlertTypeRepository alertTypeRepository;
-    private final AlertEmailConfigRepository alertEmailConfigRepository;
+    private final AlertConfigCache alertConfigCache;
     private final VoidFailedTrackingRepository voidFailedTrackingRepository;
-    private final TemplateEngine templateEngine;
-    private final com.grabit.cba.VendingMachineAlertService.database.repository.MerchantsRepository merchantsRepository;
-    private final com.grabit.cba.VendingMachineAlertService.database.repository.PartnersRepository partnersRepository;
+    private final VoidFailedTrackingWriter voidFailedTrackingWriter;
+    private final AlertTemplateRenderer alertTemplateRenderer;
+    private final FleetTopologyService fleetTopologyService;
+    private final TransactionStreamService transactionStreamService;
+    private final MonitorEvaluationEngine evaluationEngine;
+    private final MonitorMetrics monitorMetrics;
 
     @Value("${spring.mail.username}")
     private String senderMail;
@@ -48,32 +61,33 @@ public class VoidFailedHealthMonitorService {
     @Value("${grabit.logo:}")
     private String grabitLogo;
 
-    // Cache for vending machines to avoid repeated lookups
-    private final Map<String, VendingMachine> vendingMachineCache = new HashMap<>();
-    private final Map<Integer, Partners> partnersCache = new HashMap<>();
 
     public VoidFailedHealthMonitorService(AllMachinesMonitorProperties allMachinesMonitorProperties,
                                         SalesRepository salesRepository,
-                                        VMRepository vmRepository,
-                                        EmailSender emailSender,
+                                        VendingMachineResolver vendingMachineResolver,
+                                        EmailDispatchService emailDispatchService,
                                         AlertHistoryRepository alertHistoryRepository,
-                                        AlertTypeRepository alertTypeRepository,
-                                        AlertEmailConfigRepository alertEmailConfigRepository,
+                                        AlertConfigCache alertConfigCache,
                                         VoidFailedTrackingRepository voidFailedTrackingRepository,
-                                        TemplateEngine templateEngine,
-                                        com.grabit.cba.VendingMachineAlertService.database.repository.MerchantsRepository merchantsRepository,
-                                        com.grabit.cba.VendingMachineAlertService.database.repository.PartnersRepository partnersRepository) {
+                                        VoidFailedTrackingWriter voidFailedTrackingWriter,
+                                        AlertTemplateRenderer alertTemplateRenderer,
+                                        FleetTopologyService fleetTopologyService,
+                                        TransactionStreamService transactionStreamService,
+                                        MonitorEvaluationEngine evaluationEngine,
+                                        MonitorMetrics monitorMetrics) {
         this.allMachinesMonitorProperties = allMachinesMonitorProperties;
         this.salesRepository = salesRepository;
-        this.vmRepository = vmRepository;
-        this.emailSender = emailSender;
+        this.vendingMachineResolver = vendingMachineResolver;
+        this.emailDispatchService = emailDispatchService;
         this.alertHistoryRepository = alertHistoryRepository;
-        this.alertTypeRepository = alertTypeRepository;
-        this.alertEmailConfigRepository = alertEmailConfigRepository;
+        this.alertConfigCache = alertConfigCache;
         this.voidFailedTrackingRepository = voidFailedTrackingRepository;
-        this.templateEngine = templateEngine;
-        this.merchantsRepository = merchantsRepository;
-        this.partnersRepository = partnersRepository;
+        this.voidFailedTrackingWriter = voidFailedTrackingWriter;
+        this.alertTemplateRenderer = alertTemplateRenderer;
+        this.fleetTopologyService = fleetTopologyService;
+        this.transactionStreamService = transactionStreamService;
+        this.evaluationEngine = evaluationEngine;
+        this.monitorMetrics = monitorMetrics;
     }
 
     @PostConstruct
@@ -85,58 +99,74 @@ public class VoidFailedHealthMonitorService {
                 allMachinesMonitorProperties.getVoidFailed().getAlertCooldownMinutes());
     }
 
+    @Override
+    public int requiredWindowSize() {
+        return allMachinesMonitorProperties.getVoidFailed().getVoidFailureThreshold();
+    }
+
     public void evaluateAllMachines() {
         if (!allMachinesMonitorProperties.getVoidFailed().isVoidFailedEnabled()) {
             LOGGER.info("Void failed monitor disabled; skipping evaluation");
             return;
         }
         LOGGER.info("Void failed monitor evaluation start for time {}", LocalDateTime.now());
+        transactionStreamService.catchUp();
 
-        // Clear cache at the beginning of each evaluation cycle
-        vendingMachineCache.clear();
-        partnersCache.clear();
-
-        // Pre-load partners cache
-        List<Partners> allPartners = partnersRepository.findAll();
-        partnersCache.putAll(allPartners.stream().collect(Collectors.toMap(Partners::getId, p -> p)));
-
-        // Reuse the already loaded partners list instead of making another DB call
-        List<Partners> partners = allPartners;
+        // Evaluate by partner -> merchants -> active vending machines, from one fleet snapshot for the whole cycle
+        FleetTopology topology = fleetTopologyService.current();
+        List<Partners> partners = topology.partners();
         if (partners == null || partners.isEmpty()) {
             LOGGER.warn("No partners found; skipping evaluation");
         } else {
+            List<Runnable> machineTasks = new ArrayList<>();
+            // New tracking positions of the cycle, written in one batch once the machine tasks are done
+            Queue<VoidFailedTracking> trackingUpdates = new ConcurrentLinkedQueue<>();
             for (Partners partner : partners) {
                 try {
                     Integer partnerId = partner.getId();
-                    List<Integer> merchantIds = merchantsRepository.findIdsByPartnerIds(Collections.singletonList(partnerId));
+                    List<Integer> merchantIds = topology.merchantIds(partnerId);
                     if (merchantIds == null || merchantIds.isEmpty()) {
                         LOGGER.debug("Skipping partner {} (id={}) due to no merchants", partner.getName(), partnerId);
                         continue;
                     }
-                    List<VendingMachine> activeMachines = vmRepository.findActiveByMerchantIds(merchantIds);
+                    List<VendingMachine> activeMachines = topology.activeMachines(partnerId);
                     if (activeMachines == null || activeMachines.isEmpty()) {
                         LOGGER.debug("Skipping partner {} (id={}) due to no active vending machines", partner.getName(), partnerId);
                         continue;
                     }
 
-                    // Pre-load vending machine cache for this partner
-                    for (VendingMachine vm : activeMachines) {
-                        vendingMachineCache.put(vm.getSerialNo(), vm);
-                    }
+                    // Recent transactions from the shared transaction stream and tracking rows, both fetched once per partner
+                    Map<Integer, TransactionWindow> windowByMachine = transactionStreamService.windows(
+                            activeMachines.stream().map(VendingMachine::getId).toList(), requiredWindowSize());
+                    Map<String, VoidFailedTracking> trackingBySerial = voidFailedTrackingRepository.findByVendingMachineSerialIn(
+                                    activeMachines.stream().map(VendingMachine::getSerialNo).toList())
+                            .stream().collect(Collectors.toMap(VoidFailedTracking::getVendingMachineSerial, t -> t, (a, b) -> a));
 
                     // Evaluate void failed logic per machine
                     for (VendingMachine vm : activeMachines) {
                         String serial = vm.getSerialNo();
-                        try {
-                            evaluateMachine(serial, vm);
-                        } catch (Exception e) {
-                            LOGGER.error("Error evaluating machine {} for partner {}: {}", serial, partner.getName(), e.getMessage(), e);
-                        }
+                        machineTasks.add(() -> {
+                            try {
+                                VoidFailedTracking update = evaluateMachine(serial, vm, windowByMachine.get(vm.getId()), trackingBySerial.get(serial));
+                                if (update != null) {
+                                    trackingUpdates.add(update);
+                                }
+                            } catch (Exception e) {
+                                LOGGER.error("Error evaluating machine {} for partner {}: {}", serial, partner.getName(), e.getMessage(), e);
+                            }
+                        });
                     }
                 } catch (Exception ex) {
                     LOGGER.error("Error while evaluating partner {}: {}", partner.getName(), ex.getMessage(), ex);
                 }
             }
+            evaluationEngine.runAll("Void failed monitor", machineTasks);
+            // Machines still running past the cycle deadline keep their old position and are re-read next cycle
+            try {
+                voidFailedTrackingWriter.write(List.copyOf(trackingUpdates));
+            } catch (Exception ex) {
+                LOGGER.error("Failed to update void failed tracking of {} machines: {}", trackingUpdates.size(), ex.getMessage(), ex);
+            }
         }
         LOGGER.info("Void failed monitor evaluation end for time {}", LocalDateTime.now());
     }
@@ -145,68 +175,74 @@ public class VoidFailedHealthMonitorService {
      * Evaluate individual machine for VOID_FAILED transactions and send individual alerts
      */
     public void evaluateMachine(String serialNo, VendingMachine vm) {
-        // Get tracking info for this machine to determine where to start checking
-        Optional<VoidFailedTracking> trackingOpt = voidFailedTrackingRepository.findByVendingMachineSerial(serialNo);
-
-        List<Sales> latestTransactions;
-        int threshold = allMachinesMonitorProperties.getVoidFailed().getVoidFailureThreshold();
-
-        if (trackingOpt.isPresent()) {
-            VoidFailedTracking tracking = trackingOpt.get();
-            // Get transactions newer than the last checked transaction to avoid duplicates
-            if (tracking.getLastCheckedTransactionId() != null) {
-                latestTransactions = salesRepository.findLatestByMachineSerialAfterTransactionId(
-                    serialNo,
-                    tracking.getLastCheckedTransactionId(),
-                    PageRequest.of(0, threshold, Sort.by(Sort.Direction.DESC, "dateTime", "id"))
-                );
-            } else if (tracking.getLastCheckedDatetime() != null) {
-                latestTransactions = salesRepository.findLatestByMachineSerialAfterDatetime(
-                    serialNo,
-                    tracking.getLastCheckedDatetime(),
-                    PageRequest.of(0, threshold, Sort.by(Sort.Direction.DESC, "dateTime", "id"))
-                );
-            } else {
-                // Fallback: get latest transactions
-                latestTransactions = salesRepository.findLatestByMachineSerial(serialNo, PageRequest.of(0, threshold, Sort.by(Sort.Direction.DESC, "dateTime", "id")));
-            }
-        } else {
-            // First time checking this machine, get the latest threshold number of transactions
-            latestTransactions = salesRepository.findLatestByMachineSerial(serialNo, PageRequest.of(0, threshold));
+        TransactionWindow window = vm == null || vm.getId() == null ? null
+                : transactionStreamService.windows(Collections.singletonList(vm.getId()), requiredWindowSize()).get(vm.getId());
+        VoidFailedTracking update = evaluateMachine(serialNo, vm, window,
+                voidFailedTrackingRepository.findByVendingMachineSerial(serialNo).orElse(null));
+        if (update != null) {
+            voidFailedTrackingWriter.write(List.of(update));
         }
+    }
 
-        if (latestTransactions.isEmpty()) {
-            LOGGER.debug("No new transactions found for machine {}", serialNo);
-            return;
-        }
+    /**
+     * Evaluate a machine against its in-memory transaction window (newest first), only looking at transactions newer
+     * than the last one recorded in its tracking row
+     *
+     * @return the machine's new tracking position, or null when it had no new transactions
+     */
+    private VoidFailedTracking evaluateMachine(String serialNo, VendingMachine vm, TransactionWindow window, VoidFailedTracking tracking) {
+        int threshold = allMachinesMonitorProperties.getVoidFailed().getVoidFailureThreshold();
+        Integer lastCheckedId = tracking == null ? null : tracking.getLastCheckedTransactionId();
+        LocalDateTime lastCheckedDatetime = tracking == null ? null : tracking.getLastCheckedDatetime();
+        long lastCheckedMillis = lastCheckedDatetime == null ? Long.MIN_VALUE
+                : lastCheckedDatetime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
 
-        // Filter for VOID_FAILED transactions and process each individually
+        // Walk the newest transactions, keeping only those newer than the last checked one to avoid duplicates
         LocalDateTime newestTransactionTime = null;
         Integer newestTransactionId = null;
+        long newestMillis = Long.MIN_VALUE;
+        int newTransactions = 0;
         int voidFailedCount = 0;
-
-        for (Sales transaction : latestTransactions) {
-            String status = Optional.ofNullable(transaction.getTransactionStatus()).map(String::toUpperCase).orElse("");
+        byte voidFailed = TransactionTypes.VOID_FAILED.code();
+        int size = window == null ? 0 : window.size();
+
+        for (int i = 0; i < size && newTransactions < threshold; i++) {
+            if (lastCheckedId != null) {
+                if (window.id(i) <= lastCheckedId) continue;
+            } else if (lastCheckedDatetime != null) {
+                if (window.epochMillis(i) == Long.MIN_VALUE || window.epochMillis(i) <= lastCheckedMillis) continue;
+            }
+            newTransactions++;
 
             // Update newest transaction info
-            if (newestTransactionTime == null || (transaction.getDateTime() != null && transaction.getDateTime().isAfter(newestTransactionTime))) {
-                newestTransactionTime = transaction.getDateTime();
-                newestTransactionId = transaction.getId();
+            if (newestTransactionId == null || window.epochMillis(i) > newestMillis) {
+                newestMillis = window.epochMillis(i);
+                newestTransactionTime = window.dateTime(i);
+                newestTransactionId = window.id(i);
             }
 
-            if (TransactionTypes.VOID_FAILED.name().equals(status)) {
+            if (window.statusCode(i) == voidFailed) {
+                // The alert email carries the full transaction details, so only VOID_FAILED rows are loaded as entities
+                Sales transaction = salesRepository.findById(window.id(i)).orElse(null);
+                if (transaction == null) {
+                    LOGGER.warn("Void failed transaction {} of machine {} no longer exists; skipping", window.id(i), serialNo);
+                    continue;
+                }
                 voidFailedCount++;
                 // Process individual void failed transaction
                 processVoidFailedTransaction(serialNo, transaction, vm);
             }
         }
 
-        // Update tracking record
-        updateTrackingRecord(serialNo, newestTransactionId, newestTransactionTime);
+        if (newTransactions == 0) {
+            LOGGER.debug("No new transactions found for machine {}", serialNo);
+            return null;
+        }
 
         if (voidFailedCount > 0) {
             LOGGER.info("Processed {} void failed transactions for machine {}", voidFailedCount, serialNo);
         }
+        return trackingPosition(serialNo, newestTransactionId, newestTransactionTime);
     }
 
     /**
@@ -220,12 +256,12 @@ public class VoidFailedHealthMonitorService {
 
         // Get AlertType for VOID_FAILED
         String alertCode = TransactionTypes.VOID_FAILED.name();
-        AlertType selectedAlertType = alertTypeRepository.findByCode(alertCode).orElse(null);
+        AlertType selectedAlertType = alertConfigCache.findAlertType(alertCode).orElse(null);
 
         if (selectedAlertType == null) {
             // Fallback to SALE_FAILED alert type as it's a similar critical failure
             alertCode = TransactionTypes.SALE_FAILED.name();
-            selectedAlertType = alertTypeRepository.findByCode(alertCode).orElse(null);
+            selectedAlertType = alertConfigCache.findAlertType(alertCode).orElse(null);
             LOGGER.info("VOID_FAILED alert type not found, using SALE_FAILED as fallback for machine {}", serialNo);
         }
 
@@ -235,6 +271,8 @@ public class VoidFailedHealthMonitorService {
             return;
         }
 
+        monitorMetrics.alert(alertCode, MonitorMetrics.TRIGGERED);
+
         // Check if we already have an alert record for this specific transaction
         Optional<AlertHistory> existingAlertOpt = alertHistoryRepository.findLatestByTransactionIdAndAlertTypeId(transactionId, selectedAlertType.getId());
 
@@ -249,19 +287,20 @@ public class VoidFailedHealthMonitorService {
                 if (LocalDateTime.now().isBefore(cooldownThreshold)) {
                     LOGGER.debug("Transaction {} was recently alerted at {}, within cooldown period",
                                transactionId, existingAlert.getLastSentAt());
+                    monitorMetrics.alert(alertCode, MonitorMetrics.SUPPRESSED);
                     return;
                 }
             }
         }
 
-        // Send individual alert email for this transaction
-        boolean emailSent = sendIndividualVoidFailedAlert(serialNo, transaction, vm);
+        // Queue individual alert email for this transaction
+        boolean queued = sendIndividualVoidFailedAlert(serialNo, transaction, vm);
 
-        if (emailSent) {
-            LOGGER.info("Successfully sent alert for void failed transaction {} on machine {}",
+        if (queued) {
+            LOGGER.info("Queued alert for void failed transaction {} on machine {}",
                        transactionId, serialNo);
         } else {
-            LOGGER.warn("Failed to send alert for void failed transaction {} on machine {}", transactionId, serialNo);
+            LOGGER.warn("Alert for void failed transaction {} on machine {} was not queued", transactionId, serialNo);
         }
     }
 
@@ -272,12 +311,12 @@ public class VoidFailedHealthMonitorService {
         try {
             // Get or use cached AlertType
             String alertCode = TransactionTypes.VOID_FAILED.name();
-            AlertType selectedAlertType = alertTypeRepository.findByCode(alertCode).orElse(null);
+            AlertType selectedAlertType = alertConfigCache.findAlertType(alertCode).orElse(null);
 
             if (selectedAlertType == null) {
                 // Fallback to SALE_FAILED alert type as it's a similar critical failure
                 alertCode = TransactionTypes.SALE_FAILED.name();
-                selectedAlertType = alertTypeRepository.findByCode(alertCode).orElse(null);
+                selectedAlertType = alertConfigCache.findAlertType(alertCode).orElse(null);
                 LOGGER.info("VOID_FAILED alert type not found, using SALE_FAILED as fallback for machine {}", serialNo);
             }
 
@@ -287,35 +326,10 @@ public class VoidFailedHealthMonitorService {
                 return false;
             }
 
-            // Use cached vending machine if available
-            VendingMachine vendingMachine = vm != null ? vm : vendingMachineCache.get(serialNo);
-            if (vendingMachine == null) {
-                vendingMachine = vmRepository.findBySerialNo(serialNo).orElse(null);
-                if (vendingMachine != null) {
-                    vendingMachineCache.put(serialNo, vendingMachine);
-                }
-            }
+            VendingMachine vendingMachine = vm != null ? vm : vendingMachineResolver.bySerial(serialNo).orElse(null);
 
             // Determine partner for the machine to select correct AlertEmailConfig
-            Partners machinePartner = null;
-            if (vendingMachine != null && vendingMachine.getMerchantId() != null) {
-                try {
-                    Optional<com.grabit.cba.VendingMachineAlertService.database.model.other.Merchants> merchantOpt =
-                        merchantsRepository.findById(vendingMachine.getMerchantId());
-                    if (merchantOpt.isPresent() && merchantOpt.get().getPartnerId() != null) {
-                        Integer partnerId = merchantOpt.get().getPartnerId();
-                        machinePartner = partnersCache.get(partnerId);
-                        if (machinePartner == null) {
-                            machinePartner = partnersRepository.findById(partnerId).orElse(null);
-                            if (machinePartner != null) {
-                                partnersCache.put(partnerId, machinePartner);
-                            }
-                        }
-                    }
-                } catch (Exception ex) {
-                    LOGGER.debug("Could not resolve partner for machine {}: {}", serialNo, ex.getMessage());
-                }
-            }
+            Partners machinePartner = fleetTopologyService.current().partnerOf(vendingMachine);
 
             // Setup email addresses
             MailDto mailDto = new MailDto();
@@ -323,12 +337,12 @@ public class VoidFailedHealthMonitorService {
             String[] ccAddrs = null;
             String[] bccAddrs = null;
 
-            Optional<AlertEmailConfig> optCfg = alertEmailConfigRepository.findFirstByAlertTypeAndPartners(selectedAlertType, machinePartner);
+            Optional<AlertRecipients> optCfg = alertConfigCache.findRecipients(selectedAlertType, machinePartner);
             if (optCfg.isPresent()) {
-                AlertEmailConfig cfg = optCfg.get();
-                toAddrs = EmailServiceUtils.commaSeparatedStringToArray(cfg.getTo());
-                ccAddrs = EmailServiceUtils.commaSeparatedStringToArray(cfg.getCc());
-                bccAddrs = EmailServiceUtils.commaSeparatedStringToArray(cfg.getBcc());
+                AlertRecipients cfg = optCfg.get();
+                toAddrs = cfg.to();
+                ccAddrs = cfg.cc();
+                bccAddrs = cfg.bcc();
             }
 
             mailDto.setTo(toAddrs);
@@ -340,28 +354,16 @@ public class VoidFailedHealthMonitorService {
             mailDto.setHtml(true);
 
             // Prepare template properties with transaction-specific details
-            Map<String, Object> props = prepareTemplateProperties(serialNo, transaction, vendingMachine, machinePartner);
+            AlertMailModel.VoidFailed model = buildMailModel(serialNo, transaction, vendingMachine);
 
             // Generate email content
-            Context context = new Context();
-            context.setVariables(props);
-            String htmlBody = templateEngine.process("Void_failed", context);
-            mailDto.setBody(htmlBody);
-
-            // Send email
-            boolean emailSent = emailSender.sendEmail(mailDto, null, null);
-
-            if (emailSent) {
-                String partnerNameLog = machinePartner != null ? machinePartner.getName() : "UNKNOWN";
-                String toLog = (toAddrs != null && toAddrs.length > 0) ? String.join(",", toAddrs) : "<none>";
-                LOGGER.info("Individual void failed alert email sent at {} to partner {} email {} for transaction {}",
-                           LocalDateTime.now(ZoneId.systemDefault()), partnerNameLog, toLog, transaction.getId());
-
-                // Persist AlertHistory for this individual transaction
-                persistAlertHistory(serialNo, vendingMachine, selectedAlertType, machinePartner, transaction);
-            }
+            mailDto.setBody(alertTemplateRenderer.render(model));
 
-            return emailSent;
+            // Queue email; the outbox writes the AlertHistory for this transaction once the send is confirmed
+            String dedupeKey = alertCode + ":" + serialNo + ":" + transaction.getId();
+            HistoryIntent history = new HistoryIntent(vendingMachine != null ? vendingMachine.getId() : null, serialNo,
+                    transaction.getId(), selectedAlertType, machinePartner != null ? machinePartner.getName() : null, null);
+            return emailDispatchService.enqueue(dedupeKey, mailDto, null, List.of(history));
 
         } catch (Exception e) {
             LOGGER.error("Failed to send individual void failed alert for transaction {} on machine {}: {}",
@@ -371,87 +373,33 @@ public class VoidFailedHealthMonitorService {
     }
 
     /**
-     * Prepare template properties for individual transaction alert
+     * Build the template model for individual transaction alert
      */
-    private Map<String, Object> prepareTemplateProperties(String serialNo, Sales transaction,
-                                                         VendingMachine vm, Partners machinePartner) {
-        Map<String, Object> props = new HashMap<>();
-
-        // Transaction-specific properties
-        props.put("transactionId", transaction.getId());
-        props.put("transactionDateTime", formatDateTime(transaction.getDateTime()));
-        props.put("transactionAmount", formatAmount(transaction.getAmount()));
-        props.put("tranInvoiceNo", transaction.getTranInvoiceNo());
-        props.put("tranBatchNo", transaction.getTranBatchNo());
-        props.put("terminalId", transaction.getTranTerminalID());
-        props.put("merchantId", transaction.getTranMerchantID());
-        props.put("tranApproveCode", transaction.getTranApproveCode());
-        props.put("maskedPan", transaction.getTranMaskedPAN());
-        props.put("discount", transaction.getDiscount());
-
-        // Machine properties
-        props.put("vendingSerialNumber", serialNo);
+    private AlertMailModel.VoidFailed buildMailModel(String serialNo, Sales transaction, VendingMachine vm) {
+        String vmName = null;
+        Integer terminateCode = null;
+        Integer productLockCount = null;
+        String merchantName = null;
+        String merchantAddress = null;
 
         if (vm != null) {
-            props.put("vmName", vm.getName());
-            props.put("terminateCode", vm.getTerminateCode());
-            props.put("productLockCount", vm.getProductLockCount());
+            vmName = vm.getName();
+            terminateCode = vm.getTerminateCode();
+            productLockCount = vm.getProductLockCount();
 
             // Get merchant info
-            String merchantName = null;
-            String merchantAddress = null;
-            try {
-                if (vm.getMerchantId() != null) {
-                    Optional<com.grabit.cba.VendingMachineAlertService.database.model.other.Merchants> optMerchant =
-                        merchantsRepository.findById(vm.getMerchantId());
-                    if (optMerchant.isPresent()) {
-                        merchantName = optMerchant.get().getName();
-                        merchantAddress = optMerchant.get().getAddress();
-                    }
-                }
-            } catch (Exception ex) {
-                LOGGER.debug("Could not resolve merchant info for serial {}: {}", serialNo, ex.getMessage());
+            Merchants merchant = fleetTopologyService.current().merchant(vm.getMerchantId());
+            if (merchant != null) {
+                merchantName = merchant.getName();
+                merchantAddress = merchant.getAddress();
             }
-            props.put("merchantName", merchantName);
-            props.put("location", merchantAddress);
-        } else {
-            props.put("vmName", null);
-            props.put("merchantName", null);
-            props.put("terminateCode", null);
-            props.put("productLockCount", null);
-            props.put("location", null);
         }
 
-        props.put("year", Calendar.getInstance().get(Calendar.YEAR));
-
-        return props;
-    }
-
-    /**
-     * Persist AlertHistory for individual transaction
-     */
-    private void persistAlertHistory(String serialNo, VendingMachine vm, AlertType selectedAlertType,
-                                   Partners machinePartner, Sales transaction) {
-        try {
-            LocalDateTime sendTime = LocalDateTime.now(ZoneId.systemDefault());
-
-            // Create new AlertHistory for this specific transaction
-            AlertHistory history = new AlertHistory();
-            history.setVendingMachineId(vm != null ? vm.getId() : null);
-            history.setVendingMachineSerial(serialNo);
-            history.setTransactionId(transaction.getId()); // Track the specific transaction
-            history.setLastSentAt(sendTime);
-            history.setAlertType(selectedAlertType);
-            history.setPartnerName(machinePartner != null ? machinePartner.getName() : null);
-
-            alertHistoryRepository.saveAndFlush(history);
-            LOGGER.info("Inserted AlertHistory for individual transaction {} on machine {} at {} (history id={})",
-                       transaction.getId(), serialNo, history.getLastSentAt(), history.getId());
-
-        } catch (Exception e) {
-            LOGGER.error("Failed to persist AlertHistory for transaction {} on machine {}: {}",
-                        transaction.getId(), serialNo, e.getMessage(), e);
-        }
+        return new AlertMailModel.VoidFailed(transaction.getId(), formatDateTime(transaction.getDateTime()),
+                formatAmount(transaction.getAmount()), transaction.getTranInvoiceNo(), transaction.getTranBatchNo(),
+                transaction.getTranTerminalID(), transaction.getTranMerchantID(), transaction.getTranApproveCode(),
+                transaction.getTranMaskedPAN(), transaction.getDiscount(), serialNo, vmName, terminateCode, productLockCount,
+                merchantName, merchantAddress);
     }
 
     /**
@@ -472,37 +420,20 @@ public class VoidFailedHealthMonitorService {
     }
 
     /**
-     * Update machine tracking record
+     * New tracking position of a machine, upserted on its serial by {@link VoidFailedTrackingWriter}
      */
-    private void updateTrackingRecord(String serialNo, Integer newestTransactionId, LocalDateTime newestTransactionTime) {
-        Optional<VoidFailedTracking> trackingOpt = voidFailedTrackingRepository.findByVendingMachineSerial(serialNo);
-
-        VoidFailedTracking tracking;
-        if (trackingOpt.isPresent()) {
-            tracking = trackingOpt.get();
-        } else {
-            tracking = VoidFailedTracking.builder()
+    private VoidFailedTracking trackingPosition(String serialNo, Integer newestTransactionId, LocalDateTime newestTransactionTime) {
+        LOGGER.debug("New tracking position for machine {}: lastTransactionId={}, lastDateTime={}",
+                    serialNo, newestTransactionId, newestTransactionTime);
+        return VoidFailedTracking.builder()
                 .vendingMachineSerial(serialNo)
+                .lastCheckedTransactionId(newestTransactionId)
+                .lastCheckedDatetime(newestTransactionTime)
                 .build();
-        }
-
-        tracking.setLastCheckedTransactionId(newestTransactionId);
-        tracking.setLastCheckedDatetime(newestTransactionTime);
-
-        voidFailedTrackingRepository.saveAndFlush(tracking);
-        LOGGER.debug("Updated tracking for machine {}: lastTransactionId={}, lastDateTime={}",
-                    serialNo, newestTransactionId, newestTransactionTime);
     }
 
     // Legacy method for backward compatibility - now calls the new overloaded version
     public void evaluateMachine(String serialNo) {
-        VendingMachine vm = vendingMachineCache.get(serialNo);
-        if (vm == null) {
-            vm = vmRepository.findBySerialNo(serialNo).orElse(null);
-            if (vm != null) {
-                vendingMachineCache.put(serialNo, vm);
-            }
-        }
-        evaluateMachine(serialNo, vm);
+        evaluateMachine(serialNo, vendingMachineResolver.bySerial(serialNo).orElse(null));
     }
 }
@@ -0,0 +1,168 @@
+package com.grabit.cba.VendingMachineAlertService.service.cache;
+
+import com.grabit.cba.VendingMachineAlertService.database.model.AlertEmailConfig;
+import com.grabit.cba.VendingMachineAlertService.database.model.AlertType;
+import com.grabit.cba.VendingMachineAlertService.database.model.other.Partners;
+import com.grabit.cba.VendingMachineAlertService.database.model.projection.TableVersion;
+import com.grabit.cba.VendingMachineAlertService.database.repository.AlertEmailConfigRepository;
+import com.grabit.cba.VendingMachineAlertService.database.repository.AlertTypeRepository;
+import com.grabit.cba.VendingMachineAlertService.enums.TransactionTypes;
+import com.grabit.cba.VendingMachineAlertService.util.EmailServiceUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * In-memory copy of Alert_Type and Alert_Email_Configs.
+ * <p>
+ * Both tables are small and change rarely, yet were queried once or more per alerted machine. The whole content is
+ * held as an immutable snapshot with recipient lists already split; lookups never touch the database. The snapshot is
+ * loaded on first use, replaced when {@link #refreshIfChanged()} sees a different table fingerprint
+ * (row count, max id, max updatedAt) and can be dropped explicitly with {@link #invalidate()} after manual SQL edits
+ * that bypass updatedAt.
+ */
+@Component
+public class AlertConfigCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AlertConfigCache.class);
+
+    private final AlertTypeRepository alertTypeRepository;
+    private final AlertEmailConfigRepository alertEmailConfigRepository;
+
+    private volatile Snapshot snapshot;
+
+    public AlertConfigCache(AlertTypeRepository alertTypeRepository, AlertEmailConfigRepository alertEmailConfigRepository) {
+        this.alertTypeRepository = alertTypeRepository;
+        this.alertEmailConfigRepository = alertEmailConfigRepository;
+    }
+
+    public Optional<AlertType> findAlertType(String code) {
+        return Optional.ofNullable(code == null ? null : snapshot().typesByCode.get(code));
+    }
+
+    public Collection<AlertType> alertTypes() {
+        return snapshot().typesByCode.values();
+    }
+
+    /**
+     * {@link TransactionTypes} mask of the alert type codes that are also transaction statuses.
+     */
+    public int alertTypeStatusMask() {
+        return snapshot().alertTypeStatusMask;
+    }
+
+    /**
+     * Recipients configured for an alert type and partner; a null partner matches configs without a partner, as
+     * {@code findFirstByAlertTypeAndPartners} did.
+     */
+    public Optional<AlertRecipients> findRecipients(AlertType alertType, Partners partner) {
+        if (alertType == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(snapshot().recipients.get(new RecipientKey(alertType.getId(), partner != null ? partner.getId() : null)));
+    }
+
+    /**
+     * Reload when either table changed since the current snapshot was taken.
+     *
+     * @return true when a new snapshot was loaded
+     */
+    public boolean refreshIfChanged() {
+        Snapshot current = snapshot;
+        TableVersion typesVersion = alertTypeRepository.findTableVersion();
+        TableVersion configsVersion = alertEmailConfigRepository.findTableVersion();
+        if (current != null && current.typesVersion.equals(typesVersion) && current.configsVersion.equals(configsVersion)) {
+            return false;
+        }
+        load(typesVersion, configsVersion);
+        return true;
+    }
+
+    /**
+     * Drop the current snapshot; the next lookup reloads both tables.
+     */
+    public synchronized void invalidate() {
+        snapshot = null;
+        LOGGER.info("Alert configuration cache invalidated");
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                load(alertTypeRepository.findTableVersion(), alertEmailConfigRepository.findTableVersion());
+            }
+            return snapshot;
+        }
+    }
+
+    // Versions are read before the rows, so a change racing with the load is picked up by the next refresh
+    private synchronized void load(TableVersion typesVersion, TableVersion configsVersion) {
+        Map<String, AlertType> typesByCode = new HashMap<>();
+        int statusMask = 0;
+        for (AlertType alertType : alertTypeRepository.findAll()) {
+            if (alertType.getCode() == null) {
+                continue;
+            }
+            typesByCode.put(alertType.getCode(), alertType);
+            byte code = TransactionTypes.codeOf(alertType.getCode());
+            if (code != TransactionTypes.UNKNOWN_CODE) {
+                statusMask |= 1 << code;
+            }
+        }
+
+        Map<RecipientKey, AlertRecipients> recipients = new HashMap<>();
+        List<AlertEmailConfig> configs = new ArrayList<>(alertEmailConfigRepository.findAll());
+        configs.sort(Comparator.comparing(AlertEmailConfig::getId));
+        for (AlertEmailConfig config : configs) {
+            // ids are read from the lazy proxies without initializing them
+            Integer alertTypeId = config.getAlertType() != null ? config.getAlertType().getId() : null;
+            Integer partnerId = config.getPartners() != null ? config.getPartners().getId() : null;
+            if (alertTypeId == null) {
+                continue;
+            }
+            // first config wins, as with findFirstByAlertTypeAndPartners
+            recipients.putIfAbsent(new RecipientKey(alertTypeId, partnerId), new AlertRecipients(
+                    EmailServiceUtils.commaSeparatedStringToArray(config.getTo()),
+                    EmailServiceUtils.commaSeparatedStringToArray(config.getCc()),
+                    EmailServiceUtils.commaSeparatedStringToArray(config.getBcc())));
+        }
+
+        snapshot = new Snapshot(typesVersion, configsVersion, Collections.unmodifiableMap(typesByCode), statusMask,
+                Collections.unmodifiableMap(recipients));
+        LOGGER.info("Loaded alert configuration: {} alert types, {} email configs", typesByCode.size(), recipients.size());
+    }
+
+    private record RecipientKey(Integer alertTypeId, Integer partnerId) {
+    }
+
+    private record Snapshot(TableVersion typesVersion, TableVersion configsVersion, Map<String, AlertType> typesByCode,
+                            int alertTypeStatusMask, Map<RecipientKey, AlertRecipients> recipients) {
+    }
+
+    /**
+     * Parsed recipient lists of one Alert_Email_Configs row. Accessors return copies, the cached arrays are shared.
+     */
+    public record AlertRecipients(String[] to, String[] cc, String[] bcc) {
+
+        @Override
+        public String[] to() {
+            return to.clone();
+        }
+
+        @Override
+        public String[] cc() {
+            return cc.clone();
+        }
+
+        @Override
+        public String[] bcc() {
+            return bcc.clone();
+        }
+    }
+}
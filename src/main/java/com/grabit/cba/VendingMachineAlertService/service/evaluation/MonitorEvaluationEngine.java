@@ -0,0 +1,167 @@
+package com.grabit.cba.VendingMachineAlertService.service.evaluation;
+
+import com.grabit.cba.VendingMachineAlertService.config.AllMachinesMonitorProperties;
+import com.grabit.cba.VendingMachineAlertService.service.metrics.MonitorMetrics;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Fans the per-machine work of a monitor cycle out over the bounded {@code monitorEvaluationExecutor} pool.
+ * <p>
+ * Machine evaluations read alert history and may send mail, so each one holds a database permit while it runs. The
+ * number of permits is derived from the connection pool (leaving headroom for the scheduler thread and web requests)
+ * unless {@code monitor.evaluation.maxConcurrentDbTasks} is set. Every cycle has a deadline: machines that have not
+ * started by then are skipped and picked up again on the next cycle, so a slow partner can no longer push a cycle past
+ * its cron period. The pool queue is bounded by {@code monitor.evaluation.queueCapacity}; once it is full the
+ * submitting scheduler thread evaluates the machine itself, which holds back submission to the pool's pace.
+ */
+@Service
+public class MonitorEvaluationEngine {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MonitorEvaluationEngine.class);
+
+    // Connections kept free for the scheduler thread (partner/machine lookups) and the REST endpoints
+    private static final int RESERVED_CONNECTIONS = 2;
+
+    // Task states; a task leaves PENDING exactly once, either to RUNNING on its thread or to SKIPPED at the deadline
+    private static final int PENDING = 0;
+    private static final int RUNNING = 1;
+    private static final int COMPLETED = 2;
+    private static final int FAILED = 3;
+    private static final int SKIPPED = 4;
+    private static final int OUTCOMES = 5;
+
+    private final ThreadPoolTaskExecutor executor;
+    private final AllMachinesMonitorProperties allMachinesMonitorProperties;
+    private final Semaphore dbPermits;
+    private final MonitorMetrics monitorMetrics;
+
+    public MonitorEvaluationEngine(@Qualifier("monitorEvaluationExecutor") ThreadPoolTaskExecutor executor,
+                                   AllMachinesMonitorProperties allMachinesMonitorProperties, DataSource dataSource,
+                                   MonitorMetrics monitorMetrics) {
+        this.executor = executor;
+        this.allMachinesMonitorProperties = allMachinesMonitorProperties;
+        this.monitorMetrics = monitorMetrics;
+        int permits = resolveDbPermits(allMachinesMonitorProperties.getEvaluation(), dataSource);
+        this.dbPermits = new Semaphore(permits, true);
+        LOGGER.info("Monitor evaluation engine started with {} threads and {} concurrent database tasks",
+                executor.getMaxPoolSize(), permits);
+    }
+
+    private static int resolveDbPermits(AllMachinesMonitorProperties.Evaluation config, DataSource dataSource) {
+        if (config.getMaxConcurrentDbTasks() > 0) {
+            return config.getMaxConcurrentDbTasks();
+        }
+        int poolSize = Math.max(1, config.getPoolSize());
+        try {
+            if (dataSource != null && dataSource.isWrapperFor(HikariDataSource.class)) {
+                int connections = dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+                return Math.max(1, Math.min(poolSize, connections - RESERVED_CONNECTIONS));
+            }
+        } catch (Exception ex) {
+            LOGGER.warn("Could not read connection pool size, limiting database tasks to the thread count: {}", ex.getMessage());
+        }
+        return poolSize;
+    }
+
+    /**
+     * Run the given machine tasks in parallel and wait until they finish or the cycle deadline passes. Tasks are
+     * expected to handle and log their own failures; anything they let escape is logged and counted here.
+     * <p>
+     * Every task ends in exactly one outcome: completed, failed, skipped (never started before the deadline) or still
+     * running when the deadline passed. A running task is left to finish in the background and is not counted again.
+     */
+    public EvaluationSummary runAll(String monitorName, List<Runnable> tasks) {
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + TimeUnit.SECONDS.toNanos(allMachinesMonitorProperties.getEvaluation().getCycleDeadlineSeconds());
+        AtomicIntegerArray states = new AtomicIntegerArray(tasks.size());
+
+        List<Future<?>> futures = new ArrayList<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            int index = i;
+            Runnable task = tasks.get(i);
+            futures.add(executor.submit(() -> {
+                if (!states.compareAndSet(index, PENDING, RUNNING)) {
+                    return; // skipped at the deadline before it got a thread
+                }
+                long remaining = deadlineNanos - System.nanoTime();
+                try {
+                    if (remaining <= 0 || !dbPermits.tryAcquire(remaining, TimeUnit.NANOSECONDS)) {
+                        states.set(index, SKIPPED);
+                        return;
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    states.set(index, SKIPPED);
+                    return;
+                }
+                try {
+                    task.run();
+                    states.set(index, COMPLETED);
+                } catch (RuntimeException ex) {
+                    states.set(index, FAILED);
+                    LOGGER.error("{} machine evaluation failed: {}", monitorName, ex.getMessage(), ex);
+                } finally {
+                    dbPermits.release();
+                }
+            }));
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            Future<?> future = futures.get(i);
+            long remaining = deadlineNanos - System.nanoTime();
+            try {
+                future.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException | CancellationException ex) {
+                // Not started yet: drop it; already running: let it finish in the background
+                if (states.compareAndSet(i, PENDING, SKIPPED)) {
+                    future.cancel(false);
+                }
+            } catch (ExecutionException ex) {
+                LOGGER.error("{} machine evaluation failed: {}", monitorName, ex.getMessage(), ex);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                for (int j = 0; j < futures.size(); j++) {
+                    if (states.compareAndSet(j, PENDING, SKIPPED)) {
+                        futures.get(j).cancel(false);
+                    }
+                }
+                break;
+            }
+        }
+
+        int[] outcomes = new int[OUTCOMES];
+        for (int i = 0; i < states.length(); i++) {
+            outcomes[states.get(i)]++;
+        }
+        long durationNanos = System.nanoTime() - startNanos;
+        EvaluationSummary summary = new EvaluationSummary(monitorName, tasks.size(), outcomes[COMPLETED], outcomes[FAILED],
+                outcomes[SKIPPED] + outcomes[PENDING], outcomes[RUNNING], TimeUnit.NANOSECONDS.toMillis(durationNanos));
+        monitorMetrics.cycleFinished(monitorName, durationNanos, summary.completed(), summary.failed(), summary.skipped(),
+                summary.overran());
+        if (summary.skipped() > 0 || summary.overran() > 0) {
+            LOGGER.warn("{} cycle hit its deadline: {}", monitorName, summary);
+        } else {
+            LOGGER.info("{} cycle finished: {}", monitorName, summary);
+        }
+        return summary;
+    }
+
+    /**
+     * Outcome of a cycle; {@code completed + failed + skipped + overran == machines}, where {@code overran} counts
+     * machines still being evaluated when the deadline passed
+     */
+    public record EvaluationSummary(String monitorName, int machines, int completed, int failed, int skipped, int overran,
+                                    long durationMillis) {
+    }
+}
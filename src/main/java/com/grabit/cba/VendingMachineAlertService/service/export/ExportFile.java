@@ -0,0 +1,34 @@
+package com.grabit.cba.VendingMachineAlertService.service.export;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Export written to a temporary file. Closing it deletes the file, so use it in try-with-resources around the send.
+ *
+ * @param path        temporary file holding the content
+ * @param fileName    name to show to the recipient, e.g. {@code transactions.csv.gz}
+ * @param contentType MIME type of the attachment
+ * @param rows        data rows written, without the header
+ */
+public record ExportFile(Path path, String fileName, String contentType, long rows) implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExportFile.class);
+
+    public long size() throws IOException {
+        return Files.size(path);
+    }
+
+    @Override
+    public void close() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete export file {}: {}", path, e.getMessage());
+        }
+    }
+}
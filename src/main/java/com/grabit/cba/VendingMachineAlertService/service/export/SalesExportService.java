@@ -0,0 +1,163 @@
+package com.grabit.cba.VendingMachineAlertService.service.export;
+
+import com.grabit.cba.VendingMachineAlertService.database.model.other.Partners;
+import com.grabit.cba.VendingMachineAlertService.database.model.other.VendingMachine;
+import com.grabit.cba.VendingMachineAlertService.database.model.projection.SalesSignal;
+import com.grabit.cba.VendingMachineAlertService.database.repository.PartnersRepository;
+import com.grabit.cba.VendingMachineAlertService.database.repository.SalesRepository;
+import com.grabit.cba.VendingMachineAlertService.exception.NotFoundException;
+import com.grabit.cba.VendingMachineAlertService.service.topology.FleetTopology;
+import com.grabit.cba.VendingMachineAlertService.service.topology.FleetTopologyService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Partner transaction exports as CSV, optionally gzip-compressed, written to a temporary file.
+ * <p>
+ * Transactions are streamed from the database one machine at a time
+ * ({@code SalesRepository.streamSignalsByMachineIdAndDateBetween}) and written straight through a buffered writer, so
+ * heap use does not depend on the number of rows; a month of a large partner ends up on disk, not in memory. Send the
+ * result with {@code EmailSender.sendEmailWithAttachment(MailDto, ExportFile, String)} and close it afterwards.
+ */
+@Service
+public class SalesExportService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SalesExportService.class);
+
+    public static final String CSV_CONTENT_TYPE = "text/csv";
+    public static final String GZIP_CONTENT_TYPE = "application/gzip";
+
+    private static final String[] HEADER = {"transactionId", "machineSerial", "machineName", "dateTime", "status",
+            "statusDescription", "amount"};
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final PartnersRepository partnersRepository;
+    private final FleetTopologyService fleetTopologyService;
+    private final SalesRepository salesRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public SalesExportService(PartnersRepository partnersRepository, FleetTopologyService fleetTopologyService,
+                              SalesRepository salesRepository, PlatformTransactionManager transactionManager) {
+        this.partnersRepository = partnersRepository;
+        this.fleetTopologyService = fleetTopologyService;
+        this.salesRepository = salesRepository;
+        // Streamed result sets must be consumed inside a transaction
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Export every transaction of the partner's non-deleted machines in {@code [windowStart, windowEnd)}, ordered by
+     * machine id and time.
+     *
+     * @param gzip compress the CSV; worthwhile for month-long exports, which compress about tenfold
+     */
+    public ExportFile exportPartnerTransactions(String partnerName, LocalDateTime windowStart, LocalDateTime windowEnd,
+                                                boolean gzip) throws IOException {
+        List<Partners> partners = partnersRepository.findByName(partnerName);
+        if (partners.isEmpty()) {
+            throw new NotFoundException("No partner found with name " + partnerName);
+        }
+        FleetTopology topology = fleetTopologyService.current();
+        List<VendingMachine> machines = new ArrayList<>();
+        for (Partners partner : partners) {
+            machines.addAll(topology.machines(partner.getId()));
+        }
+        machines.sort(Comparator.comparing(VendingMachine::getId));
+
+        String fileName = "transactions-" + partnerName.replaceAll("[^A-Za-z0-9_-]", "_") + "-"
+                + windowStart.toLocalDate() + (gzip ? ".csv.gz" : ".csv");
+        Path path = Files.createTempFile("sales-export-", gzip ? ".csv.gz" : ".csv");
+        long startedAt = System.currentTimeMillis();
+        try {
+            long rows = writeCsv(path, gzip, machines, windowStart, windowEnd);
+            ExportFile export = new ExportFile(path, fileName, gzip ? GZIP_CONTENT_TYPE : CSV_CONTENT_TYPE, rows);
+            LOGGER.info("Exported {} transactions of partner {} ({} machines, {} - {}) to {} bytes in {} ms", rows,
+                    partnerName, machines.size(), windowStart, windowEnd, export.size(), System.currentTimeMillis() - startedAt);
+            return export;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+    }
+
+    private long writeCsv(Path path, boolean gzip, List<VendingMachine> machines, LocalDateTime windowStart,
+                          LocalDateTime windowEnd) throws IOException {
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE);
+        if (gzip) {
+            out = new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            writeRow(writer, (Object[]) HEADER);
+            long rows = 0;
+            for (VendingMachine vm : machines) {
+                rows += writeMachine(writer, vm, windowStart, windowEnd);
+            }
+            return rows;
+        }
+    }
+
+    private long writeMachine(Writer writer, VendingMachine vm, LocalDateTime windowStart, LocalDateTime windowEnd) {
+        Long rows = readOnlyTransaction.execute(status -> {
+            long written = 0;
+            try (Stream<SalesSignal> signals = salesRepository.streamSignalsByMachineIdAndDateBetween(vm.getId(), windowStart, windowEnd)) {
+                for (SalesSignal signal : (Iterable<SalesSignal>) signals::iterator) {
+                    writeRow(writer, signal.id(), vm.getSerialNo(), vm.getName(),
+                            signal.dateTime() == null ? null : signal.dateTime().format(DATE_TIME),
+                            signal.transactionStatus(), signal.tranStatusDescription(), signal.amount());
+                    written++;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return written;
+        });
+        return rows == null ? 0 : rows;
+    }
+
+    static void writeRow(Writer writer, Object... values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeField(writer, values[i]);
+        }
+        writer.write("\r\n");
+    }
+
+    // RFC 4180: quote fields containing a separator, quote or line break, doubling embedded quotes
+    private static void writeField(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -0,0 +1,301 @@
+package com.grabit.cba.VendingMachineAlertService.service.impl;
+
+import com.grabit.cba.VendingMachineAlertService.config.AllMachinesMonitorProperties;
+import com.grabit.cba.VendingMachineAlertService.database.model.AlertHistory;
+import com.grabit.cba.VendingMachineAlertService.database.model.AlertOutbox;
+import com.grabit.cba.VendingMachineAlertService.database.model.AlertOutboxHistory;
+import com.grabit.cba.VendingMachineAlertService.database.repository.AlertHistoryRepository;
+import com.grabit.cba.VendingMachineAlertService.database.repository.AlertOutboxHistoryRepository;
+import com.grabit.cba.VendingMachineAlertService.database.repository.AlertOutboxRepository;
+import com.grabit.cba.VendingMachineAlertService.database.repository.AlertTypeRepository;
+import com.grabit.cba.VendingMachineAlertService.dto.requestDto.MailDto;
+import com.grabit.cba.VendingMachineAlertService.enums.OutboxStatus;
+import com.grabit.cba.VendingMachineAlertService.service.EmailDispatchService;
+import com.grabit.cba.VendingMachineAlertService.service.EmailSender;
+import com.grabit.cba.VendingMachineAlertService.service.metrics.MonitorMetrics;
+import com.grabit.cba.VendingMachineAlertService.service.state.AlertStateStore;
+import com.grabit.cba.VendingMachineAlertService.util.EmailServiceUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Outbox-backed {@link EmailDispatchService}.
+ * <p>
+ * A mail is one Alert_Outbox row plus its Alert_Outbox_History intents, written in a single transaction. Workers claim
+ * due rows with {@code FOR UPDATE SKIP LOCKED} under a lease, send them on the mailDispatchExecutor pool and, in one
+ * transaction, mark the row SENT and write the AlertHistory rows, which are then passed on to the AlertStateStore.
+ * A crash after the SMTP send but before that commit re-sends the mail once the lease expires (at-least-once); the
+ * idempotency key travels in the {@code X-Alert-Idempotency-Key} header so duplicates can be recognised downstream.
+ */
+@Service
+public class EmailDispatchServiceImpl implements EmailDispatchService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmailDispatchServiceImpl.class);
+
+    private final EmailSender emailSender;
+    private final ThreadPoolTaskExecutor mailDispatchExecutor;
+    private final AllMachinesMonitorProperties allMachinesMonitorProperties;
+    private final AlertOutboxRepository alertOutboxRepository;
+    private final AlertOutboxHistoryRepository alertOutboxHistoryRepository;
+    private final AlertHistoryRepository alertHistoryRepository;
+    private final AlertTypeRepository alertTypeRepository;
+    private final AlertStateStore alertStateStore;
+    private final TransactionTemplate transactionTemplate;
+    private final MonitorMetrics monitorMetrics;
+
+    // Identifies this instance in claimedBy
+    private final String instanceId = ManagementFactory.getRuntimeMXBean().getName();
+
+    public EmailDispatchServiceImpl(EmailSender emailSender,
+                                    @Qualifier("mailDispatchExecutor") ThreadPoolTaskExecutor mailDispatchExecutor,
+                                    AllMachinesMonitorProperties allMachinesMonitorProperties,
+                                    AlertOutboxRepository alertOutboxRepository,
+                                    AlertOutboxHistoryRepository alertOutboxHistoryRepository,
+                                    AlertHistoryRepository alertHistoryRepository,
+                                    AlertTypeRepository alertTypeRepository,
+                                    AlertStateStore alertStateStore,
+                                    PlatformTransactionManager transactionManager,
+                                    MonitorMetrics monitorMetrics) {
+        this.emailSender = emailSender;
+        this.mailDispatchExecutor = mailDispatchExecutor;
+        this.allMachinesMonitorProperties = allMachinesMonitorProperties;
+        this.alertOutboxRepository = alertOutboxRepository;
+        this.alertOutboxHistoryRepository = alertOutboxHistoryRepository;
+        this.alertHistoryRepository = alertHistoryRepository;
+        this.alertTypeRepository = alertTypeRepository;
+        this.alertStateStore = alertStateStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.monitorMetrics = monitorMetrics;
+    }
+
+    @Override
+    public boolean enqueue(String dedupeKey, MailDto mailDto, String logo, List<HistoryIntent> historyOnDelivery) {
+        if (mailDto.getTo() == null || mailDto.getTo().length == 0) {
+            throw new IllegalArgumentException("To address array must not be null or empty");
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(dedupeKey, mailDto, logo, historyOnDelivery));
+        } catch (DataIntegrityViolationException ex) {
+            if (!isActiveDedupeKeyConflict(ex)) {
+                throw ex;
+            }
+            LOGGER.debug("Mail for alert {} is already in the outbox; dropping duplicate", dedupeKey);
+            monitorMetrics.alert(alertType(dedupeKey), MonitorMetrics.DUPLICATE);
+            return false;
+        }
+        monitorMetrics.alert(alertType(dedupeKey), MonitorMetrics.QUEUED);
+        for (HistoryIntent intent : historyOnDelivery == null ? Collections.<HistoryIntent>emptyList() : historyOnDelivery) {
+            alertStateStore.firing(intent.vendingMachineSerial(), intent.alertType());
+        }
+        return true;
+    }
+
+    // The unique activeDedupeKey rejects a second mail for an alert already in flight, also from another instance
+    private void insert(String dedupeKey, MailDto mailDto, String logo, List<HistoryIntent> historyOnDelivery) {
+        AlertOutbox outbox = new AlertOutbox();
+        outbox.setIdempotencyKey(UUID.randomUUID().toString());
+        outbox.setDedupeKey(dedupeKey);
+        outbox.setActiveDedupeKey(dedupeKey);
+        outbox.setMailFrom(mailDto.getFrom());
+        outbox.setMailTo(String.join(",", mailDto.getTo()));
+        outbox.setMailCc(mailDto.getCc() == null ? null : String.join(",", mailDto.getCc()));
+        outbox.setMailBcc(mailDto.getBcc() == null ? null : String.join(",", mailDto.getBcc()));
+        outbox.setSubject(mailDto.getSubject());
+        outbox.setBody(mailDto.getBody());
+        outbox.setHtml(mailDto.isHtml());
+        outbox.setLogo(logo);
+        outbox.setStatus(OutboxStatus.PENDING);
+        outbox.setNextAttemptAt(LocalDateTime.now(ZoneId.systemDefault()));
+        alertOutboxRepository.save(outbox);
+
+        for (HistoryIntent intent : historyOnDelivery == null ? Collections.<HistoryIntent>emptyList() : historyOnDelivery) {
+            AlertOutboxHistory history = new AlertOutboxHistory();
+            history.setOutboxId(outbox.getId());
+            history.setVendingMachineId(intent.vendingMachineId());
+            history.setVendingMachineSerial(intent.vendingMachineSerial());
+            history.setTransactionId(intent.transactionId());
+            history.setAlertTypeId(intent.alertType().getId());
+            history.setPartnerName(intent.partnerName());
+            history.setLastSentAt(intent.lastSentAt());
+            alertOutboxHistoryRepository.save(history);
+        }
+    }
+
+    private static boolean isActiveDedupeKeyConflict(DataIntegrityViolationException ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            String message = cause.getMessage();
+            if (message != null && message.toLowerCase().contains(AlertOutbox.ACTIVE_DEDUPE_KEY_CONSTRAINT)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int dispatchPending() {
+        AllMachinesMonitorProperties.MailDispatch config = allMachinesMonitorProperties.getMail();
+        // Never claim more than the workers can start right away; the rest stays claimable by other instances
+        int capacity = Math.max(0, config.getQueueCapacity() - mailDispatchExecutor.getQueueSize());
+        int limit = Math.min(Math.max(1, config.getClaimBatchSize()), capacity);
+        if (limit == 0) {
+            return 0;
+        }
+        List<AlertOutbox> claimed = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now(ZoneId.systemDefault());
+            List<AlertOutbox> rows = alertOutboxRepository.lockClaimable(now, limit);
+            for (AlertOutbox row : rows) {
+                row.setStatus(OutboxStatus.SENDING);
+                row.setClaimedBy(instanceId);
+                row.setClaimedUntil(now.plusSeconds(config.getClaimLeaseSeconds()));
+            }
+            return alertOutboxRepository.saveAll(rows);
+        });
+        if (claimed == null || claimed.isEmpty()) {
+            return 0;
+        }
+        for (AlertOutbox row : claimed) {
+            try {
+                mailDispatchExecutor.execute(() -> deliver(row));
+            } catch (TaskRejectedException ex) {
+                LOGGER.warn("Mail workers are saturated; outbox mail {} goes back to the queue", row.getId());
+                release(row.getId(), "Mail workers saturated", false);
+            }
+        }
+        LOGGER.debug("Claimed {} outbox mails for delivery", claimed.size());
+        return claimed.size();
+    }
+
+    private void deliver(AlertOutbox row) {
+        long sendStartNanos = System.nanoTime();
+        try {
+            if (!emailSender.sendEmail(toMailDto(row), row.getLogo(), null)) {
+                throw new IllegalStateException("Email sender reported the mail as not sent");
+            }
+            monitorMetrics.mailSent(System.nanoTime() - sendStartNanos, true);
+        } catch (Exception ex) {
+            monitorMetrics.mailSent(System.nanoTime() - sendStartNanos, false);
+            LOGGER.warn("Outbox mail {} ({}) attempt {} failed: {}", row.getId(), row.getDedupeKey(), row.getAttempts() + 1, ex.getMessage());
+            release(row.getId(), ex.getMessage(), !isRetryable(ex));
+            return;
+        }
+        try {
+            List<AlertHistory> written = transactionTemplate.execute(status -> complete(row.getId()));
+            monitorMetrics.alert(alertType(row.getDedupeKey()), MonitorMetrics.SENT);
+            for (AlertHistory history : written) {
+                alertStateStore.sent(history.getVendingMachineSerial(), history.getAlertType().getId(), history.getLastSentAt());
+            }
+        } catch (Exception ex) {
+            // The lease will expire and the mail will be sent again: at-least-once
+            LOGGER.error("Outbox mail {} was sent but could not be marked as sent: {}", row.getId(), ex.getMessage(), ex);
+        }
+    }
+
+    // Mark the row SENT and write its AlertHistory rows; returns the rows written
+    private List<AlertHistory> complete(Long outboxId) {
+        AlertOutbox row = alertOutboxRepository.findById(outboxId).orElse(null);
+        if (row == null || row.getStatus() == OutboxStatus.SENT) {
+            return List.of();
+        }
+        LocalDateTime sentAt = LocalDateTime.now(ZoneId.systemDefault());
+        row.setStatus(OutboxStatus.SENT);
+        row.setActiveDedupeKey(null);
+        row.setAttempts(row.getAttempts() + 1);
+        row.setSentAt(sentAt);
+        row.setClaimedUntil(null);
+        row.setLastError(null);
+        alertOutboxRepository.save(row);
+
+        List<AlertHistory> written = new ArrayList<>();
+        for (AlertOutboxHistory intent : alertOutboxHistoryRepository.findByOutboxId(outboxId)) {
+            AlertHistory history = new AlertHistory();
+            history.setVendingMachineId(intent.getVendingMachineId());
+            history.setVendingMachineSerial(intent.getVendingMachineSerial());
+            history.setTransactionId(intent.getTransactionId());
+            history.setLastSentAt(intent.getLastSentAt() != null ? intent.getLastSentAt() : sentAt);
+            history.setAlertType(alertTypeRepository.getReferenceById(intent.getAlertTypeId()));
+            history.setPartnerName(intent.getPartnerName());
+            written.add(alertHistoryRepository.save(history));
+        }
+        LOGGER.info("Outbox mail {} ({}) sent at {} to {}", outboxId, row.getDedupeKey(), sentAt, row.getMailTo());
+        return written;
+    }
+
+    // Put a claimed mail back for a later attempt, or give up on it
+    private void release(Long outboxId, String error, boolean permanent) {
+        AllMachinesMonitorProperties.MailDispatch config = allMachinesMonitorProperties.getMail();
+        try {
+            transactionTemplate.executeWithoutResult(status -> alertOutboxRepository.findById(outboxId).ifPresent(row -> {
+                if (row.getStatus() != OutboxStatus.SENDING) {
+                    return;
+                }
+                int attempts = row.getAttempts() + 1;
+                row.setAttempts(attempts);
+                row.setClaimedUntil(null);
+                row.setLastError(error == null ? null : error.substring(0, Math.min(error.length(), 1000)));
+                if (permanent || attempts >= config.getMaxAttempts()) {
+                    row.setStatus(OutboxStatus.FAILED);
+                    row.setActiveDedupeKey(null);
+                    monitorMetrics.alert(alertType(row.getDedupeKey()), MonitorMetrics.FAILED);
+                    LOGGER.error("Giving up on outbox mail {} ({}) after {} attempts: {}", outboxId, row.getDedupeKey(), attempts, error);
+                    for (AlertOutboxHistory intent : alertOutboxHistoryRepository.findByOutboxId(outboxId)) {
+                        alertStateStore.abandoned(intent.getVendingMachineSerial(), intent.getAlertTypeId());
+                    }
+                } else {
+                    long backoffMillis = (long) (config.getInitialBackoffMillis() * Math.pow(config.getBackoffMultiplier(), attempts - 1));
+                    row.setStatus(OutboxStatus.PENDING);
+                    row.setNextAttemptAt(LocalDateTime.now(ZoneId.systemDefault()).plusNanos(backoffMillis * 1_000_000L));
+                }
+                alertOutboxRepository.save(row);
+            }));
+        } catch (Exception ex) {
+            LOGGER.error("Could not release outbox mail {}; it will be retried when its lease expires: {}", outboxId, ex.getMessage(), ex);
+        }
+    }
+
+    // Dedupe keys start with the alert code, e.g. TIMEOUT:<serial>
+    private static String alertType(String dedupeKey) {
+        if (dedupeKey == null) {
+            return null;
+        }
+        int separator = dedupeKey.indexOf(':');
+        return separator < 0 ? dedupeKey : dedupeKey.substring(0, separator);
+    }
+
+    private static MailDto toMailDto(AlertOutbox row) {
+        MailDto mailDto = new MailDto();
+        mailDto.setFrom(row.getMailFrom());
+        mailDto.setTo(EmailServiceUtils.commaSeparatedStringToArray(row.getMailTo()));
+        mailDto.setCc(EmailServiceUtils.commaSeparatedStringToArray(row.getMailCc()));
+        mailDto.setBcc(EmailServiceUtils.commaSeparatedStringToArray(row.getMailBcc()));
+        mailDto.setSubject(row.getSubject());
+        mailDto.setBody(row.getBody());
+        mailDto.setHtml(row.isHtml());
+        mailDto.setIdempotencyKey(row.getIdempotencyKey());
+        return mailDto;
+    }
+
+    // Invalid recipients or an empty 'to' list will not get better by retrying
+    private static boolean isRetryable(Exception ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IllegalArgumentException || cause instanceof jakarta.mail.internet.AddressException) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -3,6 +3,8 @@ package com.grabit.cba.VendingMachineAlertService.service.impl;
 import com.grabit.cba.VendingMachineAlertService.dto.requestDto.MailDto;
 import com.grabit.cba.VendingMachineAlertService.exception.ClientErrorException;
 import com.grabit.cba.VendingMachineAlertService.service.EmailSender;
+import com.grabit.cba.VendingMachineAlertService.service.export.ExportFile;
+import com.grabit.cba.VendingMachineAlertService.service.mail.SmtpTransportPool;
 import jakarta.activation.DataSource;
 import jakarta.mail.internet.MimeMessage;
 import jakarta.mail.util.ByteArrayDataSource;
@@ -11,6 +13,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
@@ -24,8 +28,13 @@ public class EmailSenderImpl implements EmailSender {
     @Autowired
     private JavaMailSender javaMailSender;
 
+    @Autowired
+    private SmtpTransportPool smtpTransportPool;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(EmailSenderImpl.class);
 
+    private static final String IDEMPOTENCY_HEADER = "X-Alert-Idempotency-Key";
+
     public boolean sendEmail(MailDto mailDto, String logo, String signData) throws Exception {
         try {
             MimeMessage message = javaMailSender.createMimeMessage();
@@ -46,6 +55,9 @@ public class EmailSenderImpl implements EmailSender {
             helper.setText(mailDto.getBody(), mailDto.isHtml());
             helper.setSubject(mailDto.getSubject());
             helper.setFrom(mailDto.getFrom());
+            if (mailDto.getIdempotencyKey() != null) {
+                message.setHeader(IDEMPOTENCY_HEADER, mailDto.getIdempotencyKey());
+            }
 
             if (logo != null && !logo.isEmpty()) {
                 DataSource logoDs = new ByteArrayDataSource(Base64.decodeBase64(logo), "image/png");
@@ -55,11 +67,11 @@ public class EmailSenderImpl implements EmailSender {
 //                DataSource signatureDs= new ByteArrayDataSource(Hex.decodeHex(signData), "image/png");
 //                helper.addInline("signature", signatureDs);
 //            }
-            javaMailSender.send(message);
+            smtpTransportPool.send(message);
             return true;
         } catch (MailSendException mse) {
             LOGGER.error("Error occurred while sending email: {}", mse.getMessage(), mse);
-            throw new ClientErrorException(mse.getMessageExceptions()[0].getMessage(), mse);
+            throw new ClientErrorException(failureMessage(mse), mse);
         } catch (IllegalArgumentException iae) {
             LOGGER.error("Error occurred while sending email: {}", iae.getMessage(), iae);
             throw new ClientErrorException(iae.getMessage(), iae);
@@ -70,6 +82,17 @@ public class EmailSenderImpl implements EmailSender {
     }
 
     public boolean sendEmailWithAttachment(MailDto mailDto, byte[] fileContent, String fileName, String logo) throws Exception {
+        return sendWithAttachment(mailDto, fileName, new ByteArrayResource(fileContent), null, logo);
+    }
+
+    public boolean sendEmailWithAttachment(MailDto mailDto, ExportFile attachment, String logo) throws Exception {
+        // Opens a fresh stream on the file each time the message body is written
+        return sendWithAttachment(mailDto, attachment.fileName(), new FileSystemResource(attachment.path()),
+                attachment.contentType(), logo);
+    }
+
+    private boolean sendWithAttachment(MailDto mailDto, String fileName, InputStreamSource content, String contentType,
+                                       String logo) throws Exception {
         try {
             MimeMessage message = javaMailSender.createMimeMessage();
             MimeMessageHelper helper = new MimeMessageHelper(message, MimeMessageHelper.MULTIPART_MODE_MIXED_RELATED,
@@ -88,17 +111,24 @@ public class EmailSenderImpl implements EmailSender {
             helper.setText(mailDto.getBody(), mailDto.isHtml());
             helper.setSubject(mailDto.getSubject());
             helper.setFrom(mailDto.getFrom());
-            helper.addAttachment(fileName, new ByteArrayResource(fileContent));
+            if (mailDto.getIdempotencyKey() != null) {
+                message.setHeader(IDEMPOTENCY_HEADER, mailDto.getIdempotencyKey());
+            }
+            if (contentType == null) {
+                helper.addAttachment(fileName, content);
+            } else {
+                helper.addAttachment(fileName, content, contentType);
+            }
 
             if (logo != null && !logo.isEmpty()) {
                 DataSource logoDs = new ByteArrayDataSource(Base64.decodeBase64(logo), "image/png");
                 helper.addInline("grabit-logo", logoDs);
             }
-            javaMailSender.send(message);
+            smtpTransportPool.send(message);
             return true;
         } catch (MailSendException mse) {
             LOGGER.error("Error occurred while sending email: {}", mse.getMessage(), mse);
-            throw new ClientErrorException(mse.getMessageExceptions()[0].getMessage(), mse);
+            throw new ClientErrorException(failureMessage(mse), mse);
         } catch (IllegalArgumentException iae) {
             LOGGER.error("Error occurred while sending email: {}", iae.getMessage(), iae);
             throw new ClientErrorException(iae.getMessage(), iae);
@@ -107,4 +137,10 @@ public class EmailSenderImpl implements EmailSender {
             throw e;
         }
     }
+
+    // A sender outside the pool may fail without per-message exceptions
+    private static String failureMessage(MailSendException mse) {
+        Exception[] messageExceptions = mse.getMessageExceptions();
+        return messageExceptions.length > 0 ? messageExceptions[0].getMessage() : mse.getMessage();
+    }
 }
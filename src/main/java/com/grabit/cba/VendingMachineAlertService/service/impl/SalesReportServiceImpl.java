@@ -1,78 +1,65 @@
 package com.grabit.cba.VendingMachineAlertService.service.impl;
 
+import com.grabit.cba.VendingMachineAlertService.database.model.other.Partners;
+import com.grabit.cba.VendingMachineAlertService.database.model.other.VendingMachine;
+import com.grabit.cba.VendingMachineAlertService.database.model.projection.MachineStatusCount;
 import com.grabit.cba.VendingMachineAlertService.database.repository.PartnersRepository;
 import com.grabit.cba.VendingMachineAlertService.database.repository.SalesRepository;
-import com.grabit.cba.VendingMachineAlertService.database.repository.VMRepository;
+import com.grabit.cba.VendingMachineAlertService.dto.responseDto.MachineSalesReportRow;
+import com.grabit.cba.VendingMachineAlertService.dto.responseDto.PartnerSalesReport;
 import com.grabit.cba.VendingMachineAlertService.service.SalesReportService;
+import com.grabit.cba.VendingMachineAlertService.service.topology.FleetTopology;
+import com.grabit.cba.VendingMachineAlertService.service.topology.FleetTopologyService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
+/**
+ * Partner sales reports counted in the database: one GROUP BY machine and status query per chunk of machines over the
+ * (vendingMachineId, dateTime, id) index, so the cost follows the number of machines and the window, not the
+ * transaction history of each machine.
+ */
 @Service
 public class SalesReportServiceImpl implements SalesReportService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SalesReportServiceImpl.class);
 
+    // Machines counted per query; also the number of rows a stream holds at once
+    private static final int MACHINE_CHUNK_SIZE = 500;
+
     private final PartnersRepository partnersRepository;
-    private final VMRepository vmRepository;
+    private final FleetTopologyService fleetTopologyService;
     private final SalesRepository salesRepository;
 
-    public SalesReportServiceImpl(PartnersRepository partnersRepository, VMRepository vmRepository, SalesRepository salesRepository) {
+    public SalesReportServiceImpl(PartnersRepository partnersRepository, FleetTopologyService fleetTopologyService, SalesRepository salesRepository) {
         this.partnersRepository = partnersRepository;
-        this.vmRepository = vmRepository;
+        this.fleetTopologyService = fleetTopologyService;
         this.salesRepository = salesRepository;
     }
 
     @Override
     public Map<String, Object> generateReportForPartner(String partnerName, LocalDateTime windowStart, LocalDateTime windowEnd) {
         Map<String, Object> result = new HashMap<>();
-        // For now only support partnerName = "CBL" as requested
-        List<com.grabit.cba.VendingMachineAlertService.database.model.other.Partners> partners = partnersRepository.findByName(partnerName);
+        List<Partners> partners = partnersRepository.findByName(partnerName);
         if (partners.isEmpty()) {
             LOGGER.warn("No partners found for name {}", partnerName);
             return result;
         }
-        // Collect VMs for these partners
-        List<Integer> partnerIds = partners.stream().map(com.grabit.cba.VendingMachineAlertService.database.model.other.Partners::getId).collect(Collectors.toList());
-        List<com.grabit.cba.VendingMachineAlertService.database.model.other.VendingMachine> vms = vmRepository.findAll().stream()
-                .filter(vm -> vm.getMerchantId() != null && partnerIds.contains(vm.getMerchantId()))
-                .filter(vm -> Boolean.TRUE.equals(vm.getIsDeleted()) == false)
-                .collect(Collectors.toList());
-
-        List<Map<String, Object>> vmReports = new ArrayList<>();
-        int totalCompleted = 0;
-        int totalFailed = 0;
-        int totalVoidCompleted = 0;
-        int totalVoidFailed = 0;
-
-        for (com.grabit.cba.VendingMachineAlertService.database.model.other.VendingMachine vm : vms) {
-            String serial = vm.getSerialNo();
-            List<com.grabit.cba.VendingMachineAlertService.database.model.other.Sales> sales = salesRepository.findLatestByMachineSerial(serial, org.springframework.data.domain.PageRequest.of(0, Integer.MAX_VALUE));
-            // filter by window
-            List<com.grabit.cba.VendingMachineAlertService.database.model.other.Sales> filtered = sales.stream()
-                    .filter(s -> s.getDateTime() != null && !s.getDateTime().isBefore(windowStart) && !s.getDateTime().isAfter(windowEnd))
-                    .collect(Collectors.toList());
-            long completed = filtered.stream().filter(s -> "SUCCESS".equalsIgnoreCase(s.getTransactionStatus())).count();
-            long failed = filtered.stream().filter(s -> "SALE_FAILED".equalsIgnoreCase(s.getTransactionStatus())).count();
-            long voidCompleted = filtered.stream().filter(s -> "VOID_COMPLETE".equalsIgnoreCase(s.getTransactionStatus())).count();
-            long voidFailed = filtered.stream().filter(s -> "VOID_FAILED".equalsIgnoreCase(s.getTransactionStatus())).count();
-
-            totalCompleted += completed;
-            totalFailed += failed;
-            totalVoidCompleted += voidCompleted;
-            totalVoidFailed += voidFailed;
+        PartnerSalesReport report = buildReport(partnerName, partners, windowStart, windowEnd);
 
+        List<Map<String, Object>> vmReports = new ArrayList<>(report.getVms().size());
+        for (MachineSalesReportRow row : report.getVms()) {
             Map<String, Object> vmMap = new HashMap<>();
-            vmMap.put("serial", serial);
-            vmMap.put("name", vm.getName());
-            vmMap.put("completed", completed);
-            vmMap.put("failed", failed);
-            vmMap.put("voidCompleted", voidCompleted);
-            vmMap.put("voidFailed", voidFailed);
+            vmMap.put("serial", row.getSerial());
+            vmMap.put("name", row.getName());
+            vmMap.put("completed", row.getCompleted());
+            vmMap.put("failed", row.getFailed());
+            vmMap.put("voidCompleted", row.getVoidCompleted());
+            vmMap.put("voidFailed", row.getVoidFailed());
             vmReports.add(vmMap);
         }
 
@@ -80,12 +67,92 @@ public class SalesReportServiceImpl implements SalesReportService {
         result.put("windowStart", windowStart);
         result.put("windowEnd", windowEnd);
         result.put("vms", vmReports);
-        result.put("totalCompleted", totalCompleted);
-        result.put("totalFailed", totalFailed);
-        result.put("totalVoidCompleted", totalVoidCompleted);
-        result.put("totalVoidFailed", totalVoidFailed);
+        result.put("totalCompleted", report.getTotalCompleted());
+        result.put("totalFailed", report.getTotalFailed());
+        result.put("totalVoidCompleted", report.getTotalVoidCompleted());
+        result.put("totalVoidFailed", report.getTotalVoidFailed());
 
         return result;
     }
-}
 
+    @Override
+    public PartnerSalesReport buildReportForPartner(String partnerName, LocalDateTime windowStart, LocalDateTime windowEnd) {
+        return buildReport(partnerName, partnersRepository.findByName(partnerName), windowStart, windowEnd);
+    }
+
+    @Override
+    public int streamReportForPartner(String partnerName, LocalDateTime windowStart, LocalDateTime windowEnd,
+                                      Consumer<MachineSalesReportRow> sink) {
+        return stream(partnerName, partnersRepository.findByName(partnerName), windowStart, windowEnd, sink);
+    }
+
+    private PartnerSalesReport buildReport(String partnerName, List<Partners> partners, LocalDateTime windowStart, LocalDateTime windowEnd) {
+        PartnerSalesReport report = new PartnerSalesReport();
+        report.setPartnerName(partnerName);
+        report.setWindowStart(windowStart);
+        report.setWindowEnd(windowEnd);
+        stream(partnerName, partners, windowStart, windowEnd, row -> {
+            report.getVms().add(row);
+            report.setTotalCompleted(report.getTotalCompleted() + row.getCompleted());
+            report.setTotalFailed(report.getTotalFailed() + row.getFailed());
+            report.setTotalVoidCompleted(report.getTotalVoidCompleted() + row.getVoidCompleted());
+            report.setTotalVoidFailed(report.getTotalVoidFailed() + row.getVoidFailed());
+        });
+        return report;
+    }
+
+    private int stream(String partnerName, List<Partners> partners, LocalDateTime windowStart, LocalDateTime windowEnd,
+                       Consumer<MachineSalesReportRow> sink) {
+        List<VendingMachine> vms = partnerMachines(partners);
+        int rows = 0;
+        for (int from = 0; from < vms.size(); from += MACHINE_CHUNK_SIZE) {
+            List<VendingMachine> chunk = vms.subList(from, Math.min(from + MACHINE_CHUNK_SIZE, vms.size()));
+            Map<Integer, MachineSalesReportRow> chunkRows = new LinkedHashMap<>();
+            for (VendingMachine vm : chunk) {
+                chunkRows.put(vm.getId(), new MachineSalesReportRow(vm.getId(), vm.getSerialNo(), vm.getName(), 0, 0, 0, 0));
+            }
+            for (MachineStatusCount count : salesRepository.countByMachineIdsAndStatusBetween(chunkRows.keySet(), windowStart, windowEnd)) {
+                MachineSalesReportRow row = chunkRows.get(count.vendingMachineId());
+                if (row != null) {
+                    add(row, count);
+                }
+            }
+            for (MachineSalesReportRow row : chunkRows.values()) {
+                sink.accept(row);
+                rows++;
+            }
+        }
+        LOGGER.debug("Sales report for partner {} ({} - {}): {} machines", partnerName, windowStart, windowEnd, rows);
+        return rows;
+    }
+
+    // Non-deleted machines of every partner carrying the name, from the fleet snapshot
+    private List<VendingMachine> partnerMachines(List<Partners> partners) {
+        if (partners.isEmpty()) {
+            return List.of();
+        }
+        FleetTopology topology = fleetTopologyService.current();
+        if (partners.size() == 1) {
+            return topology.machines(partners.get(0).getId());
+        }
+        List<VendingMachine> vms = new ArrayList<>();
+        for (Partners partner : partners) {
+            vms.addAll(topology.machines(partner.getId()));
+        }
+        vms.sort(Comparator.comparing(VendingMachine::getId));
+        return vms;
+    }
+
+    private static void add(MachineSalesReportRow row, MachineStatusCount count) {
+        long n = count.count() == null ? 0 : count.count();
+        switch (String.valueOf(count.transactionStatus()).toUpperCase(Locale.ROOT)) {
+            // SUCCESS is the legacy name of SALE_COMPLETED
+            case "SALE_COMPLETED", "SUCCESS" -> row.setCompleted(row.getCompleted() + n);
+            case "SALE_FAILED" -> row.setFailed(row.getFailed() + n);
+            case "VOID_COMPLETE" -> row.setVoidCompleted(row.getVoidCompleted() + n);
+            case "VOID_FAILED" -> row.setVoidFailed(row.getVoidFailed() + n);
+            default -> {
+            }
+        }
+    }
+}
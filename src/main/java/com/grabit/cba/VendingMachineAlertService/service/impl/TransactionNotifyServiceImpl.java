@@ -5,16 +5,13 @@ import com.grabit.cba.VendingMachineAlertService.dto.requestDto.MailDto;
 import com.grabit.cba.VendingMachineAlertService.service.EmailSender;
 import com.grabit.cba.VendingMachineAlertService.service.TransactionNotifyService;
 import com.grabit.cba.VendingMachineAlertService.util.EmailServiceUtils;
+import com.grabit.cba.VendingMachineAlertService.service.template.AlertMailModel;
+import com.grabit.cba.VendingMachineAlertService.service.template.AlertTemplateRenderer;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
-
-import java.util.HashMap;
-import java.util.Map;
 
 @RequiredArgsConstructor
 @Service
@@ -22,7 +19,7 @@ public class TransactionNotifyServiceImpl implements TransactionNotifyService {
 
     Logger LOGGER = LoggerFactory.getLogger(TransactionNotifyServiceImpl.class);
     private final EmailSender emailSender;
-    private final TemplateEngine templateEngine;
+    private final AlertTemplateRenderer alertTemplateRenderer;
 
     @Value("${spring.mail.username}")
     String senderMail;
@@ -42,19 +39,13 @@ public class TransactionNotifyServiceImpl implements TransactionNotifyService {
         mailDto.setHtml(true);
         LOGGER.debug("MailDto populated with To: {}, CC: {}, BCC: {}, Subject: {}", failedSalesRequestDto.getTo(), failedSalesRequestDto.getCc(), failedSalesRequestDto.getBcc(), failedSalesRequestDto.getSubject());
 
-        Map<String, Object> properties = new HashMap<>();
-        properties.put("vendingSerialNumber", failedSalesRequestDto.getVendingSerialNumber());
-        properties.put("vmName", failedSalesRequestDto.getVmName());
-        properties.put("merchantName", failedSalesRequestDto.getMerchantName());
-        properties.put("terminateCode", failedSalesRequestDto.getTerminateCode());
-        properties.put("productLockCount", failedSalesRequestDto.getProductLockCount());
-        properties.put("location", failedSalesRequestDto.getLocation());
+        AlertMailModel.SaleFailed model = new AlertMailModel.SaleFailed(failedSalesRequestDto.getVendingSerialNumber(),
+                failedSalesRequestDto.getVmName(), null, null, null, failedSalesRequestDto.getMerchantName(),
+                failedSalesRequestDto.getTerminateCode(), failedSalesRequestDto.getProductLockCount(), failedSalesRequestDto.getLocation());
 
-        LOGGER.debug("Email properties populated: {}", properties);
+        LOGGER.debug("Email model populated: {}", model);
 
-        Context context = new Context();
-        context.setVariables(properties);
-        mailDto.setBody(templateEngine.process("Sale_failed", context));
+        mailDto.setBody(alertTemplateRenderer.render(model));
         emailSender.sendEmail(mailDto, grabitLogo, null);
         LOGGER.info("Email with signature sent successfully");
 
@@ -0,0 +1,187 @@
+package com.grabit.cba.VendingMachineAlertService.service.mail;
+
+import com.grabit.cba.VendingMachineAlertService.config.AllMachinesMonitorProperties;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Small pool of connected, authenticated SMTP {@link Transport}s.
+ * <p>
+ * {@link JavaMailSender#send} opens a connection, runs STARTTLS and AUTH, sends one message and closes again; during
+ * an alert burst that handshake dominates. This pool hands out at most {@code monitor.mail.smtpPoolSize} connections
+ * and keeps them open between sends, so a burst costs one handshake per connection. Connections are reopened when
+ * they have been idle longer than the server is likely to keep them, after a configured number of messages, and
+ * whenever a send fails at the connection level (the message is then retried once on a fresh connection).
+ */
+@Component
+public class SmtpTransportPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SmtpTransportPool.class);
+
+    private final JavaMailSender javaMailSender;
+    private final AllMachinesMonitorProperties.MailDispatch config;
+
+    // Idle connections, most recently used first so surplus ones age out at the tail
+    private final LinkedBlockingDeque<PooledTransport> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+
+    public SmtpTransportPool(JavaMailSender javaMailSender, AllMachinesMonitorProperties allMachinesMonitorProperties) {
+        this.javaMailSender = javaMailSender;
+        this.config = allMachinesMonitorProperties.getMail();
+        this.permits = new Semaphore(Math.max(1, config.getSmtpPoolSize()), true);
+    }
+
+    /**
+     * Send a message over a pooled connection.
+     *
+     * @throws MailSendException when the message could not be sent; the cause is available through
+     *                           {@link MailSendException#getMessageExceptions()}
+     */
+    public void send(MimeMessage message) {
+        if (!(javaMailSender instanceof JavaMailSenderImpl sender)) {
+            // No access to the session settings, e.g. a stub sender; nothing to pool
+            javaMailSender.send(message);
+            return;
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            MessagingException interrupted = new MessagingException("Interrupted while waiting for an SMTP connection", ex);
+            throw new MailSendException(Map.of(message, interrupted));
+        }
+        try {
+            prepare(message);
+            sendWithRetry(sender, message);
+        } catch (MessagingException ex) {
+            throw new MailSendException(Map.of(message, ex));
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void sendWithRetry(JavaMailSenderImpl sender, MimeMessage message) throws MessagingException {
+        PooledTransport transport = borrow(sender);
+        boolean reused = transport.sent > 0;
+        try {
+            transport.send(message);
+        } catch (SendFailedException ex) {
+            // Rejected recipients; the server resets the envelope and the connection stays usable
+            giveBack(transport);
+            throw ex;
+        } catch (MessagingException ex) {
+            close(transport);
+            if (!reused) {
+                throw ex;
+            }
+            // The server probably dropped a connection we kept open; one fresh attempt
+            LOGGER.debug("Pooled SMTP connection failed ({}); retrying on a new connection", ex.getMessage());
+            transport = connect(sender);
+            try {
+                transport.send(message);
+            } catch (MessagingException retryEx) {
+                if (retryEx instanceof SendFailedException) {
+                    giveBack(transport);
+                } else {
+                    close(transport);
+                }
+                throw retryEx;
+            }
+        }
+        giveBack(transport);
+    }
+
+    private PooledTransport borrow(JavaMailSenderImpl sender) throws MessagingException {
+        long now = System.currentTimeMillis();
+        PooledTransport transport;
+        while ((transport = idle.pollFirst()) != null) {
+            // No NOOP probe here: a connection the server closed anyway is caught by the retry in sendWithRetry
+            if (now - transport.lastUsedMillis < config.getSmtpMaxIdleSeconds() * 1000L) {
+                return transport;
+            }
+            close(transport);
+        }
+        return connect(sender);
+    }
+
+    private void giveBack(PooledTransport transport) {
+        if (transport.sent >= config.getSmtpMaxMessagesPerConnection()) {
+            close(transport);
+            return;
+        }
+        idle.offerFirst(transport);
+    }
+
+    private PooledTransport connect(JavaMailSenderImpl sender) throws MessagingException {
+        Session session = sender.getSession();
+        Transport transport = session.getTransport(sender.getProtocol() != null ? sender.getProtocol() : "smtp");
+        String username = sender.getUsername();
+        String password = sender.getPassword();
+        if (username == null || username.isEmpty()) {
+            username = null;
+            password = null;
+        }
+        transport.connect(sender.getHost(), sender.getPort(), username, password);
+        LOGGER.debug("Opened SMTP connection to {}:{}", sender.getHost(), sender.getPort());
+        return new PooledTransport(transport);
+    }
+
+    private static void close(PooledTransport transport) {
+        try {
+            transport.transport.close();
+        } catch (MessagingException ex) {
+            LOGGER.debug("Error closing SMTP connection: {}", ex.getMessage());
+        }
+    }
+
+    // Same preparation JavaMailSenderImpl applies before handing a message to its transport
+    private static void prepare(MimeMessage message) throws MessagingException {
+        if (message.getSentDate() == null) {
+            message.setSentDate(new Date());
+        }
+        String messageId = message.getMessageID();
+        message.saveChanges();
+        if (messageId != null) {
+            message.setHeader("Message-ID", messageId);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        PooledTransport transport;
+        while ((transport = idle.pollFirst()) != null) {
+            close(transport);
+        }
+    }
+
+    private static final class PooledTransport {
+        private final Transport transport;
+        private int sent;
+        private long lastUsedMillis = System.currentTimeMillis();
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+
+        private void send(MimeMessage message) throws MessagingException {
+            transport.sendMessage(message, message.getAllRecipients());
+            sent++;
+            lastUsedMillis = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.grabit.cba.VendingMachineAlertService.service.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Micrometer meters of the monitor cycles, scraped by Prometheus from {@code /alert-service/actuator/prometheus}.
+ * <ul>
+ *     <li>{@code monitor.job} (timer; job, outcome): duration of every scheduled job run, plus
+ *     {@code monitor.job.lag}, {@code monitor.job.skipped} (trigger fired while the previous run was still going) and
+ *     {@code monitor.job.missed} (cron fire times that never triggered). A job whose p99 approaches its cron period, or
+ *     any skipped run, is an overrun.</li>
+ *     <li>{@code monitor.job.db.statements} and {@code monitor.job.db.rows} (summaries; job): JDBC statements prepared
+ *     and query rows read while the job ran, from the Hibernate statistics. These are global counters, so jobs
+ *     running at the same time see each other's work; JdbcTemplate statements are not included. Only recorded when
+ *     HIBERNATE_STATISTICS_ENABLED turns on {@code hibernate.generate_statistics}.</li>
+ *     <li>{@code monitor.cycle} (timer; monitor) and {@code monitor.cycle.machines} (counter; monitor, result): the
+ *     parallel per-machine phase of a monitor cycle. Result {@code overran} counts machines still being evaluated
+ *     when the cycle deadline passed.</li>
+ *     <li>{@code monitor.alerts} (counter; type, outcome): alerts triggered, suppressed by cooldown, queued,
+ *     dropped as already queued, sent and failed.</li>
+ *     <li>{@code monitor.mail.send} (timer with histogram; outcome): SMTP send latency of outbox mails.</li>
+ * </ul>
+ * Queue depth and active threads of the executors are published by Spring Boot as {@code executor.queued} and
+ * {@code executor.active}, tagged with the bean name.
+ */
+@Component
+public class MonitorMetrics {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MonitorMetrics.class);
+
+    public static final String TRIGGERED = "triggered";
+    public static final String SUPPRESSED = "suppressed";
+    public static final String QUEUED = "queued";
+    public static final String DUPLICATE = "duplicate";
+    public static final String SENT = "sent";
+    public static final String FAILED = "failed";
+
+    private final MeterRegistry registry;
+    private final Statistics statistics;
+
+    public MonitorMetrics(MeterRegistry registry, ObjectProvider<EntityManagerFactory> entityManagerFactory) {
+        this.registry = registry;
+        this.statistics = hibernateStatistics(entityManagerFactory.getIfAvailable());
+    }
+
+    private static Statistics hibernateStatistics(EntityManagerFactory entityManagerFactory) {
+        if (entityManagerFactory == null) {
+            return null;
+        }
+        try {
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            if (statistics.isStatisticsEnabled()) {
+                return statistics;
+            }
+            LOGGER.info("Hibernate statistics are disabled; database statements and rows per job will not be recorded");
+        } catch (RuntimeException ex) {
+            LOGGER.warn("Could not read Hibernate statistics: {}", ex.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Start measuring the database work of a job run; pass the result to {@link #jobFinished}.
+     */
+    public DbUsage dbUsage() {
+        return statistics == null ? null : new DbUsage(statistics.getPrepareStatementCount(), queryRows(statistics));
+    }
+
+    public void jobFinished(String jobName, long durationNanos, boolean failed, DbUsage before) {
+        Timer.builder("monitor.job")
+                .description("Scheduled job run duration")
+                .tag("job", jobName)
+                .tag("outcome", failed ? "failure" : "success")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(Duration.ofNanos(durationNanos));
+        if (before != null) {
+            DistributionSummary.builder("monitor.job.db.statements")
+                    .description("JDBC statements prepared during a job run")
+                    .tag("job", jobName)
+                    .register(registry)
+                    .record(Math.max(0, statistics.getPrepareStatementCount() - before.statements()));
+            DistributionSummary.builder("monitor.job.db.rows")
+                    .description("Query rows read during a job run")
+                    .tag("job", jobName)
+                    .register(registry)
+                    .record(Math.max(0, queryRows(statistics) - before.rows()));
+        }
+    }
+
+    public void jobSkipped(String jobName) {
+        counter("monitor.job.skipped", "Triggers skipped because the previous run was still going", "job", jobName).increment();
+    }
+
+    public void jobTriggerLag(String jobName, long lagMillis, long missedTriggers) {
+        Timer.builder("monitor.job.lag")
+                .description("Delay between the expected cron fire time and the actual start")
+                .tag("job", jobName)
+                .register(registry)
+                .record(Duration.ofMillis(lagMillis));
+        if (missedTriggers > 0) {
+            counter("monitor.job.missed", "Cron fire times that passed without a trigger", "job", jobName).increment(missedTriggers);
+        }
+    }
+
+    public void cycleFinished(String monitorName, long durationNanos, int completed, int failed, int skipped, int overran) {
+        Timer.builder("monitor.cycle")
+                .description("Parallel machine evaluation phase of a monitor cycle")
+                .tag("monitor", monitorName)
+                .register(registry)
+                .record(Duration.ofNanos(durationNanos));
+        machines(monitorName, "completed").increment(completed);
+        machines(monitorName, "failed").increment(failed);
+        machines(monitorName, "skipped").increment(skipped);
+        machines(monitorName, "overran").increment(overran);
+    }
+
+    /**
+     * Count an alert decision or delivery outcome; {@code type} is the alert code, e.g. {@code TIMEOUT}.
+     */
+    public void alert(String type, String outcome) {
+        Counter.builder("monitor.alerts")
+                .description("Alerts by outcome")
+                .tag("type", type == null ? "unknown" : type)
+                .tag("outcome", outcome)
+                .register(registry)
+                .increment();
+    }
+
+    public void mailSent(long durationNanos, boolean success) {
+        Timer.builder("monitor.mail.send")
+                .description("SMTP send latency of outbox mails")
+                .tag("outcome", success ? "success" : "failure")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(Duration.ofNanos(durationNanos));
+    }
+
+    private Counter machines(String monitorName, String result) {
+        return Counter.builder("monitor.cycle.machines")
+                .description("Machines evaluated per monitor")
+                .tag("monitor", monitorName)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private Counter counter(String name, String description, String tagKey, String tagValue) {
+        return Counter.builder(name).description(description).tag(tagKey, tagValue).register(registry);
+    }
+
+    // Rows returned by all HQL/JPQL and native queries Hibernate has executed so far
+    private static long queryRows(Statistics statistics) {
+        long rows = 0;
+        for (String query : statistics.getQueries()) {
+            QueryStatistics queryStatistics = statistics.getQueryStatistics(query);
+            rows += queryStatistics.getExecutionRowCount();
+        }
+        return rows;
+    }
+
+    public record DbUsage(long statements, long rows) {
+    }
+}
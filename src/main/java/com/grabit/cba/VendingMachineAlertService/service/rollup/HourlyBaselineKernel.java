@@ -0,0 +1,145 @@
+package com.grabit.cba.VendingMachineAlertService.service.rollup;
+
+import com.grabit.cba.VendingMachineAlertService.database.model.AlertSalesHourlyRollup;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Per machine hour-of-day quantiles of the four baseline counters, computed from counting histograms.
+ * <p>
+ * Every (metric, hour) cell keeps how many sampled days had 0, 1, 2, ... transactions in that hour. Hours without a
+ * rollup row on a sampled day count as 0, so only the rows that exist are added and no per-day arrays are built. A
+ * quantile is one cumulative walk over the cell, linear in the largest count seen, which is small for hourly counts.
+ * The histograms grow on demand and are kept across {@link #reset()}, so one instance serves a whole job run without
+ * allocating per machine. Not thread-safe.
+ */
+public final class HourlyBaselineKernel {
+
+    public static final int SALES_COMPLETED = 0;
+    public static final int SALES_FAILED = 1;
+    public static final int VOID_COMPLETED = 2;
+    public static final int VOID_FAILED = 3;
+    public static final int METRICS = 4;
+
+    private static final int HOURS = 24;
+    private static final int INITIAL_CAPACITY = 16;
+
+    // histograms[metric * HOURS + hour][count] = days with that count
+    private final int[][] histograms = new int[METRICS * HOURS][INITIAL_CAPACITY];
+    // Largest count added to a cell since the last reset, bounds clearing and scanning
+    private final int[] maxCounts = new int[METRICS * HOURS];
+    // Rows added per hour; the sampled days without a row are the zero days of that hour
+    private final int[] rowsPerHour = new int[HOURS];
+    private int sampledDays;
+    private long lastEpochDay = Long.MIN_VALUE;
+
+    /**
+     * Forget the previous machine's samples.
+     */
+    public void reset() {
+        for (int cell = 0; cell < histograms.length; cell++) {
+            Arrays.fill(histograms[cell], 0, maxCounts[cell] + 1, 0);
+            maxCounts[cell] = 0;
+        }
+        Arrays.fill(rowsPerHour, 0);
+        sampledDays = 0;
+        lastEpochDay = Long.MIN_VALUE;
+    }
+
+    /**
+     * Add one rollup row. Each (day, hour) may be added once and the rows of a day must be adjacent, as they are in
+     * {@code findByMachineIdsAndSaleDateBetween}; a day counts as sampled once any of its rows is added.
+     */
+    public void add(AlertSalesHourlyRollup rollup) {
+        AlertSalesHourlyRollup.Id id = rollup.getId();
+        add(id.getSaleDate(), id.getHourOfDay(), rollup.getSalesCompleted(), rollup.getSalesFailed(),
+                rollup.getVoidCompleted(), rollup.getVoidFailed());
+    }
+
+    public void add(LocalDate day, int hour, int salesCompleted, int salesFailed, int voidCompleted, int voidFailed) {
+        checkHour(hour);
+        long epochDay = day.toEpochDay();
+        if (epochDay != lastEpochDay) {
+            sampledDays++;
+            lastEpochDay = epochDay;
+        }
+        rowsPerHour[hour]++;
+        count(SALES_COMPLETED, hour, salesCompleted);
+        count(SALES_FAILED, hour, salesFailed);
+        count(VOID_COMPLETED, hour, voidCompleted);
+        count(VOID_FAILED, hour, voidFailed);
+    }
+
+    public int sampledDays() {
+        return sampledDays;
+    }
+
+    /**
+     * Median over the sampled days; the mean of the two middle values for an even number of days, 0 without samples.
+     */
+    public double median(int metric, int hour) {
+        return quantile(metric, hour, 0.5);
+    }
+
+    /**
+     * Quantile over the sampled days, linearly interpolated between the closest ranks (q = 0.5 is the median).
+     */
+    public double quantile(int metric, int hour, double q) {
+        if (q < 0.0 || q > 1.0) {
+            throw new IllegalArgumentException("q must be within [0, 1] but was " + q);
+        }
+        if (sampledDays == 0) {
+            return 0.0;
+        }
+        double position = q * (sampledDays - 1);
+        int lowerRank = (int) Math.floor(position);
+        int upperRank = (int) Math.ceil(position);
+
+        int cell = cell(metric, hour);
+        int[] histogram = histograms[cell];
+        int zeroDays = sampledDays - rowsPerHour[hour];
+        long lower = -1;
+        long upper = -1;
+        int seen = 0;
+        for (int value = 0; value <= maxCounts[cell]; value++) {
+            seen += histogram[value] + (value == 0 ? zeroDays : 0);
+            if (lower < 0 && seen > lowerRank) {
+                lower = value;
+            }
+            if (seen > upperRank) {
+                upper = value;
+                break;
+            }
+        }
+        return lower + (upper - lower) * (position - lowerRank);
+    }
+
+    private void count(int metric, int hour, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("count must not be negative but was " + value);
+        }
+        int cell = cell(metric, hour);
+        int[] histogram = histograms[cell];
+        if (value >= histogram.length) {
+            histogram = Arrays.copyOf(histogram, Math.max(value + 1, histogram.length * 2));
+            histograms[cell] = histogram;
+        }
+        histogram[value]++;
+        maxCounts[cell] = Math.max(maxCounts[cell], value);
+    }
+
+    private static int cell(int metric, int hour) {
+        if (metric < 0 || metric >= METRICS) {
+            throw new IllegalArgumentException("Unknown metric " + metric);
+        }
+        checkHour(hour);
+        return metric * HOURS + hour;
+    }
+
+    private static void checkHour(int hour) {
+        if (hour < 0 || hour >= HOURS) {
+            throw new IllegalArgumentException("hour must be 0-23 but was " + hour);
+        }
+    }
+}
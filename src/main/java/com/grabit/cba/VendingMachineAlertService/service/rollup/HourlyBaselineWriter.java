@@ -0,0 +1,90 @@
+package com.grabit.cba.VendingMachineAlertService.service.rollup;
+
+import com.grabit.cba.VendingMachineAlertService.config.AllMachinesMonitorProperties;
+import com.grabit.cba.VendingMachineAlertService.database.model.AlertHourlySalesBaseline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Writes Alert_Hourly_Sales_Baseline rows with JDBC batches of INSERT ... ON DUPLICATE KEY UPDATE instead of one JPA
+ * merge (SELECT, then INSERT or UPDATE) per row.
+ * <p>
+ * Rows are written in chunks of {@code monitor.baseline.writeChunkSize}, each chunk in its own transaction; with
+ * {@code rewriteBatchedStatements} the driver sends a chunk as a few multi-row statements.
+ */
+@Service
+public class HourlyBaselineWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HourlyBaselineWriter.class);
+
+    // VALUES(col) rather than a row alias: the driver's batch rewrite understands it on every MySQL 8 version
+    private static final String UPSERT_SQL = "INSERT INTO Alert_Hourly_Sales_Baseline " +
+            "(machineId, hourOfDay, medianSalesCompleted, medianSalesFailed, medianVoidCompleted, medianVoidFailed, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "medianSalesCompleted = VALUES(medianSalesCompleted), " +
+            "medianSalesFailed = VALUES(medianSalesFailed), " +
+            "medianVoidCompleted = VALUES(medianVoidCompleted), " +
+            "medianVoidFailed = VALUES(medianVoidFailed), " +
+            "updated_at = VALUES(updated_at)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AllMachinesMonitorProperties allMachinesMonitorProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    public HourlyBaselineWriter(JdbcTemplate jdbcTemplate, AllMachinesMonitorProperties allMachinesMonitorProperties,
+                                PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.allMachinesMonitorProperties = allMachinesMonitorProperties;
+        // Each chunk commits on its own, also when called from the transactional baseline job
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Insert or replace the given baselines.
+     *
+     * @return number of rows written
+     */
+    public int write(List<AlertHourlySalesBaseline> baselines) {
+        if (baselines == null || baselines.isEmpty()) {
+            return 0;
+        }
+        int chunkSize = Math.max(1, allMachinesMonitorProperties.getBaseline().getWriteChunkSize());
+        long startedAt = System.currentTimeMillis();
+        for (int from = 0; from < baselines.size(); from += chunkSize) {
+            List<AlertHourlySalesBaseline> chunk = baselines.subList(from, Math.min(from + chunkSize, baselines.size()));
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(UPSERT_SQL, chunk, chunk.size(), (ps, baseline) -> {
+                        ps.setInt(1, baseline.getId().getMachineId());
+                        ps.setInt(2, baseline.getId().getHourOfDay());
+                        setDouble(ps, 3, baseline.getMedianSalesCompleted());
+                        setDouble(ps, 4, baseline.getMedianSalesFailed());
+                        setDouble(ps, 5, baseline.getMedianVoidCompleted());
+                        setDouble(ps, 6, baseline.getMedianVoidFailed());
+                        ps.setTimestamp(7, baseline.getUpdatedAt() == null ? null : Timestamp.valueOf(baseline.getUpdatedAt()));
+                    }));
+        }
+        LOGGER.debug("Wrote {} hourly baselines in {} ms", baselines.size(), System.currentTimeMillis() - startedAt);
+        return baselines.size();
+    }
+
+    private static void setDouble(PreparedStatement ps, int index, Double value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.DOUBLE);
+        } else {
+            ps.setDouble(index, value);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.grabit.cba.VendingMachineAlertService.service.rollup;
+
+import com.grabit.cba.VendingMachineAlertService.config.AllMachinesMonitorProperties;
+import com.grabit.cba.VendingMachineAlertService.database.model.AlertSalesHourlyRollup;
+import com.grabit.cba.VendingMachineAlertService.database.repository.AlertSalesHourlyRollupRepository;
+import com.grabit.cba.VendingMachineAlertService.database.repository.SalesRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Maintains Alert_Sales_Hourly_Rollup, the per machine and hour transaction counts the median baseline is computed
+ * from.
+ * <p>
+ * New Sales rows are found by id above the watermark in Alert_Sales_Hourly_Rollup_State and added to their buckets
+ * with one INSERT ... SELECT ... ON DUPLICATE KEY UPDATE per chunk of ids; the watermark moves in the same transaction,
+ * which holds the state row lock so concurrent instances never count a row twice. Each call remembers the newest id
+ * it saw and a later call rolls up to it once {@code monitor.rollup.commitGraceSeconds} have passed, so the counts
+ * trail new Sales by about one rollup interval. The first run backfills the whole Sales table chunk by chunk.
+ */
+@Service
+public class SalesHourlyRollupService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SalesHourlyRollupService.class);
+
+    private final AlertSalesHourlyRollupRepository rollupRepository;
+    private final SalesRepository salesRepository;
+    private final AllMachinesMonitorProperties allMachinesMonitorProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    public SalesHourlyRollupService(AlertSalesHourlyRollupRepository rollupRepository, SalesRepository salesRepository,
+                                    AllMachinesMonitorProperties allMachinesMonitorProperties,
+                                    PlatformTransactionManager transactionManager) {
+        this.rollupRepository = rollupRepository;
+        this.salesRepository = salesRepository;
+        this.allMachinesMonitorProperties = allMachinesMonitorProperties;
+        // Each chunk commits on its own, also when called from a transactional job
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Roll up the Sales rows added since the last call, up to the newest id a previous call saw at least
+     * {@code commitGraceSeconds} ago.
+     *
+     * @return number of Sales ids the watermark advanced by
+     */
+    public synchronized int catchUp() {
+        Integer maxId = salesRepository.findMaxId();
+        if (maxId == null) {
+            return 0;
+        }
+        AllMachinesMonitorProperties.SalesRollup rollup = allMachinesMonitorProperties.getRollup();
+        int chunkSize = Math.max(1, rollup.getChunkSize());
+        long graceMillis = Math.max(0, rollup.getCommitGraceSeconds()) * 1000;
+        long nowMillis = System.currentTimeMillis();
+        int advanced = 0;
+        int lastSaleId = 0;
+        while (true) {
+            Integer[] range = transactionTemplate.execute(status -> {
+                rollupRepository.initState();
+                RollupState state = RollupState.of(rollupRepository.lockState());
+                int targetId = graceMillis == 0 ? maxId : state.settledId(nowMillis - graceMillis, maxId);
+                int afterId = state.lastSaleId();
+                if (afterId >= targetId) {
+                    // Next call rolls up to what is newest now, once its grace has passed
+                    if (graceMillis > 0 && maxId > afterId && !state.hasPending()) {
+                        rollupRepository.savePendingSaleId(maxId, nowMillis);
+                    }
+                    return null;
+                }
+                int upToId = (int) Math.min((long) afterId + chunkSize, targetId);
+                int buckets = rollupRepository.rollUpSales(afterId, upToId);
+                rollupRepository.saveLastSaleId(upToId);
+                LOGGER.debug("Rolled up Sales ids ({}, {}] into {} hourly buckets", afterId, upToId, buckets);
+                return new Integer[]{afterId, upToId};
+            });
+            if (range == null) {
+                break;
+            }
+            advanced += range[1] - range[0];
+            lastSaleId = range[1];
+        }
+        if (advanced > 0) {
+            LOGGER.info("Hourly sales rollup advanced by {} Sales ids to {}", advanced, lastSaleId);
+        }
+        return advanced;
+    }
+
+    /**
+     * Rollup rows of the given machines with {@code from <= saleDate <= to}, grouped by machine id.
+     */
+    public Map<Integer, List<AlertSalesHourlyRollup>> rollupsByMachine(Collection<Integer> machineIds, LocalDate from, LocalDate to) {
+        Map<Integer, List<AlertSalesHourlyRollup>> result = new HashMap<>();
+        if (machineIds == null || machineIds.isEmpty()) {
+            return result;
+        }
+        for (AlertSalesHourlyRollup rollup : rollupRepository.findByMachineIdsAndSaleDateBetween(machineIds, from, to)) {
+            result.computeIfAbsent(rollup.getId().getMachineId(), k -> new ArrayList<>()).add(rollup);
+        }
+        return result;
+    }
+
+    /**
+     * Drop buckets no baseline can look at any more.
+     */
+    public int purgeBefore(LocalDate before) {
+        int deleted = rollupRepository.deleteBySaleDateBefore(before);
+        if (deleted > 0) {
+            LOGGER.info("Purged {} hourly sales rollup rows before {}", deleted, before);
+        }
+        return deleted;
+    }
+
+    /**
+     * Alert_Sales_Hourly_Rollup_State row. Auto-increment ids are handed out before commit, so a row can become
+     * visible after a higher id was already rolled up; the watermark therefore only moves to an id that was the newest
+     * one at least the commit grace ago, when every lower id has long committed.
+     */
+    private record RollupState(int lastSaleId, Integer pendingSaleId, Long pendingSinceMillis) {
+
+        static RollupState of(List<Object[]> rows) {
+            if (rows.isEmpty()) {
+                return new RollupState(0, null, null);
+            }
+            Object[] row = rows.get(0);
+            return new RollupState(row[0] == null ? 0 : ((Number) row[0]).intValue(),
+                    row[1] == null ? null : ((Number) row[1]).intValue(),
+                    row[2] == null ? null : ((Number) row[2]).longValue());
+        }
+
+        boolean hasPending() {
+            return pendingSaleId != null && pendingSaleId > lastSaleId;
+        }
+
+        /**
+         * Id the watermark may move to: the pending id once seen before {@code settledBeforeMillis}. The very first run
+         * backfills up to {@code maxId}, as no earlier call has seen the table.
+         */
+        int settledId(long settledBeforeMillis, int maxId) {
+            if (pendingSaleId == null) {
+                return lastSaleId == 0 ? maxId : lastSaleId;
+            }
+            if (pendingSinceMillis != null && pendingSinceMillis <= settledBeforeMillis) {
+                return Math.max(lastSaleId, Math.min(pendingSaleId, maxId));
+            }
+            return lastSaleId;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.grabit.cba.VendingMachineAlertService.service.state;
+
+import com.grabit.cba.VendingMachineAlertService.database.model.AlertType;
+import com.grabit.cba.VendingMachineAlertService.database.model.other.VendingMachine;
+import com.grabit.cba.VendingMachineAlertService.database.model.projection.AlertHistoryLatest;
+import com.grabit.cba.VendingMachineAlertService.database.repository.AlertHistoryRepository;
+import com.grabit.cba.VendingMachineAlertService.enums.AlertState;
+import com.grabit.cba.VendingMachineAlertService.service.topology.VendingMachineResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Alert state per (machine serial, alert type), replacing the per-machine "latest AlertHistory" queries of the
+ * cooldown checks.
+ * <p>
+ * Transitions: OK → FIRING when an alert mail is queued, FIRING → COOLDOWN once the outbox confirms delivery (this is
+ * where {@code lastSentAt} moves), FIRING/COOLDOWN → RESOLVED when the monitor sees the condition cleared, and back to
+ * FIRING on the next alert. A mail the outbox gives up on returns the key to the state it had before.
+ * <p>
+ * The map is warmed on first use with one aggregate query over Alert_History and then follows new history rows by id,
+ * so sends recorded by another instance or by hand are picked up by {@link #syncFromHistory()}. Cooldown windows stay
+ * with the monitors; they only read {@link AlertStatus#lastSentAt()} from here.
+ */
+@Component
+public class AlertStateStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AlertStateStore.class);
+
+    private static final AlertStatus NEVER_ALERTED = new AlertStatus(AlertState.OK, null, null, null);
+
+    private final AlertHistoryRepository alertHistoryRepository;
+    private final VendingMachineResolver vendingMachineResolver;
+
+    private final Map<Key, AlertStatus> states = new ConcurrentHashMap<>();
+
+    // Highest Alert_History id already folded into the map; null until warmed up
+    private volatile Integer historyWatermark;
+
+    public AlertStateStore(AlertHistoryRepository alertHistoryRepository, VendingMachineResolver vendingMachineResolver) {
+        this.alertHistoryRepository = alertHistoryRepository;
+        this.vendingMachineResolver = vendingMachineResolver;
+    }
+
+    public AlertStatus status(String serialNo, AlertType alertType) {
+        if (serialNo == null || alertType == null) {
+            return NEVER_ALERTED;
+        }
+        ensureWarm();
+        return states.getOrDefault(new Key(serialNo, alertType.getId()), NEVER_ALERTED);
+    }
+
+    /**
+     * Alert mail for the machine was queued.
+     */
+    public void firing(String serialNo, AlertType alertType) {
+        if (serialNo == null || alertType == null) {
+            return;
+        }
+        ensureWarm();
+        LocalDateTime now = LocalDateTime.now();
+        states.compute(new Key(serialNo, alertType.getId()), (key, current) -> {
+            AlertStatus base = current != null ? current : NEVER_ALERTED;
+            if (base.state() == AlertState.FIRING) {
+                return base;
+            }
+            return new AlertStatus(AlertState.FIRING, base.lastSentAt(), now, base.state());
+        });
+    }
+
+    /**
+     * Delivery confirmed by the outbox (write-through of the AlertHistory row it just stored).
+     */
+    public void sent(String serialNo, Integer alertTypeId, LocalDateTime sentAt) {
+        if (serialNo == null || alertTypeId == null || sentAt == null) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        states.compute(new Key(serialNo, alertTypeId), (key, current) -> {
+            if (current != null && current.lastSentAt() != null && !current.lastSentAt().isBefore(sentAt)) {
+                return current;
+            }
+            // A recovery seen while the mail was in flight wins over the delivery
+            AlertState state = current != null && current.state() == AlertState.RESOLVED ? AlertState.RESOLVED : AlertState.COOLDOWN;
+            return new AlertStatus(state, sentAt, now, null);
+        });
+    }
+
+    /**
+     * The outbox gave up on the alert mail; nothing was sent.
+     */
+    public void abandoned(String serialNo, Integer alertTypeId) {
+        if (serialNo == null || alertTypeId == null) {
+            return;
+        }
+        states.computeIfPresent(new Key(serialNo, alertTypeId), (key, current) -> {
+            if (current.state() != AlertState.FIRING) {
+                return current;
+            }
+            AlertState previous = current.previousState() != null ? current.previousState() : AlertState.OK;
+            return new AlertStatus(previous, current.lastSentAt(), LocalDateTime.now(), null);
+        });
+    }
+
+    /**
+     * The monitor no longer sees the alert condition for the machine. Keys that never fired are not tracked.
+     */
+    public void resolve(String serialNo, AlertType alertType) {
+        if (serialNo == null || alertType == null || states.isEmpty()) {
+            return;
+        }
+        states.computeIfPresent(new Key(serialNo, alertType.getId()), (key, current) -> {
+            if (current.state() != AlertState.FIRING && current.state() != AlertState.COOLDOWN) {
+                return current;
+            }
+            LOGGER.info("Alert {} for machine {} resolved (was {} since {})", alertType.getCode(), serialNo, current.state(), current.since());
+            return new AlertStatus(AlertState.RESOLVED, current.lastSentAt(), LocalDateTime.now(), null);
+        });
+    }
+
+    /**
+     * Fold Alert_History rows written since the last call into the map.
+     *
+     * @return number of (machine, alert type) entries touched
+     */
+    public synchronized int syncFromHistory() {
+        Integer afterId = historyWatermark != null ? historyWatermark : 0;
+        List<AlertHistoryLatest> latest = alertHistoryRepository.findLatestSendsAfterId(afterId);
+        if (latest.isEmpty()) {
+            historyWatermark = afterId;
+            return 0;
+        }
+
+        // Older rows may only carry the machine id
+        Set<Integer> idsWithoutSerial = new HashSet<>();
+        for (AlertHistoryLatest row : latest) {
+            if (row.vendingMachineSerial() == null && row.vendingMachineId() != null) {
+                idsWithoutSerial.add(row.vendingMachineId());
+            }
+        }
+        Map<Integer, VendingMachine> machinesById = idsWithoutSerial.isEmpty()
+                ? Map.of() : vendingMachineResolver.byIds(idsWithoutSerial);
+
+        int watermark = afterId;
+        int touched = 0;
+        for (AlertHistoryLatest row : latest) {
+            watermark = Math.max(watermark, row.maxId());
+            String serialNo = row.vendingMachineSerial();
+            if (serialNo == null) {
+                VendingMachine vm = machinesById.get(row.vendingMachineId());
+                serialNo = vm == null ? null : vm.getSerialNo();
+            }
+            if (serialNo != null) {
+                sent(serialNo, row.alertTypeId(), row.lastSentAt());
+                touched++;
+            }
+        }
+        if (historyWatermark == null) {
+            LOGGER.info("Alert state warmed up from Alert_History: {} machine/alert type entries (up to id {})", states.size(), watermark);
+        }
+        historyWatermark = watermark;
+        return touched;
+    }
+
+    private void ensureWarm() {
+        if (historyWatermark == null) {
+            syncFromHistory();
+        }
+    }
+
+    private record Key(String serialNo, Integer alertTypeId) {
+    }
+
+    /**
+     * @param lastSentAt    last confirmed send, or null when never sent
+     * @param since         when the current state was entered
+     * @param previousState state before FIRING, restored when the mail is abandoned
+     */
+    public record AlertStatus(AlertState state, LocalDateTime lastSentAt, LocalDateTime since, AlertState previousState) {
+    }
+}
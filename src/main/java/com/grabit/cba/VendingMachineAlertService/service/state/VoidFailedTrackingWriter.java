@@ -0,0 +1,64 @@
+package com.grabit.cba.VendingMachineAlertService.service.state;
+
+import com.grabit.cba.VendingMachineAlertService.database.model.VoidFailedTracking;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Writes the Alert_Void_Failed_Tracking positions of a void failed cycle as one JDBC batch of INSERT ... ON DUPLICATE
+ * KEY UPDATE on the unique serial, instead of a JPA merge (SELECT, then UPDATE) per machine with new transactions.
+ */
+@Service
+public class VoidFailedTrackingWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VoidFailedTrackingWriter.class);
+
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String UPSERT_SQL = "INSERT INTO Alert_Void_Failed_Tracking " +
+            "(vendingMachineSerial, lastCheckedTransactionId, lastCheckedDatetime) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "lastCheckedTransactionId = VALUES(lastCheckedTransactionId), " +
+            "lastCheckedDatetime = VALUES(lastCheckedDatetime)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public VoidFailedTrackingWriter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Insert or move the tracking position of every given machine.
+     *
+     * @return number of rows written
+     */
+    public int write(Collection<VoidFailedTracking> positions) {
+        if (positions == null || positions.isEmpty()) {
+            return 0;
+        }
+        List<VoidFailedTracking> rows = List.copyOf(positions);
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(UPSERT_SQL, rows, BATCH_SIZE, (ps, tracking) -> {
+                    ps.setString(1, tracking.getVendingMachineSerial());
+                    if (tracking.getLastCheckedTransactionId() == null) {
+                        ps.setNull(2, Types.INTEGER);
+                    } else {
+                        ps.setInt(2, tracking.getLastCheckedTransactionId());
+                    }
+                    ps.setTimestamp(3, tracking.getLastCheckedDatetime() == null ? null : Timestamp.valueOf(tracking.getLastCheckedDatetime()));
+                }));
+        LOGGER.debug("Updated void failed tracking of {} machines", rows.size());
+        return rows.size();
+    }
+}
@@ -0,0 +1,312 @@
+package com.grabit.cba.VendingMachineAlertService.service.stream;
+
+import com.grabit.cba.VendingMachineAlertService.database.model.projection.SalesSignal;
+import com.grabit.cba.VendingMachineAlertService.enums.TransactionTypes;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fixed-size ring buffer holding a single machine's latest transactions in primitive arrays, newest first by
+ * (dateTime, id) like the query that loads it.
+ * <p>
+ * Each slot keeps the Sales id, the transaction time as epoch millis, the status as a {@link TransactionTypes} code and
+ * whether the status description reports a timeout. Whole-window counts and the runs starting at the newest
+ * transaction are maintained on every append, so they are O(1) to read; queries over a shorter prefix scan the arrays
+ * without allocating.
+ */
+final class MachineTransactionWindow implements TransactionWindow {
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final int capacity;
+    private final int[] ids;
+    private final long[] epochMillis;
+    private final byte[] statusCodes;
+    private final boolean[] timeouts;
+    private final long loadedAtMillis;
+    private volatile long lastRequestedMillis;
+
+    // Running counters over the whole window, indexed by status code
+    private final int[] statusCounts = new int[TransactionTypes.count()];
+    private final int[] leadingRuns = new int[TransactionTypes.count()];
+    private int timeoutCount;
+    private int leadingTimeoutRun;
+
+    // Slot of the newest transaction
+    private int head = -1;
+    private int size;
+
+    MachineTransactionWindow(int capacity, List<SalesSignal> latestNewestFirst, long loadedAtMillis) {
+        this.capacity = capacity;
+        this.ids = new int[capacity];
+        this.epochMillis = new long[capacity];
+        this.statusCodes = new byte[capacity];
+        this.timeouts = new boolean[capacity];
+        this.loadedAtMillis = loadedAtMillis;
+        this.lastRequestedMillis = loadedAtMillis;
+        // Replay oldest first so the counters see the same order as live appends
+        for (int i = Math.min(capacity, latestNewestFirst.size()) - 1; i >= 0; i--) {
+            SalesSignal signal = latestNewestFirst.get(i);
+            if (signal.id() == null) continue;
+            insert(signal);
+        }
+    }
+
+    private MachineTransactionWindow(MachineTransactionWindow source) {
+        this.capacity = source.capacity;
+        this.ids = source.ids.clone();
+        this.epochMillis = source.epochMillis.clone();
+        this.statusCodes = source.statusCodes.clone();
+        this.timeouts = source.timeouts.clone();
+        this.loadedAtMillis = source.loadedAtMillis;
+        this.lastRequestedMillis = source.lastRequestedMillis;
+        System.arraycopy(source.statusCounts, 0, statusCounts, 0, statusCounts.length);
+        System.arraycopy(source.leadingRuns, 0, leadingRuns, 0, leadingRuns.length);
+        this.timeoutCount = source.timeoutCount;
+        this.leadingTimeoutRun = source.leadingTimeoutRun;
+        this.head = source.head;
+        this.size = source.size;
+    }
+
+    /**
+     * Copy of the window taken under its lock. Detectors read a snapshot, so the transaction at an index cannot change
+     * between two calls when another monitor's catch-up appends to the shared window meanwhile.
+     */
+    synchronized MachineTransactionWindow snapshot() {
+        return new MachineTransactionWindow(this);
+    }
+
+    /**
+     * Add a newly ingested transaction at its (dateTime, id) position, the order the window is loaded in. Rows already
+     * in the window are ignored, as are rows older than all of a full window's transactions.
+     */
+    synchronized void append(SalesSignal signal) {
+        if (signal.id() == null || contains(signal.id())) {
+            return;
+        }
+        insert(signal);
+    }
+
+    private boolean contains(int id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[slot(i)] == id) return true;
+        }
+        return false;
+    }
+
+    private void insert(SalesSignal signal) {
+        long millis = signal.dateTime() == null ? Long.MIN_VALUE : signal.dateTime().atZone(ZONE).toInstant().toEpochMilli();
+        int id = signal.id();
+        // Index the row takes, newest first; rows without a time sort last, as in ORDER BY dateTime DESC
+        int position = 0;
+        while (position < size && (epochMillis[slot(position)] > millis
+                || (epochMillis[slot(position)] == millis && ids[slot(position)] > id))) {
+            position++;
+        }
+        if (position == capacity) {
+            return;
+        }
+        if (size == capacity) {
+            int oldest = slot(size - 1);
+            if (statusCodes[oldest] >= 0) statusCounts[statusCodes[oldest]]--;
+            if (timeouts[oldest]) timeoutCount--;
+        } else {
+            size++;
+        }
+        head = (head + 1) % capacity;
+        // The newer rows move up by one index, back to their own slots
+        for (int i = 0; i < position; i++) {
+            int to = slot(i);
+            int from = slot(i + 1);
+            ids[to] = ids[from];
+            epochMillis[to] = epochMillis[from];
+            statusCodes[to] = statusCodes[from];
+            timeouts[to] = timeouts[from];
+        }
+
+        byte code = TransactionTypes.codeOf(signal.transactionStatus());
+        boolean timeout = isTimeoutDescription(signal.tranStatusDescription());
+        int target = slot(position);
+        ids[target] = id;
+        epochMillis[target] = millis;
+        statusCodes[target] = code;
+        timeouts[target] = timeout;
+
+        if (code >= 0) statusCounts[code]++;
+        if (timeout) timeoutCount++;
+        if (position == 0) {
+            for (int c = 0; c < leadingRuns.length; c++) {
+                leadingRuns[c] = c == code ? Math.min(leadingRuns[c] + 1, size) : 0;
+            }
+            leadingTimeoutRun = timeout ? Math.min(leadingTimeoutRun + 1, size) : 0;
+        } else {
+            recountLeadingRuns();
+        }
+    }
+
+    // A row inserted behind the newest one can join or split the runs starting at the newest transaction
+    private void recountLeadingRuns() {
+        Arrays.fill(leadingRuns, 0);
+        byte first = statusCodes[slot(0)];
+        if (first >= 0) {
+            int run = 0;
+            while (run < size && statusCodes[slot(run)] == first) run++;
+            leadingRuns[first] = run;
+        }
+        int timeoutRun = 0;
+        while (timeoutRun < size && timeouts[slot(timeoutRun)]) timeoutRun++;
+        leadingTimeoutRun = timeoutRun;
+    }
+
+    // Matches "Time out", "TIME_OUT" and "TIMEOUT" anywhere in the description, as the timeout monitor always did
+    private static boolean isTimeoutDescription(String statusDesc) {
+        if (statusDesc == null || statusDesc.isEmpty()) {
+            return false;
+        }
+        String normalized = statusDesc.trim().toUpperCase();
+        return normalized.contains("TIME OUT") || normalized.contains("TIME_OUT") || normalized.contains("TIMEOUT");
+    }
+
+    private int slot(int index) {
+        return (head - index + capacity) % capacity;
+    }
+
+    private int bound(int limit) {
+        return Math.min(Math.max(limit, 0), size);
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized int id(int index) {
+        return ids[slot(index)];
+    }
+
+    @Override
+    public synchronized long epochMillis(int index) {
+        return epochMillis[slot(index)];
+    }
+
+    @Override
+    public LocalDateTime dateTime(int index) {
+        long millis = epochMillis(index);
+        return millis == Long.MIN_VALUE ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZONE);
+    }
+
+    @Override
+    public synchronized byte statusCode(int index) {
+        return statusCodes[slot(index)];
+    }
+
+    @Override
+    public synchronized boolean isTimeout(int index) {
+        return timeouts[slot(index)];
+    }
+
+    @Override
+    public synchronized int count(byte statusCode, int limit) {
+        if (statusCode < 0) return 0;
+        int n = bound(limit);
+        if (n == size) return statusCounts[statusCode];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (statusCodes[slot(i)] == statusCode) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized int countMatching(int statusMask, int limit) {
+        int n = bound(limit);
+        int count = 0;
+        if (n == size) {
+            for (int c = 0; c < statusCounts.length; c++) {
+                if ((statusMask & (1 << c)) != 0) count += statusCounts[c];
+            }
+            return count;
+        }
+        for (int i = 0; i < n; i++) {
+            if (matches(statusCodes[slot(i)], statusMask)) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized int leadingRunMatching(int statusMask, int limit) {
+        int n = bound(limit);
+        int run = 0;
+        while (run < n && matches(statusCodes[slot(run)], statusMask)) {
+            run++;
+        }
+        return run;
+    }
+
+    @Override
+    public synchronized int maxRun(byte statusCode, int limit) {
+        if (statusCode < 0) return 0;
+        int n = bound(limit);
+        int max = Math.min(leadingRuns[statusCode], n);
+        int current = 0;
+        for (int i = max; i < n; i++) {
+            if (statusCodes[slot(i)] == statusCode) {
+                max = Math.max(max, ++current);
+            } else {
+                current = 0;
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public synchronized int timeoutCount(int limit) {
+        int n = bound(limit);
+        if (n == size) return timeoutCount;
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (timeouts[slot(i)]) count++;
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized int maxTimeoutRun(int limit) {
+        int n = bound(limit);
+        int max = Math.min(leadingTimeoutRun, n);
+        int current = 0;
+        for (int i = max; i < n; i++) {
+            if (timeouts[slot(i)]) {
+                max = Math.max(max, ++current);
+            } else {
+                current = 0;
+            }
+        }
+        return max;
+    }
+
+    private static boolean matches(byte statusCode, int statusMask) {
+        return statusCode >= 0 && (statusMask & (1 << statusCode)) != 0;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    long loadedAtMillis() {
+        return loadedAtMillis;
+    }
+
+    long lastRequestedMillis() {
+        return lastRequestedMillis;
+    }
+
+    void touch(long nowMillis) {
+        lastRequestedMillis = nowMillis;
+    }
+}
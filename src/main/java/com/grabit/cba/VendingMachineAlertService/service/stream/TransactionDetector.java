@@ -0,0 +1,14 @@
+package com.grabit.cba.VendingMachineAlertService.service.stream;
+
+/**
+ * A monitor that evaluates the in-memory transaction windows maintained by {@link TransactionStreamService}.
+ * Every detector bean is registered automatically; the stream keeps as many transactions per machine as the most
+ * demanding detector requires.
+ */
+public interface TransactionDetector {
+
+    /**
+     * @return number of latest transactions per machine this detector evaluates
+     */
+    int requiredWindowSize();
+}
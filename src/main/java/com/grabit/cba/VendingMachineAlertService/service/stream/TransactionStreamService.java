@@ -0,0 +1,202 @@
+package com.grabit.cba.VendingMachineAlertService.service.stream;
+
+import com.grabit.cba.VendingMachineAlertService.config.AllMachinesMonitorProperties;
+import com.grabit.cba.VendingMachineAlertService.database.model.projection.SalesSignal;
+import com.grabit.cba.VendingMachineAlertService.database.repository.SalesRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared incremental ingestion stage for the transaction monitors.
+ * <p>
+ * Instead of every monitor re-reading the last N Sales rows of every machine on every cron tick, this service keeps a
+ * rolling window per machine in memory and advances it with a single {@code id > watermark} scan of new rows, the
+ * watermark trailing by {@code monitor.stream.commitGraceSeconds} so late-committed rows are still appended. Windows
+ * are loaded lazily (one batched query per partner) the first time a detector asks for a machine and are reloaded
+ * after {@code monitor.stream.windowResyncMinutes} so updated rows are eventually picked up.
+ * Windows are ordered newest first by (dateTime, id), both when loaded and when a row is appended, and stored as
+ * {@link MachineTransactionWindow} ring buffers.
+ * <p>
+ * This is a pull model: each monitor calls {@link #catchUp()} at the start of its cycle and then reads the windows it
+ * needs; detectors are never pushed rows. Loading and ingesting hold the same lock, so a row is either part of a
+ * loaded window or appended to it afterwards. A window no monitor has asked for within the resync interval (e.g. of a
+ * decommissioned machine) is evicted on the next catch-up.
+ */
+@Service
+public class TransactionStreamService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransactionStreamService.class);
+
+    private final SalesRepository salesRepository;
+    private final AllMachinesMonitorProperties allMachinesMonitorProperties;
+    private final ObjectProvider<TransactionDetector> detectors;
+
+    private final Map<Integer, MachineTransactionWindow> windows = new ConcurrentHashMap<>();
+
+    // Every Sales.id up to here is appended and settled, so it is not read again; guarded by this
+    private Integer watermark;
+    // {seen at millis, highest id read} of the catch-ups within the commit grace, oldest first; guarded by this
+    private final Deque<long[]> unsettled = new ArrayDeque<>();
+    private volatile int windowCapacity;
+
+    public TransactionStreamService(SalesRepository salesRepository, AllMachinesMonitorProperties allMachinesMonitorProperties,
+                                    ObjectProvider<TransactionDetector> detectors) {
+        this.salesRepository = salesRepository;
+        this.allMachinesMonitorProperties = allMachinesMonitorProperties;
+        this.detectors = detectors;
+    }
+
+    /**
+     * Read all Sales rows committed since the previous call and append them to the windows of the machines being
+     * tracked. Cheap when nothing new arrived, so every monitor calls it at the start of its cycle.
+     * <p>
+     * Auto-increment ids are handed out before commit, so a row can become visible after a higher id was read. The
+     * watermark therefore only moves to an id that was the highest one read at least {@code commitGraceSeconds} ago;
+     * newer ids are read again on every call, and rows a window already holds are ignored.
+     */
+    public synchronized void catchUp() {
+        evictIdleWindows();
+        if (watermark == null) {
+            Integer maxId = salesRepository.findMaxId();
+            watermark = maxId == null ? 0 : maxId;
+            LOGGER.info("Transaction stream initialized at watermark {}", watermark);
+            return;
+        }
+        AllMachinesMonitorProperties.TransactionStream config = allMachinesMonitorProperties.getStream();
+        int batchSize = Math.max(1, config.getIngestBatchSize());
+        int batches = 0;
+        int ingested = 0;
+        int startWatermark = watermark;
+        int readUpTo = watermark;
+        while (batches < Math.max(1, config.getMaxBatchesPerCatchUp())) {
+            List<SalesSignal> batch = salesRepository.findSignalsAfterId(readUpTo, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                break;
+            }
+            for (SalesSignal signal : batch) {
+                MachineTransactionWindow window = signal.vendingMachineId() == null ? null : windows.get(signal.vendingMachineId());
+                if (window != null) {
+                    window.append(signal);
+                }
+            }
+            readUpTo = batch.get(batch.size() - 1).id();
+            ingested += batch.size();
+            batches++;
+            if (batch.size() < batchSize) {
+                break;
+            }
+        }
+        settle(readUpTo, TimeUnit.SECONDS.toMillis(Math.max(0, config.getCommitGraceSeconds())));
+        if (ingested > 0) {
+            LOGGER.debug("Transaction stream read {} rows up to id {} (watermark {} -> {})", ingested, readUpTo,
+                    startWatermark, watermark);
+        }
+    }
+
+    // Guarded by this
+    private void settle(int readUpTo, long graceMillis) {
+        if (graceMillis == 0) {
+            watermark = readUpTo;
+            unsettled.clear();
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (readUpTo > watermark && (unsettled.isEmpty() || unsettled.peekLast()[1] < readUpTo)) {
+            unsettled.addLast(new long[]{now, readUpTo});
+        }
+        // Ids up to one read a grace ago were all committed before this call read them again
+        while (!unsettled.isEmpty() && unsettled.peekFirst()[0] <= now - graceMillis && unsettled.peekFirst()[1] <= readUpTo) {
+            watermark = Math.max(watermark, (int) unsettled.pollFirst()[1]);
+        }
+    }
+
+    // Guarded by this
+    private void evictIdleWindows() {
+        long idleBefore = System.currentTimeMillis()
+                - TimeUnit.MINUTES.toMillis(allMachinesMonitorProperties.getStream().getWindowResyncMinutes());
+        int before = windows.size();
+        windows.values().removeIf(window -> window.lastRequestedMillis() < idleBefore);
+        if (windows.size() < before) {
+            LOGGER.debug("Transaction stream evicted {} idle machine windows", before - windows.size());
+        }
+    }
+
+    /**
+     * Snapshots of the ring-buffer windows of the given machines holding at least their latest {@code depth}
+     * transactions, served from memory; later catch-ups do not change a returned window. Machines that are not tracked yet, or whose window is due for a resync, are loaded with one batched query.
+     * Machines without any transaction are absent from the returned map.
+     */
+    public Map<Integer, TransactionWindow> windows(Collection<Integer> machineIds, int depth) {
+        Map<Integer, TransactionWindow> result = new HashMap<>();
+        if (machineIds == null || machineIds.isEmpty() || depth <= 0) {
+            return result;
+        }
+        int capacity = Math.max(windowCapacity(), depth);
+        long now = System.currentTimeMillis();
+        long resyncMillis = TimeUnit.MINUTES.toMillis(allMachinesMonitorProperties.getStream().getWindowResyncMinutes());
+
+        List<Integer> toLoad = new ArrayList<>();
+        for (Integer machineId : machineIds) {
+            if (machineId == null) continue;
+            if (needsLoad(windows.get(machineId), capacity, now, resyncMillis)) {
+                toLoad.add(machineId);
+            }
+        }
+        if (!toLoad.isEmpty()) {
+            load(toLoad, capacity, now, resyncMillis);
+        }
+
+        for (Integer machineId : machineIds) {
+            MachineTransactionWindow window = machineId == null ? null : windows.get(machineId);
+            if (window != null) {
+                window.touch(now);
+                MachineTransactionWindow snapshot = window.snapshot();
+                if (snapshot.size() > 0) {
+                    result.put(machineId, snapshot);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Load and install windows while holding the catch-up lock: the watermark cannot move between the query and the
+     * install, so rows committed meanwhile are either in the loaded snapshot or appended by the next catch-up (rows
+     * already in the snapshot are ignored by {@link MachineTransactionWindow#append}).
+     */
+    private synchronized void load(List<Integer> machineIds, int capacity, long now, long resyncMillis) {
+        // Another monitor may have loaded some of them while this one waited for the lock
+        List<Integer> toLoad = machineIds.stream()
+                .filter(machineId -> needsLoad(windows.get(machineId), capacity, now, resyncMillis))
+                .toList();
+        if (toLoad.isEmpty()) {
+            return;
+        }
+        Map<Integer, List<SalesSignal>> loaded = salesRepository.findLatestSignalsByMachineIds(toLoad, capacity);
+        for (Integer machineId : toLoad) {
+            windows.put(machineId, new MachineTransactionWindow(capacity, loaded.getOrDefault(machineId, Collections.emptyList()), now));
+        }
+        LOGGER.debug("Transaction stream loaded {} machine windows (capacity {})", toLoad.size(), capacity);
+    }
+
+    private static boolean needsLoad(MachineTransactionWindow window, int capacity, long now, long resyncMillis) {
+        return window == null || window.capacity() < capacity || now - window.loadedAtMillis() > resyncMillis;
+    }
+
+    private int windowCapacity() {
+        int capacity = windowCapacity;
+        if (capacity == 0) {
+            capacity = detectors.orderedStream().mapToInt(TransactionDetector::requiredWindowSize).max().orElse(1);
+            windowCapacity = Math.max(1, capacity);
+            LOGGER.info("Transaction stream window capacity set to {} transactions per machine", windowCapacity);
+        }
+        return windowCapacity;
+    }
+}
@@ -0,0 +1,67 @@
+package com.grabit.cba.VendingMachineAlertService.service.stream;
+
+import com.grabit.cba.VendingMachineAlertService.database.model.projection.SalesSignal;
+import com.grabit.cba.VendingMachineAlertService.enums.TransactionTypes;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Read view of a machine's latest transactions, indexed newest first (index 0 is the latest transaction).
+ * <p>
+ * Status is exposed as {@link TransactionTypes#code()} and time as epoch millis so detectors can evaluate a window
+ * without allocating. Methods taking a {@code limit} only look at the newest {@code limit} transactions. A window
+ * never changes once handed out, so the transaction at an index is the same across calls.
+ */
+public interface TransactionWindow {
+
+    int size();
+
+    int id(int index);
+
+    long epochMillis(int index);
+
+    LocalDateTime dateTime(int index);
+
+    byte statusCode(int index);
+
+    boolean isTimeout(int index);
+
+    /**
+     * Number of transactions with the given status code among the newest {@code limit}
+     */
+    int count(byte statusCode, int limit);
+
+    /**
+     * Number of transactions whose status is in the {@link TransactionTypes#mask()} union among the newest {@code limit}
+     */
+    int countMatching(int statusMask, int limit);
+
+    /**
+     * Length of the run of transactions whose status is in the mask, starting at the newest one
+     */
+    int leadingRunMatching(int statusMask, int limit);
+
+    /**
+     * Longest run of transactions with the given status code among the newest {@code limit}
+     */
+    int maxRun(byte statusCode, int limit);
+
+    /**
+     * Number of timed out transactions among the newest {@code limit}
+     */
+    int timeoutCount(int limit);
+
+    /**
+     * Longest run of timed out transactions among the newest {@code limit}
+     */
+    int maxTimeoutRun(int limit);
+
+    /**
+     * Standalone window over an already fetched list of transactions (newest first), for one-off evaluations that
+     * bypass the shared stream
+     */
+    static TransactionWindow of(List<SalesSignal> latestNewestFirst) {
+        return new MachineTransactionWindow(Math.max(1, latestNewestFirst.size()), latestNewestFirst, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,176 @@
+package com.grabit.cba.VendingMachineAlertService.service.template;
+
+import org.thymeleaf.context.Context;
+
+import java.util.List;
+
+/**
+ * Typed model of one alert mail template. Each record binds exactly the variables its template reads, so building a
+ * mail no longer allocates a property map per alert; {@code year} is bound by {@link AlertTemplateRenderer}.
+ */
+public sealed interface AlertMailModel {
+
+    /** All templates under src/main/resources/templates, pre-parsed at startup. */
+    List<String> TEMPLATES = List.of(Timeout.TEMPLATE, ConsecutiveVoidComplete.TEMPLATE, OfflineMachine.TEMPLATE,
+            SaleFailed.TEMPLATE, VoidFailed.TEMPLATE, HourlyBaselineDrop.TEMPLATE);
+
+    String templateName();
+
+    void bind(Context context);
+
+    record Timeout(String vendingSerialNumber, String vmName, int totalTransactions, int timeoutCount,
+                   int consecutiveTimeoutCount, String timeoutPercentage, Integer terminateCode, Integer productLockCount,
+                   String merchantName, String location) implements AlertMailModel {
+
+        static final String TEMPLATE = "Timeout";
+
+        @Override
+        public String templateName() {
+            return TEMPLATE;
+        }
+
+        @Override
+        public void bind(Context context) {
+            context.setVariable("vendingSerialNumber", vendingSerialNumber);
+            context.setVariable("vmName", vmName);
+            context.setVariable("totalTransactions", totalTransactions);
+            context.setVariable("timeoutCount", timeoutCount);
+            context.setVariable("consecutiveTimeoutCount", consecutiveTimeoutCount);
+            context.setVariable("timeoutPercentage", timeoutPercentage);
+            context.setVariable("terminateCode", terminateCode);
+            context.setVariable("productLockCount", productLockCount);
+            context.setVariable("merchantName", merchantName);
+            context.setVariable("location", location);
+        }
+    }
+
+    record ConsecutiveVoidComplete(String vendingSerialNumber, String vmName, int consecutiveVoidCount,
+                                   Integer terminateCode, Integer productLockCount, String merchantName,
+                                   String location) implements AlertMailModel {
+
+        static final String TEMPLATE = "Consecutive_void_complete";
+
+        @Override
+        public String templateName() {
+            return TEMPLATE;
+        }
+
+        @Override
+        public void bind(Context context) {
+            context.setVariable("vendingSerialNumber", vendingSerialNumber);
+            context.setVariable("vmName", vmName);
+            context.setVariable("consecutiveVoidCount", consecutiveVoidCount);
+            context.setVariable("terminateCode", terminateCode);
+            context.setVariable("productLockCount", productLockCount);
+            context.setVariable("merchantName", merchantName);
+            context.setVariable("location", location);
+        }
+    }
+
+    record OfflineMachine(String vendingSerialNumber, String vmName, String offlineSince, String offlineDuration,
+                          String merchantName, String merchantAddress) implements AlertMailModel {
+
+        static final String TEMPLATE = "Offline_vm";
+
+        @Override
+        public String templateName() {
+            return TEMPLATE;
+        }
+
+        @Override
+        public void bind(Context context) {
+            context.setVariable("vendingSerialNumber", vendingSerialNumber);
+            context.setVariable("vmName", vmName);
+            context.setVariable("offlineSince", offlineSince);
+            context.setVariable("offlineDuration", offlineDuration);
+            context.setVariable("merchantName", merchantName);
+            context.setVariable("merchantAddress", merchantAddress);
+            context.setVariable("location", merchantAddress);
+        }
+    }
+
+    record SaleFailed(String vendingSerialNumber, String vmName, Integer failureCount, String lastFailureTimeFormatted,
+                      List<String> detectedIssues, String merchantName, String terminateCode, String productLockCount,
+                      String location) implements AlertMailModel {
+
+        static final String TEMPLATE = "Sale_failed";
+
+        @Override
+        public String templateName() {
+            return TEMPLATE;
+        }
+
+        @Override
+        public void bind(Context context) {
+            context.setVariable("vendingSerialNumber", vendingSerialNumber);
+            context.setVariable("vmName", vmName);
+            context.setVariable("failureCount", failureCount);
+            context.setVariable("lastFailureTimeFormatted", lastFailureTimeFormatted);
+            context.setVariable("detectedIssues", detectedIssues);
+            context.setVariable("merchantName", merchantName);
+            context.setVariable("terminateCode", terminateCode);
+            context.setVariable("productLockCount", productLockCount);
+            context.setVariable("location", location);
+        }
+    }
+
+    record VoidFailed(Integer transactionId, String transactionDateTime, String transactionAmount, String tranInvoiceNo,
+                      String tranBatchNo, String terminalId, String merchantId, String tranApproveCode, String maskedPan,
+                      Integer discount, String vendingSerialNumber, String vmName, Integer terminateCode,
+                      Integer productLockCount, String merchantName, String location) implements AlertMailModel {
+
+        static final String TEMPLATE = "Void_failed";
+
+        @Override
+        public String templateName() {
+            return TEMPLATE;
+        }
+
+        @Override
+        public void bind(Context context) {
+            context.setVariable("transactionId", transactionId);
+            context.setVariable("transactionDateTime", transactionDateTime);
+            context.setVariable("transactionAmount", transactionAmount);
+            context.setVariable("tranInvoiceNo", tranInvoiceNo);
+            context.setVariable("tranBatchNo", tranBatchNo);
+            context.setVariable("terminalId", terminalId);
+            context.setVariable("merchantId", merchantId);
+            context.setVariable("tranApproveCode", tranApproveCode);
+            context.setVariable("maskedPan", maskedPan);
+            context.setVariable("discount", discount);
+            context.setVariable("vendingSerialNumber", vendingSerialNumber);
+            context.setVariable("vmName", vmName);
+            context.setVariable("terminateCode", terminateCode);
+            context.setVariable("productLockCount", productLockCount);
+            context.setVariable("merchantName", merchantName);
+            context.setVariable("location", location);
+        }
+    }
+
+    /**
+     * @param rows beans exposing serial, vmName, baselineCompleted, nowCompleted, nowFailed, nowVoidCompleted and
+     *             nowVoidFailed
+     */
+    record HourlyBaselineDrop(String partner, int hourOfDay, String windowStart, String windowEnd,
+                              String thresholdPercent, List<?> rows, String now) implements AlertMailModel {
+
+        static final String TEMPLATE = "Hourly_baseline_drop";
+
+        @Override
+        public String templateName() {
+            return TEMPLATE;
+        }
+
+        @Override
+        public void bind(Context context) {
+            context.setVariable("partner", partner);
+            context.setVariable("hourOfDay", hourOfDay);
+            context.setVariable("windowStart", windowStart);
+            context.setVariable("windowEnd", windowEnd);
+            context.setVariable("thresholdPercent", thresholdPercent);
+            context.setVariable("rows", rows);
+            context.setVariable("count", rows == null ? 0 : rows.size());
+            context.setVariable("now", now);
+        }
+    }
+}
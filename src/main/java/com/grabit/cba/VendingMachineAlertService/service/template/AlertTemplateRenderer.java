@@ -0,0 +1,108 @@
+package com.grabit.cba.VendingMachineAlertService.service.template;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.io.Writer;
+import java.time.Year;
+
+/**
+ * Renders alert mail templates from {@link AlertMailModel} records.
+ * <p>
+ * Every template is parsed once at startup so the first alert of a storm does not pay for parsing, and later renders
+ * hit Thymeleaf's template cache. Each thread reuses one {@link Context} and one output buffer, so a render allocates
+ * little beyond the resulting String.
+ */
+@Component
+public class AlertTemplateRenderer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AlertTemplateRenderer.class);
+
+    // A buffer that grew beyond this (e.g. a large partner summary) is not kept for the next render
+    private static final int MAX_RETAINED_BUFFER_CHARS = 256 * 1024;
+
+    private final TemplateEngine templateEngine;
+
+    private final ThreadLocal<Context> contexts = ThreadLocal.withInitial(Context::new);
+    private final ThreadLocal<StringBuilderWriter> buffers = ThreadLocal.withInitial(StringBuilderWriter::new);
+
+    public AlertTemplateRenderer(TemplateEngine templateEngine) {
+        this.templateEngine = templateEngine;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long started = System.currentTimeMillis();
+        for (String template : AlertMailModel.TEMPLATES) {
+            try {
+                render(template, null);
+            } catch (Exception ex) {
+                LOGGER.warn("Could not pre-parse template {}: {}", template, ex.getMessage());
+            }
+        }
+        LOGGER.info("Pre-parsed {} alert templates in {} ms", AlertMailModel.TEMPLATES.size(), System.currentTimeMillis() - started);
+    }
+
+    public String render(AlertMailModel model) {
+        return render(model.templateName(), model);
+    }
+
+    private String render(String template, AlertMailModel model) {
+        Context context = contexts.get();
+        StringBuilderWriter buffer = buffers.get();
+        try {
+            context.setVariable("year", Year.now().getValue());
+            if (model != null) {
+                model.bind(context);
+            }
+            templateEngine.process(template, context, buffer);
+            return buffer.builder.toString();
+        } finally {
+            context.clearVariables();
+            if (buffer.builder.capacity() > MAX_RETAINED_BUFFER_CHARS) {
+                buffers.remove();
+            } else {
+                buffer.builder.setLength(0);
+            }
+        }
+    }
+
+    // Unsynchronized StringWriter replacement; each instance is confined to one thread
+    private static final class StringBuilderWriter extends Writer {
+        private final StringBuilder builder = new StringBuilder(16 * 1024);
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            builder.append(cbuf, off, len);
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            builder.append(str, off, off + len);
+        }
+
+        @Override
+        public void write(int c) {
+            builder.append((char) c);
+        }
+
+        @Override
+        public Writer append(CharSequence csq) {
+            builder.append(csq);
+            return this;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.grabit.cba.VendingMachineAlertService.service.topology;
+
+import com.grabit.cba.VendingMachineAlertService.database.model.other.Merchants;
+import com.grabit.cba.VendingMachineAlertService.database.model.other.Partners;
+import com.grabit.cba.VendingMachineAlertService.database.model.other.VendingMachine;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Immutable partner → merchant → vending machine snapshot, indexed by machine id, serial number, merchant id and
+ * partner id. The entities it holds are detached and shared between threads; treat them as read-only.
+ * <p>
+ * Active/offline machine lists follow the same rules as {@code VMRepository.findActiveByMerchantIds} /
+ * {@code findOfflineByMerchantIds} over {@code MerchantsRepository.findIdsByPartnerIds}: machine and merchant not
+ * deleted, machine status 1 (active) or 0 (offline).
+ */
+public final class FleetTopology {
+
+    static final FleetTopology EMPTY = new FleetTopology(List.of(), LocalDateTime.MIN);
+
+    private static final int STATUS_ACTIVE = 1;
+    private static final int STATUS_OFFLINE = 0;
+
+    private final LocalDateTime loadedAt;
+    private final Map<Integer, VendingMachine> machinesById = new HashMap<>();
+    private final Map<String, VendingMachine> machinesBySerial = new HashMap<>();
+    private final Map<Integer, Merchants> merchantsById = new HashMap<>();
+    private final Map<Integer, Partners> partnersById = new HashMap<>();
+    private final List<Partners> partners;
+    private final Map<Integer, List<Integer>> merchantIdsByPartner = new HashMap<>();
+    private final Map<Integer, List<VendingMachine>> machinesByPartner = new HashMap<>();
+    private final Map<Integer, List<VendingMachine>> activeMachinesByPartner = new HashMap<>();
+    private final Map<Integer, List<VendingMachine>> offlineMachinesByPartner = new HashMap<>();
+
+    FleetTopology(List<Node> nodes, LocalDateTime loadedAt) {
+        this.loadedAt = loadedAt;
+        Map<Integer, Set<Integer>> merchantIds = new HashMap<>();
+        for (Node node : nodes) {
+            VendingMachine vm = node.machine();
+            machinesById.put(vm.getId(), vm);
+            if (vm.getSerialNo() != null) {
+                machinesBySerial.put(vm.getSerialNo(), vm);
+            }
+            Merchants merchant = node.merchant();
+            if (merchant == null) {
+                continue;
+            }
+            merchantsById.put(merchant.getId(), merchant);
+            Partners partner = node.partner();
+            if (partner == null) {
+                continue;
+            }
+            partnersById.put(partner.getId(), partner);
+            if (!Boolean.TRUE.equals(vm.getIsDeleted())) {
+                machinesByPartner.computeIfAbsent(partner.getId(), k -> new ArrayList<>()).add(vm);
+            }
+            if (Boolean.TRUE.equals(merchant.getIsDeleted())) {
+                continue;
+            }
+            merchantIds.computeIfAbsent(partner.getId(), k -> new TreeSet<>()).add(merchant.getId());
+            if (Boolean.TRUE.equals(vm.getIsDeleted()) || vm.getStatus() == null) {
+                continue;
+            }
+            if (vm.getStatus() == STATUS_ACTIVE) {
+                activeMachinesByPartner.computeIfAbsent(partner.getId(), k -> new ArrayList<>()).add(vm);
+            } else if (vm.getStatus() == STATUS_OFFLINE) {
+                offlineMachinesByPartner.computeIfAbsent(partner.getId(), k -> new ArrayList<>()).add(vm);
+            }
+        }
+        merchantIds.forEach((partnerId, ids) -> merchantIdsByPartner.put(partnerId, List.copyOf(ids)));
+        machinesByPartner.replaceAll((partnerId, machines) -> machines.stream()
+                .sorted(Comparator.comparing(VendingMachine::getId)).toList());
+        activeMachinesByPartner.replaceAll((partnerId, machines) -> List.copyOf(machines));
+        offlineMachinesByPartner.replaceAll((partnerId, machines) -> List.copyOf(machines));
+        List<Partners> sorted = new ArrayList<>(partnersById.values());
+        sorted.sort(Comparator.comparing(Partners::getId));
+        this.partners = List.copyOf(sorted);
+    }
+
+    /**
+     * Partners that own at least one vending machine, ordered by id.
+     */
+    public List<Partners> partners() {
+        return partners;
+    }
+
+    public Partners partner(Integer partnerId) {
+        return partnerId == null ? null : partnersById.get(partnerId);
+    }
+
+    public Merchants merchant(Integer merchantId) {
+        return merchantId == null ? null : merchantsById.get(merchantId);
+    }
+
+    public VendingMachine machine(Integer machineId) {
+        return machineId == null ? null : machinesById.get(machineId);
+    }
+
+    public VendingMachine machineBySerial(String serialNo) {
+        return serialNo == null ? null : machinesBySerial.get(serialNo);
+    }
+
+    /**
+     * Partner owning the machine through its merchant, or null.
+     */
+    public Partners partnerOf(VendingMachine vm) {
+        Merchants merchant = vm == null ? null : merchant(vm.getMerchantId());
+        return merchant == null ? null : partner(merchant.getPartnerId());
+    }
+
+    /**
+     * Ids of the partner's non-deleted merchants that own at least one machine.
+     */
+    public List<Integer> merchantIds(Integer partnerId) {
+        return merchantIdsByPartner.getOrDefault(partnerId, List.of());
+    }
+
+    /**
+     * The partner's non-deleted machines of any status, also those of deleted merchants, ordered by id.
+     */
+    public List<VendingMachine> machines(Integer partnerId) {
+        return machinesByPartner.getOrDefault(partnerId, List.of());
+    }
+
+    public List<VendingMachine> activeMachines(Integer partnerId) {
+        return activeMachinesByPartner.getOrDefault(partnerId, List.of());
+    }
+
+    public List<VendingMachine> offlineMachines(Integer partnerId) {
+        return offlineMachinesByPartner.getOrDefault(partnerId, List.of());
+    }
+
+    public Collection<VendingMachine> machines() {
+        return Collections.unmodifiableCollection(machinesById.values());
+    }
+
+    public int machineCount() {
+        return machinesById.size();
+    }
+
+    public LocalDateTime loadedAt() {
+        return loadedAt;
+    }
+
+    record Node(VendingMachine machine, Merchants merchant, Partners partner) {
+    }
+}
@@ -0,0 +1,109 @@
+package com.grabit.cba.VendingMachineAlertService.service.topology;
+
+import com.grabit.cba.VendingMachineAlertService.database.model.other.Merchants;
+import com.grabit.cba.VendingMachineAlertService.database.model.other.Partners;
+import com.grabit.cba.VendingMachineAlertService.database.model.other.VendingMachine;
+import com.grabit.cba.VendingMachineAlertService.database.repository.VMRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link FleetTopology}. The snapshot is built from one join query over VendingMachines, Merchants
+ * and Partners and swapped atomically; readers keep whatever snapshot they took for the rest of their cycle.
+ * <p>
+ * The source tables have no change tracking columns, so a refresh re-reads the join and keeps the previous entity
+ * instances for rows that did not change. When nothing changed the snapshot is not replaced at all.
+ */
+@Service
+public class FleetTopologyService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FleetTopologyService.class);
+
+    private final VMRepository vmRepository;
+
+    private final AtomicReference<FleetTopology> current = new AtomicReference<>();
+
+    public FleetTopologyService(VMRepository vmRepository) {
+        this.vmRepository = vmRepository;
+    }
+
+    /**
+     * Current snapshot; loaded on first use.
+     */
+    public FleetTopology current() {
+        FleetTopology topology = current.get();
+        return topology != null ? topology : refresh();
+    }
+
+    /**
+     * Re-read the fleet and publish a new snapshot if anything changed.
+     *
+     * @return the snapshot in use after the refresh
+     */
+    public synchronized FleetTopology refresh() {
+        FleetTopology previous = current.get();
+        FleetTopology base = previous != null ? previous : FleetTopology.EMPTY;
+
+        List<Object[]> rows = vmRepository.findFleetTopologyRows();
+        List<FleetTopology.Node> nodes = new ArrayList<>(rows.size());
+        int added = 0;
+        int changed = 0;
+        for (Object[] row : rows) {
+            VendingMachine vm = (VendingMachine) row[0];
+            Merchants merchant = (Merchants) row[1];
+            Partners partner = (Partners) row[2];
+
+            // Reuse unchanged instances so a refresh does not churn objects held by running monitors
+            VendingMachine knownVm = base.machine(vm.getId());
+            if (knownVm == null) {
+                added++;
+            } else if (sameMachine(knownVm, vm)) {
+                vm = knownVm;
+            } else {
+                changed++;
+            }
+            Merchants knownMerchant = merchant == null ? null : base.merchant(merchant.getId());
+            if (knownMerchant != null && knownMerchant.equals(merchant)) {
+                merchant = knownMerchant;
+            } else if (merchant != null && previous != null) {
+                changed++;
+            }
+            Partners knownPartner = partner == null ? null : base.partner(partner.getId());
+            if (knownPartner != null && knownPartner.equals(partner)) {
+                partner = knownPartner;
+            } else if (partner != null && previous != null) {
+                changed++;
+            }
+            nodes.add(new FleetTopology.Node(vm, merchant, partner));
+        }
+        int removed = base.machineCount() - (rows.size() - added);
+
+        if (previous != null && added == 0 && changed == 0 && removed == 0) {
+            LOGGER.debug("Fleet topology unchanged ({} machines)", previous.machineCount());
+            return previous;
+        }
+        FleetTopology topology = new FleetTopology(nodes, LocalDateTime.now());
+        current.set(topology);
+        LOGGER.info("Fleet topology loaded: {} machines, {} partners (added={}, changed={}, removed={})",
+                topology.machineCount(), topology.partners().size(), added, changed, removed);
+        return topology;
+    }
+
+    // VendingMachine.equals only compares id and serial number
+    private static boolean sameMachine(VendingMachine a, VendingMachine b) {
+        return Objects.equals(a.getSerialNo(), b.getSerialNo())
+                && Objects.equals(a.getMerchantId(), b.getMerchantId())
+                && Objects.equals(a.getIsDeleted(), b.getIsDeleted())
+                && Objects.equals(a.getName(), b.getName())
+                && Objects.equals(a.getStatus(), b.getStatus())
+                && Objects.equals(a.getTerminateCode(), b.getTerminateCode())
+                && Objects.equals(a.getProductLockCount(), b.getProductLockCount());
+    }
+}
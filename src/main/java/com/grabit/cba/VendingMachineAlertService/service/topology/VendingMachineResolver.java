@@ -0,0 +1,168 @@
+package com.grabit.cba.VendingMachineAlertService.service.topology;
+
+import com.grabit.cba.VendingMachineAlertService.database.model.other.VendingMachine;
+import com.grabit.cba.VendingMachineAlertService.database.repository.VMRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps machine serial numbers and ids to {@link VendingMachine} rows without touching the database on the hot path.
+ * <p>
+ * Lookups are answered from the indexes of the current {@link FleetTopology}; the topology refresh is the bulk refresh
+ * of this index. Serials or ids missing from the snapshot (machines registered after the last refresh) are loaded in
+ * one batched query per call and remembered, including misses, until the next snapshot is published.
+ */
+@Service
+public class VendingMachineResolver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VendingMachineResolver.class);
+
+    // Upper bound for the IN list of a single miss-loader query
+    private static final int MISS_BATCH_SIZE = 500;
+
+    private final FleetTopologyService fleetTopologyService;
+    private final VMRepository vmRepository;
+
+    // Machines loaded outside the snapshot; Optional.empty() records a serial/id that does not exist
+    private final Map<String, Optional<VendingMachine>> extraBySerial = new ConcurrentHashMap<>();
+    private final Map<Integer, Optional<VendingMachine>> extraById = new ConcurrentHashMap<>();
+    private volatile FleetTopology extrasLoadedFor;
+
+    public VendingMachineResolver(FleetTopologyService fleetTopologyService, VMRepository vmRepository) {
+        this.fleetTopologyService = fleetTopologyService;
+        this.vmRepository = vmRepository;
+    }
+
+    public Optional<VendingMachine> bySerial(String serialNo) {
+        if (serialNo == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(bySerials(List.of(serialNo)).get(serialNo));
+    }
+
+    public Optional<VendingMachine> byId(Integer machineId) {
+        if (machineId == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(byIds(List.of(machineId)).get(machineId));
+    }
+
+    public Integer idOf(String serialNo) {
+        return bySerial(serialNo).map(VendingMachine::getId).orElse(null);
+    }
+
+    /**
+     * Resolve many serials at once; unknown serials are absent from the returned map.
+     */
+    public Map<String, VendingMachine> bySerials(Collection<String> serialNos) {
+        FleetTopology topology = topology();
+        Map<String, VendingMachine> result = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String serialNo : serialNos) {
+            if (serialNo == null || result.containsKey(serialNo)) {
+                continue;
+            }
+            VendingMachine vm = topology.machineBySerial(serialNo);
+            if (vm == null) {
+                Optional<VendingMachine> extra = extraBySerial.get(serialNo);
+                if (extra == null) {
+                    missing.add(serialNo);
+                    continue;
+                }
+                vm = extra.orElse(null);
+            }
+            if (vm != null) {
+                result.put(serialNo, vm);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Set<String> notFound = new HashSet<>(missing);
+            for (int from = 0; from < missing.size(); from += MISS_BATCH_SIZE) {
+                List<String> chunk = missing.subList(from, Math.min(from + MISS_BATCH_SIZE, missing.size()));
+                for (VendingMachine vm : vmRepository.findBySerialNoIn(chunk)) {
+                    remember(vm);
+                    result.put(vm.getSerialNo(), vm);
+                    notFound.remove(vm.getSerialNo());
+                }
+            }
+            notFound.forEach(serialNo -> extraBySerial.put(serialNo, Optional.empty()));
+            LOGGER.debug("Loaded {} machine serials outside the fleet snapshot ({} unknown)", missing.size() - notFound.size(), notFound.size());
+        }
+        return result;
+    }
+
+    /**
+     * Resolve many ids at once; unknown ids are absent from the returned map.
+     */
+    public Map<Integer, VendingMachine> byIds(Collection<Integer> machineIds) {
+        FleetTopology topology = topology();
+        Map<Integer, VendingMachine> result = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer machineId : machineIds) {
+            if (machineId == null || result.containsKey(machineId)) {
+                continue;
+            }
+            VendingMachine vm = topology.machine(machineId);
+            if (vm == null) {
+                Optional<VendingMachine> extra = extraById.get(machineId);
+                if (extra == null) {
+                    missing.add(machineId);
+                    continue;
+                }
+                vm = extra.orElse(null);
+            }
+            if (vm != null) {
+                result.put(machineId, vm);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Set<Integer> notFound = new HashSet<>(missing);
+            for (int from = 0; from < missing.size(); from += MISS_BATCH_SIZE) {
+                List<Integer> chunk = missing.subList(from, Math.min(from + MISS_BATCH_SIZE, missing.size()));
+                for (VendingMachine vm : vmRepository.findAllById(chunk)) {
+                    remember(vm);
+                    result.put(vm.getId(), vm);
+                    notFound.remove(vm.getId());
+                }
+            }
+            notFound.forEach(machineId -> extraById.put(machineId, Optional.empty()));
+        }
+        return result;
+    }
+
+    /**
+     * Re-read the fleet now instead of waiting for the scheduled topology refresh.
+     */
+    public void refresh() {
+        fleetTopologyService.refresh();
+        topology();
+    }
+
+    // Current snapshot; machines remembered against an older snapshot are dropped once a new one is published
+    private FleetTopology topology() {
+        FleetTopology topology = fleetTopologyService.current();
+        if (topology != extrasLoadedFor) {
+            synchronized (this) {
+                if (topology != extrasLoadedFor) {
+                    extraBySerial.clear();
+                    extraById.clear();
+                    extrasLoadedFor = topology;
+                }
+            }
+        }
+        return topology;
+    }
+
+    private void remember(VendingMachine vm) {
+        if (vm.getSerialNo() != null) {
+            extraBySerial.put(vm.getSerialNo(), Optional.of(vm));
+        }
+        if (vm.getId() != null) {
+            extraById.put(vm.getId(), Optional.of(vm));
+        }
+    }
+}
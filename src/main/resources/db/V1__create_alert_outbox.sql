@@ -0,0 +1,58 @@
+CREATE TABLE IF NOT EXISTS Alert_Outbox (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+
+    -- Delivery identity: unique per queued mail, dedupeKey groups mails for the same alert
+    idempotencyKey VARCHAR(64) NOT NULL,
+    dedupeKey VARCHAR(255) NULL,
+
+    -- Mail payload
+    mailFrom VARCHAR(255) NULL,
+    mailTo TEXT NOT NULL,
+    mailCc TEXT NULL,
+    mailBcc TEXT NULL,
+    subject VARCHAR(998) NULL,
+    body MEDIUMTEXT NULL,
+    html BIT(1) NOT NULL DEFAULT b'1',
+    logo MEDIUMTEXT NULL,
+
+    -- Delivery state: PENDING -> SENDING -> SENT, or FAILED after the last attempt
+    status VARCHAR(16) NOT NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    nextAttemptAt DATETIME(6) NOT NULL,
+    claimedBy VARCHAR(255) NULL,
+    claimedUntil DATETIME(6) NULL,
+    lastError VARCHAR(1000) NULL,
+    sentAt DATETIME(6) NULL,
+
+    createdAt DATETIME(6) NOT NULL,
+    updatedAt DATETIME(6) NOT NULL,
+
+    CONSTRAINT uk_alert_outbox_idempotency_key UNIQUE (idempotencyKey),
+
+    -- Claim scan (status, due time) and in-flight dedupe lookups
+    INDEX idx_alert_outbox_status_next_attempt (status, nextAttemptAt),
+    INDEX idx_alert_outbox_dedupe_status (dedupeKey, status)
+    ) ENGINE=InnoDB
+    DEFAULT CHARSET=utf8mb4
+    COLLATE=utf8mb4_unicode_ci;
+
+-- Alert_History rows to write once the outbox mail is confirmed sent
+CREATE TABLE IF NOT EXISTS Alert_Outbox_History (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    outboxId BIGINT NOT NULL,
+    vendingMachineId INT NULL,
+    vendingMachineSerial VARCHAR(255) NULL,
+    transactionId INT NULL,
+    alertTypeId INT NOT NULL,
+    partnerName VARCHAR(255) NULL,
+    lastSentAt DATETIME(6) NULL COMMENT 'Fixed send time to record; NULL records the delivery time',
+
+    CONSTRAINT fk_alert_outbox_history_outbox
+    FOREIGN KEY (outboxId) REFERENCES Alert_Outbox(id) ON DELETE CASCADE,
+    CONSTRAINT fk_alert_outbox_history_alert_type
+    FOREIGN KEY (alertTypeId) REFERENCES Alert_Type(id),
+
+    INDEX idx_alert_outbox_history_outbox (outboxId)
+    ) ENGINE=InnoDB
+    DEFAULT CHARSET=utf8mb4
+    COLLATE=utf8mb4_unicode_ci;
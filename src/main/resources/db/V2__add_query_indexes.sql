@@ -0,0 +1,39 @@
+-- Covering indexes for the repository queries. Every statement keeps the table online (INPLACE, no lock) so the
+-- script can be applied to the live Sales table; run it once after the V1 scripts.
+-- The expected plan of each query is listed in QueryPlanCatalog (src/test) and checked by QueryPlanTest.
+
+-- Cooldown lookups: latest row per (machine, alert type) or (transaction, alert type), ORDER BY lastSentAt DESC, id DESC
+-- (id is the implicit suffix). The transaction index supersedes idx_alert_history_transaction_alert_type.
+ALTER TABLE Alert_History
+    ADD INDEX idx_alert_history_vm_type_sent (vendingMachineId, alertTypeId, lastSentAt),
+    ADD INDEX idx_alert_history_serial_type_sent (vendingMachineSerial, alertTypeId, lastSentAt),
+    ADD INDEX idx_alert_history_transaction_type_sent (transactionId, alertTypeId, lastSentAt),
+    DROP INDEX idx_alert_history_transaction_alert_type,
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+-- Transaction windows: newest transactions of a machine, ORDER BY dateTime DESC, id DESC (LATERAL and per-serial
+-- queries) and date-range scans for baselines and hourly counts
+ALTER TABLE Sales
+    ADD INDEX idx_sales_vm_datetime_id (vendingMachineId, dateTime, id),
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+-- Active / offline machines of a set of merchants
+ALTER TABLE VendingMachines
+    ADD INDEX idx_vending_machines_merchant_status (merchantId, status),
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+-- Merchants of a partner, and the topology join Merchants -> Partners
+ALTER TABLE Merchants
+    ADD INDEX idx_merchants_partner (partnerId),
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+-- Report lookups by partner name
+ALTER TABLE Partners
+    ADD INDEX idx_partners_name (name),
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+-- Outbox: expired SENDING leases in the claim query and the purge of old SENT rows
+ALTER TABLE Alert_Outbox
+    ADD INDEX idx_alert_outbox_status_claimed_until (status, claimedUntil),
+    ADD INDEX idx_alert_outbox_status_updated (status, updatedAt),
+    ALGORITHM = INPLACE, LOCK = NONE;
@@ -0,0 +1,26 @@
+-- Transaction counts per machine and hour, maintained incrementally from new Sales rows; the median baseline job
+-- reads these instead of the raw Sales history
+CREATE TABLE IF NOT EXISTS Alert_Sales_Hourly_Rollup (
+    machineId INT NOT NULL,
+    saleDate DATE NOT NULL,
+    hourOfDay TINYINT NOT NULL,
+    salesCompleted INT NOT NULL DEFAULT 0,
+    salesFailed INT NOT NULL DEFAULT 0,
+    voidCompleted INT NOT NULL DEFAULT 0,
+    voidFailed INT NOT NULL DEFAULT 0,
+    updatedAt DATETIME(6) NOT NULL,
+
+    PRIMARY KEY (machineId, saleDate, hourOfDay),
+    INDEX idx_alert_sales_hourly_rollup_date (saleDate)
+    ) ENGINE=InnoDB
+    DEFAULT CHARSET=utf8mb4
+    COLLATE=utf8mb4_unicode_ci;
+
+-- Highest Sales.id already counted into Alert_Sales_Hourly_Rollup (single row, id = 1)
+CREATE TABLE IF NOT EXISTS Alert_Sales_Hourly_Rollup_State (
+    id TINYINT PRIMARY KEY,
+    lastSaleId INT NOT NULL,
+    updatedAt DATETIME(6) NOT NULL
+    ) ENGINE=InnoDB
+    DEFAULT CHARSET=utf8mb4
+    COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,7 @@
+-- Commit grace of the hourly sales rollup: the newest Sales.id seen by a run and when it was seen. A later run only
+-- rolls up to that id once it is older than monitor.rollup.commitGraceSeconds, so a row committed late with a lower
+-- id is still counted. Run it once after V3.
+ALTER TABLE Alert_Sales_Hourly_Rollup_State
+    ADD COLUMN pendingSaleId INT NULL,
+    ADD COLUMN pendingSinceMillis BIGINT NULL,
+    ALGORITHM = INPLACE, LOCK = NONE;
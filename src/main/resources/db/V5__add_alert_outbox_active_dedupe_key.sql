@@ -0,0 +1,19 @@
+-- Only one outbox mail per alert in flight, enforced by the database: activeDedupeKey holds the dedupeKey while the
+-- mail is PENDING or SENDING and is cleared once it is SENT or FAILED, so two instances enqueueing the same alert at
+-- once cannot both insert. Run it once after V4.
+ALTER TABLE Alert_Outbox
+    ADD COLUMN activeDedupeKey VARCHAR(255) NULL,
+    ALGORITHM = INPLACE, LOCK = NONE;
+
+-- Mails already in flight keep their key; of duplicates queued before this script only the newest one does
+UPDATE Alert_Outbox o
+    JOIN (SELECT MAX(id) AS id FROM Alert_Outbox
+          WHERE status IN ('PENDING', 'SENDING') AND dedupeKey IS NOT NULL
+          GROUP BY dedupeKey) a ON a.id = o.id
+SET o.activeDedupeKey = o.dedupeKey;
+
+-- The unique key replaces the (dedupeKey, status) lookup index
+ALTER TABLE Alert_Outbox
+    ADD CONSTRAINT uk_alert_outbox_active_dedupe_key UNIQUE (activeDedupeKey),
+    DROP INDEX idx_alert_outbox_dedupe_status,
+    ALGORITHM = INPLACE, LOCK = NONE;
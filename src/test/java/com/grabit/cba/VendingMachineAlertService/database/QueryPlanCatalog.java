@@ -0,0 +1,127 @@
+package com.grabit.cba.VendingMachineAlertService.database;
+
+import com.grabit.cba.VendingMachineAlertService.database.model.AlertType;
+import com.grabit.cba.VendingMachineAlertService.database.repository.AlertHistoryRepository;
+import com.grabit.cba.VendingMachineAlertService.database.repository.AlertHourlySalesBaselineRepository;
+import com.grabit.cba.VendingMachineAlertService.database.repository.SalesRepository;
+import com.grabit.cba.VendingMachineAlertService.database.repository.VMRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Call of every query method of the repositories on the monitor hot path, with the plan its statements are expected
+ * to get. {@code QueryPlanTest} makes the call through Hibernate with the MySQL dialect and explains what is actually
+ * prepared, so the plans follow the {@code @Query} text and the paging of the callers. Arguments come from
+ * {@link Samples} taken from the target database. A method added to one of the {@link #REPOSITORIES} without an entry
+ * here fails {@code QueryPlanTest}.
+ */
+final class QueryPlanCatalog {
+
+    static final List<Class<?>> REPOSITORIES = List.of(SalesRepository.class, AlertHistoryRepository.class, VMRepository.class,
+            AlertHourlySalesBaselineRepository.class);
+
+    static final Map<String, PlanCase> CASES = new LinkedHashMap<>();
+
+    static {
+        // SalesRepository, paged like its callers
+        add(SalesRepository.class, "findLatestByMachineSerial",
+                (repository, samples) -> repository.findLatestByMachineSerial(samples.serial(), PageRequest.of(0, 1)));
+        add(SalesRepository.class, "findByMachineSerialAndDateBetween",
+                (repository, samples) -> repository.findByMachineSerialAndDateBetween(samples.serial(), samples.from(), samples.to()));
+        add(SalesRepository.class, "findLatestByMachineSerialAfterTransactionId",
+                (repository, samples) -> repository.findLatestByMachineSerialAfterTransactionId(samples.serial(), samples.saleId(),
+                        PageRequest.of(0, 100)));
+        add(SalesRepository.class, "findLatestByMachineSerialAfterDatetime",
+                (repository, samples) -> repository.findLatestByMachineSerialAfterDatetime(samples.serial(), samples.from(),
+                        PageRequest.of(0, 100)));
+        add(new PlanCase(SalesRepository.class, "findLatestSignalRowsByMachineIds",
+                (SalesRepository repository, Samples samples) -> repository.findLatestSignalRowsByMachineIds(samples.machineIds(), 20),
+                Set.of(), "sorts the few thousand rows of the chunk just fetched per machine"));
+        add(SalesRepository.class, "findLatestSignalsByMachineSerial",
+                (repository, samples) -> repository.findLatestSignalsByMachineSerial(samples.serial(),
+                        PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "dateTime", "id"))));
+        add(SalesRepository.class, "findSignalsByMachineSerialAndDateBetween",
+                (repository, samples) -> repository.findSignalsByMachineSerialAndDateBetween(samples.serial(), samples.from(), samples.to()));
+        add(SalesRepository.class, "countByMachineIdsAndStatusBetween",
+                (repository, samples) -> repository.countByMachineIdsAndStatusBetween(samples.machineIds(), samples.from(), samples.to()));
+        add(SalesRepository.class, "streamSignalsByMachineIdAndDateBetween",
+                (repository, samples) -> repository.streamSignalsByMachineIdAndDateBetween(samples.machineId(), samples.from(), samples.to()));
+        add(SalesRepository.class, "findMaxId", (repository, samples) -> repository.findMaxId());
+        add(SalesRepository.class, "findSignalsAfterId",
+                (repository, samples) -> repository.findSignalsAfterId(samples.saleId(), PageRequest.of(0, 5000)));
+
+        // AlertHistoryRepository, through the findLatest* defaults
+        add(AlertHistoryRepository.class, "findAllByVendingMachineAndAlertType",
+                (repository, samples) -> repository.findLatestByVendingMachineAndAlertType(samples.machineId(), samples.alertType()));
+        add(AlertHistoryRepository.class, "findAllByVendingMachineIdAndAlertTypeId",
+                (repository, samples) -> repository.findLatestByVendingMachineIdAndAlertTypeId(samples.machineId(), samples.alertTypeId()));
+        add(AlertHistoryRepository.class, "findAllByVendingMachineSerialAndAlertType",
+                (repository, samples) -> repository.findLatestByVendingMachineSerialAndAlertType(samples.serial(), samples.alertType()));
+        add(AlertHistoryRepository.class, "findAllByVendingMachineSerialAndAlertTypeId",
+                (repository, samples) -> repository.findLatestByVendingMachineSerialAndAlertTypeId(samples.serial(), samples.alertTypeId()));
+        add(AlertHistoryRepository.class, "findAllByTransactionIdAndAlertTypeId",
+                (repository, samples) -> repository.findLatestByTransactionIdAndAlertTypeId(samples.saleId(), samples.alertTypeId()));
+        add(AlertHistoryRepository.class, "countTransactionAlertsBySerialAndAlertType",
+                (repository, samples) -> repository.countTransactionAlertsBySerialAndAlertType(samples.serial(), samples.alertTypeId()));
+        add(AlertHistoryRepository.class, "findTransactionAlertsBySerialAndAlertType",
+                (repository, samples) -> repository.findTransactionAlertsBySerialAndAlertType(samples.serial(), samples.alertTypeId()));
+        add(new PlanCase(AlertHistoryRepository.class, "findLatestSendsAfterId",
+                (AlertHistoryRepository repository, Samples samples) -> repository.findLatestSendsAfterId(0),
+                Set.of("ah"), null)); // warm-up reads the whole table once per start; later calls are a primary key range
+
+        // VMRepository
+        add(VMRepository.class, "findBySerialNo", (repository, samples) -> repository.findBySerialNo(samples.serial()));
+        add(VMRepository.class, "findBySerialNoIn", (repository, samples) -> repository.findBySerialNoIn(samples.serials()));
+        add(VMRepository.class, "findActiveByMerchantIds", (repository, samples) -> repository.findActiveByMerchantIds(samples.merchantIds()));
+        add(VMRepository.class, "findOfflineByMerchantIds", (repository, samples) -> repository.findOfflineByMerchantIds(samples.merchantIds()));
+        add(new PlanCase(VMRepository.class, "findFleetTopologyRows",
+                (VMRepository repository, Samples samples) -> repository.findFleetTopologyRows(),
+                Set.of("vm"), null)); // the whole fleet is the point of this query
+
+        // AlertHourlySalesBaselineRepository
+        add(AlertHourlySalesBaselineRepository.class, "findByMachineIdsAndHourOfDay",
+                (repository, samples) -> repository.findByMachineIdsAndHourOfDay(samples.machineIds(), 12));
+    }
+
+    private QueryPlanCatalog() {
+    }
+
+    private static <R> void add(Class<R> repository, String method, Call<R> call) {
+        add(new PlanCase(repository, method, call, Set.of(), null));
+    }
+
+    private static void add(PlanCase planCase) {
+        CASES.put(key(planCase.repository(), planCase.method()), planCase);
+    }
+
+    static String key(Class<?> repository, String method) {
+        return repository.getSimpleName() + "." + method;
+    }
+
+    /**
+     * @param call            invokes {@code method}, directly or through the default method that wraps it
+     * @param fullScanAllowed table aliases that may be read with a full scan; Hibernate's generated aliases ({@code ah1_0})
+     *                        are matched by their stem ({@code ah})
+     * @param filesortReason  why a filesort is acceptable, or null when it is not
+     */
+    record PlanCase(Class<?> repository, String method, Call<?> call, Set<String> fullScanAllowed, String filesortReason) {
+    }
+
+    @FunctionalInterface
+    interface Call<R> {
+        Object invoke(R repository, Samples samples);
+    }
+
+    /**
+     * Parameter values that exist in the target database
+     */
+    record Samples(List<Integer> machineIds, Integer machineId, List<String> serials, String serial, Integer saleId,
+                   List<Integer> merchantIds, Integer alertTypeId, AlertType alertType, LocalDateTime from, LocalDateTime to) {
+    }
+}
@@ -0,0 +1,288 @@
+package com.grabit.cba.VendingMachineAlertService.database;
+
+import com.grabit.cba.VendingMachineAlertService.database.QueryPlanCatalog.Call;
+import com.grabit.cba.VendingMachineAlertService.database.QueryPlanCatalog.PlanCase;
+import com.grabit.cba.VendingMachineAlertService.database.QueryPlanCatalog.Samples;
+import com.grabit.cba.VendingMachineAlertService.database.model.AlertType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.boot.model.naming.PhysicalNamingStrategyStandardImpl;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.dialect.MySQLDialect;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards the query plans of the monitor hot path.
+ * <p>
+ * The catalog check always runs: every query method of {@link QueryPlanCatalog#REPOSITORIES} needs a plan case. The
+ * EXPLAIN checks run against a local MySQL seeded with a representative dump plus the db/*.sql scripts, selected with
+ * {@code EXPLAIN_DB_URL} (and {@code EXPLAIN_DB_USER} / {@code EXPLAIN_DB_PASSWORD}). Each case calls its repository
+ * method through Hibernate with the MySQL dialect, records the statements handed to the driver with their bindings and
+ * explains those, so a change to a {@code @Query} is planned as it will run. The statement of a native query must be
+ * the {@code @Query} value itself. The checks fail on a full table scan or a filesort the catalog does not allow.
+ */
+class QueryPlanTest {
+
+    private static final List<String> ANALYZED_TABLES = List.of("Sales", "VendingMachines", "Merchants", "Partners", "Alert_History",
+            "Alert_Hourly_Sales_Baseline");
+    private static final Pattern NAMED_PARAMETER = Pattern.compile(":\\w+");
+
+    @Test
+    void everyRepositoryQueryHasAPlanCase() {
+        Set<String> methods = new TreeSet<>();
+        for (Class<?> repository : QueryPlanCatalog.REPOSITORIES) {
+            for (Method method : repository.getDeclaredMethods()) {
+                if (!method.isDefault() && !Modifier.isStatic(method.getModifiers()) && !method.isSynthetic()) {
+                    methods.add(QueryPlanCatalog.key(repository, method.getName()));
+                }
+            }
+        }
+        assertThat(QueryPlanCatalog.CASES.keySet())
+                .as("QueryPlanCatalog entries for repository query methods")
+                .containsExactlyInAnyOrderElementsOf(methods);
+    }
+
+    @TestFactory
+    @EnabledIfEnvironmentVariable(named = "EXPLAIN_DB_URL", matches = ".+")
+    Stream<DynamicTest> repositoryQueriesUseIndexes() throws SQLException {
+        Connection connection = DriverManager.getConnection(System.getenv("EXPLAIN_DB_URL"),
+                System.getenv("EXPLAIN_DB_USER"), System.getenv("EXPLAIN_DB_PASSWORD"));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE TABLE " + String.join(", ", ANALYZED_TABLES));
+        }
+        DriverManagerDataSource target = new DriverManagerDataSource(System.getenv("EXPLAIN_DB_URL"),
+                System.getenv("EXPLAIN_DB_USER"), System.getenv("EXPLAIN_DB_PASSWORD"));
+        RecordingDataSource dataSource = new RecordingDataSource(target);
+        EntityManagerFactory entityManagerFactory = entityManagerFactory(dataSource);
+        EntityManager entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+        JpaRepositoryFactory repositoryFactory = new JpaRepositoryFactory(entityManager);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory));
+        Samples samples = samples(connection, entityManager);
+        return QueryPlanCatalog.CASES.values().stream()
+                .map(planCase -> DynamicTest.dynamicTest(QueryPlanCatalog.key(planCase.repository(), planCase.method()),
+                        () -> assertPlan(connection, planCase, prepared(planCase, repositoryFactory, transactionTemplate, dataSource, samples))))
+                .onClose(() -> {
+                    entityManagerFactory.close();
+                    try {
+                        connection.close();
+                    } catch (SQLException ignore) {
+                    }
+                });
+    }
+
+    // Hibernate as the application bootstraps it against MySQL, minus the schema handling
+    private static EntityManagerFactory entityManagerFactory(DataSource dataSource) {
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setPackagesToScan(AlertType.class.getPackageName());
+        factory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factory.setJpaPropertyMap(Map.of(
+                AvailableSettings.DIALECT, MySQLDialect.class.getName(),
+                AvailableSettings.PHYSICAL_NAMING_STRATEGY, PhysicalNamingStrategyStandardImpl.class.getName()));
+        factory.afterPropertiesSet();
+        return factory.getObject();
+    }
+
+    // Statements the repository method prepares, with their bindings; the transaction is rolled back
+    @SuppressWarnings("unchecked")
+    private static List<PreparedSql> prepared(PlanCase planCase, JpaRepositoryFactory repositoryFactory,
+                                              TransactionTemplate transactionTemplate, RecordingDataSource dataSource, Samples samples) {
+        Object repository = repositoryFactory.getRepository(planCase.repository());
+        dataSource.statements.clear();
+        transactionTemplate.executeWithoutResult(status -> {
+            status.setRollbackOnly();
+            if (((Call<Object>) planCase.call()).invoke(repository, samples) instanceof Stream<?> stream) {
+                stream.close();
+            }
+        });
+        List<PreparedSql> statements = List.copyOf(dataSource.statements);
+        assertThat(statements).as("statements of %s", planCase.method()).isNotEmpty();
+        nativeSql(planCase).ifPresent(sql -> assertThat(statements)
+                .as("statements of %s", planCase.method())
+                .anyMatch(statement -> sql.matcher(statement.sql()).matches()));
+        return statements;
+    }
+
+    // The value of a nativeQuery @Query as the driver receives it, every named parameter expanded to its placeholders
+    private static Optional<Pattern> nativeSql(PlanCase planCase) {
+        return Arrays.stream(planCase.repository().getDeclaredMethods())
+                .filter(method -> method.getName().equals(planCase.method()))
+                .map(method -> method.getAnnotation(Query.class))
+                .filter(query -> query != null && query.nativeQuery())
+                .findFirst()
+                .map(query -> {
+                    StringBuilder regex = new StringBuilder();
+                    Matcher parameter = NAMED_PARAMETER.matcher(query.value());
+                    int from = 0;
+                    while (parameter.find()) {
+                        regex.append(Pattern.quote(query.value().substring(from, parameter.start()))).append("\\?(\\s*,\\s*\\?)*");
+                        from = parameter.end();
+                    }
+                    return Pattern.compile(regex.append(Pattern.quote(query.value().substring(from))).toString());
+                });
+    }
+
+    private static void assertPlan(Connection connection, PlanCase planCase, List<PreparedSql> statements) throws Exception {
+        for (PreparedSql prepared : statements) {
+            List<String> problems = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + prepared.sql())) {
+                for (Binding binding : prepared.bindings()) {
+                    binding.setter().invoke(statement, binding.arguments());
+                }
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        String table = rs.getString("table");
+                        String type = rs.getString("type");
+                        String extra = Objects.toString(rs.getString("Extra"), "");
+                        boolean derived = table != null && table.startsWith("<");
+                        if ("ALL".equals(type) && !derived && !fullScanAllowed(planCase, table)) {
+                            problems.add("full scan of " + table + " (key candidates: " + rs.getString("possible_keys") + ")");
+                        }
+                        if (extra.contains("Using filesort") && planCase.filesortReason() == null) {
+                            problems.add("filesort on " + table + " (key: " + rs.getString("key") + ")");
+                        }
+                    }
+                }
+            }
+            assertThat(problems).as("plan of %s", prepared.sql()).isEmpty();
+        }
+    }
+
+    private static boolean fullScanAllowed(PlanCase planCase, String table) {
+        return planCase.fullScanAllowed().stream()
+                .anyMatch(alias -> alias.equals(table) || (table != null && table.matches(Pattern.quote(alias) + "\\d+_\\d+")));
+    }
+
+    private static Samples samples(Connection connection, EntityManager entityManager) throws SQLException {
+        List<List<Object>> newest = rows(connection, "SELECT vm.id, vm.serialNo, s.id, s.dateTime FROM Sales s " +
+                "JOIN VendingMachines vm ON vm.id = s.vendingMachineId ORDER BY s.id DESC LIMIT 1");
+        Object[] sale = newest.isEmpty() ? new Object[]{0, "", 0, Timestamp.valueOf(LocalDateTime.now())} : newest.get(0).toArray();
+        LocalDateTime to = sale[3] instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) sale[3];
+        Integer alertTypeId = integers(column(connection, "SELECT id FROM Alert_Type ORDER BY id LIMIT 1")).stream().findFirst().orElse(1);
+        return new Samples(
+                integers(column(connection, "SELECT id FROM VendingMachines ORDER BY id LIMIT 50")),
+                ((Number) sale[0]).intValue(),
+                column(connection, "SELECT serialNo FROM VendingMachines ORDER BY id LIMIT 50").stream().map(String::valueOf).toList(),
+                String.valueOf(sale[1]),
+                ((Number) sale[2]).intValue() - 1000,
+                integers(column(connection, "SELECT id FROM Merchants ORDER BY id LIMIT 20")),
+                alertTypeId,
+                entityManager.getReference(AlertType.class, alertTypeId),
+                to.minusHours(24),
+                to);
+    }
+
+    private static List<List<Object>> rows(Connection connection, String sql) throws SQLException {
+        List<List<Object>> rows = new ArrayList<>();
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            int columns = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                List<Object> row = new ArrayList<>(columns);
+                for (int i = 1; i <= columns; i++) {
+                    row.add(rs.getObject(i));
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static List<Object> column(Connection connection, String sql) throws SQLException {
+        return rows(connection, sql).stream().map(row -> row.get(0)).collect(Collectors.toList());
+    }
+
+    private static List<Integer> integers(List<Object> values) {
+        return values.stream().map(value -> ((Number) value).intValue()).toList();
+    }
+
+    /**
+     * Passes connections through, recording every statement executed on them with its parameter bindings
+     */
+    private static final class RecordingDataSource extends DelegatingDataSource {
+
+        private final List<PreparedSql> statements = new ArrayList<>();
+
+        private RecordingDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return recording(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return recording(super.getConnection(username, password));
+        }
+
+        private Connection recording(Connection connection) {
+            return proxy(Connection.class, connection, (method, args, result) ->
+                    result instanceof PreparedStatement statement && method.getName().equals("prepareStatement")
+                            ? recording(statement, (String) args[0]) : result);
+        }
+
+        private PreparedStatement recording(PreparedStatement statement, String sql) {
+            Map<Integer, Binding> bindings = new TreeMap<>();
+            return proxy(PreparedStatement.class, statement, (method, args, result) -> {
+                if (method.getName().startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                    bindings.put(index, new Binding(method, args));
+                } else if (method.getName().equals("clearParameters")) {
+                    bindings.clear();
+                } else if (method.getName().startsWith("execute") && (args == null || args.length == 0)) {
+                    statements.add(new PreparedSql(sql, List.copyOf(bindings.values())));
+                }
+                return result;
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T target, AfterCall afterCall) {
+            return (T) Proxy.newProxyInstance(QueryPlanTest.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+                try {
+                    return afterCall.apply(method, args, method.invoke(target, args));
+                } catch (InvocationTargetException ex) {
+                    throw ex.getCause();
+                }
+            });
+        }
+    }
+
+    @FunctionalInterface
+    private interface AfterCall {
+        Object apply(Method method, Object[] args, Object result);
+    }
+
+    private record Binding(Method setter, Object[] arguments) {
+    }
+
+    private record PreparedSql(String sql, List<Binding> bindings) {
+    }
+}
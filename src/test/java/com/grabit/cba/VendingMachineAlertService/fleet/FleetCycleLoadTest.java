@@ -0,0 +1,286 @@
+package com.grabit.cba.VendingMachineAlertService.fleet;
+
+import com.grabit.cba.VendingMachineAlertService.dto.requestDto.MailDto;
+import com.grabit.cba.VendingMachineAlertService.fleet.StatementCounter.Counts;
+import com.grabit.cba.VendingMachineAlertService.fleet.SyntheticFleetGenerator.Fleet;
+import com.grabit.cba.VendingMachineAlertService.fleet.SyntheticFleetGenerator.Spec;
+import com.grabit.cba.VendingMachineAlertService.scheduler.HourlyBaselineDropAlertScheduler;
+import com.grabit.cba.VendingMachineAlertService.scheduler.MedianBasedHourlySalesBaselineScheduler;
+import com.grabit.cba.VendingMachineAlertService.service.*;
+import com.grabit.cba.VendingMachineAlertService.service.cache.AlertConfigCache;
+import com.grabit.cba.VendingMachineAlertService.service.export.ExportFile;
+import com.grabit.cba.VendingMachineAlertService.service.rollup.SalesHourlyRollupService;
+import com.grabit.cba.VendingMachineAlertService.service.topology.FleetTopologyService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * End-to-end load harness of the monitor cycles against a {@link SyntheticFleetGenerator} fleet. Skipped unless
+ * {@code FLEET_LOAD_MACHINES} is set, e.g.
+ * {@code FLEET_LOAD_MACHINES=10000 mvn test -Dtest=FleetCycleLoadTest -DargLine=-Xmx8g}.
+ * <p>
+ * {@code FLEET_LOAD_DAYS} and {@code FLEET_LOAD_SALES_PER_DAY} size the history (7 days of 40 sales per machine by
+ * default). The fleet goes into a private in-memory H2 database. To use MySQL instead, point {@code FLEET_LOAD_DB_URL}
+ * ({@code FLEET_LOAD_DB_USER}, {@code FLEET_LOAD_DB_PASSWORD}) at an empty copy of the schema with the db/*.sql
+ * scripts applied; add {@code rewriteBatchedStatements=true} to the URL, or seeding takes hours.
+ * <p>
+ * Every cycle runs cold, then warm after another 15 minutes of traffic. The report logs the following for both runs:
+ * <ul>
+ *     <li>wall time</li>
+ *     <li>statements Hibernate prepared</li>
+ *     <li>query rows read</li>
+ *     <li>bytes allocated by all threads</li>
+ *     <li>heap in use after a GC</li>
+ * </ul>
+ * Mails go to a counting {@link EmailSender}. The outbox is drained at the end, so delivery is part of the run. On H2
+ * the heap includes the database itself, so compare heap figures between runs, not with production.
+ */
+@SpringBootTest
+@ActiveProfiles("local-fleet")
+@EnabledIfEnvironmentVariable(named = "FLEET_LOAD_MACHINES", matches = "\\d+")
+class FleetCycleLoadTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FleetCycleLoadTest.class);
+
+    private static final long MAIL_DRAIN_TIMEOUT_MILLIS = 120_000;
+    // New traffic before each warm run, as between two runs of a monitor cron
+    private static final int CYCLE_TRAFFIC_MINUTES = 15;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        String url = System.getenv("FLEET_LOAD_DB_URL");
+        if (url == null || url.isBlank()) {
+            // Not the budget test's database, which may live in the same JVM
+            registry.add("spring.datasource.url", () -> "jdbc:h2:mem:fleet-load;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+                    + "CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1");
+            return;
+        }
+        registry.add("spring.datasource.url", () -> url);
+        registry.add("spring.datasource.username", () -> System.getenv("FLEET_LOAD_DB_USER"));
+        registry.add("spring.datasource.password", () -> Objects.toString(System.getenv("FLEET_LOAD_DB_PASSWORD"), ""));
+        registry.add("spring.datasource.driver-class-name", () -> "com.mysql.cj.jdbc.Driver");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "none");
+        registry.add("spring.sql.init.mode", () -> "never");
+        registry.add("spring.jpa.properties.hibernate.session_factory.statement_inspector",
+                () -> StatementCounter.CountOnly.class.getName());
+    }
+
+    @TestConfiguration
+    static class FakeMail {
+
+        @Bean
+        @Primary
+        CountingEmailSender countingEmailSender() {
+            return new CountingEmailSender();
+        }
+    }
+
+    @Autowired
+    private CountingEmailSender emailSender;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private FleetTopologyService fleetTopologyService;
+    @Autowired
+    private AlertConfigCache alertConfigCache;
+    @Autowired
+    private EmailDispatchService emailDispatchService;
+    @Autowired
+    private SalesHourlyRollupService salesHourlyRollupService;
+    @Autowired
+    private TimeoutMonitorService timeoutMonitorService;
+    @Autowired
+    private ConsecutiveVoidCompleteMonitorService consecutiveVoidCompleteMonitorService;
+    @Autowired
+    private AllMachineSaleFailedHealthMonitorService saleFailedMonitorService;
+    @Autowired
+    private VoidFailedHealthMonitorService voidFailedMonitorService;
+    @Autowired
+    private HeartbeatMonitorService heartbeatMonitorService;
+    @Autowired
+    private HourlyBaselineDropAlertScheduler hourlyBaselineDropAlertScheduler;
+    @Autowired
+    private MedianBasedHourlySalesBaselineScheduler baselineScheduler;
+
+    @Test
+    void reportCycleCosts() {
+        Spec spec = Spec.ofMachines(intEnv("FLEET_LOAD_MACHINES", 0), intEnv("FLEET_LOAD_DAYS", 7),
+                intEnv("FLEET_LOAD_SALES_PER_DAY", 40));
+        LOGGER.info("Generating fleet: {}", spec);
+        SyntheticFleetGenerator generator = new SyntheticFleetGenerator(new FleetSeeder(jdbcTemplate), spec);
+        Map<String, Runnable> cycles = cycles();
+        // The history stops short of now by the traffic the warm runs add, so no sale lies in the future
+        LocalDateTime historyEnd = LocalDateTime.now().minusMinutes((long) CYCLE_TRAFFIC_MINUTES * cycles.size());
+        long started = System.nanoTime();
+        Fleet fleet = generator.generate(historyEnd);
+        LOGGER.info("Fleet of {} machines seeded in {} s", fleet.machines().size(), (System.nanoTime() - started) / 1_000_000_000);
+        fleetTopologyService.refresh();
+        alertConfigCache.invalidate();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        List<Measurement> report = new ArrayList<>();
+        LocalDateTime trafficUntil = historyEnd;
+        for (Map.Entry<String, Runnable> cycle : cycles.entrySet()) {
+            report.add(measure(cycle.getKey(), "cold", cycle.getValue(), statistics));
+            generator.addTraffic(fleet, trafficUntil, trafficUntil.plusMinutes(CYCLE_TRAFFIC_MINUTES));
+            trafficUntil = trafficUntil.plusMinutes(CYCLE_TRAFFIC_MINUTES);
+            report.add(measure(cycle.getKey(), "warm", cycle.getValue(), statistics));
+        }
+        report.add(measure("mail-dispatch", "drain", this::drainOutbox, statistics));
+
+        LOGGER.info("Cycle costs on {} machines, {} partners:{}", fleet.machines().size(), fleet.partnerIds().size(), format(report));
+        assertThat(emailSender.sent()).as("mails delivered to the fake sender").isPositive();
+    }
+
+    // Same order as in production: rollup and baselines before the checks that read them
+    private Map<String, Runnable> cycles() {
+        Map<String, Runnable> cycles = new LinkedHashMap<>();
+        cycles.put("sales-rollup", salesHourlyRollupService::catchUp);
+        cycles.put("hourly-sales-baseline", () -> {
+            // The job refuses to run twice within 23 hours
+            ReflectionTestUtils.setField(baselineScheduler, "lastRunTime", null);
+            baselineScheduler.computeBaseline();
+        });
+        cycles.put("timeout", timeoutMonitorService::evaluateAllMachines);
+        cycles.put("consecutive-void-complete", consecutiveVoidCompleteMonitorService::evaluateAllMachines);
+        cycles.put("sale-failed", saleFailedMonitorService::evaluateAllMachines);
+        cycles.put("void-failed", voidFailedMonitorService::evaluateAllMachines);
+        cycles.put("heartbeat", heartbeatMonitorService::evaluateAllMachines);
+        cycles.put("hourly-baseline-drop", hourlyBaselineDropAlertScheduler::evaluateHourlyDrops);
+        return cycles;
+    }
+
+    private void drainOutbox() {
+        int claimed = 0;
+        for (int batch = emailDispatchService.dispatchPending(); batch > 0; batch = emailDispatchService.dispatchPending()) {
+            claimed += batch;
+        }
+        long deadline = System.currentTimeMillis() + MAIL_DRAIN_TIMEOUT_MILLIS;
+        while (emailSender.sent() < claimed && System.currentTimeMillis() < deadline) {
+            sleep(100);
+        }
+        LOGGER.info("Outbox drained: {} mails claimed, {} delivered", claimed, emailSender.sent());
+    }
+
+    private static Measurement measure(String cycle, String run, Runnable body, Statistics statistics) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+        Map<Long, Long> allocatedBefore = allocatedBytes();
+        statistics.clear();
+        StatementCounter.start();
+        long started = System.nanoTime();
+        body.run();
+        long elapsed = System.nanoTime() - started;
+        Counts statements = StatementCounter.stop();
+        long rows = 0;
+        for (String query : statistics.getQueries()) {
+            rows += statistics.getQueryStatistics(query).getExecutionRowCount();
+        }
+        long allocated = 0;
+        for (Map.Entry<Long, Long> thread : allocatedBytes().entrySet()) {
+            allocated += thread.getValue() - allocatedBefore.getOrDefault(thread.getKey(), 0L);
+        }
+        System.gc();
+        long heapAfter = memory.getHeapMemoryUsage().getUsed();
+        return new Measurement(cycle, run, elapsed / 1_000_000, statements.total(), rows, allocated, heapBefore, heapAfter);
+    }
+
+    // Bytes allocated so far by each live thread; -1 where the JVM cannot tell
+    private static Map<Long, Long> allocatedBytes() {
+        Map<Long, Long> allocated = new HashMap<>();
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads) {
+            long[] ids = threads.getAllThreadIds();
+            long[] bytes = threads.getThreadAllocatedBytes(ids);
+            for (int i = 0; i < ids.length; i++) {
+                if (bytes[i] >= 0) {
+                    allocated.put(ids[i], bytes[i]);
+                }
+            }
+        }
+        return allocated;
+    }
+
+    private static String format(List<Measurement> report) {
+        StringBuilder table = new StringBuilder(String.format("%n%-26s %-6s %10s %10s %12s %12s %12s %12s",
+                "cycle", "run", "millis", "statements", "rows", "alloc MB", "heap MB", "heap +MB"));
+        for (Measurement m : report) {
+            table.append(String.format("%n%-26s %-6s %10d %10d %12d %12d %12d %12d", m.cycle(), m.run(), m.millis(),
+                    m.statements(), m.rows(), m.allocatedBytes() >> 20, m.heapAfter() >> 20, (m.heapAfter() - m.heapBefore()) >> 20));
+        }
+        return table.toString();
+    }
+
+    private static int intEnv(String name, int fallback) {
+        String value = System.getenv(name);
+        return value == null || value.isBlank() ? fallback : Integer.parseInt(value.trim());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Measurement(String cycle, String run, long millis, long statements, long rows, long allocatedBytes,
+                               long heapBefore, long heapAfter) {
+    }
+
+    /**
+     * Accepts every mail without a mail server and only counts it
+     */
+    static class CountingEmailSender implements EmailSender {
+
+        private final AtomicInteger sent = new AtomicInteger();
+
+        int sent() {
+            return sent.get();
+        }
+
+        @Override
+        public boolean sendEmail(MailDto mailDto, String logo, String signData) {
+            sent.incrementAndGet();
+            return true;
+        }
+
+        @Override
+        public boolean sendEmailWithAttachment(MailDto mailDto, byte[] fileContent, String fileName, String logo) {
+            sent.incrementAndGet();
+            return true;
+        }
+
+        @Override
+        public boolean sendEmailWithAttachment(MailDto mailDto, ExportFile attachment, String logo) {
+            sent.incrementAndGet();
+            return true;
+        }
+    }
+}
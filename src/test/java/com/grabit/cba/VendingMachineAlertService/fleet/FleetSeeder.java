@@ -0,0 +1,139 @@
+package com.grabit.cba.VendingMachineAlertService.fleet;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inserts partners, merchants, machines, transactions and alert configuration straight through JDBC, with ids assigned
+ * here so large fleets can be written in batches.
+ */
+public class FleetSeeder {
+
+    public static final int STATUS_ACTIVE = 1;
+    public static final int STATUS_OFFLINE = 0;
+
+    public static final String APPROVED = "Approved";
+    public static final String TIMED_OUT = "Transaction Time out";
+
+    // Every alert code looked up by the monitors and schedulers
+    public static final List<String> ALERT_CODES = List.of("TIMEOUT", "VOID_COMPLETED", "OFFLINE_VM", "SALE_FAILED",
+            "VOID_FAILED", "HOURLY_SALES_BASELINE_DROP");
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbc;
+    private int nextPartnerId;
+    private int nextMerchantId;
+    private int nextMachineId;
+    private int nextSaleId;
+
+    public FleetSeeder(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+        this.nextPartnerId = nextId("Partners");
+        this.nextMerchantId = nextId("Merchants");
+        this.nextMachineId = nextId("VendingMachines");
+        this.nextSaleId = nextId("Sales");
+    }
+
+    private int nextId(String table) {
+        Integer max = jdbc.queryForObject("SELECT MAX(id) FROM " + table, Integer.class);
+        return max == null ? 1 : max + 1;
+    }
+
+    public int addPartner(String name) {
+        int id = nextPartnerId++;
+        jdbc.update("INSERT INTO Partners (id, name, email, isDeleted) VALUES (?, ?, ?, FALSE)",
+                id, name, "partner" + id + "@example.com");
+        return id;
+    }
+
+    public int addMerchant(int partnerId, String name) {
+        int id = nextMerchantId++;
+        jdbc.update("INSERT INTO Merchants (id, name, email, address, partnerId, isDeleted) VALUES (?, ?, ?, ?, ?, FALSE)",
+                id, name, "merchant" + id + "@example.com", id + " Main Street", partnerId);
+        return id;
+    }
+
+    /**
+     * Add {@code count} machines with serials {@code <serialPrefix>-<id>}
+     *
+     * @return the new machines in id order
+     */
+    public List<Machine> addMachines(int merchantId, String serialPrefix, int count, int status) {
+        List<Machine> machines = new ArrayList<>(count);
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int id = nextMachineId++;
+            Machine machine = new Machine(id, serialPrefix + "-" + id);
+            machines.add(machine);
+            rows.add(new Object[]{id, machine.serialNo(), merchantId, "Machine " + id, status});
+        }
+        batch("INSERT INTO VendingMachines (id, serialNo, merchantId, isDeleted, name, status, terminateCode, productLockCount) "
+                + "VALUES (?, ?, ?, FALSE, ?, ?, 0, 0)", rows);
+        return machines;
+    }
+
+    /**
+     * Buffer of Sales rows written in JDBC batches; call {@link SalesBatch#flush()} when done
+     */
+    public SalesBatch sales() {
+        return new SalesBatch();
+    }
+
+    /**
+     * One Alert_Type row per code of {@link #ALERT_CODES} (unless present) and a recipient row per type and partner
+     */
+    public void addAlertConfig(List<Integer> partnerIds) {
+        LocalDateTime now = LocalDateTime.now();
+        for (String code : ALERT_CODES) {
+            jdbc.update("INSERT INTO Alert_Type (code, name, createdAt, updatedAt) "
+                    + "SELECT ?, ?, ?, ? WHERE NOT EXISTS (SELECT 1 FROM Alert_Type WHERE code = ?)", code, code, now, now, code);
+            Integer alertTypeId = jdbc.queryForObject("SELECT id FROM Alert_Type WHERE code = ?", Integer.class, code);
+            for (Integer partnerId : partnerIds) {
+                jdbc.update("INSERT INTO Alert_Email_Configs (alertTypeId, partnerId, `to`, createdAt, updatedAt) VALUES (?, ?, ?, ?, ?)",
+                        alertTypeId, partnerId, "ops" + partnerId + "@example.com", now, now);
+            }
+        }
+    }
+
+    private void batch(String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            jdbc.batchUpdate(sql, rows.subList(from, Math.min(from + BATCH_SIZE, rows.size())));
+        }
+    }
+
+    public record Machine(int id, String serialNo) {
+    }
+
+    public class SalesBatch {
+
+        private final List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        private long written;
+
+        public SalesBatch add(int machineId, LocalDateTime dateTime, String status, String description, int amount) {
+            rows.add(new Object[]{nextSaleId++, amount, Timestamp.valueOf(dateTime), machineId, status, description});
+            if (rows.size() == BATCH_SIZE) {
+                flush();
+            }
+            return this;
+        }
+
+        public void flush() {
+            if (rows.isEmpty()) {
+                return;
+            }
+            jdbc.batchUpdate("INSERT INTO Sales (id, amount, dateTime, vendingMachineId, transactionStatus, TranStatusDescription, "
+                    + "TranPaymentMode) VALUES (?, ?, ?, ?, ?, ?, 'CARD')", rows);
+            written += rows.size();
+            rows.clear();
+        }
+
+        public long written() {
+            return written;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.grabit.cba.VendingMachineAlertService.fleet;
+
+import com.grabit.cba.VendingMachineAlertService.fleet.FleetSeeder.Machine;
+import com.grabit.cba.VendingMachineAlertService.fleet.StatementCounter.Counts;
+import com.grabit.cba.VendingMachineAlertService.scheduler.HourlyBaselineDropAlertScheduler;
+import com.grabit.cba.VendingMachineAlertService.scheduler.MedianBasedHourlySalesBaselineScheduler;
+import com.grabit.cba.VendingMachineAlertService.service.*;
+import com.grabit.cba.VendingMachineAlertService.service.cache.AlertConfigCache;
+import com.grabit.cba.VendingMachineAlertService.service.topology.FleetTopologyService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Statement budgets of the monitor cycles against an in-memory fleet (profile {@code local-fleet}).
+ * <p>
+ * Every cycle runs once to warm the caches and transaction windows, then once more, measured, after each healthy
+ * machine received a new transaction. The fleet then grows fivefold and the cycles are measured again: a cycle may
+ * prepare no more statements on the large fleet than on the small one, and never more than its budget. The unhealthy
+ * machines (one per alert kind and partner) stay the same, so alert handling is part of the measurement but constant.
+ * A failure lists every statement with its count; a statement whose count grew with the fleet is a per-machine query.
+ */
+@SpringBootTest
+@ActiveProfiles("local-fleet")
+class MonitorCycleStatementBudgetTest {
+
+    private static final int PARTNERS = 2;
+    private static final int HEALTHY_MACHINES_SMALL = 8;
+    private static final int HEALTHY_MACHINES_LARGE = 40;
+
+    // Statements of one warm cycle on the small fleet, with one or two to spare
+    private static final Map<String, Integer> BUDGETS = Map.of(
+            "timeout", 4,
+            "consecutive-void-complete", 4,
+            "sale-failed", 2,
+            "void-failed", 4,
+            "heartbeat", 4,
+            "hourly-sales-baseline", 12,
+            "hourly-baseline-drop", 5);
+
+    @MockitoBean
+    private EmailSender emailSender;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private FleetTopologyService fleetTopologyService;
+    @Autowired
+    private AlertConfigCache alertConfigCache;
+    @Autowired
+    private TimeoutMonitorService timeoutMonitorService;
+    @Autowired
+    private ConsecutiveVoidCompleteMonitorService consecutiveVoidCompleteMonitorService;
+    @Autowired
+    private AllMachineSaleFailedHealthMonitorService saleFailedMonitorService;
+    @Autowired
+    private VoidFailedHealthMonitorService voidFailedMonitorService;
+    @Autowired
+    private HeartbeatMonitorService heartbeatMonitorService;
+    @Autowired
+    private HourlyBaselineDropAlertScheduler hourlyBaselineDropAlertScheduler;
+    @Autowired
+    private MedianBasedHourlySalesBaselineScheduler baselineScheduler;
+
+    @Test
+    void cycleStatementsDoNotGrowWithTheFleet() {
+        FleetSeeder seeder = new FleetSeeder(jdbcTemplate);
+        LocalDateTime now = LocalDateTime.now();
+        List<Integer> merchants = new ArrayList<>();
+        List<Integer> partners = new ArrayList<>();
+        List<Machine> healthy = new ArrayList<>();
+        for (int p = 0; p < PARTNERS; p++) {
+            int partnerId = seeder.addPartner("Partner " + p);
+            partners.add(partnerId);
+            int merchantId = seeder.addMerchant(partnerId, "Merchant " + p);
+            merchants.add(merchantId);
+            addUnhealthyMachines(seeder, merchantId, now);
+            healthy.addAll(addHealthyMachines(seeder, merchantId, HEALTHY_MACHINES_SMALL, now));
+        }
+        seeder.addAlertConfig(partners);
+        refreshCaches();
+
+        Map<String, Counts> small = measureCycles(seeder, healthy);
+
+        for (int merchantId : merchants) {
+            healthy.addAll(addHealthyMachines(seeder, merchantId, HEALTHY_MACHINES_LARGE - HEALTHY_MACHINES_SMALL, now));
+        }
+        refreshCaches();
+
+        Map<String, Counts> large = measureCycles(seeder, healthy);
+
+        small.forEach((cycle, smallCounts) -> {
+            Counts largeCounts = large.get(cycle);
+            assertThat(smallCounts.total())
+                    .as("%s cycle on %d machines exceeds its budget:%n%s", cycle, machines(HEALTHY_MACHINES_SMALL), smallCounts)
+                    .isLessThanOrEqualTo(BUDGETS.get(cycle));
+            assertThat(largeCounts.total())
+                    .as("%s cycle grew from %d to %d machines:%nsmall fleet: %s%nlarge fleet: %s", cycle,
+                            machines(HEALTHY_MACHINES_SMALL), machines(HEALTHY_MACHINES_LARGE), smallCounts, largeCounts)
+                    .isLessThanOrEqualTo(smallCounts.total());
+        });
+    }
+
+    private Map<String, Counts> measureCycles(FleetSeeder seeder, List<Machine> healthy) {
+        Map<String, Runnable> cycles = new LinkedHashMap<>();
+        cycles.put("timeout", timeoutMonitorService::evaluateAllMachines);
+        cycles.put("consecutive-void-complete", consecutiveVoidCompleteMonitorService::evaluateAllMachines);
+        cycles.put("sale-failed", saleFailedMonitorService::evaluateAllMachines);
+        cycles.put("void-failed", voidFailedMonitorService::evaluateAllMachines);
+        cycles.put("heartbeat", heartbeatMonitorService::evaluateAllMachines);
+        // The baselines are computed before the drop check reads them, as on a fleet that has been running for a day
+        cycles.put("hourly-sales-baseline", () -> {
+            // The job refuses to run twice within 23 hours
+            ReflectionTestUtils.setField(baselineScheduler, "lastRunTime", null);
+            baselineScheduler.computeBaseline();
+        });
+        cycles.put("hourly-baseline-drop", hourlyBaselineDropAlertScheduler::evaluateHourlyDrops);
+
+        Map<String, Counts> counts = new LinkedHashMap<>();
+        cycles.forEach((cycle, run) -> {
+            run.run();
+            FleetSeeder.SalesBatch traffic = seeder.sales();
+            LocalDateTime now = LocalDateTime.now();
+            for (Machine machine : healthy) {
+                traffic.add(machine.id(), now, "SALE_COMPLETED", FleetSeeder.APPROVED, 250);
+            }
+            traffic.flush();
+
+            StatementCounter.start();
+            run.run();
+            counts.put(cycle, StatementCounter.stop());
+        });
+        return counts;
+    }
+
+    // One machine per alert kind: failed sales, timeouts, voids, a failed void and an offline machine
+    private static void addUnhealthyMachines(FleetSeeder seeder, int merchantId, LocalDateTime now) {
+        List<Machine> machines = seeder.addMachines(merchantId, "SICK", 4, FleetSeeder.STATUS_ACTIVE);
+        FleetSeeder.SalesBatch sales = seeder.sales();
+        for (int i = 10; i > 0; i--) {
+            LocalDateTime at = now.minusMinutes(i);
+            sales.add(machines.get(0).id(), at, "SALE_FAILED", "Declined", 250);
+            sales.add(machines.get(1).id(), at, "SALE_FAILED", FleetSeeder.TIMED_OUT, 250);
+            sales.add(machines.get(2).id(), at, "VOID_COMPLETED", FleetSeeder.APPROVED, 250);
+            sales.add(machines.get(3).id(), at, i == 1 ? "VOID_FAILED" : "SALE_COMPLETED", FleetSeeder.APPROVED, 250);
+        }
+        Machine offline = seeder.addMachines(merchantId, "OFF", 1, FleetSeeder.STATUS_OFFLINE).get(0);
+        sales.add(offline.id(), now.minusHours(5), "SALE_COMPLETED", FleetSeeder.APPROVED, 250);
+        sales.flush();
+    }
+
+    // Healthy machines with a week of hourly history for the baselines
+    private static List<Machine> addHealthyMachines(FleetSeeder seeder, int merchantId, int count, LocalDateTime now) {
+        List<Machine> machines = seeder.addMachines(merchantId, "VM", count, FleetSeeder.STATUS_ACTIVE);
+        FleetSeeder.SalesBatch sales = seeder.sales();
+        for (Machine machine : machines) {
+            for (int hoursAgo = 7 * 24; hoursAgo > 0; hoursAgo -= 3) {
+                sales.add(machine.id(), now.minusHours(hoursAgo), "SALE_COMPLETED", FleetSeeder.APPROVED, 250);
+            }
+        }
+        sales.flush();
+        return machines;
+    }
+
+    private void refreshCaches() {
+        fleetTopologyService.refresh();
+        alertConfigCache.invalidate();
+    }
+
+    private static int machines(int healthyPerPartner) {
+        return PARTNERS * (healthyPerPartner + 5);
+    }
+}
@@ -0,0 +1,110 @@
+package com.grabit.cba.VendingMachineAlertService.fleet;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Hibernate {@link StatementInspector} of the {@code local-fleet} test profile: counts the statements Hibernate
+ * prepares while a measurement is open, and rewrites the two MySQL-only statements of the hot path for H2.
+ * <p>
+ * Statements prepared on the scheduler and mail dispatch threads are not counted, so background refreshes cannot leak
+ * into the measured cycle. Batched JdbcTemplate writes bypass Hibernate and are not counted either. Against a real
+ * MySQL, use {@link CountOnly}, which leaves the statements as they are.
+ */
+public class StatementCounter implements StatementInspector {
+
+    // SalesRepository.findLatestSignalRowsByMachineIds; H2 has no LATERAL, so rank per machine instead. The limit
+    // placeholder has to stay in front of the machine ids to keep the positional bindings in order.
+    private static final Pattern LATEST_SIGNALS = Pattern.compile(
+            "SELECT s\\.id, vm\\.id AS vendingMachineId, s\\.dateTime, s\\.transactionStatus, s\\.TranStatusDescription, s\\.amount "
+                    + "FROM VendingMachines vm, LATERAL \\(SELECT x\\.id, x\\.dateTime, x\\.transactionStatus, x\\.TranStatusDescription, "
+                    + "x\\.amount FROM Sales x WHERE x\\.vendingMachineId = vm\\.id ORDER BY x\\.dateTime DESC, x\\.id DESC LIMIT \\?\\) s "
+                    + "WHERE vm\\.id IN \\(([?, ]+)\\) ORDER BY vm\\.id, s\\.dateTime DESC, s\\.id DESC");
+    private static final String LATEST_SIGNALS_H2 = "WITH l(lim) AS (SELECT CAST(? AS INT)) "
+            + "SELECT r.id, r.vendingMachineId, r.dateTime, r.transactionStatus, r.TranStatusDescription, r.amount FROM l, "
+            + "(SELECT x.id, x.vendingMachineId, x.dateTime, x.transactionStatus, x.TranStatusDescription, x.amount, "
+            + "ROW_NUMBER() OVER (PARTITION BY x.vendingMachineId ORDER BY x.dateTime DESC, x.id DESC) AS rn "
+            + "FROM Sales x WHERE x.vendingMachineId IN ($1)) r WHERE r.rn <= l.lim "
+            + "ORDER BY r.vendingMachineId, r.dateTime DESC, r.id DESC";
+
+    // AlertSalesHourlyRollupRepository.rollUpSales; H2 cannot read the derived table in ON DUPLICATE KEY UPDATE
+    private static final String UPSERT = " ON DUPLICATE KEY UPDATE ";
+    private static final Pattern UPSERT_SOURCE_COLUMN = Pattern.compile("\\br\\.(\\w+)");
+
+    private static volatile boolean measuring;
+    private static final Map<String, LongAdder> COUNTS = new ConcurrentHashMap<>();
+
+    @Override
+    public String inspect(String sql) {
+        String rewritten = rewrite(sql);
+        if (measuring && !isBackgroundThread(Thread.currentThread().getName())) {
+            COUNTS.computeIfAbsent(sql, k -> new LongAdder()).increment();
+        }
+        return rewritten;
+    }
+
+    protected String rewrite(String sql) {
+        Matcher latestSignals = LATEST_SIGNALS.matcher(sql);
+        if (latestSignals.matches()) {
+            return latestSignals.replaceFirst(LATEST_SIGNALS_H2);
+        }
+        int upsert = sql.indexOf(UPSERT);
+        if (upsert >= 0 && sql.contains(") AS r" + UPSERT)) {
+            return sql.substring(0, upsert) + UPSERT_SOURCE_COLUMN.matcher(sql.substring(upsert)).replaceAll("VALUES($1)");
+        }
+        return sql;
+    }
+
+    private static boolean isBackgroundThread(String name) {
+        return name.startsWith("Scheduler-") || name.startsWith("MailDispatch-");
+    }
+
+    /**
+     * Counts without rewriting, for a MySQL database
+     */
+    public static class CountOnly extends StatementCounter {
+
+        @Override
+        protected String rewrite(String sql) {
+            return sql;
+        }
+    }
+
+    /**
+     * Start counting from zero
+     */
+    public static void start() {
+        COUNTS.clear();
+        measuring = true;
+    }
+
+    /**
+     * Stop counting and return the statements seen since {@link #start()}
+     */
+    public static Counts stop() {
+        measuring = false;
+        Map<String, Long> bySql = new TreeMap<>();
+        COUNTS.forEach((sql, count) -> bySql.put(sql, count.sum()));
+        return new Counts(bySql);
+    }
+
+    public record Counts(Map<String, Long> bySql) {
+
+        public long total() {
+            return bySql.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(total() + " statements");
+            bySql.forEach((sql, count) -> text.append(System.lineSeparator()).append(String.format("%6d  %s", count, sql)));
+            return text.toString();
+        }
+    }
+}
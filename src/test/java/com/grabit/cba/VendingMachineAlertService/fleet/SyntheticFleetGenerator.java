@@ -0,0 +1,218 @@
+package com.grabit.cba.VendingMachineAlertService.fleet;
+
+import com.grabit.cba.VendingMachineAlertService.fleet.FleetSeeder.Machine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeds a synthetic fleet of production size through {@link FleetSeeder}: partners, merchants, machines, alert
+ * configuration, and a Sales history. Volume per hour follows the time of day and the statuses follow a configurable
+ * mix. A small share of machines is troubled, with their failure, timeout and void rates multiplied, so a cycle has
+ * alerts to raise as it would in production. Offline machines stop trading a few hours before now.
+ * <p>
+ * Sales ids increase with time across the whole fleet, as in production, so the transaction stream and the hourly
+ * rollup read the history in order. The same {@link Spec#seed()} always produces the same fleet.
+ */
+public class SyntheticFleetGenerator {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SyntheticFleetGenerator.class);
+
+    public static final String DECLINED = "Declined";
+    public static final String VOID_DECLINED = "Void declined";
+
+    // Share of the daily volume per hour of day: quiet at night, peaks at lunch and in the early evening
+    private static final double[] HOURLY_WEIGHTS = normalize(new double[]{
+            0.8, 0.5, 0.3, 0.3, 0.3, 0.5, 1.5, 3.0, 4.0, 4.0, 4.5, 6.0,
+            7.0, 5.0, 4.0, 4.0, 4.5, 5.5, 5.0, 4.0, 3.0, 2.5, 2.0, 1.5});
+
+    private final FleetSeeder seeder;
+    private final Spec spec;
+    private final Random random;
+
+    public SyntheticFleetGenerator(FleetSeeder seeder, Spec spec) {
+        this.seeder = seeder;
+        this.spec = spec;
+        this.random = new Random(spec.seed());
+    }
+
+    /**
+     * Write the fleet and {@link Spec#days()} days of Sales up to {@code now}
+     */
+    public Fleet generate(LocalDateTime now) {
+        List<Integer> partnerIds = new ArrayList<>();
+        List<SyntheticMachine> machines = new ArrayList<>();
+        for (int p = 0; p < spec.partners(); p++) {
+            int partnerId = seeder.addPartner("Synthetic partner " + p);
+            partnerIds.add(partnerId);
+            for (int m = 0; m < spec.merchantsPerPartner(); m++) {
+                int merchantId = seeder.addMerchant(partnerId, "Synthetic merchant " + p + "-" + m);
+                int offlinePerMerchant = 0;
+                for (int i = 0; i < spec.machinesPerMerchant(); i++) {
+                    if (random.nextDouble() < spec.offlineShare()) {
+                        offlinePerMerchant++;
+                    }
+                }
+                for (Machine machine : seeder.addMachines(merchantId, "VM", spec.machinesPerMerchant() - offlinePerMerchant,
+                        FleetSeeder.STATUS_ACTIVE)) {
+                    machines.add(new SyntheticMachine(machine, dailyVolume(), random.nextDouble() < spec.troubledShare(), null));
+                }
+                for (Machine machine : seeder.addMachines(merchantId, "OFF", offlinePerMerchant, FleetSeeder.STATUS_OFFLINE)) {
+                    LocalDateTime lastTrade = now.minusMinutes(120 + random.nextInt(46 * 60));
+                    machines.add(new SyntheticMachine(machine, dailyVolume(), false, lastTrade));
+                }
+            }
+        }
+        seeder.addAlertConfig(partnerIds);
+        Fleet fleet = new Fleet(partnerIds, machines);
+        LOGGER.info("Generated {} partners and {} machines ({} offline)", partnerIds.size(), machines.size(),
+                fleet.offlineMachines().size());
+
+        long sales = addTraffic(fleet, now.truncatedTo(ChronoUnit.HOURS).minusDays(spec.days()), now);
+        LOGGER.info("Generated {} sales over {} days", sales, spec.days());
+        return fleet;
+    }
+
+    /**
+     * Write the Sales of the fleet between {@code from} (inclusive) and {@code to} (exclusive), one hour at a time; a
+     * range shorter than an hour gets its share of the hour's volume
+     *
+     * @return number of rows written
+     */
+    public long addTraffic(Fleet fleet, LocalDateTime from, LocalDateTime to) {
+        FleetSeeder.SalesBatch batch = seeder.sales();
+        List<PendingSale> hour = new ArrayList<>();
+        boolean logProgress = from.plusDays(1).isBefore(to);
+        StatusMix troubledMix = spec.mix().times(spec.troubleFactor());
+        for (LocalDateTime slot = from; slot.isBefore(to); slot = slot.plusHours(1)) {
+            double weight = HOURLY_WEIGHTS[slot.getHour()];
+            for (SyntheticMachine machine : fleet.machines()) {
+                int count = poisson(machine.dailyVolume() * weight);
+                for (int i = 0; i < count; i++) {
+                    LocalDateTime at = slot.plusSeconds(random.nextInt(3600));
+                    if (!at.isBefore(to) || (machine.lastTrade() != null && !at.isBefore(machine.lastTrade()))) {
+                        continue;
+                    }
+                    hour.add(pendingSale(machine.machine().id(), at, machine.troubled() ? troubledMix : spec.mix()));
+                }
+            }
+            // Ids in time order across the fleet
+            hour.sort(Comparator.comparing(PendingSale::at));
+            for (PendingSale sale : hour) {
+                batch.add(sale.machineId(), sale.at(), sale.status(), sale.description(), sale.amount());
+            }
+            hour.clear();
+            if (logProgress && slot.getHour() == 23) {
+                LOGGER.info("Generated sales up to {} ({} rows)", slot.plusHours(1), batch.written());
+            }
+        }
+        batch.flush();
+        return batch.written();
+    }
+
+    private PendingSale pendingSale(int machineId, LocalDateTime at, StatusMix mix) {
+        int amount = 100 + 10 * random.nextInt(40);
+        double r = random.nextDouble();
+        if ((r -= mix.voidFailed()) < 0) {
+            return new PendingSale(machineId, at, "VOID_FAILED", VOID_DECLINED, amount);
+        }
+        if ((r -= mix.voidCompleted()) < 0) {
+            return new PendingSale(machineId, at, "VOID_COMPLETED", FleetSeeder.APPROVED, amount);
+        }
+        if ((r -= mix.timeout()) < 0) {
+            return new PendingSale(machineId, at, "SALE_FAILED", FleetSeeder.TIMED_OUT, amount);
+        }
+        if (r - mix.saleFailed() < 0) {
+            return new PendingSale(machineId, at, "SALE_FAILED", DECLINED, amount);
+        }
+        return new PendingSale(machineId, at, "SALE_COMPLETED", FleetSeeder.APPROVED, amount);
+    }
+
+    // Busy and quiet locations around the configured mean
+    private double dailyVolume() {
+        return spec.salesPerMachinePerDay() * (0.25 + 1.5 * random.nextDouble());
+    }
+
+    // Knuth's method; the hourly means stay small
+    private int poisson(double mean) {
+        double limit = Math.exp(-mean);
+        double product = random.nextDouble();
+        int count = 0;
+        while (product > limit) {
+            count++;
+            product *= random.nextDouble();
+        }
+        return count;
+    }
+
+    private static double[] normalize(double[] weights) {
+        double sum = 0;
+        for (double weight : weights) {
+            sum += weight;
+        }
+        double[] normalized = new double[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            normalized[i] = weights[i] / sum;
+        }
+        return normalized;
+    }
+
+    /**
+     * Probability of each non-completed status per transaction; the rest are SALE_COMPLETED
+     */
+    public record StatusMix(double saleFailed, double timeout, double voidCompleted, double voidFailed) {
+
+        public static final StatusMix PRODUCTION = new StatusMix(0.03, 0.015, 0.02, 0.002);
+
+        StatusMix times(double factor) {
+            double scale = Math.min(factor, 0.9 / (saleFailed + timeout + voidCompleted + voidFailed));
+            return new StatusMix(saleFailed * scale, timeout * scale, voidCompleted * scale, voidFailed * scale);
+        }
+    }
+
+    /**
+     * Shape of the fleet. {@code offlineShare} of each merchant's machines are offline; {@code troubledShare} of the
+     * active ones trade with their failure rates multiplied by {@code troubleFactor}.
+     */
+    public record Spec(int partners, int merchantsPerPartner, int machinesPerMerchant, int days, int salesPerMachinePerDay,
+                       double offlineShare, double troubledShare, double troubleFactor, StatusMix mix, long seed) {
+
+        /**
+         * About {@code machines} machines, 20 per merchant and up to 10 merchants per partner, with the production mix
+         */
+        public static Spec ofMachines(int machines, int days, int salesPerMachinePerDay) {
+            int merchants = Math.max(1, (machines + 19) / 20);
+            int partners = Math.max(1, (merchants + 9) / 10);
+            int merchantsPerPartner = (merchants + partners - 1) / partners;
+            int machinesPerMerchant = Math.max(1, Math.round((float) machines / (partners * merchantsPerPartner)));
+            return new Spec(partners, merchantsPerPartner, machinesPerMerchant, days, salesPerMachinePerDay,
+                    0.02, 0.02, 10, StatusMix.PRODUCTION, 42);
+        }
+
+        public int machines() {
+            return partners * merchantsPerPartner * machinesPerMerchant;
+        }
+    }
+
+    /**
+     * @param lastTrade time the machine stopped trading, or null while it trades
+     */
+    public record SyntheticMachine(Machine machine, double dailyVolume, boolean troubled, LocalDateTime lastTrade) {
+    }
+
+    public record Fleet(List<Integer> partnerIds, List<SyntheticMachine> machines) {
+
+        public List<SyntheticMachine> offlineMachines() {
+            return machines.stream().filter(m -> m.lastTrade() != null).toList();
+        }
+    }
+
+    private record PendingSale(int machineId, LocalDateTime at, String status, String description, int amount) {
+    }
+}
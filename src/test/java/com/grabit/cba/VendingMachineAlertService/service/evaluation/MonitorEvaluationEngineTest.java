@@ -0,0 +1,84 @@
+package com.grabit.cba.VendingMachineAlertService.service.evaluation;
+
+import com.grabit.cba.VendingMachineAlertService.config.AllMachinesMonitorProperties;
+import com.grabit.cba.VendingMachineAlertService.service.evaluation.MonitorEvaluationEngine.EvaluationSummary;
+import com.grabit.cba.VendingMachineAlertService.service.metrics.MonitorMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class MonitorEvaluationEngineTest {
+
+    private AllMachinesMonitorProperties properties;
+    private ThreadPoolTaskExecutor executor;
+    private MonitorEvaluationEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AllMachinesMonitorProperties();
+        properties.getEvaluation().setPoolSize(1);
+        properties.getEvaluation().setMaxConcurrentDbTasks(1);
+        properties.getEvaluation().setCycleDeadlineSeconds(1);
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(2);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        engine = new MonitorEvaluationEngine(executor, properties, null, mock(MonitorMetrics.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void countsEveryMachineOnceWhenATaskOverrunsTheDeadline() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        List<Runnable> tasks = new ArrayList<>();
+        tasks.add(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            finished.countDown();
+        });
+        tasks.add(() -> { });
+        tasks.add(() -> { });
+
+        EvaluationSummary summary = engine.runAll("Test monitor", tasks);
+        release.countDown();
+        assertThat(finished.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(summary.overran()).isEqualTo(1);
+        assertThat(summary.skipped()).isEqualTo(2);
+        assertThat(summary.completed() + summary.failed() + summary.skipped() + summary.overran()).isEqualTo(summary.machines());
+    }
+
+    @Test
+    void runsOverflowOnTheCallerWhenTheQueueIsFull() {
+        properties.getEvaluation().setCycleDeadlineSeconds(10);
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            tasks.add(() -> { });
+        }
+
+        EvaluationSummary summary = engine.runAll("Test monitor", tasks);
+
+        assertThat(summary.completed()).isEqualTo(20);
+        assertThat(summary.skipped()).isZero();
+    }
+}
@@ -0,0 +1,84 @@
+package com.grabit.cba.VendingMachineAlertService.service.export;
+
+import com.grabit.cba.VendingMachineAlertService.database.model.other.Partners;
+import com.grabit.cba.VendingMachineAlertService.database.model.other.VendingMachine;
+import com.grabit.cba.VendingMachineAlertService.database.model.projection.SalesSignal;
+import com.grabit.cba.VendingMachineAlertService.database.repository.PartnersRepository;
+import com.grabit.cba.VendingMachineAlertService.database.repository.SalesRepository;
+import com.grabit.cba.VendingMachineAlertService.service.topology.FleetTopology;
+import com.grabit.cba.VendingMachineAlertService.service.topology.FleetTopologyService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class SalesExportServiceTest {
+
+    private static final LocalDateTime FROM = LocalDateTime.of(2026, 3, 1, 0, 0);
+    private static final LocalDateTime TO = FROM.plusMonths(1);
+
+    private SalesRepository salesRepository;
+    private SalesExportService service;
+
+    @BeforeEach
+    void setUp() {
+        Partners partner = new Partners();
+        partner.setId(3);
+        partner.setName("CBL");
+        PartnersRepository partnersRepository = mock(PartnersRepository.class);
+        when(partnersRepository.findByName("CBL")).thenReturn(List.of(partner));
+
+        FleetTopology topology = mock(FleetTopology.class);
+        when(topology.machines(3)).thenReturn(List.of(machine(1, "VM-1", "Lobby"), machine(2, "VM-2", "Gate, east")));
+        FleetTopologyService fleetTopologyService = mock(FleetTopologyService.class);
+        when(fleetTopologyService.current()).thenReturn(topology);
+
+        salesRepository = mock(SalesRepository.class);
+        service = new SalesExportService(partnersRepository, fleetTopologyService, salesRepository,
+                mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void writesGzippedCsvAndDeletesItOnClose() throws Exception {
+        when(salesRepository.streamSignalsByMachineIdAndDateBetween(1, FROM, TO)).thenReturn(Stream.of(
+                new SalesSignal(10, 1, FROM.plusHours(1), "SALE_COMPLETED", "ok", 250),
+                new SalesSignal(11, 1, FROM.plusHours(2), "SALE_FAILED", "card \"declined\"", 100)));
+        when(salesRepository.streamSignalsByMachineIdAndDateBetween(2, FROM, TO)).thenReturn(Stream.of(
+                new SalesSignal(12, 2, FROM.plusHours(3), "VOID_COMPLETE", null, null)));
+
+        ExportFile export = service.exportPartnerTransactions("CBL", FROM, TO, true);
+        try (export) {
+            assertThat(export.rows()).isEqualTo(3);
+            assertThat(export.fileName()).isEqualTo("transactions-CBL-2026-03-01.csv.gz");
+            assertThat(export.contentType()).isEqualTo(SalesExportService.GZIP_CONTENT_TYPE);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(export.path())), StandardCharsets.UTF_8))) {
+                assertThat(reader.lines().toList()).containsExactly(
+                        "transactionId,machineSerial,machineName,dateTime,status,statusDescription,amount",
+                        "10,VM-1,Lobby,2026-03-01 01:00:00,SALE_COMPLETED,ok,250",
+                        "11,VM-1,Lobby,2026-03-01 02:00:00,SALE_FAILED,\"card \"\"declined\"\"\",100",
+                        "12,VM-2,\"Gate, east\",2026-03-01 03:00:00,VOID_COMPLETE,,");
+            }
+        }
+        assertThat(Files.exists(export.path())).isFalse();
+    }
+
+    private static VendingMachine machine(int id, String serial, String name) {
+        VendingMachine vm = new VendingMachine();
+        vm.setId(id);
+        vm.setSerialNo(serial);
+        vm.setName(name);
+        return vm;
+    }
+}
@@ -0,0 +1,75 @@
+package com.grabit.cba.VendingMachineAlertService.service.impl;
+
+import com.grabit.cba.VendingMachineAlertService.dto.requestDto.MailDto;
+import com.grabit.cba.VendingMachineAlertService.service.EmailDispatchService;
+import com.grabit.cba.VendingMachineAlertService.service.EmailSender;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Outbox dedupe against the in-memory database of the {@code local-fleet} profile, where the unique activeDedupeKey
+ * has to reject the second of two concurrent mails for the same alert.
+ */
+@SpringBootTest
+@ActiveProfiles("local-fleet")
+class EmailDispatchServiceImplTest {
+
+    @MockitoBean
+    private EmailSender emailSender;
+
+    @Autowired
+    private EmailDispatchService emailDispatchService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void onlyOneOfConcurrentMailsForAnAlertIsQueued() throws Exception {
+        String dedupeKey = "DEDUPE_TEST:VM-1";
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return emailDispatchService.enqueue(dedupeKey, mail(), null, List.of());
+            }));
+        }
+        start.countDown();
+        int queued = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(30, TimeUnit.SECONDS)) queued++;
+        }
+        pool.shutdown();
+
+        assertThat(queued).isEqualTo(1);
+        assertThat(outboxRows(dedupeKey)).isEqualTo(1);
+
+        // Once the mail is sent the alert can be queued again
+        jdbcTemplate.update("UPDATE Alert_Outbox SET status = 'SENT', activeDedupeKey = NULL WHERE dedupeKey = ?", dedupeKey);
+        assertThat(emailDispatchService.enqueue(dedupeKey, mail(), null, List.of())).isTrue();
+        assertThat(outboxRows(dedupeKey)).isEqualTo(2);
+    }
+
+    private int outboxRows(String dedupeKey) {
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM Alert_Outbox WHERE dedupeKey = ?", Integer.class, dedupeKey);
+        return rows == null ? 0 : rows;
+    }
+
+    private static MailDto mail() {
+        MailDto mail = new MailDto();
+        mail.setTo(new String[]{"ops@example.com"});
+        mail.setSubject("Dedupe test");
+        mail.setBody("body");
+        return mail;
+    }
+}
@@ -0,0 +1,142 @@
+package com.grabit.cba.VendingMachineAlertService.service.mail;
+
+import com.grabit.cba.VendingMachineAlertService.config.AllMachinesMonitorProperties;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SmtpTransportPoolTest {
+
+    @Test
+    void burstReusesOneConnection() throws Exception {
+        try (FakeSmtpServer server = new FakeSmtpServer()) {
+            JavaMailSenderImpl sender = sender(server);
+            SmtpTransportPool pool = new SmtpTransportPool(sender, properties(1, 1000));
+
+            for (int i = 0; i < 25; i++) {
+                pool.send(message(sender, i));
+            }
+            pool.shutdown();
+
+            assertThat(server.messages()).isEqualTo(25);
+            assertThat(server.connections()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void droppedConnectionIsReplacedWithoutLosingMessages() throws Exception {
+        try (FakeSmtpServer server = new FakeSmtpServer(3)) {
+            JavaMailSenderImpl sender = sender(server);
+            SmtpTransportPool pool = new SmtpTransportPool(sender, properties(1, 1000));
+
+            for (int i = 0; i < 7; i++) {
+                pool.send(message(sender, i));
+            }
+            pool.shutdown();
+
+            assertThat(server.messages()).isEqualTo(7);
+            assertThat(server.connections()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void connectionsAreRecycledAfterMaxMessages() throws Exception {
+        try (FakeSmtpServer server = new FakeSmtpServer()) {
+            JavaMailSenderImpl sender = sender(server);
+            SmtpTransportPool pool = new SmtpTransportPool(sender, properties(1, 5));
+
+            for (int i = 0; i < 12; i++) {
+                pool.send(message(sender, i));
+            }
+            pool.shutdown();
+
+            assertThat(server.messages()).isEqualTo(12);
+            assertThat(server.connections()).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void concurrentSendersShareAtMostPoolSizeConnections() throws Exception {
+        try (FakeSmtpServer server = new FakeSmtpServer()) {
+            JavaMailSenderImpl sender = sender(server);
+            SmtpTransportPool pool = new SmtpTransportPool(sender, properties(2, 1000));
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<?>> sends = new ArrayList<>();
+                for (int i = 0; i < 40; i++) {
+                    int n = i;
+                    sends.add(executor.submit(() -> {
+                        pool.send(message(sender, n));
+                        return null;
+                    }));
+                }
+                for (Future<?> send : sends) {
+                    send.get();
+                }
+            } finally {
+                executor.shutdown();
+                pool.shutdown();
+            }
+
+            assertThat(server.messages()).isEqualTo(40);
+            assertThat(server.connections()).isLessThanOrEqualTo(2);
+        }
+    }
+
+    @Test
+    void interruptedSendReportsTheMessageThatFailed() throws Exception {
+        try (FakeSmtpServer server = new FakeSmtpServer()) {
+            JavaMailSenderImpl sender = sender(server);
+            SmtpTransportPool pool = new SmtpTransportPool(sender, properties(1, 1000));
+            MimeMessage message = message(sender, 0);
+
+            Thread.currentThread().interrupt();
+            try {
+                assertThatThrownBy(() -> pool.send(message))
+                        .isInstanceOfSatisfying(MailSendException.class, ex -> {
+                            assertThat(ex.getFailedMessages()).containsOnlyKeys(message);
+                            assertThat(ex.getMessageExceptions()).hasSize(1);
+                        });
+            } finally {
+                Thread.interrupted();
+                pool.shutdown();
+            }
+            assertThat(server.messages()).isZero();
+        }
+    }
+
+    private static JavaMailSenderImpl sender(FakeSmtpServer server) {
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("127.0.0.1");
+        sender.setPort(server.port());
+        return sender;
+    }
+
+    private static AllMachinesMonitorProperties properties(int poolSize, int maxMessagesPerConnection) {
+        AllMachinesMonitorProperties properties = new AllMachinesMonitorProperties();
+        properties.getMail().setSmtpPoolSize(poolSize);
+        properties.getMail().setSmtpMaxMessagesPerConnection(maxMessagesPerConnection);
+        return properties;
+    }
+
+    private static MimeMessage message(JavaMailSenderImpl sender, int n) throws Exception {
+        MimeMessage message = sender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        helper.setFrom("alerts@example.com");
+        helper.setTo("ops@example.com");
+        helper.setSubject("Alert " + n);
+        helper.setText("<p>Machine alert " + n + "</p>", true);
+        return message;
+    }
+}
@@ -0,0 +1,80 @@
+package com.grabit.cba.VendingMachineAlertService.service.rollup;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HourlyBaselineKernelTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 1, 1);
+
+    private final HourlyBaselineKernel kernel = new HourlyBaselineKernel();
+
+    @Test
+    void hoursWithoutRowOnSampledDaysCountAsZero() {
+        kernel.add(DAY, 9, 4, 0, 0, 0);
+        kernel.add(DAY.plusDays(1), 10, 1, 0, 0, 0);
+        kernel.add(DAY.plusDays(2), 9, 6, 0, 0, 0);
+
+        assertThat(kernel.sampledDays()).isEqualTo(3);
+        // hour 9: 4, 0, 6
+        assertThat(kernel.median(HourlyBaselineKernel.SALES_COMPLETED, 9)).isEqualTo(4.0);
+        // hour 10: 0, 1, 0
+        assertThat(kernel.median(HourlyBaselineKernel.SALES_COMPLETED, 10)).isEqualTo(0.0);
+        assertThat(kernel.quantile(HourlyBaselineKernel.SALES_COMPLETED, 9, 1.0)).isEqualTo(6.0);
+    }
+
+    @Test
+    void evenNumberOfDaysAveragesTheMiddleValues() {
+        kernel.add(DAY, 0, 0, 1, 0, 0);
+        kernel.add(DAY.plusDays(1), 0, 0, 4, 0, 0);
+
+        assertThat(kernel.median(HourlyBaselineKernel.SALES_FAILED, 0)).isEqualTo(2.5);
+        assertThat(kernel.median(HourlyBaselineKernel.VOID_FAILED, 23)).isEqualTo(0.0);
+    }
+
+    @Test
+    void matchesSortedMedianAndIsReusableAfterReset() {
+        Random random = new Random(17);
+        for (int machine = 0; machine < 20; machine++) {
+            kernel.reset();
+            Map<LocalDate, long[]> daily = new TreeMap<>();
+            for (int day = 0; day < 90; day++) {
+                if (random.nextInt(5) == 0) continue;
+                for (int hour = 0; hour < 24; hour++) {
+                    if (random.nextBoolean()) continue;
+                    // Mostly small counts with an occasional burst beyond the initial histogram size
+                    int count = random.nextInt(10) == 0 ? random.nextInt(200) : random.nextInt(6);
+                    daily.computeIfAbsent(DAY.plusDays(day), k -> new long[24])[hour] = count;
+                    kernel.add(DAY.plusDays(day), hour, 0, 0, count, 0);
+                }
+            }
+            for (int hour = 0; hour < 24; hour++) {
+                assertThat(kernel.median(HourlyBaselineKernel.VOID_COMPLETED, hour)).isEqualTo(sortedMedian(daily, hour));
+            }
+        }
+    }
+
+    @Test
+    void noSamplesGiveZero() {
+        assertThat(kernel.sampledDays()).isZero();
+        assertThat(kernel.median(HourlyBaselineKernel.SALES_COMPLETED, 12)).isEqualTo(0.0);
+    }
+
+    // The boxed sort the baseline job used before the histograms
+    private static double sortedMedian(Map<LocalDate, long[]> dailyCounts, int hour) {
+        List<Long> values = new ArrayList<>();
+        for (long[] dailyHourCounts : dailyCounts.values()) {
+            values.add(dailyHourCounts[hour]);
+        }
+        if (values.isEmpty()) {
+            return 0.0;
+        }
+        Collections.sort(values);
+        int size = values.size();
+        return size % 2 == 0 ? (values.get(size / 2 - 1) + values.get(size / 2)) / 2.0 : values.get(size / 2);
+    }
+}
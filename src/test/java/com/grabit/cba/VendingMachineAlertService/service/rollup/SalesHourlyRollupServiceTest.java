@@ -0,0 +1,82 @@
+package com.grabit.cba.VendingMachineAlertService.service.rollup;
+
+import com.grabit.cba.VendingMachineAlertService.config.AllMachinesMonitorProperties;
+import com.grabit.cba.VendingMachineAlertService.database.repository.AlertSalesHourlyRollupRepository;
+import com.grabit.cba.VendingMachineAlertService.database.repository.SalesRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SalesHourlyRollupServiceTest {
+
+    private SalesRepository salesRepository;
+    private AllMachinesMonitorProperties properties;
+    private SalesHourlyRollupService rollupService;
+
+    // Alert_Sales_Hourly_Rollup_State: lastSaleId, pendingSaleId, pendingSinceMillis
+    private final Object[] state = {0, null, null};
+    private final List<int[]> rolledUp = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        salesRepository = mock(SalesRepository.class);
+        AlertSalesHourlyRollupRepository rollupRepository = mock(AlertSalesHourlyRollupRepository.class);
+        properties = new AllMachinesMonitorProperties();
+        rollupService = new SalesHourlyRollupService(rollupRepository, salesRepository, properties,
+                mock(PlatformTransactionManager.class));
+
+        when(rollupRepository.lockState()).thenAnswer(invocation -> List.<Object[]>of(state.clone()));
+        when(rollupRepository.rollUpSales(anyInt(), anyInt())).thenAnswer(invocation -> {
+            rolledUp.add(new int[]{invocation.getArgument(0), invocation.getArgument(1)});
+            return 1;
+        });
+        when(rollupRepository.saveLastSaleId(anyInt())).thenAnswer(invocation -> {
+            state[0] = invocation.getArgument(0);
+            return 1;
+        });
+        when(rollupRepository.savePendingSaleId(anyInt(), anyLong())).thenAnswer(invocation -> {
+            state[1] = invocation.getArgument(0);
+            state[2] = invocation.getArgument(1);
+            return 1;
+        });
+    }
+
+    @Test
+    void rollsUpNewIdsOnlyOnceTheCommitGraceHasPassed() {
+        when(salesRepository.findMaxId()).thenReturn(100);
+        assertThat(rollupService.catchUp()).isEqualTo(100);
+
+        // Id 101 may still be uncommitted when 102 shows up
+        when(salesRepository.findMaxId()).thenReturn(102);
+        assertThat(rollupService.catchUp()).isZero();
+        assertThat(state[1]).isEqualTo(102);
+        assertThat(rollupService.catchUp()).isZero();
+
+        state[2] = (Long) state[2] - properties.getRollup().getCommitGraceSeconds() * 1000;
+        when(salesRepository.findMaxId()).thenReturn(110);
+        assertThat(rollupService.catchUp()).isEqualTo(2);
+
+        assertThat(rolledUp).containsExactly(new int[]{0, 100}, new int[]{100, 102});
+        assertThat(state[0]).isEqualTo(102);
+        assertThat(state[1]).isEqualTo(110);
+    }
+
+    @Test
+    void rollsUpToTheNewestIdWithoutGrace() {
+        properties.getRollup().setCommitGraceSeconds(0);
+        properties.getRollup().setChunkSize(40);
+        when(salesRepository.findMaxId()).thenReturn(100);
+
+        assertThat(rollupService.catchUp()).isEqualTo(100);
+
+        assertThat(rolledUp).containsExactly(new int[]{0, 40}, new int[]{40, 80}, new int[]{80, 100});
+        assertThat(state[1]).isNull();
+    }
+}
@@ -0,0 +1,87 @@
+package com.grabit.cba.VendingMachineAlertService.service.state;
+
+import com.grabit.cba.VendingMachineAlertService.database.model.AlertType;
+import com.grabit.cba.VendingMachineAlertService.database.model.projection.AlertHistoryLatest;
+import com.grabit.cba.VendingMachineAlertService.database.repository.AlertHistoryRepository;
+import com.grabit.cba.VendingMachineAlertService.enums.AlertState;
+import com.grabit.cba.VendingMachineAlertService.service.topology.VendingMachineResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class AlertStateStoreTest {
+
+    private static final LocalDateTime SENT_AT = LocalDateTime.of(2026, 1, 5, 10, 0);
+
+    private AlertHistoryRepository alertHistoryRepository;
+    private AlertStateStore store;
+    private AlertType offline;
+
+    @BeforeEach
+    void setUp() {
+        alertHistoryRepository = mock(AlertHistoryRepository.class);
+        when(alertHistoryRepository.findLatestSendsAfterId(anyInt())).thenReturn(List.of());
+        store = new AlertStateStore(alertHistoryRepository, mock(VendingMachineResolver.class));
+        offline = new AlertType();
+        offline.setId(7);
+        offline.setCode("MACHINE_OFFLINE");
+    }
+
+    @Test
+    void warmsUpFromAggregatedHistoryOnce() {
+        when(alertHistoryRepository.findLatestSendsAfterId(0)).thenReturn(List.of(
+                new AlertHistoryLatest(1, "VM-1", 7, SENT_AT, 42)));
+
+        assertThat(store.status("VM-1", offline).state()).isEqualTo(AlertState.COOLDOWN);
+        assertThat(store.status("VM-1", offline).lastSentAt()).isEqualTo(SENT_AT);
+        assertThat(store.status("VM-2", offline).state()).isEqualTo(AlertState.OK);
+        verify(alertHistoryRepository, times(1)).findLatestSendsAfterId(anyInt());
+
+        store.syncFromHistory();
+        verify(alertHistoryRepository).findLatestSendsAfterId(42);
+    }
+
+    @Test
+    void walksFiringCooldownResolved() {
+        store.firing("VM-1", offline);
+        assertThat(store.status("VM-1", offline).state()).isEqualTo(AlertState.FIRING);
+        assertThat(store.status("VM-1", offline).lastSentAt()).isNull();
+
+        store.sent("VM-1", 7, SENT_AT);
+        assertThat(store.status("VM-1", offline).state()).isEqualTo(AlertState.COOLDOWN);
+        assertThat(store.status("VM-1", offline).lastSentAt()).isEqualTo(SENT_AT);
+
+        store.resolve("VM-1", offline);
+        assertThat(store.status("VM-1", offline).state()).isEqualTo(AlertState.RESOLVED);
+        assertThat(store.status("VM-1", offline).lastSentAt()).isEqualTo(SENT_AT);
+    }
+
+    @Test
+    void abandonedMailRestoresPreviousState() {
+        store.sent("VM-1", 7, SENT_AT);
+        store.resolve("VM-1", offline);
+        store.firing("VM-1", offline);
+
+        store.abandoned("VM-1", 7);
+
+        assertThat(store.status("VM-1", offline).state()).isEqualTo(AlertState.RESOLVED);
+        assertThat(store.status("VM-1", offline).lastSentAt()).isEqualTo(SENT_AT);
+    }
+
+    @Test
+    void replayedOlderSendDoesNotMoveLastSentAt() {
+        store.sent("VM-1", 7, SENT_AT);
+        store.firing("VM-1", offline);
+
+        store.sent("VM-1", 7, SENT_AT.minusHours(1));
+
+        assertThat(store.status("VM-1", offline).state()).isEqualTo(AlertState.FIRING);
+        assertThat(store.status("VM-1", offline).lastSentAt()).isEqualTo(SENT_AT);
+    }
+}
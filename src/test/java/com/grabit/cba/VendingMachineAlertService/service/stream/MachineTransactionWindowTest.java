@@ -0,0 +1,50 @@
+package com.grabit.cba.VendingMachineAlertService.service.stream;
+
+import com.grabit.cba.VendingMachineAlertService.database.model.projection.SalesSignal;
+import com.grabit.cba.VendingMachineAlertService.enums.TransactionTypes;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MachineTransactionWindowTest {
+
+    private static final LocalDateTime AT = LocalDateTime.of(2026, 1, 5, 10, 0);
+
+    @Test
+    void backdatedRowIsAppendedAtItsTimeAsALoadWouldPlaceIt() {
+        MachineTransactionWindow appended = new MachineTransactionWindow(3,
+                List.of(sale(12, 20, "SALE_FAILED"), sale(11, 10, "SALE_FAILED")), 0);
+        // Uploaded late by an offline machine: highest id, but older than the newest row
+        appended.append(sale(13, 15, "SALE_COMPLETED"));
+
+        MachineTransactionWindow loaded = new MachineTransactionWindow(3,
+                List.of(sale(12, 20, "SALE_FAILED"), sale(13, 15, "SALE_COMPLETED"), sale(11, 10, "SALE_FAILED")), 0);
+
+        for (MachineTransactionWindow window : List.of(appended, loaded)) {
+            assertThat(window.size()).isEqualTo(3);
+            assertThat(List.of(window.id(0), window.id(1), window.id(2))).containsExactly(12, 13, 11);
+            assertThat(window.maxRun(TransactionTypes.SALE_FAILED.code(), 3)).isEqualTo(1);
+            assertThat(window.leadingRunMatching(TransactionTypes.SALE_FAILED.mask(), 3)).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void ignoresRowsAlreadyInTheWindowAndRowsOlderThanAFullWindow() {
+        MachineTransactionWindow window = new MachineTransactionWindow(2,
+                List.of(sale(12, 20, "SALE_FAILED"), sale(11, 10, "SALE_FAILED")), 0);
+
+        window.append(sale(11, 10, "SALE_FAILED"));
+        window.append(sale(13, 5, "SALE_COMPLETED"));
+
+        assertThat(window.size()).isEqualTo(2);
+        assertThat(List.of(window.id(0), window.id(1))).containsExactly(12, 11);
+        assertThat(window.count(TransactionTypes.SALE_FAILED.code(), 2)).isEqualTo(2);
+    }
+
+    private static SalesSignal sale(int id, int minute, String status) {
+        return new SalesSignal(id, 1, AT.plusMinutes(minute), status, "Approved", 250);
+    }
+}
@@ -0,0 +1,122 @@
+package com.grabit.cba.VendingMachineAlertService.service.stream;
+
+import com.grabit.cba.VendingMachineAlertService.config.AllMachinesMonitorProperties;
+import com.grabit.cba.VendingMachineAlertService.database.model.projection.SalesSignal;
+import com.grabit.cba.VendingMachineAlertService.database.repository.SalesRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TransactionStreamServiceTest {
+
+    private static final LocalDateTime AT = LocalDateTime.of(2026, 1, 5, 10, 0);
+
+    private SalesRepository salesRepository;
+    private AllMachinesMonitorProperties properties;
+    private TransactionStreamService stream;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        salesRepository = mock(SalesRepository.class);
+        properties = new AllMachinesMonitorProperties();
+        ObjectProvider<TransactionDetector> detectors = mock(ObjectProvider.class);
+        when(detectors.orderedStream()).thenAnswer(invocation -> Stream.of((TransactionDetector) () -> 5));
+        stream = new TransactionStreamService(salesRepository, properties, detectors);
+
+        when(salesRepository.findMaxId()).thenReturn(10);
+        when(salesRepository.findSignalsAfterId(anyInt(), any(Pageable.class))).thenReturn(List.of());
+        stream.catchUp();
+    }
+
+    @Test
+    void rowIngestedWhileAWindowLoadsIsNotLost() throws InterruptedException {
+        when(salesRepository.findSignalsAfterId(eq(10), any(Pageable.class))).thenReturn(List.of(sale(11, 1)));
+        Thread[] catchUp = new Thread[1];
+        when(salesRepository.findLatestSignalsByMachineIds(anyCollection(), anyInt())).thenAnswer(invocation -> {
+            // Another monitor starts its cycle while the snapshot is being read
+            catchUp[0] = new Thread(stream::catchUp);
+            catchUp[0].start();
+            Thread.sleep(200);
+            return Map.of(1, List.of(sale(10, 1)));
+        });
+
+        stream.windows(List.of(1), 5);
+        catchUp[0].join();
+
+        TransactionWindow window = stream.windows(List.of(1), 5).get(1);
+        assertThat(window.size()).isEqualTo(2);
+        assertThat(window.id(0)).isEqualTo(11);
+    }
+
+    @Test
+    void windowHandedOutDoesNotShiftWhenAnotherMonitorCatchesUp() {
+        when(salesRepository.findLatestSignalsByMachineIds(anyCollection(), anyInt()))
+                .thenReturn(Map.of(1, List.of(sale(10, 1), sale(8, 1))));
+        TransactionWindow window = stream.windows(List.of(1), 5).get(1);
+
+        when(salesRepository.findSignalsAfterId(eq(10), any(Pageable.class))).thenReturn(List.of(sale(11, 1)));
+        stream.catchUp();
+
+        assertThat(window.size()).isEqualTo(2);
+        assertThat(window.id(0)).isEqualTo(10);
+        assertThat(stream.windows(List.of(1), 5).get(1).id(0)).isEqualTo(11);
+    }
+
+    @Test
+    void rowCommittedAfterAHigherIdWasReadIsStillAppended() {
+        when(salesRepository.findLatestSignalsByMachineIds(anyCollection(), anyInt()))
+                .thenReturn(Map.of(1, List.of(sale(10, 1))));
+        stream.windows(List.of(1), 5);
+
+        // 12 is still uncommitted when 11 and 13 are read
+        when(salesRepository.findSignalsAfterId(eq(10), any(Pageable.class))).thenReturn(List.of(sale(11, 1), sale(13, 1)));
+        stream.catchUp();
+        when(salesRepository.findSignalsAfterId(eq(10), any(Pageable.class)))
+                .thenReturn(List.of(sale(11, 1), sale(12, 1), sale(13, 1)));
+        stream.catchUp();
+
+        TransactionWindow window = stream.windows(List.of(1), 5).get(1);
+        assertThat(List.of(window.id(0), window.id(1), window.id(2), window.id(3))).containsExactly(13, 12, 11, 10);
+
+        // Once the grace has passed the settled ids are not read again
+        properties.getStream().setCommitGraceSeconds(0);
+        stream.catchUp();
+        stream.catchUp();
+        verify(salesRepository).findSignalsAfterId(eq(13), any(Pageable.class));
+    }
+
+    @Test
+    void evictsWindowsNoMonitorAskedForWithinTheResyncInterval() throws InterruptedException {
+        when(salesRepository.findLatestSignalsByMachineIds(anyCollection(), anyInt()))
+                .thenReturn(Map.of(1, List.of(sale(10, 1)), 2, List.of(sale(9, 2))));
+        stream.windows(List.of(1, 2), 5);
+        assertThat(trackedMachines()).containsOnlyKeys(1, 2);
+
+        properties.getStream().setWindowResyncMinutes(0);
+        Thread.sleep(5);
+        stream.catchUp();
+
+        assertThat(trackedMachines()).isEmpty();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Integer, ?> trackedMachines() {
+        return (Map<Integer, ?>) ReflectionTestUtils.getField(stream, "windows");
+    }
+
+    private static SalesSignal sale(int id, int machineId) {
+        return new SalesSignal(id, machineId, AT.plusMinutes(id), "SALE_COMPLETED", "Approved", 250);
+    }
+}
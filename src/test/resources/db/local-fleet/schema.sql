@@ -0,0 +1,8 @@
+-- Tables of src/main/resources/db without an entity, in H2's MySQL mode
+CREATE TABLE IF NOT EXISTS Alert_Sales_Hourly_Rollup_State (
+    id TINYINT PRIMARY KEY,
+    lastSaleId INT NOT NULL,
+    pendingSaleId INT NULL,
+    pendingSinceMillis BIGINT NULL,
+    updatedAt DATETIME(6) NOT NULL
+);